@@ -0,0 +1,43 @@
+package net.osmand.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering search of map objects around the center at several zooms
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MapSearchBenchmark {
+
+	@Param({ "5", "11", "15", "17" })
+	public int zoom;
+
+	@Benchmark
+	public List<BinaryMapDataObject> searchMapIndex(ObfReaderState state) throws IOException {
+		int s = ObfReaderState.getHalfSize(zoom);
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(state.getX31() - s,
+				state.getX31() + s, state.getY31() - s, state.getY31() + s, zoom, null);
+		return state.getReader().searchMapIndex(req);
+	}
+}
@@ -0,0 +1,144 @@
+package net.osmand.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.data.LatLon;
+import net.osmand.util.MapUtils;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Obf file opened for benchmarks.
+ *
+ * Warm handle is opened once per trial, so the table of contents and the lazily read parts (encoding rules, upper map
+ * levels, route types) are already in memory after the first invocation. Cold handle is opened for every invocation
+ * and every search starts with reading the table of contents. Page cache of the OS is not dropped in both cases.
+ *
+ * Center of the search is the center of the first map level (or of the first address region) unless it is given
+ * with x31/y31 parameters.
+ */
+@State(Scope.Thread)
+public class ObfReaderState {
+
+	public static final String OBF_PROPERTY = "osmand.obf";
+
+	@Param({ "" })
+	public String obf;
+
+	@Param({ "warm", "cold" })
+	public String handle;
+
+	@Param({ "false" })
+	public boolean mapped;
+
+	@Param({ "0" })
+	public int x31;
+
+	@Param({ "0" })
+	public int y31;
+
+	private File file;
+	private RandomAccessFile raf;
+	private BinaryMapIndexReader reader;
+
+	@Setup(Level.Trial)
+	public void openFile() throws IOException {
+		String path = obf.length() > 0 ? obf : System.getProperty(OBF_PROPERTY, "");
+		file = new File(path);
+		if (!file.exists()) {
+			throw new IllegalArgumentException("Obf file is not found '" + path + "', set it with -p obf=... or -D"
+					+ OBF_PROPERTY + "=...");
+		}
+		open();
+		if (x31 == 0 && y31 == 0) {
+			initCenter();
+		}
+		if (!isWarm()) {
+			close();
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void openColdHandle() throws IOException {
+		if (!isWarm()) {
+			open();
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void closeColdHandle() throws IOException {
+		if (!isWarm()) {
+			close();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void closeFile() throws IOException {
+		if (reader != null) {
+			close();
+		}
+	}
+
+	public boolean isWarm() {
+		return "warm".equals(handle);
+	}
+
+	public BinaryMapIndexReader getReader() {
+		return reader;
+	}
+
+	public int getX31() {
+		return x31;
+	}
+
+	public int getY31() {
+		return y31;
+	}
+
+	/**
+	 * @return half size of the square around the center which is approximately a screen of tiles of the zoom
+	 */
+	public static int getHalfSize(int zoom) {
+		return 2 << (31 - zoom);
+	}
+
+	private void open() throws IOException {
+		raf = new RandomAccessFile(file, "r");
+		reader = new BinaryMapIndexReader(raf, mapped);
+	}
+
+	private void close() throws IOException {
+		reader.close();
+		reader = null;
+		raf = null;
+	}
+
+	private void initCenter() {
+		for (MapIndex mapIndex : reader.getMapIndexes()) {
+			for (MapRoot root : mapIndex.getRoots()) {
+				x31 = (int) (((long) root.getLeft() + root.getRight()) / 2);
+				y31 = (int) (((long) root.getTop() + root.getBottom()) / 2);
+				return;
+			}
+		}
+		if (!reader.getRegionNames().isEmpty()) {
+			LatLon center = reader.getRegionCenter(reader.getRegionNames().get(0));
+			if (center != null) {
+				x31 = MapUtils.get31TileNumberX(center.getLongitude());
+				y31 = MapUtils.get31TileNumberY(center.getLatitude());
+				return;
+			}
+		}
+		throw new IllegalArgumentException("File has no map and address data, set center with -p x31=... -p y31=...");
+	}
+}
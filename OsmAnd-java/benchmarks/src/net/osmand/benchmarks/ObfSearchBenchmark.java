@@ -0,0 +1,119 @@
+package net.osmand.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.osmand.binary.BinaryMapAddressReaderAdapter;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.Amenity;
+import net.osmand.data.AmenityType;
+import net.osmand.data.City;
+import net.osmand.data.MapObject;
+import net.osmand.data.TransportStop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Poi, address, transport and routing data searches around the center of the file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ObfSearchBenchmark {
+
+	private static final int POI_ZOOM = 15;
+	private static final int TRANSPORT_ZOOM = 16;
+	private static final int ROUTE_ZOOM = 13;
+	private static final int MAX_CITIES_TO_PRELOAD = 20;
+
+	private static final SearchPoiTypeFilter ACCEPT_ALL = new SearchPoiTypeFilter() {
+		@Override
+		public boolean accept(AmenityType type, String subcategory) {
+			return true;
+		}
+	};
+
+	@Param({ "caf" })
+	public String poiName;
+
+	@Param({ "main" })
+	public String addressName;
+
+	@Benchmark
+	public List<Amenity> searchPoi(ObfReaderState state) throws IOException {
+		int s = ObfReaderState.getHalfSize(POI_ZOOM);
+		SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(state.getX31() - s, state.getX31() + s,
+				state.getY31() - s, state.getY31() + s, POI_ZOOM, ACCEPT_ALL, null);
+		return state.getReader().searchPoi(req);
+	}
+
+	@Benchmark
+	public List<Amenity> searchPoiByName(ObfReaderState state) throws IOException {
+		int s = ObfReaderState.getHalfSize(POI_ZOOM - 4);
+		SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(state.getX31(), state.getY31(), poiName,
+				state.getX31() - s, state.getX31() + s, state.getY31() - s, state.getY31() + s, null);
+		return state.getReader().searchPoiByName(req);
+	}
+
+	@Benchmark
+	public List<MapObject> searchAddressDataByName(ObfReaderState state) throws IOException {
+		SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(null, addressName);
+		return state.getReader().searchAddressDataByName(req);
+	}
+
+	@Benchmark
+	public void getCitiesPreloadStreets(ObfReaderState state, Blackhole bh) throws IOException {
+		BinaryMapIndexReader reader = state.getReader();
+		for (String region : reader.getRegionNames()) {
+			List<City> cities = reader.getCities(region, null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+			bh.consume(cities);
+			for (int i = 0; i < cities.size() && i < MAX_CITIES_TO_PRELOAD; i++) {
+				bh.consume(reader.preloadStreets(cities.get(i), null));
+			}
+		}
+	}
+
+	@Benchmark
+	public List<TransportStop> searchTransportIndex(ObfReaderState state) throws IOException {
+		int s = ObfReaderState.getHalfSize(TRANSPORT_ZOOM);
+		SearchRequest<TransportStop> req = BinaryMapIndexReader.buildSearchTransportRequest(state.getX31() - s,
+				state.getX31() + s, state.getY31() - s, state.getY31() + s, -1, null);
+		return state.getReader().searchTransportIndex(req);
+	}
+
+	@Benchmark
+	public List<RouteDataObject> loadRouteRegionData(ObfReaderState state) throws IOException {
+		BinaryMapIndexReader reader = state.getReader();
+		int s = ObfReaderState.getHalfSize(ROUTE_ZOOM);
+		List<RouteDataObject> result = new ArrayList<RouteDataObject>();
+		for (RouteRegion region : reader.getRoutingIndexes()) {
+			SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(state.getX31() - s,
+					state.getX31() + s, state.getY31() - s, state.getY31() + s, null);
+			List<RouteSubregion> subregions = reader.searchRouteIndexTree(req, region.getSubregions());
+			for (RouteSubregion sub : subregions) {
+				result.addAll(reader.loadRouteIndexData(sub));
+			}
+		}
+		return result;
+	}
+}
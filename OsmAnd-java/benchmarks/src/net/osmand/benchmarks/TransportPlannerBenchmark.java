@@ -0,0 +1,154 @@
+package net.osmand.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportNetwork;
+import net.osmand.router.TransportRoutePlanner;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transport planner over synthetic city, no obf file is needed, so the jar is run directly:
+ *
+ *	java -jar OsmAnd-benchmarks.jar TransportPlanner -p lines=60
+ *
+ * City is a square grid of streets 500 m apart with a stop at every crossing. Every street has a bus line, every
+ * third street has a tram line with stops at every second crossing and diagonals have subway lines, so the journeys
+ * across the city need several transfers. Queries are random pairs of points of the same seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TransportPlannerBenchmark {
+
+	private static final double CENTER_LAT = 52.37;
+	private static final double CENTER_LON = 4.9;
+	private static final double STREET_DISTANCE = 500;
+	private static final int QUERIES = 64;
+
+	// streets in both directions
+	@Param({ "20", "60" })
+	public int lines;
+
+	@Param({ "1" })
+	public long seed;
+
+	private List<TransportRoute> routes;
+	private TransportNetwork network;
+	private TransportRoutePlanner planner;
+	private LatLon[] starts;
+	private LatLon[] ends;
+	private int query;
+
+	@Setup(Level.Trial)
+	public void createCity() {
+		routes = createRoutes(lines);
+		network = buildNetwork();
+		planner = new TransportRoutePlanner(network);
+		Random rnd = new Random(seed);
+		starts = new LatLon[QUERIES];
+		ends = new LatLon[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			starts[i] = getLocation(rnd.nextDouble() * (lines - 1), rnd.nextDouble() * (lines - 1));
+			ends[i] = getLocation(rnd.nextDouble() * (lines - 1), rnd.nextDouble() * (lines - 1));
+		}
+	}
+
+	@Benchmark
+	public TransportNetwork buildNetwork() {
+		TransportNetwork.Builder builder = new TransportNetwork.Builder();
+		for (TransportRoute r : routes) {
+			builder.addRoute(r);
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public List<TransportRouteResult> searchJourneys() {
+		int q = query++ % QUERIES;
+		return planner.searchJourneys(starts[q], ends[q]);
+	}
+
+	@Benchmark
+	public TransportRouteResult searchMinimumTransfers() {
+		int q = query++ % QUERIES;
+		return planner.searchMinimumTransfers(starts[q], ends[q]);
+	}
+
+	private static LatLon getLocation(double i, double j) {
+		double lat = CENTER_LAT + (j * STREET_DISTANCE) / 111320d;
+		double lon = CENTER_LON + (i * STREET_DISTANCE) / (111320d * Math.cos(Math.toRadians(CENTER_LAT)));
+		return new LatLon(lat, lon);
+	}
+
+	private static List<TransportRoute> createRoutes(int lines) {
+		TransportStop[][] stops = new TransportStop[lines][lines];
+		long id = 1;
+		for (int i = 0; i < lines; i++) {
+			for (int j = 0; j < lines; j++) {
+				TransportStop s = new TransportStop();
+				s.setId(id++);
+				s.setName("Stop " + i + "x" + j);
+				LatLon l = getLocation(i, j);
+				s.setLocation(l.getLatitude(), l.getLongitude());
+				stops[i][j] = s;
+			}
+		}
+		List<TransportRoute> routes = new ArrayList<TransportRoute>();
+		for (int k = 0; k < lines; k++) {
+			List<TransportStop> row = new ArrayList<TransportStop>();
+			List<TransportStop> column = new ArrayList<TransportStop>();
+			for (int m = 0; m < lines; m++) {
+				row.add(stops[m][k]);
+				column.add(stops[k][m]);
+			}
+			routes.add(createRoute("bus", "R" + k, row, 1));
+			routes.add(createRoute("bus", "C" + k, column, 1));
+			if (k % 3 == 0) {
+				routes.add(createRoute("tram", "T" + k, row, 2));
+				routes.add(createRoute("tram", "TC" + k, column, 2));
+			}
+		}
+		List<TransportStop> diagonal = new ArrayList<TransportStop>();
+		List<TransportStop> antidiagonal = new ArrayList<TransportStop>();
+		for (int m = 0; m < lines; m += 4) {
+			diagonal.add(stops[m][m]);
+			antidiagonal.add(stops[m][lines - 1 - m]);
+		}
+		routes.add(createRoute("subway", "M1", diagonal, 1));
+		routes.add(createRoute("subway", "M2", antidiagonal, 1));
+		return routes;
+	}
+
+	private static TransportRoute createRoute(String type, String ref, List<TransportStop> line, int step) {
+		TransportRoute r = new TransportRoute();
+		r.setType(type);
+		r.setRef(ref);
+		for (int i = 0; i < line.size(); i += step) {
+			r.getForwardStops().add(line.get(i));
+			r.getBackwardStops().add(0, line.get(i));
+		}
+		return r;
+	}
+}
@@ -33,6 +33,7 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -76,6 +77,14 @@ public final class CodedInputStream {
   public static CodedInputStream newInstance(RandomAccessFile raf) {
     return new CodedInputStream(raf);
   }
+
+  /**
+   * Create a new CodedInputStream over an already mapped file. The buffer
+   * is duplicated so several streams could share one mapping.
+   */
+  public static CodedInputStream newInstance(ByteBuffer mapped) {
+    return new CodedInputStream(mapped);
+  }
   // end osmand change
 
 
@@ -205,7 +214,7 @@ public final class CodedInputStream {
   /** Read a {@code string} field value from the stream. */
   public String readString() throws IOException {
     final int size = readRawVarint32();
-    if (size <= (bufferSize - bufferPos) && size > 0) {
+    if (buffer != null && size <= (bufferSize - bufferPos) && size > 0) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
       final String result = new String(buffer, bufferPos, size, "UTF-8");
@@ -270,7 +279,7 @@ public final class CodedInputStream {
   /** Read a {@code bytes} field value from the stream. */
   public ByteString readBytes() throws IOException {
     final int size = readRawVarint32();
-    if (size <= (bufferSize - bufferPos) && size > 0) {
+    if (buffer != null && size <= (bufferSize - bufferPos) && size > 0) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
       final ByteString result = ByteString.copyFrom(buffer, bufferPos, size);
@@ -485,6 +494,8 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change : whole file mapping, buffer is null in that case
+  private final ByteBuffer mapped;
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -521,6 +532,7 @@ public final class CodedInputStream {
     bufferPos = off;
     totalBytesRetired = -off;
     input = null;
+    mapped = null;
   }
 
   private CodedInputStream(final InputStream input) {
@@ -529,6 +541,7 @@ public final class CodedInputStream {
     bufferPos = 0;
     totalBytesRetired = 0;
     this.input = input;
+    mapped = null;
   }
   
   private CodedInputStream(final RandomAccessFile raf) {
@@ -538,6 +551,18 @@ public final class CodedInputStream {
 	 totalBytesRetired = 0;
 	 this.raf = raf;
 	 input = null;
+	 mapped = null;
+  }
+
+  private CodedInputStream(final ByteBuffer mapped) {
+	 // the mapping is one big buffer : positions are absolute and never retired
+	 this.mapped = mapped.duplicate();
+	 this.mapped.clear();
+	 buffer = null;
+	 bufferSize = this.mapped.limit();
+	 bufferPos = 0;
+	 totalBytesRetired = 0;
+	 input = null;
   }
 
   /**
@@ -694,6 +719,14 @@ public final class CodedInputStream {
       }
     }
 
+    if (mapped != null) {
+      // osmand change : whole file is already available, so it is the end of file
+      if (mustSucceed) {
+        throw InvalidProtocolBufferException.truncatedMessage();
+      }
+      return false;
+    }
+
     totalBytesRetired += bufferSize;
 
     bufferPos = 0;
@@ -742,6 +775,9 @@ public final class CodedInputStream {
     if (bufferPos == bufferSize) {
       refillBuffer(true);
     }
+    if (mapped != null) {
+      return mapped.get(bufferPos++);
+    }
     return buffer[bufferPos++];
   }
 
@@ -763,7 +799,17 @@ public final class CodedInputStream {
       throw InvalidProtocolBufferException.truncatedMessage();
     }
 
-    if (size <= bufferSize - bufferPos) {
+    if (mapped != null) {
+      // osmand change : copy straight from the mapping
+      if (size > bufferSize - bufferPos) {
+        throw InvalidProtocolBufferException.truncatedMessage();
+      }
+      final byte[] bytes = new byte[size];
+      mapped.position(bufferPos);
+      mapped.get(bytes, 0, size);
+      bufferPos += size;
+      return bytes;
+    } else if (size <= bufferSize - bufferPos) {
       // We have all the bytes we need already.
       final byte[] bytes = new byte[size];
       System.arraycopy(buffer, bufferPos, bytes, 0, size);
@@ -880,6 +926,9 @@ public final class CodedInputStream {
     if (size <= bufferSize - bufferPos) {
       // We have all the bytes we need already.
       bufferPos += size;
+    } else if (mapped != null) {
+      // osmand change : nothing left in the mapping
+      throw InvalidProtocolBufferException.truncatedMessage();
     } else {
       // Skipping more bytes than are in the buffer.  First skip what we have.
       int pos = bufferSize - bufferPos;
@@ -905,8 +954,109 @@ public final class CodedInputStream {
     }
   }
   
+  // osmand change
+  /**
+   * Reads {@code length} bytes of packed sint32 pairs (x, y), every pair is
+   * delta from the previous point. Absolute coordinates
+   * {@code (delta << shift) + previous} are stored in {@code dest} starting
+   * from {@code offset}, array should have space for {@code length} values
+   * (one value takes at least one byte).
+   * When the whole block is buffered (always for the mapped file) it is
+   * decoded without refilling the buffer, only continuation bytes of the
+   * varints are checked against the end of the block.
+   *
+   * @return number of stored values (twice the number of points)
+   */
+  public int readDeltaCoordinates(final int length, final int[] dest,
+      final int offset, final int shift, int px, int py) throws IOException {
+    if (length < 0) {
+      throw InvalidProtocolBufferException.negativeSize();
+    }
+    // long arithmetic, the sum overflows int when there is no limit
+    if ((long) totalBytesRetired + bufferPos + length > currentLimit) {
+      skipRawBytes(currentLimit - totalBytesRetired - bufferPos);
+      throw InvalidProtocolBufferException.truncatedMessage();
+    }
+    int count = offset;
+    if (length <= bufferSize - bufferPos) {
+      final int end = bufferPos + length;
+      int pos = bufferPos;
+      if (mapped != null) {
+        final ByteBuffer buf = mapped;
+        while (pos < end) {
+          int b = buf.get(pos++);
+          int v = b & 0x7f;
+          for (int s = 7; b < 0; s += 7) {
+            if (s > 28) {
+              throw InvalidProtocolBufferException.malformedVarint();
+            }
+            if (pos == end) {
+              throw InvalidProtocolBufferException.truncatedMessage();
+            }
+            b = buf.get(pos++);
+            v |= (b & 0x7f) << s;
+          }
+          final int delta = ((v >>> 1) ^ -(v & 1)) << shift;
+          if (((count - offset) & 1) == 0) {
+            px += delta;
+            dest[count++] = px;
+          } else {
+            py += delta;
+            dest[count++] = py;
+          }
+        }
+      } else {
+        final byte[] buf = buffer;
+        while (pos < end) {
+          int b = buf[pos++];
+          int v = b & 0x7f;
+          for (int s = 7; b < 0; s += 7) {
+            if (s > 28) {
+              throw InvalidProtocolBufferException.malformedVarint();
+            }
+            if (pos == end) {
+              throw InvalidProtocolBufferException.truncatedMessage();
+            }
+            b = buf[pos++];
+            v |= (b & 0x7f) << s;
+          }
+          final int delta = ((v >>> 1) ^ -(v & 1)) << shift;
+          if (((count - offset) & 1) == 0) {
+            px += delta;
+            dest[count++] = px;
+          } else {
+            py += delta;
+            dest[count++] = py;
+          }
+        }
+      }
+      bufferPos = end;
+    } else {
+      final int end = totalBytesRetired + bufferPos + length;
+      while (totalBytesRetired + bufferPos < end) {
+        final int delta = decodeZigZag32(readRawVarint32()) << shift;
+        if (((count - offset) & 1) == 0) {
+          px += delta;
+          dest[count++] = px;
+        } else {
+          py += delta;
+          dest[count++] = py;
+        }
+      }
+    }
+    return count - offset;
+  }
+
   // osmand change
 	public void seek(long pointer) throws IOException {
+		if (mapped != null) {
+			// bufferSize is already cut by the current limit
+			if (pointer > bufferSize) {
+				throw InvalidProtocolBufferException.truncatedMessage();
+			}
+			bufferPos = (int) pointer;
+			return;
+		}
 		if (pointer - totalBytesRetired >= 0 && pointer - totalBytesRetired < bufferSize) {
 			if (pointer > currentLimit) {
 				// Then fail.
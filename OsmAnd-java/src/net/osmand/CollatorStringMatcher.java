@@ -31,6 +31,14 @@ public class CollatorStringMatcher implements StringMatcher {
 		return collator;
 	}
 	
+	public String getPart() {
+		return part;
+	}
+	
+	public StringMatcherMode getMode() {
+		return mode;
+	}
+	
 	@Override
 	public boolean matches(String name) {
 		return cmatches(collator, name, part, mode);
@@ -0,0 +1,261 @@
+package net.osmand;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.sf.junidecode.Junidecode;
+
+import com.ibm.icu.text.Normalizer;
+
+/**
+ * Precomputed keys of the names of objects to select the objects which could match a query of
+ * {@link CollatorStringMatcher} without calling the collator for each of them.
+ *
+ * Every word of the names (the words that the matcher checks in CHECK_STARTS_FROM_SPACE mode) is folded once
+ * (accents removed, transliterated to latin letters, lower case) and kept in a sorted array, so words starting with
+ * a query are found by binary search. Letters equal for the primary strength of the collator get the same key
+ * (also letters without decomposition like \u00f8 or \u0142), but other letters could get it too, so the index only
+ * selects candidates and they should still be checked by the matcher (a few of them instead of the whole list).
+ *
+ * Index is immutable and could be used by several threads.
+ */
+public class NameKeyIndex<T> {
+
+	private final List<T> objects;
+	// sorted folded words of all names
+	private final String[] keys;
+	// object of the word: index << 1 | 1 if the word is the beginning of the name
+	private final int[] postings;
+
+	private NameKeyIndex(Builder<T> b) {
+		objects = new ArrayList<T>(b.objects);
+		Integer[] order = new Integer[b.keys.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		final List<String> bkeys = b.keys;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return bkeys.get(o1).compareTo(bkeys.get(o2));
+			}
+		});
+		keys = new String[order.length];
+		postings = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			keys[i] = bkeys.get(order[i]);
+			postings[i] = b.postings.get(order[i]);
+		}
+	}
+
+	/**
+	 * Removes accents, transliterates to latin letters and converts to lower case the same way for names and queries
+	 */
+	public static String fold(String s) {
+		// java.text.Normalizer is not available before android API 9, icu4j is used instead
+		String d = Normalizer.normalize(s, Normalizer.NFD);
+		StringBuilder b = new StringBuilder(d.length());
+		for (int i = 0; i < d.length(); i++) {
+			char c = d.charAt(i);
+			int type = Character.getType(c);
+			if (type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+					&& type != Character.ENCLOSING_MARK) {
+				b.append(c);
+			}
+		}
+		// letters without decomposition (\u00f8, \u0142, \u00e6, \u00df, ...) and other scripts
+		String t = Junidecode.unidecode(b.toString());
+		b.setLength(0);
+		for (int i = 0; i < t.length(); i++) {
+			char c = t.charAt(i);
+			// transliteration could add spaces and punctuation inside of the word
+			if (Character.isLetterOrDigit(c)) {
+				b.append(Character.toLowerCase(c));
+			}
+		}
+		return b.toString();
+	}
+
+	private static boolean isSpace(char c) {
+		return !Character.isLetter(c) && !Character.isDigit(c);
+	}
+
+	/**
+	 * @return folded words of the name in the order of the name
+	 */
+	public static List<String> getWordKeys(String name) {
+		List<String> words = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i <= name.length(); i++) {
+			boolean space = i == name.length() || isSpace(name.charAt(i));
+			if (space && start != -1) {
+				String w = fold(name.substring(start, i));
+				if (w.length() > 0) {
+					words.add(w);
+				}
+				start = -1;
+			} else if (!space && start == -1) {
+				start = i;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * @return folded first word of the query or null if the query doesn't start with a word
+	 * (such query could only match the beginning of a name, so all names should be checked)
+	 */
+	public static String getQueryPrefix(String query) {
+		int end = 0;
+		while (end < query.length() && !isSpace(query.charAt(end))) {
+			end++;
+		}
+		if (end == 0) {
+			return null;
+		}
+		String prefix = fold(query.substring(0, end));
+		return prefix.length() == 0 ? null : prefix;
+	}
+
+	/**
+	 * @return objects (in the order of the index) which could match the query in the mode
+	 * or null if the index can't select them (CHECK_CONTAINS mode), then all objects should be checked
+	 */
+	public List<T> getCandidates(String query, StringMatcherMode mode) {
+		if (query.length() == 0) {
+			return getObjects();
+		}
+		String prefix = getQueryPrefix(query);
+		if (prefix == null || mode == StringMatcherMode.CHECK_CONTAINS) {
+			return null;
+		}
+		boolean onlyBeginning = mode == StringMatcherMode.CHECK_ONLY_STARTS_WITH;
+		int i = Arrays.binarySearch(keys, prefix);
+		if (i < 0) {
+			i = -i - 1;
+		} else {
+			// first of equal keys
+			while (i > 0 && keys[i - 1].equals(prefix)) {
+				i--;
+			}
+		}
+		TIntArrayList found = new TIntArrayList();
+		for (; i < keys.length && keys[i].startsWith(prefix); i++) {
+			if (!onlyBeginning || (postings[i] & 1) == 1) {
+				found.add(postings[i] >> 1);
+			}
+		}
+		if (found.isEmpty()) {
+			return Collections.emptyList();
+		}
+		found.sort();
+		List<T> result = new ArrayList<T>();
+		int prev = -1;
+		for (int k = 0; k < found.size(); k++) {
+			int ind = found.get(k);
+			if (ind != prev) {
+				result.add(objects.get(ind));
+				prev = ind;
+			}
+		}
+		return result;
+	}
+
+	public List<T> getObjects() {
+		return Collections.unmodifiableList(objects);
+	}
+
+	public int size() {
+		return objects.size();
+	}
+
+	public static class Builder<T> {
+		private final List<T> objects = new ArrayList<T>();
+		private final List<String> keys = new ArrayList<String>();
+		private final TIntArrayList postings = new TIntArrayList();
+
+		/**
+		 * @param names names of the object, null names are ignored
+		 */
+		public Builder<T> add(T obj, String... names) {
+			int ind = objects.size();
+			objects.add(obj);
+			for (String name : names) {
+				if (name == null) {
+					continue;
+				}
+				List<String> words = getWordKeys(name);
+				boolean beginning = name.length() > 0 && !isSpace(name.charAt(0));
+				for (String w : words) {
+					keys.add(w);
+					postings.add((ind << 1) | (beginning ? 1 : 0));
+					beginning = false;
+				}
+			}
+			return this;
+		}
+
+		public NameKeyIndex<T> build() {
+			return new NameKeyIndex<T>(this);
+		}
+	}
+
+	public static void main(String[] args) {
+		// letters without decomposition
+		testCandidates("Malmo", true, "Malm\u00f8");
+		testCandidates("Lodz", true, "\u0141\u00f3d\u017a");
+		testCandidates("Aero", true, "\u00c6r\u00f8sk\u00f8bing");
+		testCandidates("Oeuvre", true, "\u0152uvre");
+		testCandidates("Dakovo", true, "\u0110akovo");
+		testCandidates("Thingvellir", true, "\u00deingvellir");
+		testCandidates("Strasse", true, "Hauptstra\u00dfe", "Stra\u00dfe");
+		testCandidates("Stra\u00dfe", true, "Strasse");
+		// letters with decomposition
+		testCandidates("Koln", true, "K\u00f6ln");
+		testCandidates("\u041a\u043e\u0440\u043e\u043b\u0435\u0432", true, "\u041a\u043e\u0440\u043e\u043b\u0451\u0432");
+		// transliterated names
+		testCandidates("Moskva", true, "\u041c\u043e\u0441\u043a\u0432\u0430");
+		testCandidates("Malmo", false, "Lund");
+		// index should select every name matched by collator
+		Collator collator = PlatformUtil.primaryCollator();
+		String[] names = { "Malm\u00f8", "\u0141\u00f3d\u017a", "K\u00f6ln", "S\u00e3o Paulo", "\u00c5lesund", "\u0130stanbul",
+				"\u00d8stre Toten", "Saint-\u00c9tienne", "\u041a\u043e\u0440\u043e\u043b\u0451\u0432" };
+		String[] queries = { "malm", "lod", "kol", "sao", "ale", "ist", "ost", "eti", "\u043a\u043e\u0440\u043e\u043b\u0435" };
+		NameKeyIndex.Builder<String> builder = new NameKeyIndex.Builder<String>();
+		for (String n : names) {
+			builder.add(n, n);
+		}
+		NameKeyIndex<String> index = builder.build();
+		for (String q : queries) {
+			for (StringMatcherMode mode : new StringMatcherMode[] { StringMatcherMode.CHECK_ONLY_STARTS_WITH,
+					StringMatcherMode.CHECK_STARTS_FROM_SPACE }) {
+				List<String> candidates = index.getCandidates(q, mode);
+				for (String n : names) {
+					if (CollatorStringMatcher.cmatches(collator, n, q, mode) && !candidates.contains(n)) {
+						throw new IllegalStateException("Name " + n + " matches " + q + " but it is not selected by index");
+					}
+				}
+			}
+		}
+		System.out.println("All is successfull");
+	}
+
+	private static void testCandidates(String query, boolean expected, String... names) {
+		NameKeyIndex.Builder<String> builder = new NameKeyIndex.Builder<String>();
+		for (String n : names) {
+			builder.add(n, n);
+		}
+		List<String> candidates = builder.build().getCandidates(query, StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		if (candidates.contains(names[names.length - 1]) != expected) {
+			throw new IllegalStateException("Query " + query + " " + (expected ? "doesn't select " : "selects ")
+					+ names[names.length - 1] + " (keys " + getWordKeys(names[names.length - 1]) + ")");
+		}
+		System.out.println(query + " -> " + candidates);
+	}
+}
@@ -7,6 +7,8 @@ import gnu.trove.list.array.TLongArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -16,6 +18,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.ResultMatcher;
@@ -207,6 +214,18 @@ public class BinaryInspector {
 						println("\n" + extracted.size() + " parts were successfully extracted to " + args[1]);
 					}
 				}
+			} else if (f.equals("-stats")) {
+				if (args.length < 2) {
+					printUsage("Missing file parameter");
+				} else {
+					int threads = Runtime.getRuntime().availableProcessors();
+					for (int i = 1; i < args.length - 1; i++) {
+						if (args[i].startsWith("-threads=")) {
+							threads = Integer.parseInt(args[i].substring("-threads=".length()));
+						}
+					}
+					printStatistics(new File(args[args.length - 1]), threads);
+				}
 			} else if (f.startsWith("-v")) {
 				if (args.length < 2) {
 					printUsage("Missing file parameter");
@@ -231,150 +250,227 @@ public class BinaryInspector {
 		//written += 4;
 	}
 	
+	public static List<Float> combineParts(File fileToExtract, Map<File, String> partsToExtractFrom) throws IOException {
+		return combineParts(fileToExtract, partsToExtractFrom, Runtime.getRuntime().availableProcessors());
+	}
+
+	private static class PartToCopy {
+		final BinaryIndexPart part;
+		final int field;
+		final String name;
+		// position of the part tag in the output file
+		long outPointer;
+
+		PartToCopy(BinaryIndexPart part, int field, String name) {
+			this.part = part;
+			this.field = field;
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Input files are opened and copied concurrently (one file by one thread). Parts are not decoded (all
+	 * pointers inside the parts are relative), so only the headers are written and bodies are transferred
+	 * directly between the file channels.
+	 */
 	@SuppressWarnings("unchecked")
-	public  static List<Float> combineParts(File fileToExtract, Map<File, String> partsToExtractFrom) throws IOException {
-		BinaryMapIndexReader[] indexes = new BinaryMapIndexReader[partsToExtractFrom.size()];
-		RandomAccessFile[] rafs = new RandomAccessFile[partsToExtractFrom.size()];
-		
-		LinkedHashSet<Float>[] partsSet = new LinkedHashSet[partsToExtractFrom.size()];
-		int c = 0;
-		Set<String> addressNames = new LinkedHashSet<String>();
-		
-		
-		int version = -1;
-		// Go through all files and validate conistency 
-		for(File f : partsToExtractFrom.keySet()){
+	public  static List<Float> combineParts(File fileToExtract, Map<File, String> partsToExtractFrom, int threads) throws IOException {
+		final File[] files = partsToExtractFrom.keySet().toArray(new File[partsToExtractFrom.size()]);
+		for (File f : files) {
 			if(f.getAbsolutePath().equals(fileToExtract.getAbsolutePath())){
 				System.err.println("Error : Input file is equal to output file " + f.getAbsolutePath());
 				return null;
 			}
-			rafs[c] = new RandomAccessFile(f.getAbsolutePath(), "r");
-			indexes[c] = new BinaryMapIndexReader(rafs[c]);
-			partsSet[c] = new LinkedHashSet<Float>();
-			if(version == -1){
-				version = indexes[c].getVersion();
-			} else {
-				if(indexes[c].getVersion() != version){
-					System.err.println("Error : Different input files has different input versions " + indexes[c].getVersion() + " != " + version);
-					return null;
-				}
-			}
-			
-			LinkedHashSet<Float> temp = new LinkedHashSet<Float>();
-			String pattern = partsToExtractFrom.get(f);
-			boolean minus = true;
-			for (int i = 0; i < indexes[c].getIndexes().size(); i++) {
-				partsSet[c].add(i + 1f);
-				BinaryIndexPart part = indexes[c].getIndexes().get(i);
-				if(part instanceof MapIndex){
-					List<MapRoot> roots = ((MapIndex) part).getRoots();
-					int rsize = roots.size(); 
-					for(int j=0; j<rsize; j++){
-						partsSet[c].add((i + 1f) + (j + 1) / 10f);
+		}
+		final BinaryMapIndexReader[] indexes = new BinaryMapIndexReader[files.length];
+		final RandomAccessFile[] rafs = new RandomAccessFile[files.length];
+		LinkedHashSet<Float>[] partsSet = new LinkedHashSet[files.length];
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.length)));
+		try {
+			List<Future<BinaryMapIndexReader>> opened = new ArrayList<Future<BinaryMapIndexReader>>();
+			for (final File f : files) {
+				opened.add(executor.submit(new Callable<BinaryMapIndexReader>() {
+					@Override
+					public BinaryMapIndexReader call() throws IOException {
+						return new BinaryMapIndexReader(new RandomAccessFile(f.getAbsolutePath(), "r"));
 					}
-				}
+				}));
 			}
-			if(pattern != null){
-				minus = pattern.startsWith("-");
-				String[] split = pattern.substring(1).split(",");
-				for(String s : split){
-					temp.add(Float.valueOf(s));
-				}
+			for (int c = 0; c < files.length; c++) {
+				indexes[c] = getResult(opened.get(c));
+				rafs[c] = indexes[c].getRaf();
 			}
 
-			Iterator<Float> p = partsSet[c].iterator();
-			while (p.hasNext()) {
-				Float part = p.next();
-				if (minus) {
-					if (temp.contains(part)) {
-						p.remove();
-					}
+			int version = -1;
+			// Go through all files and validate conistency 
+			for (int c = 0; c < files.length; c++) {
+				partsSet[c] = new LinkedHashSet<Float>();
+				if(version == -1){
+					version = indexes[c].getVersion();
 				} else {
-					if (!temp.contains(part)) {
-						p.remove();
+					if(indexes[c].getVersion() != version){
+						System.err.println("Error : Different input files has different input versions " + indexes[c].getVersion() + " != " + version);
+						return null;
 					}
 				}
-			}
 
-			c++;
-		}
-		
-		// write files 
-		FileOutputStream fout = new FileOutputStream(fileToExtract);
-		CodedOutputStream ous = CodedOutputStream.newInstance(fout, BUFFER_SIZE);
-		List<Float> list = new ArrayList<Float>();
-		byte[] BUFFER_TO_READ = new byte[BUFFER_SIZE];
-		
-		ous.writeInt32(OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER, version);
-		ous.writeInt64(OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER, System.currentTimeMillis());
-		
-		
-		for (int k = 0; k < indexes.length; k++) {
-			LinkedHashSet<Float> partSet = partsSet[k];
-			BinaryMapIndexReader index = indexes[k];
-			RandomAccessFile raf = rafs[k];
-			for (int i = 0; i < index.getIndexes().size(); i++) {
-				if (!partSet.contains(Float.valueOf(i + 1f))) {
-					continue;
+				LinkedHashSet<Float> temp = new LinkedHashSet<Float>();
+				String pattern = partsToExtractFrom.get(files[c]);
+				boolean minus = true;
+				for (int i = 0; i < indexes[c].getIndexes().size(); i++) {
+					partsSet[c].add(i + 1f);
+					BinaryIndexPart part = indexes[c].getIndexes().get(i);
+					if(part instanceof MapIndex){
+						List<MapRoot> roots = ((MapIndex) part).getRoots();
+						int rsize = roots.size(); 
+						for(int j=0; j<rsize; j++){
+							partsSet[c].add((i + 1f) + (j + 1) / 10f);
+						}
+					}
+				}
+				if(pattern != null){
+					minus = pattern.startsWith("-");
+					String[] split = pattern.substring(1).split(",");
+					for(String s : split){
+						temp.add(Float.valueOf(s));
+					}
 				}
-				list.add(i + 1f);
 
-				BinaryIndexPart part = index.getIndexes().get(i);
-				String map;
-				
-				if (part instanceof MapIndex) {
-					ous.writeTag(OsmandOdb.OsmAndStructure.MAPINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
-					map = "Map";
-				} else if (part instanceof AddressRegion) {
-					ous.writeTag(OsmandOdb.OsmAndStructure.ADDRESSINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
-					map = "Address";
-					if (addressNames.contains(part.getName())) {
-						System.err.println("Error : going to merge 2 addresses with same names. Skip " + part.getName());
+				Iterator<Float> p = partsSet[c].iterator();
+				while (p.hasNext()) {
+					Float part = p.next();
+					if (minus) {
+						if (temp.contains(part)) {
+							p.remove();
+						}
+					} else {
+						if (!temp.contains(part)) {
+							p.remove();
+						}
+					}
+				}
+			}
+
+			// place parts in the output file
+			byte[] header = new byte[64];
+			CodedOutputStream ous = CodedOutputStream.newInstance(header);
+			ous.writeInt32(OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER, version);
+			ous.writeInt64(OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER, System.currentTimeMillis());
+			long outPointer = header.length - ous.spaceLeft();
+			int headerLength = (int) outPointer;
+			List<Float> list = new ArrayList<Float>();
+			Set<String> addressNames = new LinkedHashSet<String>();
+			final List<List<PartToCopy>> partsToCopy = new ArrayList<List<PartToCopy>>();
+			for (int k = 0; k < indexes.length; k++) {
+				partsToCopy.add(new ArrayList<PartToCopy>());
+				BinaryMapIndexReader index = indexes[k];
+				for (int i = 0; i < index.getIndexes().size(); i++) {
+					if (!partsSet[k].contains(Float.valueOf(i + 1f))) {
 						continue;
 					}
-					addressNames.add(part.getName());
-				} else if (part instanceof TransportIndex) {
-					ous.writeTag(OsmandOdb.OsmAndStructure.TRANSPORTINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
-					map = "Transport";
-				} else if (part instanceof PoiRegion) {
-					ous.writeTag(OsmandOdb.OsmAndStructure.POIINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
-					map = "POI";
-				} else if (part instanceof RouteRegion) {
-					ous.writeTag(OsmandOdb.OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
-					map = "Routing";
-				} else {
-					throw new UnsupportedOperationException();
+					list.add(i + 1f);
+
+					BinaryIndexPart part = index.getIndexes().get(i);
+					PartToCopy copy;
+					if (part instanceof MapIndex) {
+						copy = new PartToCopy(part, OsmandOdb.OsmAndStructure.MAPINDEX_FIELD_NUMBER, "Map");
+					} else if (part instanceof AddressRegion) {
+						if (addressNames.contains(part.getName())) {
+							System.err.println("Error : going to merge 2 addresses with same names. Skip " + part.getName());
+							continue;
+						}
+						addressNames.add(part.getName());
+						copy = new PartToCopy(part, OsmandOdb.OsmAndStructure.ADDRESSINDEX_FIELD_NUMBER, "Address");
+					} else if (part instanceof TransportIndex) {
+						copy = new PartToCopy(part, OsmandOdb.OsmAndStructure.TRANSPORTINDEX_FIELD_NUMBER, "Transport");
+					} else if (part instanceof PoiRegion) {
+						copy = new PartToCopy(part, OsmandOdb.OsmAndStructure.POIINDEX_FIELD_NUMBER, "POI");
+					} else if (part instanceof RouteRegion) {
+						copy = new PartToCopy(part, OsmandOdb.OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER, "Routing");
+					} else {
+						throw new UnsupportedOperationException();
+					}
+					copy.outPointer = outPointer;
+					outPointer += CodedOutputStream.computeTagSize(copy.field) + 4 + part.getLength();
+					partsToCopy.get(k).add(copy);
+				}
+			}
+			ous.writeInt32(OsmandOdb.OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, version);
+			int footerLength = header.length - ous.spaceLeft() - headerLength;
+
+			// write files 
+			RandomAccessFile out = new RandomAccessFile(fileToExtract, "rw");
+			try {
+				out.setLength(0);
+				// bodies could be transferred only inside of the file
+				out.setLength(outPointer + footerLength);
+				final FileChannel outChannel = out.getChannel();
+				outChannel.write(ByteBuffer.wrap(header, 0, headerLength), 0);
+				outChannel.write(ByteBuffer.wrap(header, headerLength, footerLength), outPointer);
+				List<Future<BinaryMapIndexReader>> copied = new ArrayList<Future<BinaryMapIndexReader>>();
+				for (int k = 0; k < indexes.length; k++) {
+					final int fk = k;
+					copied.add(executor.submit(new Callable<BinaryMapIndexReader>() {
+						@Override
+						public BinaryMapIndexReader call() throws IOException {
+							for (PartToCopy copy : partsToCopy.get(fk)) {
+								copyBinaryPart(rafs[fk].getChannel(), copy, outChannel);
+							}
+							return indexes[fk];
+						}
+					}));
+				}
+				for (int k = 0; k < indexes.length; k++) {
+					getResult(copied.get(k));
+					for (PartToCopy copy : partsToCopy.get(k)) {
+						System.out.println(MessageFormat.format("{2} part {0} is extracted {1} bytes",
+								new Object[]{copy.part.getName(), copy.part.getLength(), copy.name}));
+					}
+				}
+			} finally {
+				out.close();
+			}
+			return list;
+		} finally {
+			executor.shutdownNow();
+			for (RandomAccessFile raf : rafs) {
+				if (raf != null) {
+					raf.close();
 				}
-				writeInt(ous, part.getLength());
-				copyBinaryPart(ous, BUFFER_TO_READ, raf, part.getFilePointer(), part.getLength());
-				System.out.println(MessageFormat.format("{2} part {0} is extracted {1} bytes",
-						new Object[]{part.getName(), part.getLength(), map}));
-				
 			}
 		}
-		
-		ous.writeInt32(OsmandOdb.OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, version);
-		ous.flush();
-		fout.close();
-		
-		
-		return list;
 	}
 
+	private static <T> T getResult(Future<T> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			throw new IOException("Combining is interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
 
-	private  static void copyBinaryPart(CodedOutputStream ous, byte[] BUFFER, RandomAccessFile raf, long fp, int length)
-			throws IOException {
-		raf.seek(fp);
-		int toRead = length;
+	private  static void copyBinaryPart(FileChannel in, PartToCopy copy, FileChannel out) throws IOException {
+		byte[] header = new byte[CodedOutputStream.computeTagSize(copy.field) + 4];
+		CodedOutputStream ous = CodedOutputStream.newInstance(header);
+		ous.writeTag(copy.field, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		writeInt(ous, copy.part.getLength());
+		out.write(ByteBuffer.wrap(header), copy.outPointer);
+		long pos = copy.outPointer + header.length;
+		long toRead = copy.part.getLength();
+		in.position(copy.part.getFilePointer());
 		while (toRead > 0) {
-			int read = raf.read(BUFFER);
-			if (read == -1) {
+			long read = out.transferFrom(in, pos, toRead);
+			if (read <= 0) {
 				throw new IllegalArgumentException("Unexpected end of file");
 			}
-			if (toRead < read) {
-				read = toRead;
-			}
-			ous.writeRawBytes(BUFFER, 0, read);
+			pos += read;
 			toRead -= read;
 		}
 	}
@@ -470,6 +566,29 @@ public class BinaryInspector {
 		
 	}
 
+	public void printStatistics(File file, int threads) throws IOException {
+		if (!file.exists()) {
+			println("Binary OsmAnd index " + file.getName() + " was not found.");
+			return;
+		}
+		long time = System.nanoTime();
+		List<ObfStatistics.SectionStatistics> stats = new ObfStatistics(threads).collect(file);
+		long wall = System.nanoTime() - time;
+		println("Binary index " + file.getName() + " statistics (" + threads + " threads)");
+		long bytes = 0;
+		long decoding = 0;
+		for (ObfStatistics.SectionStatistics s : stats) {
+			bytes += s.getBytes();
+			decoding += s.getTimeNanos();
+			println(MessageFormat.format("{0} - {1,number,#} bytes, {2,number,#} objects, {3,number,#.#} points/object, " +
+					"{4,number,#} names ({5,number,#} bytes UTF-8), {6,number,#} ms ({7,number,#.#} ms/MB), {8}",
+					new Object[] { s.getName(), s.getBytes(), s.getObjects(), s.getPointsPerObject(), s.getStrings(),
+							s.getStringBytes(), s.getTimeNanos() / 1000000, s.getMsPerMB(), s.getDetails() }));
+		}
+		println(MessageFormat.format("Total {0,number,#} bytes decoded in {1,number,#} ms ({2,number,#} ms in all threads)",
+				new Object[] { bytes, wall / 1000000, decoding / 1000000 }));
+	}
+
 	private  void printAddressDetailedInfo(VerboseInfo verbose, BinaryMapIndexReader index, AddressRegion region) throws IOException {
 		String[] cityType_String = new String[] {
 	        "Cities/Towns section",
@@ -811,6 +930,8 @@ public class BinaryInspector {
 		println("\nUsage for print info : inspector [-vaddress] [-vstreetgroups] [-vstreets] [-vbuildings] [-vintersections] [-vmap] [-vmapobjects] [-osm] [-vpoi] [-vtransport] [-zoom=Zoom] [-bbox=LeftLon,TopLat,RightLon,BottomLan] [file]");
 		println("  Prints information about [file] binary index of OsmAnd.");
 		println("  -v.. more verbouse output (like all cities and their streets or all map objects with tags/values and coordinates)");
+		println("\nUsage for statistics : inspector -stats [-threads=N] [file]");
+		println("  Decodes all sections of [file] in N threads (number of processors by default) and prints their sizes, number of objects, points, strings and decoding time.");
 		println("\nUsage for combining indexes : inspector -c file_to_create (file_from_extract ((+|-)parts_to_extract)? )*");
 		println("\tCreate new file of extracted parts from input file. [parts_to_extract] could be parts to include or exclude.");
 		println("  Example : inspector -c output_file input_file +1,2,3\n\tExtracts 1, 2, 3 parts (could be find in print info)");
@@ -8,6 +8,7 @@ import java.util.List;
 
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.NameKeyIndex;
 import net.osmand.PlatformUtil;
 import net.osmand.StringMatcher;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
@@ -61,6 +62,8 @@ public class BinaryMapAddressReaderAdapter {
 	
 	public static class CitiesBlock extends BinaryIndexPart {
 		int type;
+		// file pointers of the cities with their names, read on the first search by name
+		volatile NameKeyIndex<Integer> nameKeys;
 	}
 	
 	private CodedInputStream codedIS;
@@ -131,6 +134,57 @@ public class BinaryMapAddressReaderAdapter {
 		}
 	}
 	
+	/**
+	 * Reads names of all cities of the block (stream should be positioned at the block start)
+	 */
+	protected NameKeyIndex<Integer> readCityNameKeys() throws IOException {
+		NameKeyIndex.Builder<Integer> builder = new NameKeyIndex.Builder<Integer>();
+		while(true){
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return builder.build();
+			case CitiesIndex.CITIES_FIELD_NUMBER :
+				int fp = codedIS.getTotalBytesRead();
+				int length = codedIS.readRawVarint32();
+				int oldLimit = codedIS.pushLimit(length);
+				City c = readCityHeader(null, fp, false);
+				if (c != null) {
+					// english name is transliterated name when it is missing
+					builder.add(fp, c.getName(), c.getEnName(), Junidecode.unidecode(c.getName()));
+				}
+				codedIS.popLimit(oldLimit);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Reads only the cities which could match the name (found by name keys of the block)
+	 */
+	protected void readCities(List<City> cities, SearchRequest<City> resultMatcher, StringMatcher matcher, boolean useEn, 
+			List<Integer> filePointers) throws IOException {
+		for (int fp : filePointers) {
+			codedIS.seek(fp);
+			int length = codedIS.readRawVarint32();
+			int oldLimit = codedIS.pushLimit(length);
+			City c = readCityHeader(matcher, fp, useEn);
+			codedIS.popLimit(oldLimit);
+			if (c != null) {
+				if (resultMatcher == null || resultMatcher.publish(c)) {
+					cities.add(c);
+				}
+			}
+			if (resultMatcher != null && resultMatcher.isCancelled()) {
+				return;
+			}
+		}
+	}
+	
 	protected void readCities(List<City> cities, SearchRequest<City> resultMatcher, StringMatcher matcher, boolean useEn) throws IOException {
 		while(true){
 			int t = codedIS.readTag();
@@ -0,0 +1,436 @@
+package net.osmand.binary;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.List;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+
+/**
+ * Objects of one decoded map data block kept in shared arrays (one array of coordinates, one of types, ...)
+ * instead of separate {@link BinaryMapDataObject}s with their own arrays.
+ * Objects are accessed by index, {@link ObjectView} gives BinaryMapDataObject like access to one object
+ * and could be moved over the whole block without allocations.
+ * {@link #createObject(int)} copies object out of the block when it should be kept separately.
+ */
+public class BinaryMapDataBlock {
+	private static final int INITIAL_OBJECTS = 32;
+
+	private MapIndex mapIndex;
+	private int size = 0;
+	private long[] ids = new long[INITIAL_OBJECTS];
+	private boolean[] areas = new boolean[INITIAL_OBJECTS];
+	// object i has points [coordinatesStart[i], pointsEnd[i]) followed by inner polygons
+	private int[] coordinatesStart = new int[INITIAL_OBJECTS + 1];
+	private int[] pointsEnd = new int[INITIAL_OBJECTS];
+	private int[] coordinates = new int[INITIAL_OBJECTS * 32];
+	// inner polygons of object i end at polygonEnds[polygonsStart[i]], ... polygonEnds[polygonsStart[i + 1] - 1]
+	private int[] polygonsStart = new int[INITIAL_OBJECTS + 1];
+	private int[] polygonEnds = new int[8];
+	private int[] typesStart = new int[INITIAL_OBJECTS + 1];
+	private int[] types = new int[INITIAL_OBJECTS * 2];
+	private int[] additionalTypesStart = new int[INITIAL_OBJECTS + 1];
+	private int[] additionalTypes = new int[INITIAL_OBJECTS];
+	// pairs of name type and index in the string table
+	private int[] namesStart = new int[INITIAL_OBJECTS + 1];
+	private int[] names = new int[INITIAL_OBJECTS * 2];
+	private List<String> stringTable = null;
+
+	// end of the object being read (not committed yet)
+	private int coordinatesEnd = 0;
+	private int objectPointsEnd = 0;
+	private int polygonsEnd = 0;
+	private int typesEnd = 0;
+	private int additionalTypesEnd = 0;
+	private int namesEnd = 0;
+
+	public BinaryMapDataBlock(MapIndex mapIndex) {
+		this.mapIndex = mapIndex;
+	}
+
+	public MapIndex getMapIndex() {
+		return mapIndex;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getId(int obj) {
+		return ids[obj];
+	}
+
+	public boolean isArea(int obj) {
+		return areas[obj];
+	}
+
+	public int getPointsLength(int obj) {
+		return (pointsEnd[obj] - coordinatesStart[obj]) / 2;
+	}
+
+	public int getPoint31XTile(int obj, int ind) {
+		return coordinates[coordinatesStart[obj] + 2 * ind];
+	}
+
+	public int getPoint31YTile(int obj, int ind) {
+		return coordinates[coordinatesStart[obj] + 2 * ind + 1];
+	}
+
+	public boolean isCycle(int obj) {
+		int s = coordinatesStart[obj];
+		int e = pointsEnd[obj];
+		if (e - s < 2) {
+			return false;
+		}
+		return coordinates[s] == coordinates[e - 2] && coordinates[s + 1] == coordinates[e - 1];
+	}
+
+	public int getPolygonsCount(int obj) {
+		return polygonsStart[obj + 1] - polygonsStart[obj];
+	}
+
+	/**
+	 * @return inner polygon as array of x, y coordinates
+	 */
+	public int[] getPolygonInnerCoordinates(int obj, int polygon) {
+		int k = polygonsStart[obj] + polygon;
+		int s = polygon == 0 ? pointsEnd[obj] : polygonEnds[k - 1];
+		return copyOfRange(coordinates, s, polygonEnds[k]);
+	}
+
+	public int getTypesLength(int obj) {
+		return typesStart[obj + 1] - typesStart[obj];
+	}
+
+	public int getType(int obj, int ind) {
+		return types[typesStart[obj] + ind];
+	}
+
+	public boolean containsType(int obj, int cachedType) {
+		return cachedType != -1 && contains(types, typesStart[obj], typesStart[obj + 1], cachedType);
+	}
+
+	public int getAdditionalTypesLength(int obj) {
+		return additionalTypesStart[obj + 1] - additionalTypesStart[obj];
+	}
+
+	public int getAdditionalType(int obj, int ind) {
+		return additionalTypes[additionalTypesStart[obj] + ind];
+	}
+
+	public boolean containsAdditionalType(int obj, int cachedType) {
+		return cachedType != -1 && contains(additionalTypes, additionalTypesStart[obj], additionalTypesStart[obj + 1], cachedType);
+	}
+
+	private static boolean contains(int[] array, int start, int end, int value) {
+		for (int i = start; i < end; i++) {
+			if (array[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getNameByType(int obj, int type) {
+		if (type != -1) {
+			for (int i = namesStart[obj]; i < namesStart[obj + 1]; i += 2) {
+				if (names[i] == type) {
+					return getString(names[i + 1]);
+				}
+			}
+		}
+		return null;
+	}
+
+	public String getName(int obj) {
+		String name = getNameByType(obj, mapIndex.nameEncodingType);
+		return name == null ? "" : name;
+	}
+
+	int getNamesCount(int obj) {
+		return (namesStart[obj + 1] - namesStart[obj]) / 2;
+	}
+
+	String getNameAt(int obj, int ind) {
+		return getString(names[namesStart[obj] + ind * 2 + 1]);
+	}
+
+	private String getString(int ind) {
+		return ObfStringTable.getString(stringTable, ind);
+	}
+
+	public int getSimpleLayer(int obj) {
+		for (int i = additionalTypesStart[obj]; i < additionalTypesStart[obj + 1]; i++) {
+			if (mapIndex.positiveLayers.contains(additionalTypes[i])) {
+				return 1;
+			} else if (mapIndex.negativeLayers.contains(additionalTypes[i])) {
+				return -1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Copies object into separate BinaryMapDataObject
+	 */
+	public BinaryMapDataObject createObject(int obj) {
+		BinaryMapDataObject dataObject = new BinaryMapDataObject();
+		dataObject.area = areas[obj];
+		dataObject.coordinates = copyOfRange(coordinates, coordinatesStart[obj], pointsEnd[obj]);
+		int polygons = getPolygonsCount(obj);
+		if (polygons == 0) {
+			dataObject.polygonInnerCoordinates = new int[0][0];
+		} else {
+			dataObject.polygonInnerCoordinates = new int[polygons][];
+			for (int i = 0; i < polygons; i++) {
+				dataObject.polygonInnerCoordinates[i] = getPolygonInnerCoordinates(obj, i);
+			}
+		}
+		dataObject.types = copyOfRange(types, typesStart[obj], typesStart[obj + 1]);
+		dataObject.additionalTypes = copyOfRange(additionalTypes, additionalTypesStart[obj], additionalTypesStart[obj + 1]);
+		if (namesStart[obj + 1] > namesStart[obj]) {
+			dataObject.setEncodedNames(copyOfRange(names, namesStart[obj], namesStart[obj + 1]), stringTable);
+		}
+		dataObject.id = ids[obj];
+		dataObject.mapIndex = mapIndex;
+		return dataObject;
+	}
+
+	/**
+	 * @return view moved to the object, given view is reused if it is not null
+	 */
+	public ObjectView getView(int obj, ObjectView reuse) {
+		ObjectView v = reuse == null ? new ObjectView() : reuse;
+		v.block = this;
+		v.obj = obj;
+		return v;
+	}
+
+	/**
+	 * Flyweight access to one object of the block
+	 */
+	public static class ObjectView {
+		private BinaryMapDataBlock block;
+		private int obj;
+
+		public BinaryMapDataBlock getBlock() {
+			return block;
+		}
+
+		public int getIndex() {
+			return obj;
+		}
+
+		public boolean moveTo(int obj) {
+			this.obj = obj;
+			return obj < block.size;
+		}
+
+		public long getId() {
+			return block.getId(obj);
+		}
+
+		public boolean isArea() {
+			return block.isArea(obj);
+		}
+
+		public boolean isCycle() {
+			return block.isCycle(obj);
+		}
+
+		public int getPointsLength() {
+			return block.getPointsLength(obj);
+		}
+
+		public int getPoint31XTile(int ind) {
+			return block.getPoint31XTile(obj, ind);
+		}
+
+		public int getPoint31YTile(int ind) {
+			return block.getPoint31YTile(obj, ind);
+		}
+
+		public int getTypesLength() {
+			return block.getTypesLength(obj);
+		}
+
+		public int getType(int ind) {
+			return block.getType(obj, ind);
+		}
+
+		public boolean containsType(int cachedType) {
+			return block.containsType(obj, cachedType);
+		}
+
+		public int getAdditionalTypesLength() {
+			return block.getAdditionalTypesLength(obj);
+		}
+
+		public int getAdditionalType(int ind) {
+			return block.getAdditionalType(obj, ind);
+		}
+
+		public boolean containsAdditionalType(int cachedType) {
+			return block.containsAdditionalType(obj, cachedType);
+		}
+
+		public String getName() {
+			return block.getName(obj);
+		}
+
+		public String getNameByType(int type) {
+			return block.getNameByType(obj, type);
+		}
+
+		public int getSimpleLayer() {
+			return block.getSimpleLayer(obj);
+		}
+
+		public MapIndex getMapIndex() {
+			return block.mapIndex;
+		}
+
+		public BinaryMapDataObject createObject() {
+			return block.createObject(obj);
+		}
+	}
+
+	// methods used during reading, object is added by parts and then committed or rolled back
+
+	void clear(MapIndex mapIndex) {
+		this.mapIndex = mapIndex;
+		size = 0;
+		stringTable = null;
+		coordinatesEnd = objectPointsEnd = polygonsEnd = typesEnd = additionalTypesEnd = namesEnd = 0;
+	}
+
+	List<String> getStringTable() {
+		return stringTable;
+	}
+
+	void setStringTable(List<String> stringTable) {
+		this.stringTable = stringTable;
+	}
+
+	/**
+	 * @return array that has place for {@code length} more coordinates starting from {@link #getCoordinatesEnd()}
+	 */
+	int[] reserveCoordinates(int length) {
+		if (coordinatesEnd + length > coordinates.length) {
+			coordinates = copyOf(coordinates, Math.max(coordinatesEnd + length, coordinates.length * 2));
+		}
+		return coordinates;
+	}
+
+	int getCoordinatesEnd() {
+		return coordinatesEnd;
+	}
+
+	int getCoordinate(int ind) {
+		return coordinates[ind];
+	}
+
+	void addPoints(int count) {
+		coordinatesEnd += count;
+		objectPointsEnd = coordinatesEnd;
+	}
+
+	void addInnerPolygon(int count) {
+		coordinatesEnd += count;
+		if (polygonsEnd == polygonEnds.length) {
+			polygonEnds = copyOf(polygonEnds, polygonEnds.length * 2);
+		}
+		polygonEnds[polygonsEnd++] = coordinatesEnd;
+	}
+
+	void addTypes(TIntArrayList list) {
+		if (typesEnd + list.size() > types.length) {
+			types = copyOf(types, Math.max(typesEnd + list.size(), types.length * 2));
+		}
+		for (int i = 0; i < list.size(); i++) {
+			types[typesEnd++] = list.getQuick(i);
+		}
+	}
+
+	void addAdditionalType(int type) {
+		if (additionalTypesEnd == additionalTypes.length) {
+			additionalTypes = copyOf(additionalTypes, additionalTypes.length * 2);
+		}
+		additionalTypes[additionalTypesEnd++] = type;
+	}
+
+	void addName(int type, int stringId) {
+		if (namesEnd + 2 > names.length) {
+			names = copyOf(names, names.length * 2);
+		}
+		names[namesEnd++] = type;
+		names[namesEnd++] = stringId;
+	}
+
+	void commitObject(long id, boolean area) {
+		if (size == ids.length) {
+			int l = ids.length * 2;
+			ids = copyOf(ids, l);
+			areas = copyOf(areas, l);
+			pointsEnd = copyOf(pointsEnd, l);
+			coordinatesStart = copyOf(coordinatesStart, l + 1);
+			polygonsStart = copyOf(polygonsStart, l + 1);
+			typesStart = copyOf(typesStart, l + 1);
+			additionalTypesStart = copyOf(additionalTypesStart, l + 1);
+			namesStart = copyOf(namesStart, l + 1);
+		}
+		ids[size] = id;
+		areas[size] = area;
+		pointsEnd[size] = objectPointsEnd;
+		size++;
+		coordinatesStart[size] = coordinatesEnd;
+		polygonsStart[size] = polygonsEnd;
+		typesStart[size] = typesEnd;
+		additionalTypesStart[size] = additionalTypesEnd;
+		namesStart[size] = namesEnd;
+	}
+
+	void rollbackObject() {
+		coordinatesEnd = coordinatesStart[size];
+		polygonsEnd = polygonsStart[size];
+		typesEnd = typesStart[size];
+		additionalTypesEnd = additionalTypesStart[size];
+		namesEnd = namesStart[size];
+	}
+
+	/**
+	 * Keeps only first objects
+	 */
+	void truncate(int count) {
+		if (count < size) {
+			size = count;
+			rollbackObject();
+		}
+	}
+
+	// Arrays.copyOf and copyOfRange are not available before android API 9
+
+	private static int[] copyOfRange(int[] array, int from, int to) {
+		int[] copy = new int[to - from];
+		System.arraycopy(array, from, copy, 0, to - from);
+		return copy;
+	}
+
+	private static int[] copyOf(int[] array, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
+
+	private static long[] copyOf(long[] array, int length) {
+		long[] copy = new long[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
+
+	private static boolean[] copyOf(boolean[] array, int length) {
+		boolean[] copy = new boolean[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
+}
@@ -1,6 +1,9 @@
 package net.osmand.binary;
 
 import gnu.trove.map.hash.TIntObjectHashMap;
+
+import java.util.List;
+
 import net.osmand.binary.BinaryMapIndexReader.MapIndex;
 import net.osmand.render.RenderingRulesStorage;
 
@@ -13,6 +16,9 @@ public class BinaryMapDataObject {
 	protected int objectType = RenderingRulesStorage.POINT_RULES;
 	
 	protected TIntObjectHashMap<String> objectNames = null;
+	// names not decoded yet: pairs of name type and index in the string table of the block
+	private volatile int[] encodedNames = null;
+	private List<String> stringTable = null;
 	protected long id = 0;
 	
 	protected MapIndex mapIndex = null;
@@ -33,11 +39,41 @@ public class BinaryMapDataObject {
 		this.coordinates = coordinates;
 	}
 	
-	public String getName(){
-		if(objectNames == null){
-			return "";
+	/**
+	 * Names are decoded only when they are requested
+	 */
+	void setEncodedNames(int[] encodedNames, List<String> stringTable) {
+		this.stringTable = stringTable;
+		this.encodedNames = encodedNames;
+	}
+	
+	List<String> getStringTable() {
+		return stringTable;
+	}
+	
+	int getEncodedNamesLength() {
+		int[] en = encodedNames;
+		return en == null ? 0 : en.length;
+	}
+	
+	private synchronized void decodeNames() {
+		int[] en = encodedNames;
+		if (en == null) {
+			return;
 		}
-		String name = objectNames.get(mapIndex.nameEncodingType);
+		TIntObjectHashMap<String> names = objectNames;
+		if (names == null) {
+			names = new TIntObjectHashMap<String>();
+		}
+		for (int i = 0; i < en.length; i += 2) {
+			names.put(en[i], ObfStringTable.getString(stringTable, en[i + 1]));
+		}
+		objectNames = names;
+		encodedNames = null;
+	}
+	
+	public String getName(){
+		String name = getNameByType(mapIndex.nameEncodingType);
 		if(name == null){
 			return "";
 		}
@@ -46,10 +82,16 @@ public class BinaryMapDataObject {
 	
 	
 	public TIntObjectHashMap<String> getObjectNames() {
+		if (encodedNames != null) {
+			decodeNames();
+		}
 		return objectNames;
 	}
 	
 	public void putObjectName(int type, String name){
+		if (encodedNames != null) {
+			decodeNames();
+		}
 		if(objectNames == null){
 			objectNames = new TIntObjectHashMap<String>();
 		}
@@ -87,7 +129,20 @@ public class BinaryMapDataObject {
 	}
 	
 	public String getNameByType(int type) {
-		if(type != -1 && objectNames != null) {
+		if (type == -1) {
+			return null;
+		}
+		int[] en = encodedNames;
+		if (en != null) {
+			// decode only the requested name
+			for (int i = 0; i < en.length; i += 2) {
+				if (en[i] == type) {
+					return ObfStringTable.getString(stringTable, en[i + 1]);
+				}
+			}
+			return null;
+		}
+		if(objectNames != null) {
 			return objectNames.get(type);
 		}
 		return null;
@@ -2,13 +2,18 @@ package net.osmand.binary;
 
 
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.set.hash.TLongHashSet;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -16,15 +21,19 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.NameKeyIndex;
 import net.osmand.PlatformUtil;
 import net.osmand.ResultMatcher;
 import net.osmand.StringMatcher;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.CitiesBlock;
+import net.osmand.binary.BinaryMapDataBlock.ObjectView;
 import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
@@ -57,6 +66,8 @@ public class BinaryMapIndexReader {
 	private final static Log log = PlatformUtil.getLog(BinaryMapIndexReader.class);
 	
 	private final RandomAccessFile raf;
+	// whole file mapping, null when file is read through RandomAccessFile
+	private final ByteBuffer mapping;
 	/*private*/ int version;
 	/*private */long dateCreated;
 	// keep them immutable inside
@@ -69,6 +80,9 @@ public class BinaryMapIndexReader {
 	/*private */List<BinaryIndexPart> indexes = new ArrayList<BinaryIndexPart>();
 	
 	protected CodedInputStream codedIS;
+	private MapDataBlockCache mapBlockCache;
+	private ObfReadAhead readAhead;
+	private Executor poiNameIndexExecutor;
 	
 	private final BinaryMapTransportReaderAdapter transportAdapter;
 	private final BinaryMapPoiReaderAdapter poiAdapter;
@@ -79,20 +93,25 @@ public class BinaryMapIndexReader {
 
 	
 	public BinaryMapIndexReader(final RandomAccessFile raf) throws IOException {
-		this.raf = raf;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
-		transportAdapter = new BinaryMapTransportReaderAdapter(this);
-		addressAdapter = new BinaryMapAddressReaderAdapter(this);
-		poiAdapter = new BinaryMapPoiReaderAdapter(this);
-		routeAdapter = new BinaryMapRouteReaderAdapter(this);
-		init();
+		this(raf, true, false);
 	}
 	
-	/*private */BinaryMapIndexReader(final RandomAccessFile raf, boolean init) throws IOException {
+	/**
+	 * @param memoryMapped read all sections directly from a memory mapping of the file
+	 * instead of copying it through a small buffer (files over 2 GB are always read through RandomAccessFile)
+	 */
+	public BinaryMapIndexReader(final RandomAccessFile raf, boolean memoryMapped) throws IOException {
+		this(raf, true, memoryMapped);
+	}
+	
+	/*private */BinaryMapIndexReader(final RandomAccessFile raf, boolean init, boolean memoryMapped) throws IOException {
+		this(raf, memoryMapped ? mapFile(raf) : null, init);
+	}
+	
+	/*private */BinaryMapIndexReader(final RandomAccessFile raf, ByteBuffer mapping, boolean init) throws IOException {
 		this.raf = raf;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		this.mapping = mapping;
+		codedIS = createCodedInputStream(raf, mapping);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -103,9 +122,13 @@ public class BinaryMapIndexReader {
 	}
 	
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
+		this(raf, referenceToSameFile.mapping != null ? mapFile(raf) : null, referenceToSameFile);
+	}
+	
+	/*private */BinaryMapIndexReader(final RandomAccessFile raf, ByteBuffer mapping, BinaryMapIndexReader referenceToSameFile) throws IOException {
 		this.raf = raf;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		this.mapping = mapping;
+		codedIS = createCodedInputStream(raf, mapping);
 		version = referenceToSameFile.version;
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
@@ -118,9 +141,122 @@ public class BinaryMapIndexReader {
 		routingIndexes = new ArrayList<RouteRegion>(referenceToSameFile.routingIndexes);
 		indexes = new ArrayList<BinaryIndexPart>(referenceToSameFile.indexes);
 		basemap = referenceToSameFile.basemap;
+		mapBlockCache = referenceToSameFile.mapBlockCache;
+		readAhead = referenceToSameFile.readAhead;
+		poiNameIndexExecutor = referenceToSameFile.poiNameIndexExecutor;
 	}
 	
 	
+	private static ByteBuffer mapFile(RandomAccessFile raf) throws IOException {
+		if (raf.length() > Integer.MAX_VALUE) {
+			return null;
+		}
+		return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+	}
+	
+	private static CodedInputStream createCodedInputStream(RandomAccessFile raf, ByteBuffer mapping) {
+		CodedInputStream is;
+		if (mapping != null) {
+			is = CodedInputStream.newInstance(mapping);
+		} else {
+			is = CodedInputStream.newInstance(raf);
+		}
+		is.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		return is;
+	}
+	
+	/**
+	 * @param mapBlockCache cache of decoded map blocks (could be shared between readers) or null to decode blocks on every search
+	 */
+	public void setMapBlockCache(MapDataBlockCache mapBlockCache) {
+		this.mapBlockCache = mapBlockCache;
+	}
+	
+	public MapDataBlockCache getMapBlockCache() {
+		return mapBlockCache;
+	}
+	
+	/**
+	 * @param readAhead reads map data blocks found by the search in background (could be shared by several readers)
+	 */
+	public void setReadAhead(ObfReadAhead readAhead) {
+		this.readAhead = readAhead;
+	}
+	
+	public ObfReadAhead getReadAhead() {
+		return readAhead;
+	}
+	
+	/**
+	 * @param poiNameIndexExecutor builds in-memory name index of each poi region in background on the first search by name,
+	 * next searches use the index and read only the pois which could match the query (null to always search names on disk).
+	 * Index is kept by the region and used by all readers of the file.
+	 */
+	public void setPoiNameIndexExecutor(Executor poiNameIndexExecutor) {
+		this.poiNameIndexExecutor = poiNameIndexExecutor;
+	}
+	
+	public Executor getPoiNameIndexExecutor() {
+		return poiNameIndexExecutor;
+	}
+	
+	public boolean isMemoryMapped() {
+		return mapping != null;
+	}
+	
+	/*private */ByteBuffer getMapping() {
+		return mapping;
+	}
+	
+	/**
+	 * Reads all parts of the index tree that are normally initialized lazily on first search
+	 * (encoding rules, map level boxes, poi categories) so the parsed structures are not modified afterwards.
+	 */
+	/*private */void initializeLazyParts() throws IOException {
+		for (MapIndex mapIndex : mapIndexes) {
+			initMapEncodingRules(mapIndex);
+			for (MapRoot index : mapIndex.getRoots()) {
+				initMapLevelTrees(index);
+			}
+		}
+		for (PoiRegion poiIndex : poiIndexes) {
+			poiAdapter.initCategories(poiIndex);
+		}
+		for (RouteRegion routeRegion : routingIndexes) {
+			routeAdapter.initRouteRegion(routeRegion);
+		}
+	}
+	
+	/**
+	 * Reads upper levels of the map and routing trees (boxes under each map level and route root box)
+	 * so they could be stored in the index cache.
+	 * @param depth number of levels to read under the top map boxes
+	 */
+	/*private */void initUpperTreeLevels(int depth) throws IOException {
+		for (MapIndex mapIndex : mapIndexes) {
+			for (MapRoot level : mapIndex.getRoots()) {
+				initMapLevelTrees(level);
+				for (MapTree tree : level.trees) {
+					if (tree.subtrees == null) {
+						codedIS.seek(tree.filePointer);
+						int oldLimit = codedIS.pushLimit(tree.length);
+						readMapTreeSubtrees(tree, level, depth);
+						codedIS.popLimit(oldLimit);
+					}
+				}
+			}
+		}
+		for (RouteRegion routeRegion : routingIndexes) {
+			// top map boxes correspond to the children of route root boxes
+			for (RouteSubregion sub : routeRegion.getSubregions()) {
+				routeAdapter.initRouteTreeLevels(sub, depth + 1);
+			}
+			for (RouteSubregion sub : routeRegion.getBaseSubregions()) {
+				routeAdapter.initRouteTreeLevels(sub, depth + 1);
+			}
+		}
+	}
+	
 	public long getDateCreated() {
 		return dateCreated;
 	}
@@ -362,6 +498,7 @@ public class BinaryMapIndexReader {
 	
 	/**
 	 * Transport public methods
+	 * Routes are cached by the transport index and should not be modified.
 	 */
 	public TIntObjectHashMap<TransportRoute> getTransportRoutes(int[] filePointers) throws IOException {
 		TIntObjectHashMap<TransportRoute> result = new TIntObjectHashMap<TransportRoute>();
@@ -376,20 +513,33 @@ public class BinaryMapIndexReader {
 			}
 		}
 		Iterator<Entry<TransportIndex, TIntArrayList> > it = groupPoints.entrySet().iterator();
-		if(it.hasNext()){
+		while(it.hasNext()){
 			Entry<TransportIndex, TIntArrayList> e = it.next();
 			TransportIndex ind = e.getKey();
 			TIntArrayList pointers = e.getValue();
 			pointers.sort();
 			TIntObjectHashMap<String> stringTable = new TIntObjectHashMap<String>();
+			TIntArrayList decoded = new TIntArrayList();
 			for (int i = 0; i < pointers.size(); i++) {
 				int filePointer = pointers.get(i);
-				TransportRoute transportRoute = transportAdapter.getTransportRoute(filePointer, stringTable, false);
+				if (result.containsKey(filePointer)) {
+					continue;
+				}
+				TransportRoute transportRoute = ind.routeCache.get(filePointer, false);
+				if (transportRoute == null) {
+					transportRoute = transportAdapter.getTransportRoute(filePointer, stringTable, false);
+					decoded.add(filePointer);
+				}
 				result.put(filePointer, transportRoute);
 			}
-			transportAdapter.initializeStringTable(ind, stringTable);
-			for(TransportRoute r : result.values(new TransportRoute[result.size()])){
-				transportAdapter.initializeNames(false, r, stringTable);
+			if (!decoded.isEmpty()) {
+				// names are initialized by the string table of the index of the route
+				transportAdapter.initializeStringTable(ind, stringTable);
+				for (int i = 0; i < decoded.size(); i++) {
+					TransportRoute r = result.get(decoded.get(i));
+					transportAdapter.initializeNames(false, r, stringTable);
+					ind.routeCache.put(decoded.get(i), r, false);
+				}
 			}
 		}
 		return result;
@@ -397,6 +547,7 @@ public class BinaryMapIndexReader {
 	
 	/**
 	 * Transport public methods
+	 * Routes are cached by the transport index (could be with stops) and should not be modified.
 	 */
 	public List<net.osmand.data.TransportRoute> getTransportRouteDescriptions(TransportStop stop) throws IOException {
 		TransportIndex ind = getTransportIndex(stop.getFileOffset());
@@ -404,16 +555,28 @@ public class BinaryMapIndexReader {
 			return null;
 		}
 		List<net.osmand.data.TransportRoute> list = new ArrayList<TransportRoute>();
+		List<net.osmand.data.TransportRoute> decoded = new ArrayList<TransportRoute>();
+		TIntArrayList decodedPointers = new TIntArrayList();
 		TIntObjectHashMap<String> stringTable = new TIntObjectHashMap<String>();
 		for(int filePointer : stop.getReferencesToRoutes()){
-			TransportRoute tr = transportAdapter.getTransportRoute(filePointer, stringTable, true);
+			TransportRoute tr = ind.routeCache.get(filePointer, true);
+			if (tr == null) {
+				tr = transportAdapter.getTransportRoute(filePointer, stringTable, true);
+				if (tr != null) {
+					decoded.add(tr);
+					decodedPointers.add(filePointer);
+				}
+			}
 			if(tr != null){
 				list.add(tr);				
 			}
 		}
-		transportAdapter.initializeStringTable(ind, stringTable);
-		for(TransportRoute route : list){
-			transportAdapter.initializeNames(true, route, stringTable);
+		if (!decoded.isEmpty()) {
+			transportAdapter.initializeStringTable(ind, stringTable);
+			for (int i = 0; i < decoded.size(); i++) {
+				transportAdapter.initializeNames(true, decoded.get(i), stringTable);
+				ind.routeCache.put(decodedPointers.get(i), decoded.get(i), true);
+			}
 		}
 		return list;
 	}
@@ -519,17 +682,7 @@ public class BinaryMapIndexReader {
 	}
 	public List<City> getCities(String region, SearchRequest<City> resultMatcher, StringMatcher matcher, boolean useEn, 
 			int cityType) throws IOException {
-		List<City> cities = new ArrayList<City>();
-		AddressRegion r = getRegionByName(region);
-		for(CitiesBlock block : r.cities) {
-			if(block.type == cityType) {
-				codedIS.seek(block.filePointer);
-				int old = codedIS.pushLimit(block.length);
-				addressAdapter.readCities(cities, resultMatcher, matcher, useEn);
-				codedIS.popLimit(old);
-			}
-		}
-		return cities;
+		return getCities(getRegionByName(region), resultMatcher, matcher, useEn, cityType);
 	}
 	
 	public List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher,  
@@ -541,15 +694,40 @@ public class BinaryMapIndexReader {
 		List<City> cities = new ArrayList<City>();
 		for(CitiesBlock block : region.cities) {
 			if(block.type == cityType) {
-				codedIS.seek(block.filePointer);
-				int old = codedIS.pushLimit(block.length);
-				addressAdapter.readCities(cities, resultMatcher, matcher, useEn);
-				codedIS.popLimit(old);
+				List<Integer> candidates = null;
+				if (matcher instanceof CollatorStringMatcher) {
+					CollatorStringMatcher cm = (CollatorStringMatcher) matcher;
+					candidates = getCityNameKeys(block).getCandidates(cm.getPart(), cm.getMode());
+				}
+				if (candidates != null) {
+					addressAdapter.readCities(cities, resultMatcher, matcher, useEn, candidates);
+				} else {
+					codedIS.seek(block.filePointer);
+					int old = codedIS.pushLimit(block.length);
+					addressAdapter.readCities(cities, resultMatcher, matcher, useEn);
+					codedIS.popLimit(old);
+				}
 			}
 		}
 		return cities;
 	}
 	
+	/**
+	 * @return names of the cities of the block, they are read once and kept by the block for all readers of the file,
+	 * so the search of cities by name reads only the cities which could match the name
+	 */
+	private NameKeyIndex<Integer> getCityNameKeys(CitiesBlock block) throws IOException {
+		NameKeyIndex<Integer> nameKeys = block.nameKeys;
+		if (nameKeys == null) {
+			codedIS.seek(block.filePointer);
+			int old = codedIS.pushLimit(block.length);
+			nameKeys = addressAdapter.readCityNameKeys();
+			codedIS.popLimit(old);
+			block.nameKeys = nameKeys;
+		}
+		return nameKeys;
+	}
+	
 	public int preloadStreets(City c, SearchRequest<Street> resultMatcher) throws IOException {
 		checkAddressIndex(c.getFileOffset());
 		codedIS.seek(c.getFileOffset());
@@ -755,6 +933,66 @@ public class BinaryMapIndexReader {
 		}
 	}
 	
+	private void readMapTreeSubtrees(MapTree tree, MapTree parent, int depth) throws IOException {
+		List<MapTree> subtrees = new ArrayList<MapTree>();
+		boolean allChildrenRead = true;
+		while(true){
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				if (allChildrenRead) {
+					tree.subtrees = subtrees;
+				}
+				return;
+			case MapDataBox.BOTTOM_FIELD_NUMBER :
+				tree.bottom = codedIS.readSInt32() + parent.bottom;
+				break;
+			case MapDataBox.LEFT_FIELD_NUMBER :
+				tree.left = codedIS.readSInt32() + parent.left;
+				break;
+			case MapDataBox.RIGHT_FIELD_NUMBER :
+				tree.right = codedIS.readSInt32() + parent.right;
+				break;
+			case MapDataBox.TOP_FIELD_NUMBER :
+				tree.top = codedIS.readSInt32() + parent.top;
+				break;
+			case MapDataBox.OCEAN_FIELD_NUMBER :
+				if(codedIS.readBool()) {
+					tree.ocean = Boolean.TRUE;
+				} else {
+					tree.ocean = Boolean.FALSE;
+				}
+				break;
+			case MapDataBox.SHIFTTOMAPDATA_FIELD_NUMBER :
+				tree.mapDataBlock = readInt() + tree.filePointer;
+				break;
+			case MapDataBox.BOXES_FIELD_NUMBER :
+				int length = readInt();
+				int filePointer = codedIS.getTotalBytesRead();
+				if (depth > 0) {
+					MapTree child = new MapTree();
+					child.length = length;
+					child.filePointer = filePointer;
+					if (tree.ocean != null) {
+						child.ocean = tree.ocean;
+					}
+					int oldLimit = codedIS.pushLimit(length);
+					readMapTreeSubtrees(child, tree, depth - 1);
+					codedIS.popLimit(oldLimit);
+					subtrees.add(child);
+				} else {
+					allChildrenRead = false;
+				}
+				codedIS.seek(filePointer + length);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
 	
 	
 	public List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req) throws IOException {
@@ -764,53 +1002,14 @@ public class BinaryMapIndexReader {
 		req.numberOfReadSubtrees = 0;
 		List<MapTree> foundSubtrees = new ArrayList<MapTree>();
 		for (MapIndex mapIndex : mapIndexes) {
-			// lazy initializing rules
-			if(mapIndex.encodingRules.isEmpty()) {
-				codedIS.seek(mapIndex.filePointer);
-				int oldLimit = codedIS.pushLimit(mapIndex.length);
-				readMapIndex(mapIndex, true);
-				codedIS.popLimit(oldLimit);
-			}
+			initMapEncodingRules(mapIndex);
 			for (MapRoot index : mapIndex.getRoots()) {
 				if (index.minZoom <= req.zoom && index.maxZoom >= req.zoom) {
 					if (index.right < req.left || index.left > req.right || index.top > req.bottom || index.bottom < req.top) {
 						continue;
 					}
-					
-					// lazy initializing trees
-					if(index.trees == null){
-						index.trees = new ArrayList<MapTree>();
-						codedIS.seek(index.filePointer);
-						int oldLimit = codedIS.pushLimit(index.length);
-						readMapLevel(index);
-						codedIS.popLimit(oldLimit);
-					}
-					
-					for (MapTree tree : index.trees) {
-						if (tree.right < req.left || tree.left > req.right || tree.top > req.bottom || tree.bottom < req.top) {
-							continue;
-						}
-						codedIS.seek(tree.filePointer);
-						int oldLimit = codedIS.pushLimit(tree.length);
-						searchMapTreeBounds(tree, index, req, foundSubtrees);
-						codedIS.popLimit(oldLimit);
-					}
-					
-					Collections.sort(foundSubtrees, new Comparator<MapTree>() {
-						@Override
-						public int compare(MapTree o1, MapTree o2) {
-							return o1.mapDataBlock < o2.mapDataBlock ? -1 : (o1.mapDataBlock == o2.mapDataBlock ? 0 : 1);
-						}
-					});
-					for(MapTree tree : foundSubtrees) {
-						if(!req.isCancelled()){
-							codedIS.seek(tree.mapDataBlock);
-							int length = codedIS.readRawVarint32();
-							int oldLimit = codedIS.pushLimit(length);
-							readMapDataBlocks(req, tree, mapIndex);
-							codedIS.popLimit(oldLimit);
-						}
-					}
+					searchMapLevel(req, index, foundSubtrees);
+					readMapDataBlocks(req, foundSubtrees, mapIndex, index);
 					foundSubtrees.clear();
 				}
 				
@@ -828,7 +1027,60 @@ public class BinaryMapIndexReader {
 		req.numberOfAcceptedSubtrees = 0;
 		req.numberOfReadSubtrees = 0;
 		List<MapTree> foundSubtrees = new ArrayList<MapTree>();
+		initMapEncodingRules(mapIndex);
+		for (MapRoot level : mapIndex.getRoots()) {
+			if ((level.minZoom <= req.zoom && level.maxZoom >= req.zoom) || req.zoom == -1) {
+				if (level.right < req.left || level.left > req.right || level.top > req.bottom || level.bottom < req.top) {
+					continue;
+				}
+				searchMapLevel(req, level, foundSubtrees);
+				readMapDataBlocks(req, foundSubtrees, mapIndex, level);
+				foundSubtrees.clear();
+			}
+			
+		}
 		
+		log.info("Search is done. Visit " + req.numberOfVisitedObjects + " objects. Read " + req.numberOfAcceptedObjects + " objects."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		log.info("Read " + req.numberOfReadSubtrees + " subtrees. Go through " + req.numberOfAcceptedSubtrees + " subtrees.");   //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+		return req.getSearchResults();
+	}
+	
+	/**
+	 * The same search as {@link #searchMapIndex(SearchRequest)} but map data blocks are read only when results are requested
+	 */
+	public ObfCursor<BinaryMapDataObject> searchMapIndexCursor(SearchRequest<BinaryMapDataObject> req) {
+		req.numberOfVisitedObjects = 0;
+		req.numberOfAcceptedObjects = 0;
+		req.numberOfAcceptedSubtrees = 0;
+		req.numberOfReadSubtrees = 0;
+		return new MapObjectsCursor(req);
+	}
+	
+	/**
+	 * The same search as {@link #searchMapIndexCursor(SearchRequest)} but objects of every map data block
+	 * are returned together in shared arrays, separate BinaryMapDataObjects are not created.
+	 * Result matcher of the request is used only to cancel the search, blocks are not affected by the map block cache.
+	 */
+	public ObfCursor<BinaryMapDataBlock> searchMapBlocksCursor(SearchRequest<BinaryMapDataObject> req) {
+		req.numberOfVisitedObjects = 0;
+		req.numberOfAcceptedObjects = 0;
+		req.numberOfAcceptedSubtrees = 0;
+		req.numberOfReadSubtrees = 0;
+		return new MapBlocksCursor(req, null);
+	}
+	
+	/**
+	 * The same as {@link #searchMapBlocksCursor(SearchRequest)} but only one level is searched regardless of the zoom of the request
+	 */
+	ObfCursor<BinaryMapDataBlock> searchMapBlocksCursor(SearchRequest<BinaryMapDataObject> req, MapRoot level) {
+		req.numberOfVisitedObjects = 0;
+		req.numberOfAcceptedObjects = 0;
+		req.numberOfAcceptedSubtrees = 0;
+		req.numberOfReadSubtrees = 0;
+		return new MapBlocksCursor(req, level);
+	}
+	
+	/*private */void initMapEncodingRules(MapIndex mapIndex) throws IOException {
 		// lazy initializing rules
 		if(mapIndex.encodingRules.isEmpty()) {
 			codedIS.seek(mapIndex.filePointer);
@@ -836,105 +1088,178 @@ public class BinaryMapIndexReader {
 			readMapIndex(mapIndex, true);
 			codedIS.popLimit(oldLimit);
 		}
+	}
+	
+	private void initMapLevelTrees(MapRoot level) throws IOException {
+		// lazy initializing trees
+		if(level.trees == null){
+			level.trees = new ArrayList<MapTree>();
+			codedIS.seek(level.filePointer);
+			int oldLimit = codedIS.pushLimit(level.length);
+			readMapLevel(level);
+			codedIS.popLimit(oldLimit);
+		}
+	}
+	
+	/**
+	 * Collects leaf boxes of the level intersecting request sorted by position of their data blocks
+	 */
+	private void searchMapLevel(SearchRequest<BinaryMapDataObject> req, MapRoot level, List<MapTree> foundSubtrees) throws IOException {
+		initMapLevelTrees(level);
+		searchMapTrees(level.trees, level, req, foundSubtrees);
 		
-		for (MapRoot level : mapIndex.getRoots()) {
-			if ((level.minZoom <= req.zoom && level.maxZoom >= req.zoom) || req.zoom == -1) {
-				if (level.right < req.left || level.left > req.right || level.top > req.bottom || level.bottom < req.top) {
-					continue;
-				}
-				
-				// lazy initializing trees
-				if(level.trees == null){
-					level.trees = new ArrayList<MapTree>();
-					codedIS.seek(level.filePointer);
-					int oldLimit = codedIS.pushLimit(level.length);
-					readMapLevel(level);
-					codedIS.popLimit(oldLimit);
-				}
-				
-				for (MapTree tree : level.trees) {
-					if (tree.right < req.left || tree.left > req.right || tree.top > req.bottom || tree.bottom < req.top) {
-						continue;
+		Collections.sort(foundSubtrees, new Comparator<MapTree>() {
+			@Override
+			public int compare(MapTree o1, MapTree o2) {
+				return o1.mapDataBlock < o2.mapDataBlock ? -1 : (o1.mapDataBlock == o2.mapDataBlock ? 0 : 1);
+			}
+		});
+	}
+	
+	private void readMapDataBlocks(SearchRequest<BinaryMapDataObject> req, List<MapTree> foundSubtrees, MapIndex mapIndex,
+			MapRoot level) throws IOException {
+		ObfReadAhead.ReadAheadTask prefetch = scheduleReadAhead(foundSubtrees, mapIndex, level);
+		try {
+			for (MapTree tree : foundSubtrees) {
+				if (!req.isCancelled()) {
+					if (prefetch != null) {
+						prefetch.consumed(tree.mapDataBlock);
 					}
-					codedIS.seek(tree.filePointer);
-					int oldLimit = codedIS.pushLimit(tree.length);
-					searchMapTreeBounds(tree, level, req, foundSubtrees);
-					codedIS.popLimit(oldLimit);
+					readMapDataBlock(req, tree, mapIndex, level);
 				}
-				
-				Collections.sort(foundSubtrees, new Comparator<MapTree>() {
-					@Override
-					public int compare(MapTree o1, MapTree o2) {
-						return o1.mapDataBlock < o2.mapDataBlock ? -1 : (o1.mapDataBlock == o2.mapDataBlock ? 0 : 1);
-					}
-				});
-				for(MapTree tree : foundSubtrees) {
-					if(!req.isCancelled()){
-						codedIS.seek(tree.mapDataBlock);
-						int length = codedIS.readRawVarint32();
-						int oldLimit = codedIS.pushLimit(length);
-						readMapDataBlocks(req, tree, mapIndex);
-						codedIS.popLimit(oldLimit);
-					}
+			}
+		} finally {
+			if (prefetch != null) {
+				prefetch.cancel();
+			}
+		}
+	}
+	
+	/**
+	 * @return null if read ahead is not used or there is nothing to read (blocks are cached)
+	 */
+	private ObfReadAhead.ReadAheadTask scheduleReadAhead(List<MapTree> foundSubtrees, MapIndex mapIndex, MapRoot level) {
+		if (readAhead == null || foundSubtrees.size() < 2) {
+			return null;
+		}
+		TLongArrayList pointers = new TLongArrayList(foundSubtrees.size());
+		for (MapTree tree : foundSubtrees) {
+			if (mapBlockCache == null || !mapBlockCache.contains(mapIndex, level, tree.mapDataBlock)) {
+				pointers.add(tree.mapDataBlock);
+			}
+		}
+		if (pointers.size() < 2) {
+			return null;
+		}
+		return readAhead.schedule(raf, mapping, pointers.toArray());
+	}
+	
+	private void readMapDataBlock(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex mapIndex, MapRoot level) throws IOException {
+		if (mapBlockCache == null) {
+			codedIS.seek(tree.mapDataBlock);
+			int length = codedIS.readRawVarint32();
+			int oldLimit = codedIS.pushLimit(length);
+			readMapDataBlocks(req, tree, mapIndex);
+			codedIS.popLimit(oldLimit);
+			return;
+		}
+		List<BinaryMapDataObject> block = mapBlockCache.get(mapIndex, level, tree.mapDataBlock);
+		if (block == null) {
+			// cache whole block, request area and filter are applied to cached objects 
+			SearchRequest<BinaryMapDataObject> blockReq = buildSearchRequest(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, req.zoom, null);
+			codedIS.seek(tree.mapDataBlock);
+			int length = codedIS.readRawVarint32();
+			int oldLimit = codedIS.pushLimit(length);
+			readMapDataBlocks(blockReq, tree, mapIndex);
+			codedIS.popLimit(oldLimit);
+			block = blockReq.getSearchResults();
+			mapBlockCache.put(mapIndex, level, tree.mapDataBlock, block);
+		}
+		for (BinaryMapDataObject obj : block) {
+			if (req.isCancelled()) {
+				return;
+			}
+			req.numberOfVisitedObjects++;
+			if (!intersects(obj.coordinates, req)) {
+				continue;
+			}
+			if (req.searchFilter != null) {
+				req.cacheTypes.clear();
+				req.cacheTypes.add(obj.types);
+				if (!req.searchFilter.accept(req.cacheTypes, mapIndex)) {
+					continue;
 				}
-				foundSubtrees.clear();
 			}
-			
+			req.numberOfAcceptedObjects++;
+			req.publish(obj);
 		}
+	}
 	
-		
-		log.info("Search is done. Visit " + req.numberOfVisitedObjects + " objects. Read " + req.numberOfAcceptedObjects + " objects."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-		log.info("Read " + req.numberOfReadSubtrees + " subtrees. Go through " + req.numberOfAcceptedSubtrees + " subtrees.");   //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
-		return req.getSearchResults();
+	// the same check as during reading of map object
+	private static boolean intersects(int[] coordinates, SearchRequest<BinaryMapDataObject> req) {
+		int minX = Integer.MAX_VALUE;
+		int maxX = 0;
+		int minY = Integer.MAX_VALUE;
+		int maxY = 0;
+		for (int i = 0; i < coordinates.length - 1; i += 2) {
+			int x = coordinates[i];
+			int y = coordinates[i + 1];
+			if (req.left <= x && req.right >= x && req.top <= y && req.bottom >= y) {
+				return true;
+			}
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		return maxX >= req.left && minX <= req.right && minY <= req.bottom && maxY >= req.top;
 	}
 	
 	protected void readMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root) throws IOException {
-		List<BinaryMapDataObject> tempResults = null;
+		BinaryMapDataBlock block = req.getCacheBlock(root);
+		if (readMapDataBlockObjects(req, tree, root, block)) {
+			ObjectView view = null;
+			for (int i = 0; i < block.size(); i++) {
+				if (req.objectViewFilter != null) {
+					view = block.getView(i, view);
+					if (!req.objectViewFilter.accept(view)) {
+						continue;
+					}
+				}
+				req.publish(block.createObject(i));
+			}
+		}
+	}
+	
+	/**
+	 * @return false if request was cancelled during reading
+	 */
+	private boolean readMapDataBlockObjects(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root,
+			BinaryMapDataBlock block) throws IOException {
 		long baseId  = 0;
 		while (true) {
 			if (req.isCancelled()) {
-				return;
+				return false;
 			}
 			int t = codedIS.readTag();
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
-				if(tempResults != null) {
-					for(BinaryMapDataObject obj : tempResults) {
-						req.publish(obj);
-					}
-				}
-				return;
+				return true;
 			case MapDataBlock.BASEID_FIELD_NUMBER:
 				baseId = codedIS.readUInt64();
 				break;
 			case MapDataBlock.DATAOBJECTS_FIELD_NUMBER:
 				int length = codedIS.readRawVarint32();
 				int oldLimit = codedIS.pushLimit(length);
-				BinaryMapDataObject mapObject = readMapDataObject(tree, req, root);
-				if (mapObject != null) {
-					mapObject.setId(mapObject.getId() + baseId);
-					if (tempResults == null) {
-						tempResults = new ArrayList<BinaryMapDataObject>();
-					}
-					tempResults.add(mapObject);
-				}
+				readMapDataObject(tree, req, root, block, baseId);
 				codedIS.popLimit(oldLimit);
 				break;
 			case MapDataBlock.STRINGTABLE_FIELD_NUMBER:
 				length = codedIS.readRawVarint32();
 				oldLimit = codedIS.pushLimit(length);
-				if (tempResults != null) {
-					List<String> stringTable = readStringTable();
-					for (int i = 0; i < tempResults.size(); i++) {
-						BinaryMapDataObject rs = tempResults.get(i);
-						if (rs.objectNames != null) {
-							int[] keys = rs.objectNames.keys();
-							for (int j = 0; j < keys.length; j++) {
-								rs.objectNames.put(keys[j], stringTable.get(rs.objectNames.get(keys[j]).charAt(0)));
-							}
-						}
-					}
+				if (block.size() > 0) {
+					block.setStringTable(ObfStringTable.read(codedIS));
 				} else {
 					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
 				}
@@ -948,6 +1273,35 @@ public class BinaryMapIndexReader {
 
 	}
 	
+	private void searchMapTrees(List<MapTree> trees, MapTree parent, SearchRequest<BinaryMapDataObject> req,
+			List<MapTree> foundSubtrees) throws IOException {
+		for (MapTree tree : trees) {
+			if (req.isCancelled()) {
+				return;
+			}
+			if (tree.right < req.left || tree.left > req.right || tree.top > req.bottom || tree.bottom < req.top) {
+				continue;
+			}
+			if (tree.subtrees != null) {
+				// box restored from the index cache, descend without reading the file
+				req.numberOfReadSubtrees++;
+				req.numberOfAcceptedSubtrees++;
+				if (tree.ocean != null) {
+					req.publishOceanTile(tree.ocean);
+				}
+				if (tree.mapDataBlock != 0) {
+					foundSubtrees.add(tree);
+				}
+				searchMapTrees(tree.subtrees, tree, req, foundSubtrees);
+			} else {
+				codedIS.seek(tree.filePointer);
+				int oldLimit = codedIS.pushLimit(tree.length);
+				searchMapTreeBounds(tree, parent, req, foundSubtrees);
+				codedIS.popLimit(oldLimit);
+			}
+		}
+	}
+	
 	protected void searchMapTreeBounds(MapTree current, MapTree parent,
 			SearchRequest<BinaryMapDataObject> req, List<MapTree> foundSubtrees) throws IOException {
 		int init = 0;
@@ -1020,40 +1374,37 @@ public class BinaryMapIndexReader {
 	}
 	
 	private int MASK_TO_READ = ~((1 << SHIFT_COORDINATES) - 1);
-	private BinaryMapDataObject readMapDataObject(MapTree tree , SearchRequest<BinaryMapDataObject> req, 
-			MapIndex root) throws IOException {
+	/**
+	 * Reads object into the block, object is added only if it intersects request and is accepted by the filter
+	 */
+	private boolean readMapDataObject(MapTree tree , SearchRequest<BinaryMapDataObject> req, 
+			MapIndex root, BinaryMapDataBlock block, long baseId) throws IOException {
 		int tag = WireFormat.getTagFieldNumber(codedIS.readTag());
 		boolean area = OsmandOdb.MapData.AREACOORDINATES_FIELD_NUMBER == tag;
 		if(!area && OsmandOdb.MapData.COORDINATES_FIELD_NUMBER != tag) {
 			throw new IllegalArgumentException();
 		}
-		req.cacheCoordinates.clear();
 		int size = codedIS.readRawVarint32();
-		int old = codedIS.pushLimit(size);
-		int px = tree.left & MASK_TO_READ;
-		int py = tree.top & MASK_TO_READ;
+		int start = block.getCoordinatesEnd();
+		int count = codedIS.readDeltaCoordinates(size, block.reserveCoordinates(size), start, SHIFT_COORDINATES, 
+				tree.left & MASK_TO_READ, tree.top & MASK_TO_READ);
 		boolean contains = false;
 		int minX = Integer.MAX_VALUE;
 		int maxX = 0;
 		int minY = Integer.MAX_VALUE;
 		int maxY = 0;
 		req.numberOfVisitedObjects++;
-		while(codedIS.getBytesUntilLimit() > 0){
-			int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
-			int y = (codedIS.readSInt32() << SHIFT_COORDINATES) + py;
-			req.cacheCoordinates.add(x);
-			req.cacheCoordinates.add(y);
-			px = x;
-			py = y;
-			if(!contains && req.left <= x && req.right >= x && req.top <= y && req.bottom >= y){
+		for (int i = start; i < start + count; i += 2) {
+			int x = block.getCoordinate(i);
+			int y = block.getCoordinate(i + 1);
+			if(req.left <= x && req.right >= x && req.top <= y && req.bottom >= y){
 				contains = true;
+				break;
 			}
-			if(!contains){
-				minX = Math.min(minX, x);
-				maxX = Math.max(maxX, x);
-				minY = Math.min(minY, y);
-				maxY = Math.max(maxY, y);
-			}
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
 		}
 		if(!contains){
 			if(maxX >= req.left && minX <= req.right && minY <= req.bottom && maxY >= req.top){
@@ -1061,18 +1412,15 @@ public class BinaryMapIndexReader {
 			}
 			
 		}
-		codedIS.popLimit(old);
 		if(!contains){
 			codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-			return null;
+			return false;
 		}
+		block.addPoints(count);
 		
 		// read 
-		
-		List<TIntArrayList> innercoordinates = null;
-		TIntArrayList additionalTypes = null;
-		TIntObjectHashMap<String> stringNames = null;
 		long id = 0;
+		int old;
 		
 		boolean loop = true; 
 		while (loop) {
@@ -1083,31 +1431,16 @@ public class BinaryMapIndexReader {
 				loop = false;
 				break;
 			case OsmandOdb.MapData.POLYGONINNERCOORDINATES_FIELD_NUMBER:
-				if (innercoordinates == null) {
-					innercoordinates = new ArrayList<TIntArrayList>();
-				}
-				TIntArrayList polygon = new TIntArrayList();
-				innercoordinates.add(polygon);
-				px = tree.left & MASK_TO_READ;
-				py = tree.top & MASK_TO_READ;
 				size = codedIS.readRawVarint32();
-				old = codedIS.pushLimit(size);
-				while (codedIS.getBytesUntilLimit() > 0) {
-					int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
-					int y = (codedIS.readSInt32() << SHIFT_COORDINATES) + py;
-					polygon.add(x);
-					polygon.add(y);
-					px = x;
-					py = y;
-				}
-				codedIS.popLimit(old);
+				count = codedIS.readDeltaCoordinates(size, block.reserveCoordinates(size), block.getCoordinatesEnd(), 
+						SHIFT_COORDINATES, tree.left & MASK_TO_READ, tree.top & MASK_TO_READ);
+				block.addInnerPolygon(count);
 				break;
 			case OsmandOdb.MapData.ADDITIONALTYPES_FIELD_NUMBER:
-				additionalTypes = new TIntArrayList();
 				int sizeL = codedIS.readRawVarint32();
 				old = codedIS.pushLimit(sizeL);
 				while (codedIS.getBytesUntilLimit() > 0) {
-					additionalTypes.add(codedIS.readRawVarint32());
+					block.addAdditionalType(codedIS.readRawVarint32());
 				}
 				codedIS.popLimit(old);
 				break;
@@ -1125,21 +1458,22 @@ public class BinaryMapIndexReader {
 				}
 				if (!accept) {
 					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-					return null;
+					block.rollbackObject();
+					return false;
 				}
+				block.addTypes(req.cacheTypes);
 				req.numberOfAcceptedObjects++;
 				break;
 			case OsmandOdb.MapData.ID_FIELD_NUMBER:
 				id = codedIS.readSInt64();
 				break;
 			case OsmandOdb.MapData.STRINGNAMES_FIELD_NUMBER:
-				stringNames = new TIntObjectHashMap<String>();
 				sizeL = codedIS.readRawVarint32();
 				old = codedIS.pushLimit(sizeL);
 				while (codedIS.getBytesUntilLimit() > 0) {
 					int stag = codedIS.readRawVarint32();
 					int pId = codedIS.readRawVarint32();
-					stringNames.put(stag, ((char)pId)+"");
+					block.addName(stag, pId);
 				}
 				codedIS.popLimit(old);
 				break;
@@ -1148,35 +1482,8 @@ public class BinaryMapIndexReader {
 				break;
 			}
 		}
-//		if(req.cacheCoordinates.size() > 500 && req.cacheTypes.size() > 0) {
-//			TagValuePair p = root.decodeType(req.cacheTypes.get(0));
-//			if("admin_level".equals(p.tag)) {
-//				log.info("TODO Object is ignored due to performance issues " + p.tag + " "+p.value);
-//				return null;
-//			}
-//		}
-		BinaryMapDataObject dataObject = new BinaryMapDataObject();
-		dataObject.area = area;
-		dataObject.coordinates = req.cacheCoordinates.toArray();
-		dataObject.objectNames = stringNames;
-		if (innercoordinates == null) {
-			dataObject.polygonInnerCoordinates = new int[0][0];
-		} else {
-			dataObject.polygonInnerCoordinates = new int[innercoordinates.size()][];
-			for (int i = 0; i < innercoordinates.size(); i++) {
-				dataObject.polygonInnerCoordinates[i] = innercoordinates.get(i).toArray();
-			}
-		}
-		dataObject.types = req.cacheTypes.toArray();
-		if (additionalTypes != null) {
-			dataObject.additionalTypes = additionalTypes.toArray();
-		} else {
-			dataObject.additionalTypes = new int[0];
-		}
-		dataObject.id = id;
-		dataObject.area = area;
-		dataObject.mapIndex = root;
-		return dataObject;
+		block.commitObject(id + baseId, area);
+		return true;
 	}
 	
 	public List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req) throws IOException {
@@ -1205,6 +1512,10 @@ public class BinaryMapIndexReader {
 		}
 		for (PoiRegion poiIndex : poiIndexes) {
 			poiAdapter.initCategories(poiIndex);
+			PoiNameIndex nameIndex = getPoiNameIndex(poiIndex);
+			if (nameIndex != null && poiAdapter.searchPoiByNameIndex(nameIndex, poiIndex, req)) {
+				continue;
+			}
 			codedIS.seek(poiIndex.filePointer);
 			int old = codedIS.pushLimit(poiIndex.length);
 			poiAdapter.searchPoiByName(poiIndex, req);
@@ -1213,6 +1524,48 @@ public class BinaryMapIndexReader {
 		return req.getSearchResults();
 	}
 	
+	/**
+	 * @return name index of the region or null if it is not built yet (then it is scheduled to build)
+	 */
+	private PoiNameIndex getPoiNameIndex(final PoiRegion region) {
+		PoiNameIndex nameIndex = region.nameIndex;
+		if (nameIndex != null || poiNameIndexExecutor == null) {
+			return nameIndex;
+		}
+		synchronized (region) {
+			if (region.nameIndexScheduled) {
+				return null;
+			}
+			region.nameIndexScheduled = true;
+		}
+		poiNameIndexExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					long time = System.currentTimeMillis();
+					// own stream over the whole file, raf itself is not read concurrently with this reader
+					ByteBuffer m = mapping != null ? mapping : mapFile(raf);
+					if (m == null) {
+						log.info("Poi name index is not built for file over 2 GB " + region.getName());
+						return;
+					}
+					BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, m, BinaryMapIndexReader.this);
+					PoiNameIndex index = reader.poiAdapter.buildPoiNameIndex(region);
+					region.nameIndex = index;
+					log.info("Poi name index of " + region.getName() + " is built in " + (System.currentTimeMillis() - time) + 
+							"ms: " + index.getPoisCount() + " pois, " + index.getWordsCount() + " words, ~" +
+							(index.getEstimatedSize() >> 10) + " KB");
+				} catch (IOException e) {
+					// file is closed, names are searched on disk
+					log.warn("Poi name index is not built for " + region.getName() + ": " + e.getMessage());
+				} catch (RuntimeException e) {
+					log.error("Poi name index is not built for " + region.getName(), e);
+				}
+			}
+		});
+		return null;
+	}
+	
 	public Map<AmenityType, List<String> > searchPoiCategoriesByName(String query, Map<AmenityType, List<String> > map) throws IOException {
 		if (query == null || query.length() == 0) {
 			throw new IllegalArgumentException();
@@ -1245,6 +1598,17 @@ public class BinaryMapIndexReader {
 		return map;
 	}
 	
+	/**
+	 * The same search as {@link #searchPoi(SearchRequest)} but poi data blocks are read only when results are requested
+	 */
+	public ObfCursor<Amenity> searchPoiCursor(SearchRequest<Amenity> req) {
+		req.numberOfVisitedObjects = 0;
+		req.numberOfAcceptedObjects = 0;
+		req.numberOfAcceptedSubtrees = 0;
+		req.numberOfReadSubtrees = 0;
+		return new PoiCursor(req);
+	}
+	
 	public List<Amenity> searchPoi(SearchRequest<Amenity> req) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
@@ -1408,6 +1772,11 @@ public class BinaryMapIndexReader {
 	
 	public void close() throws IOException{
 		if(codedIS != null){
+			if (mapBlockCache != null) {
+				for (MapIndex mapIndex : mapIndexes) {
+					mapBlockCache.remove(mapIndex);
+				}
+			}
 			raf.close();
 			codedIS = null;
 			mapIndexes.clear();
@@ -1422,12 +1791,281 @@ public class BinaryMapIndexReader {
 		
 	}
 	
+	/**
+	 * Checks decoded map object before it is copied out of the block, rejected objects are not created at all
+	 */
+	public static interface ObjectViewFilter {
+		
+		public boolean accept(ObjectView view);
+		
+	}
+	
 	public static interface SearchPoiTypeFilter {
 		
 		public boolean accept(AmenityType type, String subcategory);
 		
 	}
 	
+	/**
+	 * Cursor reading one data block into request results at a time
+	 */
+	private abstract static class BlockCursor<T> implements ObfCursor<T> {
+		protected final SearchRequest<T> req;
+		private List<T> block = Collections.emptyList();
+		private int position = 0;
+		private int returned = 0;
+		private boolean closed = false;
+		
+		BlockCursor(SearchRequest<T> req) {
+			this.req = req;
+		}
+		
+		/**
+		 * Publishes objects of the next block to the request
+		 * @return false if there are no more blocks
+		 */
+		protected abstract boolean readNextBlock() throws IOException;
+		
+		@Override
+		public boolean hasNext() throws IOException {
+			if (closed || (req.limit != -1 && returned >= req.limit)) {
+				return false;
+			}
+			while (position >= block.size()) {
+				if (req.isCancelled()) {
+					close();
+					return false;
+				}
+				// results of the previous block are not kept
+				req.searchResults = new ArrayList<T>();
+				if (!readNextBlock()) {
+					close();
+					return false;
+				}
+				block = req.searchResults;
+				position = 0;
+			}
+			return true;
+		}
+		
+		@Override
+		public T next() throws IOException {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			returned++;
+			return block.get(position++);
+		}
+		
+		@Override
+		public void close() {
+			closed = true;
+			block = Collections.emptyList();
+			req.searchResults = new ArrayList<T>();
+		}
+	}
+	
+	/**
+	 * Goes through the found leaf boxes of all map levels matching the request, levels are searched on demand
+	 */
+	private class MapSubtreesIterator {
+		private final SearchRequest<BinaryMapDataObject> req;
+		// the only level to search or null to search levels by zoom
+		private final MapRoot level;
+		private final List<MapTree> foundSubtrees = new ArrayList<MapTree>();
+		private int subtree = -1;
+		private int mapIndexInd = 0;
+		private int levelInd = -1;
+		private ObfReadAhead.ReadAheadTask prefetch = null;
+		
+		MapSubtreesIterator(SearchRequest<BinaryMapDataObject> req) {
+			this(req, null);
+		}
+		
+		MapSubtreesIterator(SearchRequest<BinaryMapDataObject> req, MapRoot level) {
+			this.req = req;
+			this.level = level;
+		}
+		
+		boolean next() throws IOException {
+			subtree++;
+			while (subtree >= foundSubtrees.size()) {
+				if (!nextLevel()) {
+					close();
+					return false;
+				}
+			}
+			if (prefetch != null) {
+				prefetch.consumed(getTree().mapDataBlock);
+			}
+			return true;
+		}
+		
+		/**
+		 * Stops read ahead of the remaining blocks
+		 */
+		void close() {
+			if (prefetch != null) {
+				prefetch.cancel();
+				prefetch = null;
+			}
+		}
+		
+		MapTree getTree() {
+			return foundSubtrees.get(subtree);
+		}
+		
+		MapIndex getMapIndex() {
+			return mapIndexes.get(mapIndexInd);
+		}
+		
+		MapRoot getLevel() {
+			return getMapIndex().getRoots().get(levelInd);
+		}
+		
+		private boolean nextLevel() throws IOException {
+			close();
+			foundSubtrees.clear();
+			subtree = 0;
+			while (mapIndexInd < mapIndexes.size()) {
+				MapIndex mapIndex = mapIndexes.get(mapIndexInd);
+				levelInd++;
+				if (levelInd >= mapIndex.getRoots().size()) {
+					mapIndexInd++;
+					levelInd = -1;
+					continue;
+				}
+				if (levelInd == 0) {
+					initMapEncodingRules(mapIndex);
+				}
+				MapRoot index = mapIndex.getRoots().get(levelInd);
+				if (level != null ? index == level : (index.minZoom <= req.zoom && index.maxZoom >= req.zoom)) {
+					if (index.right < req.left || index.left > req.right || index.top > req.bottom || index.bottom < req.top) {
+						continue;
+					}
+					searchMapLevel(req, index, foundSubtrees);
+					prefetch = scheduleReadAhead(foundSubtrees, mapIndex, index);
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	private class MapObjectsCursor extends BlockCursor<BinaryMapDataObject> {
+		private final MapSubtreesIterator subtrees;
+		
+		MapObjectsCursor(SearchRequest<BinaryMapDataObject> req) {
+			super(req);
+			subtrees = new MapSubtreesIterator(req);
+		}
+		
+		@Override
+		protected boolean readNextBlock() throws IOException {
+			if (!subtrees.next()) {
+				return false;
+			}
+			readMapDataBlock(req, subtrees.getTree(), subtrees.getMapIndex(), subtrees.getLevel());
+			return true;
+		}
+		
+		@Override
+		public void close() {
+			super.close();
+			subtrees.close();
+		}
+	}
+	
+	private class MapBlocksCursor implements ObfCursor<BinaryMapDataBlock> {
+		private final SearchRequest<BinaryMapDataObject> req;
+		private final MapSubtreesIterator subtrees;
+		private BinaryMapDataBlock next = null;
+		private int returned = 0;
+		private boolean closed = false;
+		
+		MapBlocksCursor(SearchRequest<BinaryMapDataObject> req, MapRoot level) {
+			this.req = req;
+			this.subtrees = new MapSubtreesIterator(req, level);
+		}
+		
+		@Override
+		public boolean hasNext() throws IOException {
+			while (!closed && next == null) {
+				if ((req.limit != -1 && returned >= req.limit) || req.isCancelled() || !subtrees.next()) {
+					close();
+					return false;
+				}
+				MapTree tree = subtrees.getTree();
+				BinaryMapDataBlock block = new BinaryMapDataBlock(subtrees.getMapIndex());
+				codedIS.seek(tree.mapDataBlock);
+				int length = codedIS.readRawVarint32();
+				int oldLimit = codedIS.pushLimit(length);
+				boolean read = readMapDataBlockObjects(req, tree, subtrees.getMapIndex(), block);
+				codedIS.popLimit(oldLimit);
+				if (read && block.size() > 0) {
+					if (req.limit != -1) {
+						block.truncate(req.limit - returned);
+					}
+					next = block;
+				}
+			}
+			return !closed;
+		}
+		
+		@Override
+		public BinaryMapDataBlock next() throws IOException {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			BinaryMapDataBlock block = next;
+			next = null;
+			returned += block.size();
+			return block;
+		}
+		
+		@Override
+		public void close() {
+			closed = true;
+			next = null;
+			subtrees.close();
+		}
+	}
+	
+	private class PoiCursor extends BlockCursor<Amenity> {
+		private int regionInd = -1;
+		private int[] offsets = new int[0];
+		private int offset = 0;
+		private TLongHashSet skipTiles;
+		
+		PoiCursor(SearchRequest<Amenity> req) {
+			super(req);
+			skipTiles = req.zoom != -1 ? new TLongHashSet() : null;
+		}
+		
+		@Override
+		protected boolean readNextBlock() throws IOException {
+			while (offset >= offsets.length) {
+				regionInd++;
+				if (regionInd >= poiIndexes.size() || req.isCancelled()) {
+					return false;
+				}
+				PoiRegion poiIndex = poiIndexes.get(regionInd);
+				poiAdapter.initCategories(poiIndex);
+				codedIS.seek(poiIndex.filePointer);
+				int old = codedIS.pushLimit(poiIndex.length);
+				offsets = poiAdapter.searchPoiBlocks(req.left, req.right, req.top, req.bottom, req, poiIndex, skipTiles);
+				codedIS.popLimit(old);
+				if (offsets == null) {
+					offsets = new int[0];
+				}
+				offset = 0;
+			}
+			poiAdapter.readPoiBlock(offsets[offset++], req.left, req.right, req.top, req.bottom, req, poiIndexes.get(regionInd),
+					skipTiles, poiAdapter.getZoomToSkip(req));
+			return true;
+		}
+	}
+	
 	public static class SearchRequest<T> {
 		private List<T> searchResults = new ArrayList<T>();
 		private boolean land = false;
@@ -1454,11 +2092,13 @@ public class BinaryMapIndexReader {
 		
 		SearchPoiTypeFilter poiTypeFilter = null;
 		
+		ObjectViewFilter objectViewFilter = null;
+		
 		// internal read information
 		TIntObjectHashMap<String> stringTable = null;
 		
 		// cache information
-		TIntArrayList cacheCoordinates = new TIntArrayList();
+		BinaryMapDataBlock cacheBlock = null;
 		TIntArrayList cacheTypes = new TIntArrayList();
 		
 		
@@ -1472,6 +2112,31 @@ public class BinaryMapIndexReader {
 		protected SearchRequest(){
 		}
 		
+		/**
+		 * Request with the same search parameters but with its own results and read state,
+		 * so it could be processed in parallel with other copies (see MultiObfSearcher)
+		 */
+		SearchRequest<T> copyParameters(ResultMatcher<T> matcher) {
+			SearchRequest<T> request = new SearchRequest<T>();
+			request.x = x;
+			request.y = y;
+			request.left = left;
+			request.right = right;
+			request.top = top;
+			request.bottom = bottom;
+			request.zoom = zoom;
+			request.limit = limit;
+			request.nameQuery = nameQuery;
+			request.searchFilter = searchFilter;
+			request.poiTypeFilter = poiTypeFilter;
+			request.objectViewFilter = objectViewFilter;
+			if (stringTable != null) {
+				request.stringTable = new TIntObjectHashMap<String>();
+			}
+			request.resultMatcher = matcher;
+			return request;
+		}
+		
 		
 		public boolean publish(T obj){
 			if(resultMatcher == null || resultMatcher.publish(obj)){
@@ -1481,6 +2146,13 @@ public class BinaryMapIndexReader {
 			return false;
 		}
 		
+		/**
+		 * Only checks object with result matcher without adding it to the search results
+		 */
+		boolean accept(T obj) {
+			return resultMatcher == null || resultMatcher.publish(obj);
+		}
+		
 		protected void publishOceanTile(boolean ocean){
 			if(ocean) {
 				this.ocean = true;
@@ -1493,6 +2165,13 @@ public class BinaryMapIndexReader {
 			return searchResults;
 		}
 		
+		/**
+		 * @param objectViewFilter filter of map objects applied before they are published (map search only)
+		 */
+		public void setObjectViewFilter(ObjectViewFilter objectViewFilter) {
+			this.objectViewFilter = objectViewFilter;
+		}
+		
 		public void setInterrupted(boolean interrupted) {
 			this.interrupted = interrupted;
 		}
@@ -1542,10 +2221,18 @@ public class BinaryMapIndexReader {
 			return top;
 		}
 		
+		BinaryMapDataBlock getCacheBlock(MapIndex mapIndex) {
+			if (cacheBlock == null) {
+				cacheBlock = new BinaryMapDataBlock(mapIndex);
+			} else {
+				cacheBlock.clear(mapIndex);
+			}
+			return cacheBlock;
+		}
+		
 		public void clearSearchResults(){
 			// recreate whole list to allow GC collect old data 
 			searchResults = new ArrayList<T>();
-			cacheCoordinates.clear();
 			cacheTypes.clear();
 			land = false;
 			ocean = false;
@@ -1717,15 +2404,17 @@ public class BinaryMapIndexReader {
 			return maxZoom;
 		}
 		
-		private List<MapTree> trees = null;
+		List<MapTree> trees = null;
 	}
 	
-	private static class MapTree {
+	static class MapTree {
 		int filePointer = 0;
 		int length = 0;
 		
 		long mapDataBlock = 0;
 		Boolean ocean = null;
+		// child boxes, only when they are read in advance (see CachedOsmandIndexes)
+		List<MapTree> subtrees = null;
 		
 		int left = 0;
 		int right = 0;
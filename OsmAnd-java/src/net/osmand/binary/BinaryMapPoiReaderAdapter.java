@@ -8,12 +8,14 @@ import gnu.trove.set.hash.TLongHashSet;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.NameKeyIndex;
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndex.OsmAndPoiNameIndexData;
@@ -47,6 +49,12 @@ public class BinaryMapPoiReaderAdapter {
 		double topLatitude;
 		double bottomLatitude;
 		
+		// built in background on first search by name (see BinaryMapIndexReader.setPoiNameIndexExecutor)
+		volatile PoiNameIndex nameIndex;
+		// boxes with categories of subtrees, read on first search
+		volatile PoiBoxTree boxTree;
+		boolean nameIndexScheduled;
+		
 		public double getLeftLongitude() {
 			return leftLongitude;
 		}
@@ -201,34 +209,7 @@ public class BinaryMapPoiReaderAdapter {
 				break;
 			case OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER :
 				// also offsets can be randomly skipped by limit
-				Integer[] offKeys = new Integer[offsets.size()];
-				if (offsets.size() > 0) {
-					int[] keys = offsets.keys();
-					for (int i = 0; i < keys.length; i++) {
-						offKeys[i] = keys[i];
-					}
-					final TIntLongHashMap foffsets = offsets;
-					Arrays.sort(offKeys, new Comparator<Integer>() {
-						@Override
-						public int compare(Integer object1, Integer object2) {
-							return Double.compare(foffsets.get(object1), foffsets.get(object2));
-						}
-					});
-					int p = BUCKET_SEARCH_BY_NAME * 3 ;
-					if (p < offKeys.length) {
-						for (int i = p + BUCKET_SEARCH_BY_NAME;; i += BUCKET_SEARCH_BY_NAME) {
-							if (i > offKeys.length) {
-								Arrays.sort(offKeys, p, offKeys.length);
-								break;
-							} else {
-								Arrays.sort(offKeys, p, i);
-							}
-							p = i;
-						}
-					}
-				}
-				
-				
+				Integer[] offKeys = sortByDistance(offsets);
 				LOG.info("Searched poi structure in "+(System.currentTimeMillis() - time) + 
 						"ms. Found " + offKeys.length +" subtress");
 				for (int j = 0; j < offKeys.length; j++) {
@@ -252,6 +233,163 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 	
+	/**
+	 * @param offsets offsets of poi data blocks with distance to the search center
+	 * @return offsets sorted by distance, further blocks are sorted by offset in small buckets to read the file forward
+	 */
+	private Integer[] sortByDistance(final TIntLongHashMap offsets) {
+		Integer[] offKeys = new Integer[offsets.size()];
+		if (offsets.size() > 0) {
+			int[] keys = offsets.keys();
+			for (int i = 0; i < keys.length; i++) {
+				offKeys[i] = keys[i];
+			}
+			Arrays.sort(offKeys, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer object1, Integer object2) {
+					int c = Double.compare(offsets.get(object1), offsets.get(object2));
+					// blocks at the same distance in file order, so the order doesn't depend on the hash map
+					return c != 0 ? c : object1.compareTo(object2);
+				}
+			});
+			int p = BUCKET_SEARCH_BY_NAME * 3 ;
+			if (p < offKeys.length) {
+				for (int i = p + BUCKET_SEARCH_BY_NAME;; i += BUCKET_SEARCH_BY_NAME) {
+					if (i > offKeys.length) {
+						Arrays.sort(offKeys, p, offKeys.length);
+						break;
+					} else {
+						Arrays.sort(offKeys, p, i);
+					}
+					p = i;
+				}
+			}
+		}
+		return offKeys;
+	}
+	
+	/**
+	 * Searches pois by name using in-memory index of the region, only pois having a word
+	 * starting with the query are read from the file.
+	 * @return false if the query could not be answered by the index
+	 */
+	protected boolean searchPoiByNameIndex(PoiNameIndex index, PoiRegion region, SearchRequest<Amenity> req) throws IOException {
+		String prefix = NameKeyIndex.getQueryPrefix(req.nameQuery);
+		if (prefix == null) {
+			return false;
+		}
+		long time = System.currentTimeMillis();
+		CollatorStringMatcher matcher = new CollatorStringMatcher(req.nameQuery, 
+				StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		TIntArrayList pois = index.findPois(prefix, req);
+		// pois are in file order, so pois of one block follow each other
+		TIntLongHashMap offsets = new TIntLongHashMap();
+		TIntLongHashMap firstPoi = new TIntLongHashMap();
+		for (int i = 0; i < pois.size(); i++) {
+			int block = index.getBlock(pois.get(i));
+			int blockPointer = index.getBlockPointer(block);
+			if (!firstPoi.containsKey(blockPointer)) {
+				firstPoi.put(blockPointer, i);
+				int x31 = index.getBlockX(block) << (31 - index.getBlockZoom(block));
+				int y31 = index.getBlockY(block) << (31 - index.getBlockZoom(block));
+				offsets.put(blockPointer, Math.abs(req.x - x31) + Math.abs(req.y - y31));
+			}
+		}
+		Integer[] offKeys = sortByDistance(offsets);
+		for (int j = 0; j < offKeys.length; j++) {
+			for (int i = (int) firstPoi.get(offKeys[j]); i < pois.size(); i++) {
+				int block = index.getBlock(pois.get(i));
+				if (index.getBlockPointer(block) != offKeys[j]) {
+					break;
+				}
+				codedIS.seek(index.getPoiPointer(pois.get(i)));
+				int len = codedIS.readRawVarint32();
+				int oldLim = codedIS.pushLimit(len);
+				Amenity am = readPoiPoint(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, index.getBlockX(block),
+						index.getBlockY(block), index.getBlockZoom(block), req, region, false);
+				codedIS.popLimit(oldLim);
+				if (am != null && (matcher.matches(am.getName(false)) || matcher.matches(am.getName(true)))) {
+					req.publish(am);
+				}
+				if (req.isCancelled() || req.limitExceeded()) {
+					return true;
+				}
+			}
+		}
+		LOG.info("Poi by name search in memory index is done in " + (System.currentTimeMillis() - time) + 
+				"ms. Read " + pois.size() + " pois, found " + req.getSearchResults().size());
+		return true;
+	}
+	
+	/**
+	 * Reads names of all pois of the region
+	 */
+	protected PoiNameIndex buildPoiNameIndex(PoiRegion region) throws IOException {
+		PoiNameIndex.Builder builder = new PoiNameIndex.Builder();
+		// request without filters only to read the pois
+		SearchRequest<Amenity> req = new SearchRequest<Amenity>();
+		codedIS.seek(region.filePointer);
+		int oldLimit = codedIS.pushLimit(region.length);
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				break;
+			} else if (tag == OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER) {
+				int blockPointer = codedIS.getTotalBytesRead();
+				int length = readInt();
+				int oldLim = codedIS.pushLimit(length);
+				readPoiNames(builder, blockPointer, req, region);
+				codedIS.popLimit(oldLim);
+			} else {
+				skipUnknownField(t);
+			}
+		}
+		codedIS.popLimit(oldLimit);
+		return builder.build();
+	}
+	
+	private void readPoiNames(PoiNameIndex.Builder builder, int blockPointer, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
+		int x = 0;
+		int y = 0;
+		int zoom = 0;
+		boolean blockAdded = false;
+		while(true){
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmandOdb.OsmAndPoiBoxData.X_FIELD_NUMBER :
+				x = codedIS.readUInt32();
+				break;
+			case OsmandOdb.OsmAndPoiBoxData.ZOOM_FIELD_NUMBER :
+				zoom = codedIS.readUInt32();
+				break;
+			case OsmandOdb.OsmAndPoiBoxData.Y_FIELD_NUMBER :
+				y = codedIS.readUInt32();
+				break;
+			case OsmandOdb.OsmAndPoiBoxData.POIDATA_FIELD_NUMBER:
+				int pointer = codedIS.getTotalBytesRead();
+				int len = codedIS.readRawVarint32();
+				int oldLim = codedIS.pushLimit(len);
+				Amenity am = readPoiPoint(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, x, y, zoom, req, region, false);
+				codedIS.popLimit(oldLim);
+				if (am != null) {
+					if (!blockAdded) {
+						builder.addBlock(blockPointer, x, y, zoom);
+						blockAdded = true;
+					}
+					builder.addPoi(pointer, am.getName(false), am.getName(true));
+				}
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
 	private TIntLongHashMap readPoiNameIndex(Collator instance, String query, SearchRequest<Amenity> req) throws IOException {
 		TIntLongHashMap offsets = new TIntLongHashMap();
 		TIntArrayList dataOffsets = null;
@@ -354,53 +492,180 @@ public class BinaryMapPoiReaderAdapter {
 
 	protected void searchPoiIndex(int left31, int right31, int top31, int bottom31,
 			SearchRequest<Amenity> req, PoiRegion region) throws IOException {
-		int indexOffset = codedIS.getTotalBytesRead();
 		long time = System.currentTimeMillis();
-		TLongHashSet skipTiles = null;
-		int zoomToSkip = 31;
-		if(req.zoom != -1){
-			skipTiles = new TLongHashSet();
-			zoomToSkip = req.zoom + ZOOM_TO_SKIP_FILTER;
-		}
-		int length ;
-		int oldLimit ;
-		TIntLongHashMap offsetsMap = new TIntLongHashMap();
-		while(true){
+		TLongHashSet skipTiles = req.zoom != -1 ? new TLongHashSet() : null;
+		int zoomToSkip = getZoomToSkip(req);
+		int[] offsets = searchPoiBlocks(left31, right31, top31, bottom31, req, region, skipTiles);
+		if (offsets == null) {
+			return;
+		}
+		LOG.info("Searched poi structure in "+(System.currentTimeMillis() - time) + 
+				"ms. Found " + offsets.length +" subtress");
+		for (int j = 0; j < offsets.length; j++) {
+			readPoiBlock(offsets[j], left31, right31, top31, bottom31, req, region, skipTiles, zoomToSkip);
 			if(req.isCancelled()){
 				return;
 			}
+		}
+	}
+	
+	/**
+	 * Finds poi data blocks using boxes of the region, boxes are read once and kept by the region
+	 * (stream should be positioned at the region start)
+	 * @return sorted file offsets of poi data blocks to read or null if search was cancelled
+	 */
+	protected int[] searchPoiBlocks(int left31, int right31, int top31, int bottom31,
+			SearchRequest<Amenity> req, PoiRegion region, TLongHashSet skipTiles) throws IOException {
+		if(req.isCancelled()){
+			return null;
+		}
+		int indexOffset = codedIS.getTotalBytesRead();
+		PoiBoxTree tree = region.boxTree;
+		if (tree == null) {
+			tree = readBoxTree(region);
+			region.boxTree = tree;
+		}
+		codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+		TIntLongHashMap offsetsMap = new TIntLongHashMap();
+		BitSet accepted = req.poiTypeFilter == null ? null : tree.getAcceptedCategories(req.poiTypeFilter, region);
+		for (int box = 0; box < tree.size(); box = tree.getSubtreeEnd(box)) {
+			searchBox(tree, box, left31, right31, top31, bottom31, accepted, offsetsMap, skipTiles, req);
+			if(req.isCancelled()){
+				return null;
+			}
+		}
+		int[] offsets = offsetsMap.keys();
+		// also offsets can be randomly skipped by limit
+		Arrays.sort(offsets);
+		for (int j = 0; j < offsets.length; j++) {
+			offsets[j] += indexOffset;
+		}
+		if(skipTiles != null){
+			skipTiles.clear();
+		}
+		return offsets;
+	}
+	
+	/**
+	 * Checks the box and its children, subtrees without accepted categories are skipped
+	 * @return true if the box has categories accepted by the filter
+	 */
+	private boolean searchBox(PoiBoxTree tree, int box, int left31, int right31, int top31, int bottom31,
+			BitSet accepted, TIntLongHashMap offsetsMap, TLongHashSet skipTiles, SearchRequest<Amenity> req) {
+		req.numberOfReadSubtrees++;
+		if (accepted != null && !tree.intersects(box, accepted)) {
+			return false;
+		}
+		int zoomToSkip = req.zoom + ZOOM_TO_SKIP_FILTER;
+		int zoom = tree.getZoom(box);
+		int x = tree.getX(box);
+		int y = tree.getY(box);
+		if (tree.hasChildren(box)) {
+			int xL = x << (31 - zoom);
+			int xR = ((x + 1) << (31 - zoom)) - 1;
+			int yT = y << (31 - zoom);
+			int yB = ((y + 1) << (31 - zoom)) - 1;
+			// check intersection
+			if(left31 > xR || xL > right31 || bottom31 < yT || yB < top31){
+				return false;
+			}
+			req.numberOfAcceptedSubtrees++;
+			for (int child = box + 1; child < tree.getSubtreeEnd(box); child = tree.getSubtreeEnd(child)) {
+				if(req.isCancelled()){
+					return false;
+				}
+				boolean exists = searchBox(tree, child, left31, right31, top31, bottom31, accepted, offsetsMap, skipTiles, req);
+				if (skipTiles != null && zoom >= zoomToSkip && exists) {
+					long val = ((((long) x) >> (zoom - zoomToSkip)) << zoomToSkip) | (((long) y) >> (zoom - zoomToSkip));
+					if(skipTiles.contains(val)){
+						return true;
+					}
+				}
+			}
+		}
+		if (tree.getDataOffset(box) != -1) {
+			long l = ((((x << zoom) | y) << 5) | zoom);
+			offsetsMap.put(tree.getDataOffset(box), l);
+			if(skipTiles != null && zoom >= zoomToSkip){
+				long val = ((((long) x) >> (zoom - zoomToSkip)) << zoomToSkip) | (((long) y) >> (zoom - zoomToSkip));
+				skipTiles.add(val);
+			}
+		}
+		return accepted != null && tree.hasOwnCategories(box);
+	}
+	
+	/**
+	 * Reads all boxes of the region (stream should be positioned at the region start)
+	 */
+	private PoiBoxTree readBoxTree(PoiRegion region) throws IOException {
+		PoiBoxTree.Builder builder = new PoiBoxTree.Builder(region);
+		while(true){
 			int t = codedIS.readTag();
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
-				return;
+				return builder.build();
 			case OsmandOdb.OsmAndPoiIndex.BOXES_FIELD_NUMBER :
-				length = readInt();
-				oldLimit = codedIS.pushLimit(length);
-				readBoxField(left31, right31, top31, bottom31, 0, 0, 0, offsetsMap,  skipTiles, req, region);
+				int length = readInt();
+				int oldLimit = codedIS.pushLimit(length);
+				readBoxTree(builder, 0, 0, 0);
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER :
-				int[] offsets = offsetsMap.keys();
-				// also offsets can be randomly skipped by limit
-				Arrays.sort(offsets);
-				if(skipTiles != null){
-					skipTiles.clear();
-				}
-				LOG.info("Searched poi structure in "+(System.currentTimeMillis() - time) + 
-						"ms. Found " + offsets.length +" subtress");
-				for (int j = 0; j < offsets.length; j++) {
-					codedIS.seek(offsets[j] + indexOffset);
-					int len = readInt();
-					int oldLim = codedIS.pushLimit(len);
-					readPoiData(left31, right31, top31, bottom31, req, region, skipTiles, zoomToSkip);
-					codedIS.popLimit(oldLim);
-					if(req.isCancelled()){
-						return;
-					}
-				}
-				codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				return builder.build();
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
+	private void readBoxTree(PoiBoxTree.Builder builder, int px, int py, int pzoom) throws IOException {
+		int zoom = pzoom;
+		int dx = px;
+		int dy = py;
+		int x = 0;
+		int y = 0;
+		TIntArrayList categories = null;
+		int box = -1;
+		while(true){
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (box == -1 && (tag == 0 || tag == OsmandOdb.OsmAndPoiBox.SUBBOXES_FIELD_NUMBER
+					|| tag == OsmandOdb.OsmAndPoiBox.SHIFTTODATA_FIELD_NUMBER)) {
+				// header of the box is read
+				x = dx + (px << (zoom - pzoom));
+				y = dy + (py << (zoom - pzoom));
+				box = builder.startBox(x, y, zoom, categories);
+			}
+			switch (tag) {
+			case 0:
+				builder.endBox(box);
 				return;
+			case OsmandOdb.OsmAndPoiBox.ZOOM_FIELD_NUMBER :
+				zoom = codedIS.readUInt32() + pzoom;
+				break;
+			case OsmandOdb.OsmAndPoiBox.LEFT_FIELD_NUMBER :
+				dx = codedIS.readSInt32();
+				break;
+			case OsmandOdb.OsmAndPoiBox.TOP_FIELD_NUMBER:
+				dy = codedIS.readSInt32();
+				break;
+			case OsmandOdb.OsmAndPoiBox.CATEGORIES_FIELD_NUMBER: {
+				int length = codedIS.readRawVarint32();
+				int oldLimit = codedIS.pushLimit(length);
+				categories = readCategoryValues(categories);
+				codedIS.popLimit(oldLimit);
+			} break;
+			case OsmandOdb.OsmAndPoiBox.SUBBOXES_FIELD_NUMBER: {
+				int length = readInt();
+				int oldLimit = codedIS.pushLimit(length);
+				readBoxTree(builder, x, y, zoom);
+				codedIS.popLimit(oldLimit);
+			} break;
+			case OsmandOdb.OsmAndPoiBox.SHIFTTODATA_FIELD_NUMBER:
+				builder.setDataOffset(box, readInt());
+				break;
 			default:
 				skipUnknownField(t);
 				break;
@@ -408,6 +673,39 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 	
+	private TIntArrayList readCategoryValues(TIntArrayList categories) throws IOException {
+		if (categories == null) {
+			categories = new TIntArrayList();
+		}
+		while(true){
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return categories;
+			case OsmandOdb.OsmAndPoiCategories.CATEGORIES_FIELD_NUMBER:
+				categories.add(codedIS.readUInt32());
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+	
+	protected void readPoiBlock(int offset, int left31, int right31, int top31, int bottom31,
+			SearchRequest<Amenity> req, PoiRegion region, TLongHashSet skipTiles, int zoomToSkip) throws IOException {
+		codedIS.seek(offset);
+		int len = readInt();
+		int oldLim = codedIS.pushLimit(len);
+		readPoiData(left31, right31, top31, bottom31, req, region, skipTiles, zoomToSkip);
+		codedIS.popLimit(oldLim);
+	}
+	
+	protected int getZoomToSkip(SearchRequest<Amenity> req) {
+		return req.zoom != -1 ? req.zoom + ZOOM_TO_SKIP_FILTER : 31;
+	}
+	
 	private void readPoiData(CollatorStringMatcher matcher, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
 		int x = 0;
 		int y = 0;
@@ -589,130 +887,5 @@ public class BinaryMapPoiReaderAdapter {
 			}
 		}
 	}
-	
-	private boolean checkCategories(SearchRequest<Amenity> req, PoiRegion region) throws IOException {
-		while(true){
-			int t = codedIS.readTag();
-			int tag = WireFormat.getTagFieldNumber(t);
-			switch (tag) {
-			case 0:
-				return false;
-			case OsmandOdb.OsmAndPoiCategories.CATEGORIES_FIELD_NUMBER:
-				AmenityType type = AmenityType.OTHER;
-				String subcat = "";
-				int cat = codedIS.readUInt32();
-				int subcatId = cat >> SHIFT_BITS_CATEGORY;
-				int catId = cat & CATEGORY_MASK;
-				if(catId < region.categoriesType.size()){
-					type = region.categoriesType.get(catId);
-					List<String> subcats = region.subcategories.get(catId);
-					if(subcatId < subcats.size()){
-						subcat =  subcats.get(subcatId);
-					}
-				} else {
-					type = AmenityType.OTHER;
-				}
-				if(req.poiTypeFilter.accept(type, subcat)){
-					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-					return true;
-				}
-				
-				break;
-			default:
-				skipUnknownField(t);
-				break;
-			}
-		}
-	}
-
-	private boolean readBoxField(int left31, int right31, int top31, int bottom31,
-			int px, int py, int pzoom, TIntLongHashMap offsetsMap, TLongHashSet skipTiles, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
-		req.numberOfReadSubtrees++;
-		int zoomToSkip = req.zoom + ZOOM_TO_SKIP_FILTER;
-		boolean checkBox = true;
-		boolean existsCategories = false;
-		int zoom = pzoom;
-		int dy = py;
-		int dx = px;
-		while(true){
-			if(req.isCancelled()){
-				return false;
-			}
-			int t = codedIS.readTag();
-			int tag = WireFormat.getTagFieldNumber(t);
-			switch (tag) {
-			case 0:
-				return existsCategories;
-			case OsmandOdb.OsmAndPoiBox.ZOOM_FIELD_NUMBER :
-				zoom = codedIS.readUInt32() + pzoom;
-				break;
-			case OsmandOdb.OsmAndPoiBox.LEFT_FIELD_NUMBER :
-				dx = codedIS.readSInt32();
-				break;
-			case OsmandOdb.OsmAndPoiBox.TOP_FIELD_NUMBER:
-				dy = codedIS.readSInt32();
-				break;
-			case OsmandOdb.OsmAndPoiBox.CATEGORIES_FIELD_NUMBER:
-				if(req.poiTypeFilter == null){
-					skipUnknownField(t);
-				} else {
-					int length = codedIS.readRawVarint32();
-					int oldLimit = codedIS.pushLimit(length);
-					boolean check = checkCategories(req, region);
-					codedIS.popLimit(oldLimit);
-					if(!check){
-						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-						return false;
-					}
-					existsCategories = true;
-				}
-				break;
-				
-			case OsmandOdb.OsmAndPoiBox.SUBBOXES_FIELD_NUMBER: {
-				int x = dx + (px << (zoom - pzoom));
-				int y = dy + (py << (zoom - pzoom));
-				if(checkBox){
-					int xL = x << (31 - zoom);
-					int xR = ((x + 1) << (31 - zoom)) - 1;
-					int yT = y << (31 - zoom);
-					int yB = ((y + 1) << (31 - zoom)) - 1;
-					// check intersection
-					if(left31 > xR || xL > right31 || bottom31 < yT || yB < top31){
-						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-						return false;
-					}
-					req.numberOfAcceptedSubtrees++;
-					checkBox = false;
-				}
-				
-				int length = readInt();
-				int oldLimit = codedIS.pushLimit(length);
-				boolean exists = readBoxField(left31, right31, top31, bottom31, x, y, zoom, offsetsMap, skipTiles, req, region);
-				codedIS.popLimit(oldLimit);
-				
-				if (skipTiles != null && zoom >= zoomToSkip && exists) {
-					long val = ((((long) x) >> (zoom - zoomToSkip)) << zoomToSkip) | (((long) y) >> (zoom - zoomToSkip));
-					if(skipTiles.contains(val)){
-						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-						return true;
-					}
-				}
-			} break;
-			case OsmandOdb.OsmAndPoiBox.SHIFTTODATA_FIELD_NUMBER: {
-				int x = dx + (px << (zoom - pzoom));
-				int y = dy + (py << (zoom - pzoom));
-				long l = ((((x << zoom) | y) << 5) | zoom);
-				offsetsMap.put(readInt(), l);
-				if(skipTiles != null && zoom >= zoomToSkip){
-					long val = ((((long) x) >> (zoom - zoomToSkip)) << zoomToSkip) | (((long) y) >> (zoom - zoomToSkip));
-					skipTiles.add(val);
-				}
-			}	break;
-			default:
-				skipUnknownField(t);
-				break;
-			}
-		}
-	}
 
 }
@@ -331,6 +331,12 @@ public class BinaryMapRouteReaderAdapter {
 	
 	private CodedInputStream codedIS;
 	private final BinaryMapIndexReader map;
+	// decoded points of the current object
+	private int[] coordinatesCache = new int[64];
+	// encoded names of the current object
+	private TIntArrayList namesCache = new TIntArrayList();
+	// encoded names of the objects of the current block by index, they are set with the string table of the block
+	private TIntObjectHashMap<int[]> blockNames = new TIntObjectHashMap<int[]>();
 	
 	protected BinaryMapRouteReaderAdapter(BinaryMapIndexReader map){
 		this.codedIS = map.codedIS;
@@ -410,8 +416,9 @@ public class BinaryMapRouteReaderAdapter {
 	
 	private RouteDataObject readRouteDataObject(RouteRegion reg, int pleftx, int ptopy) throws IOException {
 		RouteDataObject o = new RouteDataObject(reg);
-		TIntArrayList pointsX = new TIntArrayList();
-		TIntArrayList pointsY = new TIntArrayList();
+		namesCache.clear();
+		int[] pointsX = null;
+		int[] pointsY = null;
 		TIntArrayList types = new TIntArrayList();
 		List<TIntArrayList> globalpointTypes = new ArrayList<TIntArrayList>();
 		while (true) {
@@ -419,8 +426,8 @@ public class BinaryMapRouteReaderAdapter {
 			int tags = WireFormat.getTagFieldNumber(ts);
 			switch (tags) {
 			case 0:
-				o.pointsX = pointsX.toArray();
-				o.pointsY = pointsY.toArray();
+				o.pointsX = pointsX != null ? pointsX : new int[0];
+				o.pointsY = pointsY != null ? pointsY : new int[0];
 				o.types = types.toArray();
 				if(globalpointTypes.size() > 0){
 					o.pointTypes = new int[globalpointTypes.size()][];
@@ -441,30 +448,28 @@ public class BinaryMapRouteReaderAdapter {
 				codedIS.popLimit(oldLimit);
 				break;
 			case RouteData.STRINGNAMES_FIELD_NUMBER:
-				o.names = new TIntObjectHashMap<String>();
 				int sizeL = codedIS.readRawVarint32();
 				int old = codedIS.pushLimit(sizeL);
+				namesCache.clear();
 				while (codedIS.getBytesUntilLimit() > 0) {
-					int stag = codedIS.readRawVarint32();
-					int pId = codedIS.readRawVarint32();
-					o.names.put(stag, ((char)pId)+"");
+					namesCache.add(codedIS.readRawVarint32());
+					namesCache.add(codedIS.readRawVarint32());
 				}
 				codedIS.popLimit(old);
 				break;
 			case RouteData.POINTS_FIELD_NUMBER:
 				len = codedIS.readRawVarint32();
-				oldLimit = codedIS.pushLimit(len);
-				int px = pleftx >> SHIFT_COORDINATES;
-				int py = ptopy >> SHIFT_COORDINATES;
-				while(codedIS.getBytesUntilLimit() > 0){
-					int x = (codedIS.readSInt32() ) + px;
-					int y = (codedIS.readSInt32() ) + py;
-					pointsX.add(x << SHIFT_COORDINATES);
-					pointsY.add(y << SHIFT_COORDINATES);
-					px = x;
-					py = y;
+				if (coordinatesCache.length < len) {
+					coordinatesCache = new int[Math.max(len, coordinatesCache.length * 2)];
+				}
+				int count = codedIS.readDeltaCoordinates(len, coordinatesCache, 0, SHIFT_COORDINATES,
+						(pleftx >> SHIFT_COORDINATES) << SHIFT_COORDINATES, (ptopy >> SHIFT_COORDINATES) << SHIFT_COORDINATES);
+				pointsX = new int[count / 2];
+				pointsY = new int[count / 2];
+				for (int i = 0; i < pointsX.length; i++) {
+					pointsX[i] = coordinatesCache[2 * i];
+					pointsY[i] = coordinatesCache[2 * i + 1];
 				}
-				codedIS.popLimit(oldLimit);
 				break;
 			case RouteData.POINTTYPES_FIELD_NUMBER:
 				len = codedIS.readRawVarint32();
@@ -500,6 +505,7 @@ public class BinaryMapRouteReaderAdapter {
 		routeTree.dataObjects = new ArrayList<RouteDataObject>();
 		idTables.clear();
 		restrictions.clear();
+		blockNames.clear();
 		List<String> stringTable = null;
 		while(true){
 			int t = codedIS.readTag();
@@ -518,19 +524,19 @@ public class BinaryMapRouteReaderAdapter {
 						fromr.restrictions[k] = valto;
 					}
 				}
-				for (RouteDataObject o : routeTree.dataObjects) {
+				for (int i = 0; i < routeTree.dataObjects.size(); i++) {
+					RouteDataObject o = routeTree.dataObjects.get(i);
 					if (o != null) {
 						if (o.id < idTables.size()) {
 							o.id = idTables.get((int) o.id);
 						}
-						if (o.names != null && stringTable != null) {
-							int[] keys = o.names.keys();
-							for (int j = 0; j < keys.length; j++) {
-								o.names.put(keys[j], stringTable.get(o.names.get(keys[j]).charAt(0)));
-							}
+						int[] names = blockNames.get(i);
+						if (names != null) {
+							o.setEncodedNames(names, stringTable);
 						}
 					}
 				}
+				blockNames.clear();
 				return;
 			case RouteDataBlock.DATAOBJECTS_FIELD_NUMBER :
 				int length = codedIS.readRawVarint32();
@@ -540,6 +546,9 @@ public class BinaryMapRouteReaderAdapter {
 					routeTree.dataObjects.add(null);
 				}
 				routeTree.dataObjects.set((int) obj.id,obj);
+				if (!namesCache.isEmpty()) {
+					blockNames.put((int) obj.id, namesCache.toArray());
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			case RouteDataBlock.IDTABLE_FIELD_NUMBER :
@@ -598,7 +607,7 @@ public class BinaryMapRouteReaderAdapter {
 			case RouteDataBlock.STRINGTABLE_FIELD_NUMBER :
 				length = codedIS.readRawVarint32();
 				oldLimit = codedIS.pushLimit(length);
-				stringTable = map.readStringTable();
+				stringTable = ObfStringTable.read(codedIS);
 //				codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
 				codedIS.popLimit(oldLimit);
 				break;
@@ -725,16 +734,19 @@ public class BinaryMapRouteReaderAdapter {
 	public List<RouteDataObject> loadRouteRegionData(RouteSubregion rs) throws IOException {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<TLongArrayList> restrictionMap = new TLongObjectHashMap<TLongArrayList>();
-		if (rs.dataObjects == null) {
-			codedIS.seek(rs.filePointer + rs.shiftToData);
-			int limit = codedIS.readRawVarint32();
-			int oldLimit = codedIS.pushLimit(limit);
-			readRouteTreeData(rs, idMap, restrictionMap);
-			codedIS.popLimit(oldLimit);
+		// subregion could be shared by readers of the same file (see SharedBinaryMapIndex)
+		synchronized (rs) {
+			if (rs.dataObjects == null) {
+				codedIS.seek(rs.filePointer + rs.shiftToData);
+				int limit = codedIS.readRawVarint32();
+				int oldLimit = codedIS.pushLimit(limit);
+				readRouteTreeData(rs, idMap, restrictionMap);
+				codedIS.popLimit(oldLimit);
+			}
+			List<RouteDataObject> res = rs.dataObjects;
+			rs.dataObjects = null;
+			return res;
 		}
-		List<RouteDataObject> res = rs.dataObjects;
-		rs.dataObjects = null;
-		return res;
 	}
 	
 	public void loadRouteRegionData(List<RouteSubregion> toLoad, ResultMatcher<RouteDataObject> matcher) throws IOException {
@@ -749,20 +761,48 @@ public class BinaryMapRouteReaderAdapter {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<TLongArrayList> restrictionMap = new TLongObjectHashMap<TLongArrayList>();
 		for (RouteSubregion rs : toLoad) {
-			if (rs.dataObjects == null) {
-				codedIS.seek(rs.filePointer + rs.shiftToData);
-				int limit = codedIS.readRawVarint32();
-				int oldLimit = codedIS.pushLimit(limit);
-				readRouteTreeData(rs, idMap, restrictionMap);
-				codedIS.popLimit(oldLimit);
+			List<RouteDataObject> dataObjects;
+			synchronized (rs) {
+				if (rs.dataObjects == null) {
+					codedIS.seek(rs.filePointer + rs.shiftToData);
+					int limit = codedIS.readRawVarint32();
+					int oldLimit = codedIS.pushLimit(limit);
+					readRouteTreeData(rs, idMap, restrictionMap);
+					codedIS.popLimit(oldLimit);
+				}
+				dataObjects = rs.dataObjects;
+				// free objects
+				rs.dataObjects = null;
 			}
-			for (RouteDataObject ro : rs.dataObjects) {
+			for (RouteDataObject ro : dataObjects) {
 				if (ro != null) {
 					matcher.publish(ro);
 				}
 			}
-			// free objects
-			rs.dataObjects = null;
+		}
+	}
+
+	private List<RouteSubregion> initRouteTree(SearchRequest<RouteDataObject> req, RouteSubregion rs) throws IOException {
+		// subregion could be shared by readers of the same file (see SharedBinaryMapIndex)
+		synchronized (rs) {
+			if (rs.subregions == null) {
+				codedIS.seek(rs.filePointer);
+				int old = codedIS.pushLimit(rs.length);
+				readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
+				codedIS.popLimit(old);
+			}
+			return rs.subregions;
+		}
+	}
+
+	void initRouteTreeLevels(RouteSubregion rs, int depth) throws IOException {
+		synchronized (rs) {
+			if (rs.subregions == null) {
+				codedIS.seek(rs.filePointer);
+				int old = codedIS.pushLimit(rs.length);
+				readRouteTree(rs, null, depth, false);
+				codedIS.popLimit(old);
+			}
 		}
 	}
 
@@ -770,13 +810,7 @@ public class BinaryMapRouteReaderAdapter {
 			List<RouteSubregion> toLoad) throws IOException {
 		for (RouteSubregion rs : list) {
 			if (req.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-				if (rs.subregions == null) {
-					codedIS.seek(rs.filePointer);
-					int old = codedIS.pushLimit(rs.length);
-					readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
-					codedIS.popLimit(old);
-				}
-				searchRouteRegionTree(req, rs.subregions, toLoad);
+				searchRouteRegionTree(req, initRouteTree(req, rs), toLoad);
 
 				if (rs.shiftToData != 0) {
 					toLoad.add(rs);
@@ -950,13 +984,7 @@ public class BinaryMapRouteReaderAdapter {
 			List<RouteSubregion> toLoad) throws IOException {
 		for (RouteSubregion rs : list) {
 			if (req.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-				if (rs.subregions == null) {
-					codedIS.seek(rs.filePointer);
-					int old = codedIS.pushLimit(rs.length);
-					readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
-					codedIS.popLimit(old);
-				}
-				searchRouteRegionTree(req, rs.subregions, toLoad);
+				searchRouteRegionTree(req, initRouteTree(req, rs), toLoad);
 
 				if (rs.shiftToData != 0) {
 					toLoad.add(rs);
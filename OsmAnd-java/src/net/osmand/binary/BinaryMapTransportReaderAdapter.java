@@ -4,7 +4,6 @@ import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.List;
 
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
@@ -59,6 +58,13 @@ public class BinaryMapTransportReaderAdapter {
 		}
 
 		IndexStringTable stringTable = null;
+		
+		// shared by the readers of the same file
+		final TransportRouteCache routeCache = new TransportRouteCache();
+		
+		public TransportRouteCache getRouteCache() {
+			return routeCache;
+		}
 	}
 
 	protected static class IndexStringTable {
@@ -311,8 +317,11 @@ public class BinaryMapTransportReaderAdapter {
 	}
 	
 	protected void initializeStringTable(TransportIndex ind, TIntObjectHashMap<String> stringTable) throws IOException {
-		int[] values = stringTable.keys();
-		Arrays.sort(values);
+		// only strings which are not read yet by other requests
+		int[] values = ind.routeCache.fillStrings(stringTable);
+		if (values.length == 0) {
+			return;
+		}
 		codedIS.seek(ind.stringTable.fileOffset);
 		int oldLimit = codedIS.pushLimit(ind.stringTable.length);
 		int current = 0;
@@ -339,6 +348,7 @@ public class BinaryMapTransportReaderAdapter {
 			}
 		}
 		codedIS.popLimit(oldLimit);
+		ind.routeCache.putStrings(values, stringTable);
 	}
 
 	protected void initializeNames(boolean onlyDescription, net.osmand.data.TransportRoute dataObject,
@@ -5,12 +5,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
 
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.CitiesBlock;
 import net.osmand.binary.BinaryMapIndexReader.MapIndex;
 import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.MapTree;
 import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
@@ -21,6 +24,7 @@ import net.osmand.binary.OsmandIndex.CityBlock;
 import net.osmand.binary.OsmandIndex.FileIndex;
 import net.osmand.binary.OsmandIndex.MapLevel;
 import net.osmand.binary.OsmandIndex.MapPart;
+import net.osmand.binary.OsmandIndex.MapTreeBox;
 import net.osmand.binary.OsmandIndex.OsmAndStoredIndex;
 import net.osmand.binary.OsmandIndex.PoiPart;
 import net.osmand.binary.OsmandIndex.RoutingPart;
@@ -30,6 +34,9 @@ import net.osmand.util.MapUtils;
 
 import org.apache.commons.logging.Log;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
 public class CachedOsmandIndexes {
 	
 	private OsmAndStoredIndex storedIndex;
@@ -37,7 +44,10 @@ public class CachedOsmandIndexes {
 	private Log log = PlatformUtil.getLog(CachedOsmandIndexes.class);
 	private boolean hasChanged = true;
 	
-	public static final int VERSION = 2;
+	public static final int VERSION = 3;
+	// levels of map boxes (under top boxes of each zoom level) and route boxes stored in cache,
+	// so the first levels of search don't read the file
+	private static final int TREE_DEPTH = 1;
 
 	public void addToCache(BinaryMapIndexReader reader, File f) {
 		hasChanged = true;
@@ -52,6 +62,19 @@ public class CachedOsmandIndexes {
 			}
 		}
 		
+		try {
+			reader.initUpperTreeLevels(TREE_DEPTH);
+		} catch (IOException e) {
+			log.warn("Tree boxes are not cached " + f.getName(), e);
+		}
+		// entry of the previous version of the file
+		List<FileIndex> entries = new ArrayList<FileIndex>(storedIndexBuilder.getFileIndexList());
+		storedIndexBuilder.clearFileIndex();
+		for (FileIndex ex : entries) {
+			if (!f.getName().equals(ex.getFileName())) {
+				storedIndexBuilder.addFileIndex(ex);
+			}
+		}
 		FileIndex.Builder fileIndex = OsmandIndex.FileIndex.newBuilder();
 		long d = reader.getDateCreated();
 		fileIndex.setDateModified(d== 0?f.lastModified() : d);
@@ -75,6 +98,11 @@ public class CachedOsmandIndexes {
 				lev.setBottom(mr.bottom);
 				lev.setMinzoom(mr.minZoom);
 				lev.setMaxzoom(mr.maxZoom);
+				if (mr.trees != null) {
+					for (MapTree tree : mr.trees) {
+						lev.addBoxes(createMapTreeBox(tree, TREE_DEPTH));
+					}
+				}
 				map.addLevels(lev);
 			}
 			fileIndex.addMapIndex(map);
@@ -153,27 +181,87 @@ public class CachedOsmandIndexes {
 		
 	}
 
+	private MapTreeBox.Builder createMapTreeBox(MapTree tree, int depth) {
+		MapTreeBox.Builder box = OsmandIndex.MapTreeBox.newBuilder();
+		box.setSize(tree.length);
+		box.setOffset(tree.filePointer);
+		box.setLeft(tree.left);
+		box.setRight(tree.right);
+		box.setTop(tree.top);
+		box.setBottom(tree.bottom);
+		if (tree.ocean != null) {
+			box.setOcean(tree.ocean);
+		}
+		if (tree.mapDataBlock != 0) {
+			box.setShiftToData((int) (tree.mapDataBlock - tree.filePointer));
+		}
+		// children are either all stored or not stored at all
+		if (tree.subtrees != null && depth > 0) {
+			for (MapTree s : tree.subtrees) {
+				box.addBoxes(createMapTreeBox(s, depth - 1));
+			}
+		}
+		return box;
+	}
+
 	private void addRouteSubregion(RoutingPart.Builder routing, RouteSubregion sub, boolean base) {
+		OsmandIndex.RoutingSubregion.Builder rpart = createRouteSubregion(sub, TREE_DEPTH + 1);
+		rpart.setBasemap(base);
+		routing.addSubregions(rpart);
+	}
+
+	private RoutingSubregion.Builder createRouteSubregion(RouteSubregion sub, int depth) {
 		OsmandIndex.RoutingSubregion.Builder rpart = OsmandIndex.RoutingSubregion.newBuilder();
 		rpart.setSize(sub.length);
 		rpart.setOffset(sub.filePointer);
 		rpart.setLeft(sub.left);
 		rpart.setRight(sub.right);
 		rpart.setTop(sub.top);
-		rpart.setBasemap(base);
 		rpart.setBottom(sub.bottom);
 		rpart.setShifToData(sub.shiftToData);
-		routing.addSubregions(rpart);
+		if (sub.subregions != null && depth > 0) {
+			for (RouteSubregion s : sub.subregions) {
+				rpart.addSubregions(createRouteSubregion(s, depth - 1));
+			}
+		}
+		return rpart;
 	}
 	
+	/**
+	 * @return date created from the header of the obf file or 0
+	 */
+	private static long readDateCreated(RandomAccessFile mf) throws IOException {
+		CodedInputStream codedIS = CodedInputStream.newInstance(mf);
+		long dateCreated = 0;
+		while (dateCreated == 0) {
+			int tag = WireFormat.getTagFieldNumber(codedIS.readTag());
+			if (tag == OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER) {
+				codedIS.readUInt32();
+			} else if (tag == OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER) {
+				dateCreated = codedIS.readInt64();
+			} else {
+				break;
+			}
+		}
+		mf.seek(0);
+		return dateCreated;
+	}
+
 	public BinaryMapIndexReader getReader(File f) throws IOException {
+		return getReader(f, false);
+	}
+	
+	public BinaryMapIndexReader getReader(File f, boolean memoryMapped) throws IOException {
 		RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
 		FileIndex found = null;
 		if (storedIndex != null) {
+			// rewritten file could have the same size, so date created of the file is compared as well
+			long d = readDateCreated(mf);
+			long dateModified = d == 0 ? f.lastModified() : d;
 			for (int i = 0; i < storedIndex.getFileIndexCount(); i++) {
 				FileIndex fi = storedIndex.getFileIndex(i);
-				if (f.length() == fi.getSize() && f.getName().equals(fi.getFileName())) {
-					// f.lastModified() == fi.getDateModified()
+				if (f.length() == fi.getSize() && f.getName().equals(fi.getFileName())
+						&& dateModified == fi.getDateModified()) {
 					found = fi;
 					break;
 				}
@@ -182,19 +270,19 @@ public class CachedOsmandIndexes {
 		BinaryMapIndexReader reader = null;
 		if (found == null) {
 			long val = System.currentTimeMillis();
-			reader = new BinaryMapIndexReader(mf);
+			reader = new BinaryMapIndexReader(mf, memoryMapped);
 			addToCache(reader, f);
 			if (log.isDebugEnabled()) {
 				log.debug("Initializing db " + f.getAbsolutePath() + " " + (System.currentTimeMillis() - val ) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			}
 		} else {
-			reader = initFileIndex(found, mf);
+			reader = initFileIndex(found, mf, memoryMapped);
 		}
 		return reader;
 	}
 	
-	private BinaryMapIndexReader initFileIndex(FileIndex found, RandomAccessFile mf) throws IOException {
-		BinaryMapIndexReader reader = new BinaryMapIndexReader(mf, false);
+	private BinaryMapIndexReader initFileIndex(FileIndex found, RandomAccessFile mf, boolean memoryMapped) throws IOException {
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(mf, false, memoryMapped);
 		reader.version = found.getVersion();
 		reader.dateCreated = found.getDateModified();
 		
@@ -214,6 +302,12 @@ public class CachedOsmandIndexes {
 				root.bottom = mr.getBottom();
 				root.minZoom = mr.getMinzoom();
 				root.maxZoom = mr.getMaxzoom();
+				if (mr.getBoxesCount() > 0) {
+					root.trees = new ArrayList<MapTree>();
+					for (MapTreeBox box : mr.getBoxesList()) {
+						root.trees.add(initMapTree(box));
+					}
+				}
 				mi.roots.add(root);
 			}
 			reader.mapIndexes.add(mi);
@@ -277,14 +371,7 @@ public class CachedOsmandIndexes {
 			mi.name = index.getName();
 			
 			for(RoutingSubregion mr : index.getSubregionsList()) {
-				RouteSubregion sub = new RouteSubregion(mi);
-				sub.length = (int) mr.getSize();
-				sub.filePointer = (int) mr.getOffset();
-				sub.left = mr.getLeft();
-				sub.right = mr.getRight();
-				sub.top = mr.getTop();
-				sub.bottom = mr.getBottom();
-				sub.shiftToData = mr.getShifToData();
+				RouteSubregion sub = initRouteSubregion(mr, mi);
 				if(mr.getBasemap()) {
 					mi.basesubregions.add(sub);
 				} else {
@@ -298,6 +385,48 @@ public class CachedOsmandIndexes {
 		return reader;
 	}
 
+	private MapTree initMapTree(MapTreeBox box) {
+		MapTree tree = new MapTree();
+		tree.length = (int) box.getSize();
+		tree.filePointer = (int) box.getOffset();
+		tree.left = box.getLeft();
+		tree.right = box.getRight();
+		tree.top = box.getTop();
+		tree.bottom = box.getBottom();
+		if (box.hasOcean()) {
+			tree.ocean = box.getOcean();
+		}
+		if (box.hasShiftToData()) {
+			tree.mapDataBlock = box.getShiftToData() + tree.filePointer;
+		}
+		// without children box is read from file as usual
+		if (box.getBoxesCount() > 0) {
+			tree.subtrees = new ArrayList<MapTree>();
+			for (MapTreeBox s : box.getBoxesList()) {
+				tree.subtrees.add(initMapTree(s));
+			}
+		}
+		return tree;
+	}
+
+	private RouteSubregion initRouteSubregion(RoutingSubregion mr, RouteRegion region) {
+		RouteSubregion sub = new RouteSubregion(region);
+		sub.length = (int) mr.getSize();
+		sub.filePointer = (int) mr.getOffset();
+		sub.left = mr.getLeft();
+		sub.right = mr.getRight();
+		sub.top = mr.getTop();
+		sub.bottom = mr.getBottom();
+		sub.shiftToData = mr.getShifToData();
+		if (mr.getSubregionsCount() > 0) {
+			sub.subregions = new ArrayList<RouteSubregion>();
+			for (RoutingSubregion s : mr.getSubregionsList()) {
+				sub.subregions.add(initRouteSubregion(s, region));
+			}
+		}
+		return sub;
+	}
+
 	public void readFromFile(File f, int version) throws IOException {
 		long time = System.currentTimeMillis();
 		FileInputStream is = new FileInputStream(f);
@@ -0,0 +1,212 @@
+package net.osmand.binary;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+
+/**
+ * Least recently used cache of decoded map data blocks (all objects of one leaf box, not filtered by any request).
+ * Size is bounded by estimated memory of the decoded objects.
+ * Could be shared by several readers and threads, cached objects should not be modified.
+ */
+public class MapDataBlockCache {
+
+	// rough estimation of object headers and references
+	private static final int OBJECT_OVERHEAD = 16;
+	private static final int ARRAY_OVERHEAD = 16;
+	private static final int DATA_OBJECT_SIZE = 64;
+	private static final int BLOCK_OVERHEAD = 64;
+
+	private final long maxSize;
+	private long size = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private final LinkedHashMap<BlockKey, CachedBlock> blocks = new LinkedHashMap<BlockKey, CachedBlock>(64, 0.75f, true);
+
+	/**
+	 * @param maxSize estimated size in bytes of all cached objects
+	 */
+	public MapDataBlockCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public synchronized List<BinaryMapDataObject> get(MapIndex index, MapRoot level, long blockPointer) {
+		CachedBlock b = blocks.get(new BlockKey(index, level, blockPointer));
+		if (b == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return b.objects;
+	}
+
+	/**
+	 * Checks the block without affecting statistics and order of eviction
+	 */
+	public synchronized boolean contains(MapIndex index, MapRoot level, long blockPointer) {
+		return blocks.containsKey(new BlockKey(index, level, blockPointer));
+	}
+
+	public synchronized void put(MapIndex index, MapRoot level, long blockPointer, List<BinaryMapDataObject> objects) {
+		CachedBlock b = new CachedBlock(Collections.unmodifiableList(objects), estimateSize(objects));
+		if (b.size > maxSize) {
+			return;
+		}
+		CachedBlock old = blocks.put(new BlockKey(index, level, blockPointer), b);
+		if (old != null) {
+			size -= old.size;
+		}
+		size += b.size;
+		Iterator<CachedBlock> it = blocks.values().iterator();
+		while (size > maxSize && it.hasNext()) {
+			CachedBlock eldest = it.next();
+			size -= eldest.size;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes all blocks of the index (when the file is closed)
+	 */
+	public synchronized void remove(MapIndex index) {
+		Iterator<Entry<BlockKey, CachedBlock>> it = blocks.entrySet().iterator();
+		while (it.hasNext()) {
+			Entry<BlockKey, CachedBlock> e = it.next();
+			if (e.getKey().index == index) {
+				size -= e.getValue().size;
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		blocks.clear();
+		size = 0;
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized int getBlocksCount() {
+		return blocks.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Map block cache " + blocks.size() + " blocks, " + (size >> 10) + " / " + (maxSize >> 10) + " KB, hits " + hits
+				+ ", misses " + misses + ", evictions " + evictions;
+	}
+
+	public static long estimateSize(List<BinaryMapDataObject> objects) {
+		long s = BLOCK_OVERHEAD + ARRAY_OVERHEAD + 4 * objects.size();
+		List<String> table = null;
+		for (BinaryMapDataObject o : objects) {
+			s += estimateSize(o);
+			List<String> t = o.getStringTable();
+			if (t != table && t instanceof ObfStringTable && o.getEncodedNamesLength() > 0) {
+				table = t;
+				// raw bytes and strings decoded later
+				s += ARRAY_OVERHEAD + 3 * ((ObfStringTable) t).getRawSize() + (8 + OBJECT_OVERHEAD + ARRAY_OVERHEAD) * t.size();
+			}
+		}
+		return s;
+	}
+
+	public static long estimateSize(BinaryMapDataObject o) {
+		long s = DATA_OBJECT_SIZE;
+		s += arraySize(o.coordinates);
+		s += arraySize(o.types);
+		s += arraySize(o.additionalTypes);
+		if (o.polygonInnerCoordinates != null) {
+			s += ARRAY_OVERHEAD + 4 * o.polygonInnerCoordinates.length;
+			for (int[] p : o.polygonInnerCoordinates) {
+				s += arraySize(p);
+			}
+		}
+		TIntObjectHashMap<String> names = o.objectNames;
+		if (names != null) {
+			s += OBJECT_OVERHEAD + 2 * ARRAY_OVERHEAD + 8 * names.capacity();
+			for (String n : names.valueCollection()) {
+				s += OBJECT_OVERHEAD + ARRAY_OVERHEAD + 2 * n.length();
+			}
+		}
+		int encodedNames = o.getEncodedNamesLength();
+		if (encodedNames > 0) {
+			// string table is shared by objects of the block and is counted once per block
+			s += ARRAY_OVERHEAD + 4 * encodedNames;
+		}
+		return s;
+	}
+
+	private static long arraySize(int[] a) {
+		return a == null ? 0 : ARRAY_OVERHEAD + 4 * a.length;
+	}
+
+	private static class CachedBlock {
+		final List<BinaryMapDataObject> objects;
+		final long size;
+
+		CachedBlock(List<BinaryMapDataObject> objects, long size) {
+			this.objects = objects;
+			this.size = size;
+		}
+	}
+
+	private static class BlockKey {
+		final MapIndex index;
+		final MapRoot level;
+		final long blockPointer;
+
+		BlockKey(MapIndex index, MapRoot level, long blockPointer) {
+			this.index = index;
+			this.level = level;
+			this.blockPointer = blockPointer;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = System.identityHashCode(index);
+			result = 31 * result + System.identityHashCode(level);
+			result = 31 * result + (int) (blockPointer ^ (blockPointer >>> 32));
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BlockKey)) {
+				return false;
+			}
+			BlockKey other = (BlockKey) obj;
+			return index == other.index && level == other.level && blockPointer == other.blockPointer;
+		}
+	}
+}
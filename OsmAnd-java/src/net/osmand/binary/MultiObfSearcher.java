@@ -0,0 +1,294 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.osmand.PlatformUtil;
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.data.Amenity;
+import net.osmand.data.MapObject;
+import net.osmand.data.TransportStop;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Runs one search request over several obf files in parallel.
+ *
+ * Every file is searched with its own copy of the request, results are merged in the order of the given readers,
+ * so the final list doesn't depend on thread scheduling. When the request has a limit each file is searched up to
+ * that limit and the merged list is cut to it, files are skipped as soon as the files before them already give enough results.
+ * Cancelling the original request or interrupting the calling thread cancels all file searches.
+ *
+ * One reader should not be searched by another thread at the same time
+ * (use {@link SharedBinaryMapIndex#getReader()} to get a separate reader per search thread).
+ */
+public class MultiObfSearcher {
+	private final static Log log = PlatformUtil.getLog(MultiObfSearcher.class);
+
+	public static interface FileSearch<T> {
+		public List<T> search(BinaryMapIndexReader reader, SearchRequest<T> request) throws IOException;
+	}
+
+	public static final FileSearch<BinaryMapDataObject> MAP_SEARCH = new FileSearch<BinaryMapDataObject>() {
+		@Override
+		public List<BinaryMapDataObject> search(BinaryMapIndexReader reader, SearchRequest<BinaryMapDataObject> request) throws IOException {
+			return reader.searchMapIndex(request);
+		}
+	};
+
+	public static final FileSearch<Amenity> POI_SEARCH = new FileSearch<Amenity>() {
+		@Override
+		public List<Amenity> search(BinaryMapIndexReader reader, SearchRequest<Amenity> request) throws IOException {
+			return reader.searchPoi(request);
+		}
+	};
+
+	public static final FileSearch<Amenity> POI_BY_NAME_SEARCH = new FileSearch<Amenity>() {
+		@Override
+		public List<Amenity> search(BinaryMapIndexReader reader, SearchRequest<Amenity> request) throws IOException {
+			return reader.searchPoiByName(request);
+		}
+	};
+
+	public static final FileSearch<MapObject> ADDRESS_BY_NAME_SEARCH = new FileSearch<MapObject>() {
+		@Override
+		public List<MapObject> search(BinaryMapIndexReader reader, SearchRequest<MapObject> request) throws IOException {
+			return reader.searchAddressDataByName(request);
+		}
+	};
+
+	public static final FileSearch<TransportStop> TRANSPORT_SEARCH = new FileSearch<TransportStop>() {
+		@Override
+		public List<TransportStop> search(BinaryMapIndexReader reader, SearchRequest<TransportStop> request) throws IOException {
+			return reader.searchTransportIndex(request);
+		}
+	};
+
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+
+	public MultiObfSearcher() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public MultiObfSearcher(int threads) {
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int counter = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Obf search " + (counter++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.ownExecutor = true;
+	}
+
+	public MultiObfSearcher(ExecutorService executor) {
+		this.executor = executor;
+		this.ownExecutor = false;
+	}
+
+	public List<BinaryMapDataObject> searchMapIndex(List<BinaryMapIndexReader> readers, SearchRequest<BinaryMapDataObject> req)
+			throws IOException {
+		return search(readers, req, MAP_SEARCH);
+	}
+
+	public List<Amenity> searchPoi(List<BinaryMapIndexReader> readers, SearchRequest<Amenity> req) throws IOException {
+		return search(readers, req, POI_SEARCH);
+	}
+
+	public List<Amenity> searchPoiByName(List<BinaryMapIndexReader> readers, SearchRequest<Amenity> req) throws IOException {
+		return search(readers, req, POI_BY_NAME_SEARCH);
+	}
+
+	public List<MapObject> searchAddressDataByName(List<BinaryMapIndexReader> readers, SearchRequest<MapObject> req)
+			throws IOException {
+		return search(readers, req, ADDRESS_BY_NAME_SEARCH);
+	}
+
+	public List<TransportStop> searchTransportIndex(List<BinaryMapIndexReader> readers, SearchRequest<TransportStop> req)
+			throws IOException {
+		return search(readers, req, TRANSPORT_SEARCH);
+	}
+
+	/**
+	 * Searches all readers and adds merged results to the original request
+	 * @return search results of the original request
+	 */
+	public <T> List<T> search(List<BinaryMapIndexReader> readers, SearchRequest<T> req, FileSearch<T> fileSearch)
+			throws IOException {
+		long time = System.currentTimeMillis();
+		MergeState state = new MergeState(readers.size(), req.limit);
+		List<SearchRequest<T>> requests = new ArrayList<SearchRequest<T>>(readers.size());
+		List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>(readers.size());
+		for (int i = 0; i < readers.size(); i++) {
+			SearchRequest<T> fileRequest = req.copyParameters(new FileResultMatcher<T>(req, state, i));
+			requests.add(fileRequest);
+			futures.add(executor.submit(new FileSearchTask<T>(readers.get(i), fileRequest, fileSearch, state, i)));
+		}
+		IOException exception = null;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (InterruptedException e) {
+				// don't wait for the other files, interrupted flag of the caller is kept
+				req.setInterrupted(true);
+				for (int j = i; j < futures.size(); j++) {
+					futures.get(j).cancel(true);
+				}
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Search was interrupted");
+			} catch (ExecutionException e) {
+				// stop other files as well
+				req.setInterrupted(true);
+				if (exception == null) {
+					if (e.getCause() instanceof IOException) {
+						exception = (IOException) e.getCause();
+					} else {
+						// IOException(Throwable) is not available before android API 9
+						exception = new IOException(String.valueOf(e.getCause()));
+						exception.initCause(e.getCause());
+					}
+				}
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+		List<T> results = req.getSearchResults();
+		for (SearchRequest<T> fileRequest : requests) {
+			req.numberOfVisitedObjects += fileRequest.numberOfVisitedObjects;
+			req.numberOfAcceptedObjects += fileRequest.numberOfAcceptedObjects;
+			req.numberOfReadSubtrees += fileRequest.numberOfReadSubtrees;
+			req.numberOfAcceptedSubtrees += fileRequest.numberOfAcceptedSubtrees;
+			if (fileRequest.isOcean()) {
+				req.publishOceanTile(true);
+			}
+			if (fileRequest.isLand()) {
+				req.publishOceanTile(false);
+			}
+			for (T r : fileRequest.getSearchResults()) {
+				if (req.limit != -1 && results.size() >= req.limit) {
+					break;
+				}
+				results.add(r);
+			}
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Search in " + readers.size() + " files is done " + (System.currentTimeMillis() - time) + " ms. Found "
+					+ results.size() + " objects.");
+		}
+		return results;
+	}
+
+	public void shutdown() {
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Tracks finished files to stop files whose results can't be in the merged list anymore
+	 */
+	private static class MergeState {
+		private final int[] found;
+		private final boolean[] finished;
+		private final int limit;
+		// files starting from that index are not needed
+		private volatile int satisfiedIndex;
+
+		MergeState(int files, int limit) {
+			this.found = new int[files];
+			this.finished = new boolean[files];
+			this.limit = limit;
+			this.satisfiedIndex = files;
+		}
+
+		synchronized void fileFinished(int index, int count) {
+			found[index] = count;
+			finished[index] = true;
+			if (limit == -1) {
+				return;
+			}
+			int total = 0;
+			for (int i = 0; i < finished.length && i < satisfiedIndex; i++) {
+				if (!finished[i]) {
+					return;
+				}
+				total += found[i];
+				if (total >= limit) {
+					satisfiedIndex = i + 1;
+					return;
+				}
+			}
+		}
+
+		boolean isNotNeeded(int index) {
+			return index >= satisfiedIndex;
+		}
+	}
+
+	private static class FileResultMatcher<T> implements ResultMatcher<T> {
+		private final SearchRequest<T> original;
+		private final MergeState state;
+		private final int index;
+
+		FileResultMatcher(SearchRequest<T> original, MergeState state, int index) {
+			this.original = original;
+			this.state = state;
+			this.index = index;
+		}
+
+		@Override
+		public boolean publish(T object) {
+			// user matchers are not expected to be thread safe
+			synchronized (original) {
+				return original.accept(object);
+			}
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return state.isNotNeeded(index) || original.isCancelled();
+		}
+	}
+
+	private static class FileSearchTask<T> implements Callable<List<T>> {
+		private final BinaryMapIndexReader reader;
+		private final SearchRequest<T> request;
+		private final FileSearch<T> fileSearch;
+		private final MergeState state;
+		private final int index;
+
+		FileSearchTask(BinaryMapIndexReader reader, SearchRequest<T> request, FileSearch<T> fileSearch, MergeState state,
+				int index) {
+			this.reader = reader;
+			this.request = request;
+			this.fileSearch = fileSearch;
+			this.state = state;
+			this.index = index;
+		}
+
+		@Override
+		public List<T> call() throws Exception {
+			if (request.isCancelled()) {
+				state.fileFinished(index, 0);
+				return request.getSearchResults();
+			}
+			List<T> res = fileSearch.search(reader, request);
+			state.fileFinished(index, res.size());
+			return res;
+		}
+	}
+}
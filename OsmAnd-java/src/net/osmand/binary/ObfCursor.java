@@ -0,0 +1,27 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+
+/**
+ * Pull based search results. Objects are decoded lazily one data block at a time
+ * when they are requested, so the whole result is never kept in memory.
+ * Search could be stopped any time with {@link #close()}.
+ *
+ * Cursor uses the input stream of its reader, it could be mixed with other searches
+ * of the same reader but only on the same thread.
+ */
+public interface ObfCursor<T> {
+
+	public boolean hasNext() throws IOException;
+
+	/**
+	 * @throws java.util.NoSuchElementException when there are no more results
+	 */
+	public T next() throws IOException;
+
+	/**
+	 * Stops the search, remaining blocks are not read
+	 */
+	public void close();
+
+}
@@ -0,0 +1,1379 @@
+package net.osmand.binary;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.osmand.IndexConstants;
+import net.osmand.binary.OsmandOdb.AddressNameIndexDataAtom;
+import net.osmand.binary.OsmandOdb.BuildingIndex;
+import net.osmand.binary.OsmandOdb.CityBlockIndex;
+import net.osmand.binary.OsmandOdb.CityIndex;
+import net.osmand.binary.OsmandOdb.IdTable;
+import net.osmand.binary.OsmandOdb.IndexedStringTable;
+import net.osmand.binary.OsmandOdb.MapData;
+import net.osmand.binary.OsmandOdb.MapDataBlock;
+import net.osmand.binary.OsmandOdb.OsmAndAddressIndex;
+import net.osmand.binary.OsmandOdb.OsmAndAddressIndex.CitiesIndex;
+import net.osmand.binary.OsmandOdb.OsmAndAddressNameIndexData;
+import net.osmand.binary.OsmandOdb.OsmAndAddressNameIndexData.AddressNameIndexData;
+import net.osmand.binary.OsmandOdb.OsmAndCategoryTable;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapDataBox;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapEncodingRule;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapRootLevel;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBox;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBoxData;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBoxDataAtom;
+import net.osmand.binary.OsmandOdb.OsmAndPoiCategories;
+import net.osmand.binary.OsmandOdb.OsmAndPoiIndex;
+import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndex;
+import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndex.OsmAndPoiNameIndexData;
+import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndexDataAtom;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteDataBlock;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteDataBox;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteEncodingRule;
+import net.osmand.binary.OsmandOdb.OsmAndStructure;
+import net.osmand.binary.OsmandOdb.OsmAndTileBox;
+import net.osmand.binary.OsmandOdb.OsmAndTransportIndex;
+import net.osmand.binary.OsmandOdb.RouteData;
+import net.osmand.binary.OsmandOdb.StreetIndex;
+import net.osmand.binary.OsmandOdb.StringTable;
+import net.osmand.binary.OsmandOdb.TransportRoute;
+import net.osmand.binary.OsmandOdb.TransportRouteStop;
+import net.osmand.binary.OsmandOdb.TransportRoutes;
+import net.osmand.binary.OsmandOdb.TransportStop;
+import net.osmand.binary.OsmandOdb.TransportStopsTree;
+import net.osmand.data.AmenityType;
+import net.osmand.data.City.CityType;
+import net.osmand.util.MapUtils;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Writes synthetic obf file (map, address, transport, poi and routing sections of one region) to benchmark and test
+ * the readers without real country files.
+ *
+ * All data is derived from the seed: every tile, city, stop and route has its own random generator, so the same
+ * parameters always give the same file and the tiles don't depend on the size of the area. Density is set per tile of
+ * {@link #setTileZoom(int)} for map objects, poi and roads and per region for address and transport, so the size of
+ * the file grows with the area from megabytes up to the 2 GB limit of the format.
+ *
+ * Roads of the routing section form a grid through the whole area (segments of neighbour tiles share end points), so
+ * routes could be calculated between any two points of the area.
+ */
+public class ObfDataGenerator {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	// wire types which are not public in WireFormat
+	private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+	private static final int WIRETYPE_FIXED32 = 5;
+
+	private static final int MAP_SHIFT_COORDINATES = BinaryMapIndexReader.SHIFT_COORDINATES;
+	private static final int ROUTE_SHIFT_COORDINATES = 4;
+	// poi coordinates are stored in tiles of zoom 24
+	private static final int POI_SHIFT_COORDINATES = 7;
+	private static final int STOP_SHIFT_COORDINATES = 31 - BinaryMapIndexReader.TRANSPORT_STOP_ZOOM;
+	// root boxes are tiles of (leaf zoom - TREE_DEPTH)
+	private static final int TREE_DEPTH = 6;
+	private static final int MAX_STOPS_IN_LEAF = 32;
+	// length of the keys of name indexes
+	private static final int NAME_PREFIX_LENGTH = 2;
+
+	private static final int MAP_SALT = 1;
+	private static final int POI_SALT = 2;
+	private static final int ADDRESS_SALT = 3;
+	private static final int TRANSPORT_SALT = 4;
+	private static final int ROUTE_SALT = 5;
+
+	private static final String[] SYLLABLES = { "ka", "lo", "ven", "mar", "ti", "sel", "ber", "don", "ra", "mi", "sto",
+			"lin", "gor", "fa", "nu", "el", "ost", "vik", "ar", "den" };
+	private static final String[] STREET_SUFFIXES = { "Street", "Avenue", "Lane", "Road" };
+	private static final String[] STOP_SUFFIXES = { "Square", "Station", "Bridge", "Park", "Market", "Gate" };
+	private static final String[] TRANSPORT_TYPES = { "bus", "tram", "trolleybus", "subway" };
+
+	// map rules, id of the rule is index + 1, rules with type 1 are additional
+	private static final String[][] MAP_RULES = { { "name", null }, { "ref", null }, { "highway", "primary" },
+			{ "highway", "secondary" }, { "highway", "residential" }, { "highway", "footway" }, { "building", "yes" },
+			{ "natural", "water" }, { "landuse", "forest" }, { "amenity", "cafe" }, { "shop", "supermarket" },
+			{ "place", "village" }, { "oneway", "yes" }, { "bridge", "yes" } };
+	private static final int MAP_NAME = 1;
+	private static final int MAP_REF = 2;
+	private static final int MAP_PRIMARY = 3;
+	private static final int MAP_SECONDARY = 4;
+	private static final int MAP_RESIDENTIAL = 5;
+	private static final int MAP_FOOTWAY = 6;
+	private static final int MAP_BUILDING = 7;
+	private static final int MAP_WATER = 8;
+	private static final int MAP_FOREST = 9;
+	private static final int MAP_CAFE = 10;
+	private static final int MAP_SHOP = 11;
+	private static final int MAP_PLACE = 12;
+	private static final int MAP_ONEWAY = 13;
+	private static final int MAP_BRIDGE = 14;
+
+	private static final String[][] ROUTE_RULES = { { "name", "" }, { "ref", "" }, { "highway", "primary" },
+			{ "highway", "secondary" }, { "highway", "residential" } };
+	private static final int ROUTE_NAME = 1;
+	private static final int ROUTE_REF = 2;
+	private static final int ROUTE_PRIMARY = 3;
+	private static final int ROUTE_SECONDARY = 4;
+	private static final int ROUTE_RESIDENTIAL = 5;
+
+	private final long seed;
+	private String regionName = "Synthetic";
+	private int left31 = MapUtils.get31TileNumberX(4.80);
+	private int right31 = MapUtils.get31TileNumberX(4.95);
+	private int top31 = MapUtils.get31TileNumberY(52.40);
+	private int bottom31 = MapUtils.get31TileNumberY(52.30);
+	private int tileZoom = 14;
+	private long dateCreated = 0;
+
+	private int mapObjectsPerTile = 100;
+	private int poiPerTile = 20;
+	private int poiCategories = 8;
+	private int poiSubcategories = 4;
+	private int cities = 20;
+	private int streetsPerCity = 30;
+	private int buildingsPerStreet = 10;
+	private int transportStops = 500;
+	private int transportRoutes = 50;
+	private int stopsPerRoute = 12;
+	private int roadsPerTile = 4;
+
+	private RandomAccessFile raf;
+	private CodedOutputStream out;
+	// positions of reserved fixed32 values which are written when the file is complete
+	private final TLongArrayList patchPositions = new TLongArrayList();
+	private final TIntArrayList patchValues = new TIntArrayList();
+	private final TLongArrayList sizes = new TLongArrayList();
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private long sectionStart;
+
+	public ObfDataGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	public void setRegionName(String regionName) {
+		this.regionName = regionName;
+	}
+
+	public void setArea(double topLatitude, double leftLongitude, double bottomLatitude, double rightLongitude) {
+		this.left31 = MapUtils.get31TileNumberX(leftLongitude);
+		this.right31 = MapUtils.get31TileNumberX(rightLongitude);
+		this.top31 = MapUtils.get31TileNumberY(topLatitude);
+		this.bottom31 = MapUtils.get31TileNumberY(bottomLatitude);
+		if (left31 > right31 || top31 > bottom31) {
+			throw new IllegalArgumentException("Area is empty");
+		}
+	}
+
+	/**
+	 * @param tileZoom zoom of the leaf boxes of map, poi and routing sections (density is given per tile of the zoom)
+	 */
+	public void setTileZoom(int tileZoom) {
+		if (tileZoom < TREE_DEPTH || tileZoom > 20) {
+			throw new IllegalArgumentException("Tile zoom should be between " + TREE_DEPTH + " and 20");
+		}
+		this.tileZoom = tileZoom;
+	}
+
+	public void setDateCreated(long dateCreated) {
+		this.dateCreated = dateCreated;
+	}
+
+	/**
+	 * Average number of objects in a tile of the detailed map level (upper level has 4 times less objects in larger tiles).
+	 * 0 skips the map section.
+	 */
+	public void setMapObjectsPerTile(int mapObjectsPerTile) {
+		this.mapObjectsPerTile = mapObjectsPerTile;
+	}
+
+	/**
+	 * Average number of poi in a tile, 0 skips the poi section
+	 */
+	public void setPoiPerTile(int poiPerTile) {
+		this.poiPerTile = poiPerTile;
+	}
+
+	public void setPoiCategories(int poiCategories, int poiSubcategories) {
+		if (poiCategories < 1 || poiCategories > AmenityType.values().length || poiSubcategories < 1) {
+			throw new IllegalArgumentException("Number of poi categories should be between 1 and "
+					+ AmenityType.values().length);
+		}
+		this.poiCategories = poiCategories;
+		this.poiSubcategories = poiSubcategories;
+	}
+
+	/**
+	 * Cities (every fourth is a city, every fourth is a town and others are villages with less streets),
+	 * 0 skips the address section
+	 */
+	public void setCities(int cities, int streetsPerCity, int buildingsPerStreet) {
+		this.cities = cities;
+		this.streetsPerCity = streetsPerCity;
+		this.buildingsPerStreet = buildingsPerStreet;
+	}
+
+	/**
+	 * 0 stops skips the transport section
+	 */
+	public void setTransport(int transportStops, int transportRoutes, int stopsPerRoute) {
+		this.transportStops = transportStops;
+		this.transportRoutes = transportRoutes;
+		this.stopsPerRoute = stopsPerRoute;
+	}
+
+	/**
+	 * @param roadsPerTile roads of the grid in each direction in a tile (rounded down to the power of 2),
+	 * 0 skips the routing section
+	 */
+	public void setRoadsPerTile(int roadsPerTile) {
+		this.roadsPerTile = roadsPerTile;
+	}
+
+	public void write(File file) throws IOException {
+		raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			out = CodedOutputStream.newInstance(new FileOutputStream(raf.getFD()), BUFFER_SIZE);
+			out.writeInt32(OsmAndStructure.VERSION_FIELD_NUMBER, IndexConstants.BINARY_MAP_VERSION);
+			out.writeInt64(OsmAndStructure.DATECREATED_FIELD_NUMBER, dateCreated);
+			if (mapObjectsPerTile > 0) {
+				writeMapIndex();
+			}
+			if (cities > 0) {
+				writeAddressIndex();
+			}
+			if (transportStops > 0) {
+				writeTransportIndex();
+			}
+			if (poiPerTile > 0) {
+				writePoiIndex();
+			}
+			if (roadsPerTile > 0) {
+				writeRouteIndex();
+			}
+			out.writeInt32(OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, IndexConstants.BINARY_MAP_VERSION);
+			out.flush();
+			if (getFilePointer() > Integer.MAX_VALUE) {
+				throw new IOException("Obf file could not be larger than 2 GB, decrease area or density");
+			}
+			writePatches();
+		} finally {
+			raf.close();
+			raf = null;
+			out = null;
+			patchPositions.clear();
+			patchValues.clear();
+			sizes.clear();
+		}
+	}
+
+	/**
+	 * Map section: detailed level of tile zoom - 1 and upper levels and upper level with 4 times less objects
+	 */
+	private void writeMapIndex() throws IOException {
+		out.writeTag(OsmAndStructure.MAPINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		out.writeString(OsmAndMapIndex.NAME_FIELD_NUMBER, regionName);
+		for (int i = 0; i < MAP_RULES.length; i++) {
+			MapEncodingRule.Builder rule = MapEncodingRule.newBuilder();
+			rule.setTag(MAP_RULES[i][0]);
+			if (MAP_RULES[i][1] != null) {
+				rule.setValue(MAP_RULES[i][1]);
+			}
+			rule.setId(i + 1);
+			rule.setType(i + 1 == MAP_ONEWAY || i + 1 == MAP_BRIDGE ? 1 : 0);
+			out.writeMessage(OsmAndMapIndex.RULES_FIELD_NUMBER, rule.build());
+		}
+		writeMapLevel(tileZoom - 1, 22, tileZoom, mapObjectsPerTile, true);
+		writeMapLevel(1, tileZoom - 2, tileZoom - 3, Math.max(1, mapObjectsPerTile / 4), false);
+		writeInt32Size();
+	}
+
+	private void writeMapLevel(int minZoom, int maxZoom, int leafZoom, int objectsPerTile, boolean detailed)
+			throws IOException {
+		List<Tile> roots = buildTiles(leafZoom);
+		out.writeTag(OsmAndMapIndex.LEVELS_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		int left = roots.get(0).left();
+		int right = roots.get(roots.size() - 1).right();
+		int top = roots.get(0).top();
+		int bottom = roots.get(roots.size() - 1).bottom();
+		out.writeInt32(MapRootLevel.MAXZOOM_FIELD_NUMBER, maxZoom);
+		out.writeInt32(MapRootLevel.MINZOOM_FIELD_NUMBER, minZoom);
+		out.writeInt32(MapRootLevel.LEFT_FIELD_NUMBER, left);
+		out.writeInt32(MapRootLevel.RIGHT_FIELD_NUMBER, right);
+		out.writeInt32(MapRootLevel.TOP_FIELD_NUMBER, top);
+		out.writeInt32(MapRootLevel.BOTTOM_FIELD_NUMBER, bottom);
+		for (Tile root : roots) {
+			writeMapBox(MapRootLevel.BOXES_FIELD_NUMBER, root, left, right, top, bottom);
+		}
+		long id = 0;
+		for (Tile leaf : getLeaves(roots)) {
+			MapDataBlock block = generateMapBlock(leaf, id, objectsPerTile, detailed);
+			id += block.getDataObjectsCount();
+			out.writeTag(MapRootLevel.BLOCKS_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+			resolvePointers(leaf, getFilePointer());
+			out.writeRawVarint32(block.getSerializedSize());
+			block.writeTo(out);
+		}
+		writeInt32Size();
+	}
+
+	private void writeMapBox(int field, Tile tile, int pleft, int pright, int ptop, int pbottom) throws IOException {
+		out.writeTag(field, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		long start = getFilePointer();
+		out.writeSInt32(MapDataBox.LEFT_FIELD_NUMBER, tile.left() - pleft);
+		out.writeSInt32(MapDataBox.RIGHT_FIELD_NUMBER, tile.right() - pright);
+		out.writeSInt32(MapDataBox.TOP_FIELD_NUMBER, tile.top() - ptop);
+		out.writeSInt32(MapDataBox.BOTTOM_FIELD_NUMBER, tile.bottom() - pbottom);
+		if (tile.isLeaf()) {
+			tile.addPointer(preservePointer(MapDataBox.SHIFTTOMAPDATA_FIELD_NUMBER), start);
+		} else {
+			for (Tile child : tile.children) {
+				writeMapBox(MapDataBox.BOXES_FIELD_NUMBER, child, tile.left(), tile.right(), tile.top(), tile.bottom());
+			}
+		}
+		writeInt32Size();
+	}
+
+	private MapDataBlock generateMapBlock(Tile leaf, long baseId, int objectsPerTile, boolean detailed)
+			throws IOException {
+		Random rnd = random(MAP_SALT, leaf);
+		int count = density(rnd, objectsPerTile);
+		MapDataBlock.Builder block = MapDataBlock.newBuilder();
+		block.setBaseId(baseId);
+		Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		TIntArrayList coordinates = new TIntArrayList();
+		TIntArrayList types = new TIntArrayList();
+		TIntArrayList additionalTypes = new TIntArrayList();
+		TIntArrayList names = new TIntArrayList();
+		int left = leaf.left();
+		int top = leaf.top();
+		int size = leaf.size();
+		for (int i = 0; i < count; i++) {
+			coordinates.clear();
+			types.clear();
+			additionalTypes.clear();
+			names.clear();
+			MapData.Builder obj = MapData.newBuilder();
+			int kind = rnd.nextInt(10);
+			if (kind < 2) {
+				int x = randomCoordinate(rnd, left, size, MAP_SHIFT_COORDINATES);
+				int y = randomCoordinate(rnd, top, size, MAP_SHIFT_COORDINATES);
+				coordinates.add(x);
+				coordinates.add(y);
+				types.add(detailed ? (rnd.nextBoolean() ? MAP_CAFE : MAP_SHOP) : MAP_PLACE);
+				if (rnd.nextInt(5) > 0) {
+					addName(MAP_NAME, word(rnd, 2) + " " + word(rnd, 2), strings, names);
+				}
+			} else if (kind < 7) {
+				int highway;
+				if (detailed) {
+					int r = rnd.nextInt(10);
+					highway = r == 0 ? MAP_PRIMARY : (r < 3 ? MAP_SECONDARY : (r < 8 ? MAP_RESIDENTIAL : MAP_FOOTWAY));
+				} else {
+					highway = rnd.nextBoolean() ? MAP_PRIMARY : MAP_SECONDARY;
+				}
+				types.add(highway);
+				int points = 2 + rnd.nextInt(detailed ? 7 : 4);
+				int x = left + rnd.nextInt(size);
+				int y = top + rnd.nextInt(size);
+				for (int k = 0; k < points; k++) {
+					coordinates.add(quantize(clamp(x, left, size), MAP_SHIFT_COORDINATES));
+					coordinates.add(quantize(clamp(y, top, size), MAP_SHIFT_COORDINATES));
+					x += rnd.nextInt(size / 4 + 1) - size / 8;
+					y += rnd.nextInt(size / 4 + 1) - size / 8;
+				}
+				if (highway != MAP_FOOTWAY && rnd.nextInt(10) < 7) {
+					addName(MAP_NAME, word(rnd, 3) + " " + STREET_SUFFIXES[rnd.nextInt(STREET_SUFFIXES.length)],
+							strings, names);
+				}
+				if (highway == MAP_PRIMARY) {
+					addName(MAP_REF, "P" + rnd.nextInt(100), strings, names);
+				}
+				if (rnd.nextInt(5) == 0) {
+					additionalTypes.add(MAP_ONEWAY);
+				}
+				if (rnd.nextInt(20) == 0) {
+					additionalTypes.add(MAP_BRIDGE);
+				}
+			} else if (detailed && kind < 9) {
+				int w = size / 64 + rnd.nextInt(size / 32 + 1);
+				int h = size / 64 + rnd.nextInt(size / 32 + 1);
+				int x = left + rnd.nextInt(size - w);
+				int y = top + rnd.nextInt(size - h);
+				int[] xs = { x, x + w, x + w, x, x };
+				int[] ys = { y, y, y + h, y + h, y };
+				for (int k = 0; k < xs.length; k++) {
+					coordinates.add(quantize(xs[k], MAP_SHIFT_COORDINATES));
+					coordinates.add(quantize(ys[k], MAP_SHIFT_COORDINATES));
+				}
+				types.add(MAP_BUILDING);
+			} else {
+				int cx = left + rnd.nextInt(size);
+				int cy = top + rnd.nextInt(size);
+				int radius = size / 16 + rnd.nextInt(size / 8 + 1);
+				for (int k = 0; k <= 6; k++) {
+					double angle = Math.PI / 3 * (k % 6);
+					int x = cx + (int) (Math.cos(angle) * radius);
+					int y = cy + (int) (Math.sin(angle) * radius);
+					coordinates.add(quantize(clamp(x, left, size), MAP_SHIFT_COORDINATES));
+					coordinates.add(quantize(clamp(y, top, size), MAP_SHIFT_COORDINATES));
+				}
+				boolean water = rnd.nextBoolean();
+				types.add(water ? MAP_WATER : MAP_FOREST);
+				if (water && rnd.nextBoolean()) {
+					addName(MAP_NAME, "Lake " + word(rnd, 2), strings, names);
+				}
+			}
+			ByteString encoded = encodeCoordinates(coordinates, left & ~((1 << MAP_SHIFT_COORDINATES) - 1),
+					top & ~((1 << MAP_SHIFT_COORDINATES) - 1), MAP_SHIFT_COORDINATES);
+			if (coordinates.size() > 2 && types.get(0) >= MAP_BUILDING && types.get(0) <= MAP_FOREST) {
+				obj.setAreaCoordinates(encoded);
+			} else {
+				obj.setCoordinates(encoded);
+			}
+			obj.setTypes(encodeVarints(types));
+			if (!additionalTypes.isEmpty()) {
+				obj.setAdditionalTypes(encodeVarints(additionalTypes));
+			}
+			if (!names.isEmpty()) {
+				obj.setStringNames(encodeVarints(names));
+			}
+			obj.setId(i);
+			block.addDataObjects(obj.build());
+		}
+		if (!strings.isEmpty()) {
+			block.setStringTable(buildStringTable(strings));
+		}
+		return block.build();
+	}
+
+	/**
+	 * Address section: cities and villages with streets and buildings and name index of cities and streets
+	 */
+	private void writeAddressIndex() throws IOException {
+		out.writeTag(OsmAndStructure.ADDRESSINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		out.writeString(OsmAndAddressIndex.NAME_FIELD_NUMBER, regionName);
+		Map<String, List<AddressRef>> nameIndex = new TreeMap<String, List<AddressRef>>();
+		int[] blockTypes = { BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE, BinaryMapAddressReaderAdapter.VILLAGES_TYPE };
+		long streetId = 0;
+		long buildingId = 0;
+		for (int blockType : blockTypes) {
+			List<AddressRef> blockCities = new ArrayList<AddressRef>();
+			out.writeTag(OsmAndAddressIndex.CITIES_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+			preserveInt32Size();
+			out.writeUInt32(CitiesIndex.TYPE_FIELD_NUMBER, blockType);
+			for (int i = 0; i < cities; i++) {
+				Random rnd = random(ADDRESS_SALT, 0, i);
+				CityType type = i % 4 == 0 ? CityType.CITY : (i % 4 == 1 ? CityType.TOWN : CityType.VILLAGE);
+				if ((type == CityType.VILLAGE) != (blockType == BinaryMapAddressReaderAdapter.VILLAGES_TYPE)) {
+					continue;
+				}
+				CityIndex.Builder city = CityIndex.newBuilder();
+				city.setCityType(type.ordinal());
+				city.setName(word(rnd, 2 + rnd.nextInt(2)));
+				city.setId(i + 1);
+				city.setX(left31 + rnd.nextInt(right31 - left31 + 1));
+				city.setY(top31 + rnd.nextInt(bottom31 - top31 + 1));
+				CityIndex msg = city.build();
+				AddressRef ref = new AddressRef(i, msg.getName(), type == CityType.VILLAGE ?
+						BinaryMapAddressReaderAdapter.VILLAGES_TYPE : BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+				ref.x = msg.getX();
+				ref.y = msg.getY();
+				out.writeTag(CitiesIndex.CITIES_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+				ref.pointer = getFilePointer();
+				out.writeRawVarint32(msg.getSerializedSize()
+						+ CodedOutputStream.computeTagSize(CityIndex.SHIFTTOCITYBLOCKINDEX_FIELD_NUMBER) + 4);
+				msg.writeTo(out);
+				ref.cityPointer = preservePointer(CityIndex.SHIFTTOCITYBLOCKINDEX_FIELD_NUMBER);
+				blockCities.add(ref);
+				addNameKeys(nameIndex, ref.name, ref);
+			}
+			for (AddressRef city : blockCities) {
+				Random rnd = random(ADDRESS_SALT, 1, city.index);
+				int streets = density(rnd, city.type == BinaryMapAddressReaderAdapter.VILLAGES_TYPE ?
+						Math.max(1, streetsPerCity / 3) : streetsPerCity);
+				List<StreetIndex> streetList = new ArrayList<StreetIndex>();
+				for (int k = 0; k < streets; k++) {
+					StreetIndex.Builder street = StreetIndex.newBuilder();
+					street.setName(word(rnd, 2 + rnd.nextInt(2)) + " " + STREET_SUFFIXES[rnd.nextInt(STREET_SUFFIXES.length)]);
+					// street coordinates are deltas to the city in tiles of zoom 24
+					int sx = rnd.nextInt(1 << 11) - (1 << 10);
+					int sy = rnd.nextInt(1 << 11) - (1 << 10);
+					street.setX(sx);
+					street.setY(sy);
+					street.setId(++streetId);
+					int buildings = density(rnd, buildingsPerStreet);
+					for (int b = 0; b < buildings; b++) {
+						BuildingIndex.Builder building = BuildingIndex.newBuilder();
+						building.setName(Integer.toString(b + 1));
+						building.setX(rnd.nextInt(65) - 32);
+						building.setY(rnd.nextInt(65) - 32);
+						building.setId(++buildingId);
+						building.setPostcode(Integer.toString(10000 + city.index));
+						street.addBuildings(building.build());
+					}
+					streetList.add(street.build());
+				}
+				int blockSize = 0;
+				for (StreetIndex s : streetList) {
+					blockSize += CodedOutputStream.computeMessageSize(CityBlockIndex.STREETS_FIELD_NUMBER, s);
+				}
+				out.writeTag(CitiesIndex.BLOCKS_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+				patch(city.cityPointer, toInt(getFilePointer() - city.pointer));
+				out.writeRawVarint32(blockSize);
+				for (StreetIndex s : streetList) {
+					out.writeTag(CityBlockIndex.STREETS_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+					AddressRef ref = new AddressRef(city.index, s.getName(), BinaryMapAddressReaderAdapter.STREET_TYPE);
+					ref.pointer = getFilePointer();
+					ref.cityPointer = city.pointer;
+					addNameKeys(nameIndex, s.getName(), ref);
+					out.writeRawVarint32(s.getSerializedSize());
+					s.writeTo(out);
+				}
+			}
+			writeInt32Size();
+		}
+
+		out.writeTag(OsmAndAddressIndex.NAMEINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		TLongArrayList values = new TLongArrayList();
+		long tableStart = writeIndexedStringTable(OsmAndAddressNameIndexData.TABLE_FIELD_NUMBER, nameIndex.keySet(),
+				values);
+		int k = 0;
+		for (List<AddressRef> refs : nameIndex.values()) {
+			out.writeTag(OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+			long fp = getFilePointer();
+			patch(values.get(k++), toInt(fp - tableStart));
+			AddressNameIndexData.Builder data = AddressNameIndexData.newBuilder();
+			for (AddressRef ref : refs) {
+				AddressNameIndexDataAtom.Builder atom = AddressNameIndexDataAtom.newBuilder();
+				atom.setName(ref.name);
+				atom.setType(ref.type);
+				atom.addShiftToIndex(toInt(fp - ref.pointer));
+				if (ref.type == BinaryMapAddressReaderAdapter.STREET_TYPE) {
+					atom.addShiftToCityIndex(toInt(fp - ref.cityPointer));
+				}
+				data.addAtom(atom.build());
+			}
+			AddressNameIndexData msg = data.build();
+			out.writeRawVarint32(msg.getSerializedSize());
+			msg.writeTo(out);
+		}
+		writeInt32Size();
+		writeInt32Size();
+	}
+
+	/**
+	 * Transport section: routes, tree of stops split by coordinates and string table
+	 */
+	private void writeTransportIndex() throws IOException {
+		List<Stop> stops = new ArrayList<Stop>();
+		Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i < transportStops; i++) {
+			Random rnd = random(TRANSPORT_SALT, 0, i);
+			Stop s = new Stop();
+			s.id = i + 1;
+			s.x = (left31 + rnd.nextInt(right31 - left31 + 1)) >> STOP_SHIFT_COORDINATES;
+			s.y = (top31 + rnd.nextInt(bottom31 - top31 + 1)) >> STOP_SHIFT_COORDINATES;
+			s.name = getStringIndex(strings, word(rnd, 2) + " " + STOP_SUFFIXES[rnd.nextInt(STOP_SUFFIXES.length)]);
+			stops.add(s);
+		}
+		List<TransportRoute> routes = new ArrayList<TransportRoute>();
+		for (int k = 0; k < transportRoutes && stops.size() > 1; k++) {
+			Random rnd = random(TRANSPORT_SALT, 1, k);
+			String type = TRANSPORT_TYPES[rnd.nextInt(TRANSPORT_TYPES.length)];
+			TransportRoute.Builder route = TransportRoute.newBuilder();
+			route.setId(k + 1);
+			route.setType(getStringIndex(strings, type));
+			route.setOperator(getStringIndex(strings, regionName + " " + type));
+			route.setRef(Integer.toString(k + 1));
+			route.setName(getStringIndex(strings, word(rnd, 2) + " - " + word(rnd, 2)));
+			// route goes to the nearest of several random stops
+			List<Stop> routeStops = new ArrayList<Stop>();
+			Stop current = stops.get(rnd.nextInt(stops.size()));
+			int distance = 0;
+			while (current != null) {
+				routeStops.add(current);
+				current.routes.add(k);
+				Stop next = null;
+				long min = Long.MAX_VALUE;
+				for (int c = 0; c < 8 && routeStops.size() < stopsPerRoute; c++) {
+					Stop candidate = stops.get(rnd.nextInt(stops.size()));
+					long d = Math.abs((long) candidate.x - current.x) + Math.abs((long) candidate.y - current.y);
+					if (!routeStops.contains(candidate) && d < min) {
+						min = d;
+						next = candidate;
+					}
+				}
+				if (next != null) {
+					distance += (int) MapUtils.getDistance(
+							MapUtils.getLatitudeFromTile(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM, current.y),
+							MapUtils.getLongitudeFromTile(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM, current.x),
+							MapUtils.getLatitudeFromTile(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM, next.y),
+							MapUtils.getLongitudeFromTile(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM, next.x));
+				}
+				current = next;
+			}
+			route.setDistance(distance);
+			for (int dir = 0; dir < 2; dir++) {
+				long pid = 0;
+				int px = 0;
+				int py = 0;
+				for (int i = 0; i < routeStops.size(); i++) {
+					Stop s = routeStops.get(dir == 0 ? i : routeStops.size() - 1 - i);
+					TransportRouteStop.Builder stop = TransportRouteStop.newBuilder();
+					stop.setId(s.id - pid);
+					stop.setDx(s.x - px);
+					stop.setDy(s.y - py);
+					stop.setName(s.name);
+					if (dir == 0) {
+						route.addDirectStops(stop.build());
+					} else {
+						route.addReverseStops(stop.build());
+					}
+					pid = s.id;
+					// the same conversion as the reader uses to restore previous stop
+					px = (int) MapUtils.getTileNumberX(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM,
+							MapUtils.getLongitudeFromTile(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM, s.x));
+					py = (int) MapUtils.getTileNumberY(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM,
+							MapUtils.getLatitudeFromTile(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM, s.y));
+				}
+			}
+			routes.add(route.build());
+		}
+		if (strings.size() > Character.MAX_VALUE) {
+			throw new IllegalStateException("Transport string table is too large " + strings.size());
+		}
+
+		out.writeTag(OsmAndStructure.TRANSPORTINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		out.writeString(OsmAndTransportIndex.NAME_FIELD_NUMBER, regionName);
+		long[] routePointers = new long[routes.size()];
+		out.writeTag(OsmAndTransportIndex.ROUTES_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		for (int k = 0; k < routes.size(); k++) {
+			out.writeTag(TransportRoutes.ROUTES_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+			routePointers[k] = getFilePointer();
+			out.writeRawVarint32(routes.get(k).getSerializedSize());
+			routes.get(k).writeTo(out);
+		}
+		writeInt32Size();
+		writeStopsTree(OsmAndTransportIndex.STOPS_FIELD_NUMBER, stops, 0, 0, 0, 0, true, routePointers);
+		out.writeMessage(OsmAndTransportIndex.STRINGTABLE_FIELD_NUMBER, buildStringTable(strings));
+		writeInt32Size();
+	}
+
+	private void writeStopsTree(int field, List<Stop> stops, int pleft, int pright, int ptop, int pbottom,
+			boolean splitByX, long[] routePointers) throws IOException {
+		int left = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE;
+		int top = Integer.MAX_VALUE;
+		int bottom = Integer.MIN_VALUE;
+		for (Stop s : stops) {
+			left = Math.min(left, s.x);
+			right = Math.max(right, s.x);
+			top = Math.min(top, s.y);
+			bottom = Math.max(bottom, s.y);
+		}
+		out.writeTag(field, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		out.writeSInt32(TransportStopsTree.LEFT_FIELD_NUMBER, left - pleft);
+		out.writeSInt32(TransportStopsTree.RIGHT_FIELD_NUMBER, right - pright);
+		out.writeSInt32(TransportStopsTree.TOP_FIELD_NUMBER, top - ptop);
+		out.writeSInt32(TransportStopsTree.BOTTOM_FIELD_NUMBER, bottom - pbottom);
+		if (stops.size() > MAX_STOPS_IN_LEAF) {
+			// subtrees should be written before leafs, so node has either subtrees or leafs
+			List<Stop> sorted = new ArrayList<Stop>(stops);
+			Collections.sort(sorted, splitByX ? Stop.BY_X : Stop.BY_Y);
+			int middle = sorted.size() / 2;
+			writeStopsTree(TransportStopsTree.SUBTREES_FIELD_NUMBER, sorted.subList(0, middle), left, right, top,
+					bottom, !splitByX, routePointers);
+			writeStopsTree(TransportStopsTree.SUBTREES_FIELD_NUMBER, sorted.subList(middle, sorted.size()), left,
+					right, top, bottom, !splitByX, routePointers);
+		} else {
+			long baseId = Long.MAX_VALUE;
+			for (Stop s : stops) {
+				baseId = Math.min(baseId, s.id);
+			}
+			for (Stop s : stops) {
+				out.writeTag(TransportStopsTree.LEAFS_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+				long stopPointer = getFilePointer();
+				TransportStop.Builder stop = TransportStop.newBuilder();
+				stop.setDx(s.x - left);
+				stop.setDy(s.y - top);
+				stop.setId(s.id - baseId);
+				stop.setName(s.name);
+				for (int i = 0; i < s.routes.size(); i++) {
+					stop.addRoutes(toInt(stopPointer - routePointers[s.routes.get(i)]));
+				}
+				TransportStop msg = stop.build();
+				out.writeRawVarint32(msg.getSerializedSize());
+				msg.writeTo(out);
+			}
+			out.writeUInt64(TransportStopsTree.BASEID_FIELD_NUMBER, baseId);
+		}
+		writeInt32Size();
+	}
+
+	/**
+	 * Poi section: categories, name index, boxes with categories of subtrees and poi data of leaf tiles
+	 */
+	private void writePoiIndex() throws IOException {
+		List<Tile> roots = buildTiles(tileZoom);
+		List<Tile> leaves = getLeaves(roots);
+		// first pass collects categories of boxes and tiles for the name index
+		Map<String, List<Tile>> nameIndex = new TreeMap<String, List<Tile>>();
+		Set<String> keys = new LinkedHashSet<String>();
+		for (Tile leaf : leaves) {
+			OsmAndPoiBoxData data = generatePoiData(leaf, 0);
+			TIntHashSet categories = new TIntHashSet();
+			keys.clear();
+			for (OsmAndPoiBoxDataAtom atom : data.getPoiDataList()) {
+				categories.addAll(atom.getCategoriesList());
+				getNameKeys(atom.getName(), keys);
+			}
+			leaf.categories = categories.toArray();
+			Arrays.sort(leaf.categories);
+			for (String key : keys) {
+				List<Tile> tiles = nameIndex.get(key);
+				if (tiles == null) {
+					tiles = new ArrayList<Tile>();
+					nameIndex.put(key, tiles);
+				}
+				tiles.add(leaf);
+			}
+		}
+		for (Tile root : roots) {
+			initCategories(root);
+		}
+
+		out.writeTag(OsmAndStructure.POIINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		sectionStart = getFilePointer();
+		out.writeString(OsmAndPoiIndex.NAME_FIELD_NUMBER, regionName);
+		OsmAndTileBox.Builder bounds = OsmAndTileBox.newBuilder();
+		bounds.setLeft(roots.get(0).left());
+		bounds.setRight(roots.get(roots.size() - 1).right());
+		bounds.setTop(roots.get(0).top());
+		bounds.setBottom(roots.get(roots.size() - 1).bottom());
+		out.writeMessage(OsmAndPoiIndex.BOUNDARIES_FIELD_NUMBER, bounds.build());
+		for (int c = 0; c < poiCategories; c++) {
+			OsmAndCategoryTable.Builder table = OsmAndCategoryTable.newBuilder();
+			String category = AmenityType.valueToString(AmenityType.values()[c]);
+			table.setCategory(category);
+			for (int s = 0; s < poiSubcategories; s++) {
+				table.addSubcategories(category + "_" + (s + 1));
+			}
+			out.writeMessage(OsmAndPoiIndex.CATEGORIESTABLE_FIELD_NUMBER, table.build());
+		}
+
+		out.writeTag(OsmAndPoiIndex.NAMEINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		TLongArrayList values = new TLongArrayList();
+		long tableStart = writeIndexedStringTable(OsmAndPoiNameIndex.TABLE_FIELD_NUMBER, nameIndex.keySet(), values);
+		int k = 0;
+		for (List<Tile> tiles : nameIndex.values()) {
+			out.writeTag(OsmAndPoiNameIndex.DATA_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+			patch(values.get(k++), toInt(getFilePointer() - tableStart));
+			int dataSize = 0;
+			for (Tile tile : tiles) {
+				int atomSize = getPoiNameAtomSize(tile);
+				dataSize += CodedOutputStream.computeTagSize(OsmAndPoiNameIndexData.ATOMS_FIELD_NUMBER)
+						+ CodedOutputStream.computeRawVarint32Size(atomSize) + atomSize;
+			}
+			out.writeRawVarint32(dataSize);
+			for (Tile tile : tiles) {
+				out.writeTag(OsmAndPoiNameIndexData.ATOMS_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+				out.writeRawVarint32(getPoiNameAtomSize(tile));
+				out.writeUInt32(OsmAndPoiNameIndexDataAtom.ZOOM_FIELD_NUMBER, tile.zoom);
+				out.writeUInt32(OsmAndPoiNameIndexDataAtom.X_FIELD_NUMBER, tile.x);
+				out.writeUInt32(OsmAndPoiNameIndexDataAtom.Y_FIELD_NUMBER, tile.y);
+				tile.addPointer(preservePointer(OsmAndPoiNameIndexDataAtom.SHIFTTO_FIELD_NUMBER), sectionStart);
+			}
+		}
+		writeInt32Size();
+
+		for (Tile root : roots) {
+			writePoiBox(OsmAndPoiIndex.BOXES_FIELD_NUMBER, root, null);
+		}
+		long id = 0;
+		for (Tile leaf : leaves) {
+			OsmAndPoiBoxData data = generatePoiData(leaf, id);
+			id += data.getPoiDataCount();
+			out.writeTag(OsmAndPoiIndex.POIDATA_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+			resolvePointers(leaf, getFilePointer());
+			BinaryInspector.writeInt(out, data.getSerializedSize());
+			data.writeTo(out);
+		}
+		writeInt32Size();
+	}
+
+	private static int getPoiNameAtomSize(Tile tile) {
+		return CodedOutputStream.computeUInt32Size(OsmAndPoiNameIndexDataAtom.ZOOM_FIELD_NUMBER, tile.zoom)
+				+ CodedOutputStream.computeUInt32Size(OsmAndPoiNameIndexDataAtom.X_FIELD_NUMBER, tile.x)
+				+ CodedOutputStream.computeUInt32Size(OsmAndPoiNameIndexDataAtom.Y_FIELD_NUMBER, tile.y)
+				+ CodedOutputStream.computeTagSize(OsmAndPoiNameIndexDataAtom.SHIFTTO_FIELD_NUMBER) + 4;
+	}
+
+	private int[] initCategories(Tile tile) {
+		if (!tile.isLeaf()) {
+			TIntHashSet categories = new TIntHashSet();
+			for (Tile child : tile.children) {
+				categories.addAll(initCategories(child));
+			}
+			tile.categories = categories.toArray();
+			Arrays.sort(tile.categories);
+		}
+		return tile.categories;
+	}
+
+	private void writePoiBox(int field, Tile tile, Tile parent) throws IOException {
+		out.writeTag(field, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		int pzoom = parent == null ? 0 : parent.zoom;
+		int px = parent == null ? 0 : parent.x;
+		int py = parent == null ? 0 : parent.y;
+		out.writeUInt32(OsmAndPoiBox.ZOOM_FIELD_NUMBER, tile.zoom - pzoom);
+		out.writeSInt32(OsmAndPoiBox.LEFT_FIELD_NUMBER, tile.x - (px << (tile.zoom - pzoom)));
+		out.writeSInt32(OsmAndPoiBox.TOP_FIELD_NUMBER, tile.y - (py << (tile.zoom - pzoom)));
+		OsmAndPoiCategories.Builder categories = OsmAndPoiCategories.newBuilder();
+		for (int c : tile.categories) {
+			categories.addCategories(c);
+		}
+		out.writeMessage(OsmAndPoiBox.CATEGORIES_FIELD_NUMBER, categories.build());
+		if (tile.isLeaf()) {
+			tile.addPointer(preservePointer(OsmAndPoiBox.SHIFTTODATA_FIELD_NUMBER), sectionStart);
+		} else {
+			for (Tile child : tile.children) {
+				writePoiBox(OsmAndPoiBox.SUBBOXES_FIELD_NUMBER, child, tile);
+			}
+		}
+		writeInt32Size();
+	}
+
+	private OsmAndPoiBoxData generatePoiData(Tile leaf, long baseId) {
+		Random rnd = random(POI_SALT, leaf);
+		int count = density(rnd, poiPerTile);
+		OsmAndPoiBoxData.Builder data = OsmAndPoiBoxData.newBuilder();
+		data.setZoom(leaf.zoom);
+		data.setX(leaf.x);
+		data.setY(leaf.y);
+		int shift = BinaryMapIndexReader.TRANSPORT_STOP_ZOOM - leaf.zoom;
+		for (int i = 0; i < count; i++) {
+			OsmAndPoiBoxDataAtom.Builder atom = OsmAndPoiBoxDataAtom.newBuilder();
+			int x = (leaf.left() + rnd.nextInt(leaf.size())) >> POI_SHIFT_COORDINATES;
+			int y = (leaf.top() + rnd.nextInt(leaf.size())) >> POI_SHIFT_COORDINATES;
+			atom.setDx(x - (leaf.x << shift));
+			atom.setDy(y - (leaf.y << shift));
+			int category = rnd.nextInt(poiCategories);
+			int subcategory = rnd.nextInt(poiSubcategories);
+			atom.addCategories(category | (subcategory << BinaryMapPoiReaderAdapter.SHIFT_BITS_CATEGORY));
+			if (rnd.nextInt(5) > 0) {
+				atom.setName(word(rnd, 2 + rnd.nextInt(2)) + " " + word(rnd, 2));
+			}
+			atom.setId(baseId + i + 1);
+			if (rnd.nextInt(4) == 0) {
+				atom.setOpeningHours("Mo-Fr 08:00-" + (17 + rnd.nextInt(6)) + ":00");
+			}
+			if (rnd.nextInt(4) == 0) {
+				atom.setPhone("+1 555 " + (1000 + rnd.nextInt(9000)));
+			}
+			data.addPoiData(atom.build());
+		}
+		return data.build();
+	}
+
+	/**
+	 * Routing section: grid of roads, segments of the grid lines are split by tiles
+	 */
+	private void writeRouteIndex() throws IOException {
+		out.writeTag(OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		out.writeString(OsmAndRoutingIndex.NAME_FIELD_NUMBER, regionName);
+		for (int i = 0; i < ROUTE_RULES.length; i++) {
+			RouteEncodingRule.Builder rule = RouteEncodingRule.newBuilder();
+			rule.setTag(ROUTE_RULES[i][0]);
+			rule.setValue(ROUTE_RULES[i][1]);
+			rule.setId(i + 1);
+			out.writeMessage(OsmAndRoutingIndex.RULES_FIELD_NUMBER, rule.build());
+		}
+		List<Tile> roots = buildTiles(tileZoom);
+		for (Tile root : roots) {
+			writeRouteBox(OsmAndRoutingIndex.ROOTBOXES_FIELD_NUMBER, root, null);
+		}
+		for (Tile leaf : getLeaves(roots)) {
+			RouteDataBlock block = generateRouteBlock(leaf);
+			out.writeTag(OsmAndRoutingIndex.BLOCKS_FIELD_NUMBER, WIRETYPE_LENGTH_DELIMITED);
+			resolvePointers(leaf, getFilePointer());
+			out.writeRawVarint32(block.getSerializedSize());
+			block.writeTo(out);
+		}
+		writeInt32Size();
+	}
+
+	private void writeRouteBox(int field, Tile tile, Tile parent) throws IOException {
+		out.writeTag(field, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		long start = getFilePointer();
+		out.writeSInt32(RouteDataBox.LEFT_FIELD_NUMBER, tile.left() - (parent == null ? 0 : parent.left()));
+		out.writeSInt32(RouteDataBox.RIGHT_FIELD_NUMBER, tile.right() - (parent == null ? 0 : parent.right()));
+		out.writeSInt32(RouteDataBox.TOP_FIELD_NUMBER, tile.top() - (parent == null ? 0 : parent.top()));
+		out.writeSInt32(RouteDataBox.BOTTOM_FIELD_NUMBER, tile.bottom() - (parent == null ? 0 : parent.bottom()));
+		if (tile.isLeaf()) {
+			tile.addPointer(preservePointer(RouteDataBox.SHIFTTODATA_FIELD_NUMBER), start);
+		} else {
+			for (Tile child : tile.children) {
+				writeRouteBox(RouteDataBox.BOXES_FIELD_NUMBER, child, tile);
+			}
+		}
+		writeInt32Size();
+	}
+
+	private RouteDataBlock generateRouteBlock(Tile leaf) throws IOException {
+		int size = leaf.size();
+		int spacing = Math.max(1 << MAP_SHIFT_COORDINATES, Integer.highestOneBit(size / Math.min(roadsPerTile, size)));
+		int lines = size / spacing;
+		RouteDataBlock.Builder block = RouteDataBlock.newBuilder();
+		IdTable.Builder ids = IdTable.newBuilder();
+		Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		TIntArrayList coordinates = new TIntArrayList();
+		TIntArrayList types = new TIntArrayList();
+		TIntArrayList names = new TIntArrayList();
+		int px = (leaf.left() >> ROUTE_SHIFT_COORDINATES) << ROUTE_SHIFT_COORDINATES;
+		int py = (leaf.top() >> ROUTE_SHIFT_COORDINATES) << ROUTE_SHIFT_COORDINATES;
+		long pid = 0;
+		int index = 0;
+		for (int vertical = 0; vertical < 2; vertical++) {
+			int across = vertical == 0 ? leaf.top() : leaf.left();
+			int along = vertical == 0 ? leaf.left() : leaf.top();
+			for (int j = 0; j < lines; j++) {
+				int line = (across + j * spacing) / spacing;
+				coordinates.clear();
+				types.clear();
+				names.clear();
+				for (int i = 0; i <= lines; i++) {
+					// the last point is the first point of the next tile
+					int a = (int) Math.min((long) along + (long) i * spacing, Integer.MAX_VALUE);
+					int c = across + j * spacing;
+					coordinates.add(vertical == 0 ? a : c);
+					coordinates.add(vertical == 0 ? c : a);
+				}
+				Random rnd = random(ROUTE_SALT, vertical, line);
+				boolean primary = line % 8 == 0;
+				types.add(primary ? ROUTE_PRIMARY : (line % 4 == 0 ? ROUTE_SECONDARY : ROUTE_RESIDENTIAL));
+				addName(ROUTE_NAME, word(rnd, 3) + " " + STREET_SUFFIXES[vertical], strings, names);
+				if (primary) {
+					addName(ROUTE_REF, "P" + line, strings, names);
+				}
+				// segment is identified by the line and the tile on the line
+				long id = ((((long) line << 1) | vertical) << 24) | (vertical == 0 ? leaf.x : leaf.y);
+				ids.addRouteId(id - pid);
+				pid = id;
+				RouteData.Builder road = RouteData.newBuilder();
+				road.setPoints(encodeCoordinates(coordinates, px, py, ROUTE_SHIFT_COORDINATES));
+				road.setTypes(encodeVarints(types));
+				road.setStringNames(encodeVarints(names));
+				road.setRouteId(index++);
+				block.addDataObjects(road.build());
+			}
+		}
+		block.setIdTable(ids.build());
+		block.setStringTable(buildStringTable(strings));
+		return block.build();
+	}
+
+	private long writeIndexedStringTable(int field, Set<String> keys, TLongArrayList values) throws IOException {
+		out.writeTag(field, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+		preserveInt32Size();
+		long start = getFilePointer();
+		for (String key : keys) {
+			out.writeString(IndexedStringTable.KEY_FIELD_NUMBER, key);
+			values.add(preservePointer(IndexedStringTable.VAL_FIELD_NUMBER));
+		}
+		writeInt32Size();
+		return start;
+	}
+
+	private long getFilePointer() {
+		return out.getWrittenBytes();
+	}
+
+	private void preserveInt32Size() throws IOException {
+		sizes.add(getFilePointer());
+		BinaryInspector.writeInt(out, 0);
+	}
+
+	private void writeInt32Size() {
+		long pos = sizes.removeAt(sizes.size() - 1);
+		patch(pos, toInt(getFilePointer() - pos - 4));
+	}
+
+	/**
+	 * Writes fixed32 field which is set later by {@link #patch(long, int)}
+	 * @return position of the value
+	 */
+	private long preservePointer(int field) throws IOException {
+		out.writeTag(field, WIRETYPE_FIXED32);
+		long pos = getFilePointer();
+		BinaryInspector.writeInt(out, 0);
+		return pos;
+	}
+
+	private void patch(long pos, int value) {
+		patchPositions.add(pos);
+		patchValues.add(value);
+	}
+
+	private void resolvePointers(Tile tile, long target) {
+		for (int i = 0; i < tile.pointers.size(); i += 2) {
+			patch(tile.pointers.get(i), toInt(target - tile.pointers.get(i + 1)));
+		}
+		tile.pointers.clear();
+	}
+
+	private void writePatches() throws IOException {
+		byte[] value = new byte[4];
+		for (int i = 0; i < patchPositions.size(); i++) {
+			int v = patchValues.get(i);
+			value[0] = (byte) (v >>> 24);
+			value[1] = (byte) (v >>> 16);
+			value[2] = (byte) (v >>> 8);
+			value[3] = (byte) v;
+			raf.seek(patchPositions.get(i));
+			raf.write(value);
+		}
+	}
+
+	private static int toInt(long v) {
+		if (v > Integer.MAX_VALUE || v < Integer.MIN_VALUE) {
+			throw new IllegalStateException("Obf file could not be larger than 2 GB, decrease area or density");
+		}
+		return (int) v;
+	}
+
+	private ByteString encodeCoordinates(TIntArrayList coordinates, int px, int py, int shift) throws IOException {
+		buffer.reset();
+		CodedOutputStream c = CodedOutputStream.newInstance(buffer);
+		for (int i = 0; i < coordinates.size(); i += 2) {
+			int x = coordinates.get(i);
+			int y = coordinates.get(i + 1);
+			c.writeSInt32NoTag((x - px) >> shift);
+			c.writeSInt32NoTag((y - py) >> shift);
+			px = x;
+			py = y;
+		}
+		c.flush();
+		return ByteString.copyFrom(buffer.toByteArray());
+	}
+
+	private ByteString encodeVarints(TIntArrayList values) throws IOException {
+		buffer.reset();
+		CodedOutputStream c = CodedOutputStream.newInstance(buffer);
+		for (int i = 0; i < values.size(); i++) {
+			c.writeRawVarint32(values.get(i));
+		}
+		c.flush();
+		return ByteString.copyFrom(buffer.toByteArray());
+	}
+
+	private static void addName(int rule, String name, Map<String, Integer> strings, TIntArrayList names) {
+		names.add(rule);
+		names.add(getStringIndex(strings, name));
+	}
+
+	private static int getStringIndex(Map<String, Integer> strings, String s) {
+		Integer ind = strings.get(s);
+		if (ind == null) {
+			ind = strings.size();
+			strings.put(s, ind);
+		}
+		return ind;
+	}
+
+	private static StringTable buildStringTable(Map<String, Integer> strings) {
+		StringTable.Builder table = StringTable.newBuilder();
+		for (String s : strings.keySet()) {
+			table.addS(s);
+		}
+		return table.build();
+	}
+
+	private static void getNameKeys(String name, Set<String> keys) {
+		for (String w : name.split(" ")) {
+			if (w.length() > 0) {
+				keys.add(w.substring(0, Math.min(NAME_PREFIX_LENGTH, w.length())).toLowerCase());
+			}
+		}
+	}
+
+	private static void addNameKeys(Map<String, List<AddressRef>> nameIndex, String name, AddressRef ref) {
+		Set<String> keys = new LinkedHashSet<String>();
+		getNameKeys(name, keys);
+		for (String key : keys) {
+			List<AddressRef> refs = nameIndex.get(key);
+			if (refs == null) {
+				refs = new ArrayList<AddressRef>();
+				nameIndex.put(key, refs);
+			}
+			refs.add(ref);
+		}
+	}
+
+	/**
+	 * Tiles of the area, roots are tiles of zoom (leafZoom - TREE_DEPTH)
+	 */
+	private List<Tile> buildTiles(int leafZoom) {
+		int rootZoom = Math.max(0, leafZoom - TREE_DEPTH);
+		List<Tile> roots = new ArrayList<Tile>();
+		int shift = 31 - rootZoom;
+		for (int y = top31 >> shift; y <= bottom31 >> shift; y++) {
+			for (int x = left31 >> shift; x <= right31 >> shift; x++) {
+				roots.add(buildTile(rootZoom, x, y, leafZoom));
+			}
+		}
+		return roots;
+	}
+
+	private Tile buildTile(int zoom, int x, int y, int leafZoom) {
+		Tile tile = new Tile(zoom, x, y);
+		if (zoom < leafZoom) {
+			int shift = 31 - zoom - 1;
+			tile.children = new ArrayList<Tile>(4);
+			for (int i = 0; i < 4; i++) {
+				int cx = (x << 1) + (i & 1);
+				int cy = (y << 1) + (i >> 1);
+				if (cx >= left31 >> shift && cx <= right31 >> shift && cy >= top31 >> shift && cy <= bottom31 >> shift) {
+					tile.children.add(buildTile(zoom + 1, cx, cy, leafZoom));
+				}
+			}
+		}
+		return tile;
+	}
+
+	private static List<Tile> getLeaves(List<Tile> tiles) {
+		List<Tile> leaves = new ArrayList<Tile>();
+		addLeaves(tiles, leaves);
+		return leaves;
+	}
+
+	private static void addLeaves(List<Tile> tiles, List<Tile> leaves) {
+		for (Tile t : tiles) {
+			if (t.isLeaf()) {
+				leaves.add(t);
+			} else {
+				addLeaves(t.children, leaves);
+			}
+		}
+	}
+
+	private Random random(int salt, Tile tile) {
+		return random(salt, tile.zoom, ((long) tile.x << 32) | tile.y);
+	}
+
+	private Random random(int salt, long a, long b) {
+		return new Random(mix(mix(mix(seed ^ salt) + a) + b));
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * @return random number with given average
+	 */
+	private static int density(Random rnd, int average) {
+		if (average <= 0) {
+			return 0;
+		}
+		int min = average / 2;
+		return min + rnd.nextInt(2 * (average - min) + 1);
+	}
+
+	private static int randomCoordinate(Random rnd, int start, int size, int shift) {
+		return quantize(start + rnd.nextInt(size), shift);
+	}
+
+	private static int quantize(int v, int shift) {
+		return (v >> shift) << shift;
+	}
+
+	private static int clamp(int v, int start, int size) {
+		return Math.max(start, Math.min(start + size - 1, v));
+	}
+
+	private static String word(Random rnd, int syllables) {
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < syllables; i++) {
+			b.append(SYLLABLES[rnd.nextInt(SYLLABLES.length)]);
+		}
+		b.setCharAt(0, Character.toUpperCase(b.charAt(0)));
+		return b.toString();
+	}
+
+	private static class Tile {
+		final int zoom;
+		final int x;
+		final int y;
+		List<Tile> children;
+		// fixed32 values pointing to the data of the leaf and positions they are counted from
+		final TLongArrayList pointers = new TLongArrayList(2);
+		// poi categories of the subtree
+		int[] categories;
+
+		Tile(int zoom, int x, int y) {
+			this.zoom = zoom;
+			this.x = x;
+			this.y = y;
+		}
+
+		boolean isLeaf() {
+			return children == null;
+		}
+
+		void addPointer(long pos, long base) {
+			pointers.add(pos);
+			pointers.add(base);
+		}
+
+		int size() {
+			return 1 << (31 - zoom);
+		}
+
+		int left() {
+			return x << (31 - zoom);
+		}
+
+		int right() {
+			return ((x + 1) << (31 - zoom)) - 1;
+		}
+
+		int top() {
+			return y << (31 - zoom);
+		}
+
+		int bottom() {
+			return ((y + 1) << (31 - zoom)) - 1;
+		}
+	}
+
+	private static class AddressRef {
+		final int index;
+		final String name;
+		final int type;
+		int x;
+		int y;
+		// city or street
+		long pointer;
+		// city of the street or shift to the block of the city
+		long cityPointer;
+
+		AddressRef(int index, String name, int type) {
+			this.index = index;
+			this.name = name;
+			this.type = type;
+		}
+	}
+
+	private static class Stop {
+		static final Comparator<Stop> BY_X = new Comparator<Stop>() {
+			@Override
+			public int compare(Stop o1, Stop o2) {
+				return o1.x < o2.x ? -1 : (o1.x == o2.x ? 0 : 1);
+			}
+		};
+		static final Comparator<Stop> BY_Y = new Comparator<Stop>() {
+			@Override
+			public int compare(Stop o1, Stop o2) {
+				return o1.y < o2.y ? -1 : (o1.y == o2.y ? 0 : 1);
+			}
+		};
+		long id;
+		int x;
+		int y;
+		int name;
+		final TIntArrayList routes = new TIntArrayList();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: <output.obf> [-seed=1] [-bbox=lonleft,lattop,lonright,latbottom] [-zoom=14]\n"
+					+ "\t[-map=objects per tile] [-poi=poi per tile] [-categories=8,4]\n"
+					+ "\t[-cities=20,streets per city,buildings per street] [-transport=stops,routes,stops per route]\n"
+					+ "\t[-roads=roads per tile]\n"
+					+ "Writes synthetic obf file, density 0 skips the section.");
+			return;
+		}
+		long seed = 1;
+		for (String a : args) {
+			if (a.startsWith("-seed=")) {
+				seed = Long.parseLong(a.substring("-seed=".length()));
+			}
+		}
+		ObfDataGenerator generator = new ObfDataGenerator(seed);
+		for (int i = 1; i < args.length; i++) {
+			String a = args[i];
+			int eq = a.indexOf('=');
+			String[] values = eq == -1 ? new String[0] : a.substring(eq + 1).split(",");
+			if (a.startsWith("-bbox=")) {
+				generator.setArea(Double.parseDouble(values[1]), Double.parseDouble(values[0]),
+						Double.parseDouble(values[3]), Double.parseDouble(values[2]));
+			} else if (a.startsWith("-zoom=")) {
+				generator.setTileZoom(Integer.parseInt(values[0]));
+			} else if (a.startsWith("-map=")) {
+				generator.setMapObjectsPerTile(Integer.parseInt(values[0]));
+			} else if (a.startsWith("-poi=")) {
+				generator.setPoiPerTile(Integer.parseInt(values[0]));
+			} else if (a.startsWith("-categories=")) {
+				generator.setPoiCategories(Integer.parseInt(values[0]), Integer.parseInt(values[1]));
+			} else if (a.startsWith("-cities=")) {
+				generator.setCities(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]));
+			} else if (a.startsWith("-transport=")) {
+				generator.setTransport(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+						Integer.parseInt(values[2]));
+			} else if (a.startsWith("-roads=")) {
+				generator.setRoadsPerTile(Integer.parseInt(values[0]));
+			} else if (!a.startsWith("-seed=")) {
+				System.err.println("Unknown parameter " + a);
+				return;
+			}
+		}
+		File file = new File(args[0]);
+		long time = System.currentTimeMillis();
+		generator.write(file);
+		System.out.println("Synthetic obf " + file.getName() + " (" + file.length() + " bytes) is written in "
+				+ (System.currentTimeMillis() - time) + " ms");
+	}
+}
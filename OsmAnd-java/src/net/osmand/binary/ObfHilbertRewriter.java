@@ -0,0 +1,576 @@
+package net.osmand.binary;
+
+import gnu.trove.list.array.TLongArrayList;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.osmand.PlatformUtil;
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapDataBox;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapRootLevel;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteDataBox;
+import net.osmand.util.MapUtils;
+
+import org.apache.commons.logging.Log;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Rewrites obf file so data blocks of every map level and every routing section are stored in order of the
+ * Hilbert curve through the centers of their boxes. Blocks of the neighbour areas are then close in the file,
+ * so the viewport search reads contiguous ranges and read ahead and the page cache work better.
+ *
+ * Blocks are stored after the box trees at the end of the level (section), and boxes point to them by fixed32 shifts,
+ * so the rewritten file has the same size and layout except the order of the blocks and the shifts of the boxes.
+ * Block bodies are copied without decoding.
+ *
+ * Rewritten file gets a new date created, so the structure of the original file kept by {@link CachedOsmandIndexes}
+ * (it is matched by name, size and date created) is rebuilt for it.
+ */
+public class ObfHilbertRewriter {
+	private final static Log log = PlatformUtil.getLog(ObfHilbertRewriter.class);
+
+	// order of the curve, the whole 31 bit coordinates are used
+	private static final int HILBERT_ORDER = 31;
+	private static final int VERIFY_QUERIES = 50;
+	// wire type which is not public in WireFormat
+	private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+	private static class Block {
+		// position of the block tag and the end of the block
+		final long start;
+		final long end;
+		final int tagSize;
+		long key;
+		boolean referenced;
+		long newStart;
+
+		Block(long start, long end, int tagSize) {
+			this.start = start;
+			this.end = end;
+			this.tagSize = tagSize;
+		}
+	}
+
+	private static class BlockPointer {
+		// position of fixed32 shift and position it is counted from
+		final long pointer;
+		final long base;
+		final long target;
+		final int left;
+		final int right;
+		final int top;
+		final int bottom;
+
+		BlockPointer(long pointer, long base, long target, int left, int right, int top, int bottom) {
+			this.pointer = pointer;
+			this.base = base;
+			this.target = target;
+			this.left = left;
+			this.right = right;
+			this.top = top;
+			this.bottom = bottom;
+		}
+	}
+
+	private CodedInputStream codedIS;
+	private int sections;
+	private int movedBlocks;
+
+	/**
+	 * @return number of blocks which changed their position
+	 */
+	public int rewrite(File input, File output) throws IOException {
+		if (input.getAbsoluteFile().equals(output.getAbsoluteFile())) {
+			throw new IllegalArgumentException("Input file is equal to output file " + input.getAbsolutePath());
+		}
+		sections = 0;
+		movedBlocks = 0;
+		RandomAccessFile in = new RandomAccessFile(input, "r");
+		RandomAccessFile out = new RandomAccessFile(output, "rw");
+		try {
+			BinaryMapIndexReader index = new BinaryMapIndexReader(in);
+			codedIS = CodedInputStream.newInstance(in);
+			codedIS.setSizeLimit(Integer.MAX_VALUE);
+			out.setLength(0);
+			out.setLength(in.length());
+			FileChannel inChannel = in.getChannel();
+			FileChannel outChannel = out.getChannel();
+			transfer(inChannel, 0, in.length(), outChannel, 0);
+			updateDateCreated(outChannel);
+			for (BinaryIndexPart p : index.getIndexes()) {
+				if (p instanceof MapIndex) {
+					for (MapRoot level : ((MapIndex) p).getRoots()) {
+						rewriteMapLevel(level, inChannel, outChannel);
+					}
+				} else if (p instanceof RouteRegion) {
+					rewriteRouteRegion((RouteRegion) p, inChannel, outChannel);
+				}
+			}
+			log.info("Rewritten " + sections + " sections, " + movedBlocks + " blocks changed position");
+			return movedBlocks;
+		} finally {
+			codedIS = null;
+			out.close();
+			in.close();
+		}
+	}
+
+	private void rewriteMapLevel(MapRoot level, FileChannel in, FileChannel out) throws IOException {
+		List<BlockPointer> pointers = new ArrayList<BlockPointer>();
+		List<Block> blocks = new ArrayList<Block>();
+		long end = (long) level.filePointer + level.length;
+		codedIS.seek(level.filePointer);
+		while (getPosition() < end) {
+			long start = getPosition();
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == MapRootLevel.BOXES_FIELD_NUMBER) {
+				int length = readInt();
+				long boxEnd = getPosition() + length;
+				readMapBox(boxEnd, level.left, level.right, level.top, level.bottom, pointers);
+				codedIS.seek(boxEnd);
+			} else if (tag == MapRootLevel.BLOCKS_FIELD_NUMBER) {
+				if (!readBlocks(start, end, MapRootLevel.BLOCKS_FIELD_NUMBER, blocks)) {
+					log.warn("Map level " + level.minZoom + "-" + level.maxZoom + " is not rewritten (unknown fields after the blocks)");
+					return;
+				}
+			} else {
+				codedIS.skipField(t);
+			}
+		}
+		reorderBlocks(blocks, pointers, in, out);
+	}
+
+	private void readMapBox(long end, int pleft, int pright, int ptop, int pbottom, List<BlockPointer> pointers)
+			throws IOException {
+		long base = getPosition();
+		int left = pleft;
+		int right = pright;
+		int top = ptop;
+		int bottom = pbottom;
+		long pointer = -1;
+		long target = 0;
+		while (getPosition() < end) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == MapDataBox.LEFT_FIELD_NUMBER) {
+				left = pleft + codedIS.readSInt32();
+			} else if (tag == MapDataBox.RIGHT_FIELD_NUMBER) {
+				right = pright + codedIS.readSInt32();
+			} else if (tag == MapDataBox.TOP_FIELD_NUMBER) {
+				top = ptop + codedIS.readSInt32();
+			} else if (tag == MapDataBox.BOTTOM_FIELD_NUMBER) {
+				bottom = pbottom + codedIS.readSInt32();
+			} else if (tag == MapDataBox.SHIFTTOMAPDATA_FIELD_NUMBER) {
+				pointer = getPosition();
+				target = base + readInt();
+			} else if (tag == MapDataBox.BOXES_FIELD_NUMBER) {
+				int length = readInt();
+				long boxEnd = getPosition() + length;
+				readMapBox(boxEnd, left, right, top, bottom, pointers);
+				codedIS.seek(boxEnd);
+			} else {
+				codedIS.skipField(t);
+			}
+		}
+		if (pointer != -1) {
+			pointers.add(new BlockPointer(pointer, base, target, left, right, top, bottom));
+		}
+	}
+
+	private void rewriteRouteRegion(RouteRegion region, FileChannel in, FileChannel out) throws IOException {
+		List<BlockPointer> pointers = new ArrayList<BlockPointer>();
+		List<Block> blocks = new ArrayList<Block>();
+		long end = (long) region.getFilePointer() + region.getLength();
+		codedIS.seek(region.getFilePointer());
+		while (getPosition() < end) {
+			long start = getPosition();
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == OsmAndRoutingIndex.ROOTBOXES_FIELD_NUMBER || tag == OsmAndRoutingIndex.BASEMAPBOXES_FIELD_NUMBER) {
+				int length = readInt();
+				long boxEnd = getPosition() + length;
+				readRouteBox(boxEnd, 0, 0, 0, 0, pointers);
+				codedIS.seek(boxEnd);
+			} else if (tag == OsmAndRoutingIndex.BLOCKS_FIELD_NUMBER) {
+				if (!readBlocks(start, end, OsmAndRoutingIndex.BLOCKS_FIELD_NUMBER, blocks)) {
+					log.warn("Routing section " + region.getName() + " is not rewritten (unknown fields after the blocks)");
+					return;
+				}
+			} else {
+				codedIS.skipField(t);
+			}
+		}
+		reorderBlocks(blocks, pointers, in, out);
+	}
+
+	private void readRouteBox(long end, int pleft, int pright, int ptop, int pbottom, List<BlockPointer> pointers)
+			throws IOException {
+		long base = getPosition();
+		int left = pleft;
+		int right = pright;
+		int top = ptop;
+		int bottom = pbottom;
+		long pointer = -1;
+		long target = 0;
+		while (getPosition() < end) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == RouteDataBox.LEFT_FIELD_NUMBER) {
+				left = pleft + codedIS.readSInt32();
+			} else if (tag == RouteDataBox.RIGHT_FIELD_NUMBER) {
+				right = pright + codedIS.readSInt32();
+			} else if (tag == RouteDataBox.TOP_FIELD_NUMBER) {
+				top = ptop + codedIS.readSInt32();
+			} else if (tag == RouteDataBox.BOTTOM_FIELD_NUMBER) {
+				bottom = pbottom + codedIS.readSInt32();
+			} else if (tag == RouteDataBox.SHIFTTODATA_FIELD_NUMBER) {
+				int shift = readInt();
+				// 0 means box without data
+				if (shift != 0) {
+					pointer = getPosition() - 4;
+					target = base + shift;
+				}
+			} else if (tag == RouteDataBox.BOXES_FIELD_NUMBER) {
+				int length = readInt();
+				long boxEnd = getPosition() + length;
+				readRouteBox(boxEnd, left, right, top, bottom, pointers);
+				codedIS.seek(boxEnd);
+			} else {
+				codedIS.skipField(t);
+			}
+		}
+		if (pointer != -1) {
+			pointers.add(new BlockPointer(pointer, base, target, left, right, top, bottom));
+		}
+	}
+
+	/**
+	 * Reads positions of the blocks till the end of the section
+	 * @return false if there are other fields between the blocks
+	 */
+	private boolean readBlocks(long start, long end, int field, List<Block> blocks) throws IOException {
+		int tagSize = CodedOutputStream.computeTagSize(field);
+		codedIS.seek(start);
+		while (getPosition() < end) {
+			long blockStart = getPosition();
+			int t = codedIS.readTag();
+			if (WireFormat.getTagFieldNumber(t) != field || WireFormat.getTagWireType(t) != WIRETYPE_LENGTH_DELIMITED
+					|| getPosition() - blockStart != tagSize) {
+				blocks.clear();
+				return false;
+			}
+			int length = codedIS.readRawVarint32();
+			codedIS.skipRawBytes(length);
+			blocks.add(new Block(blockStart, getPosition(), tagSize));
+		}
+		return true;
+	}
+
+	/**
+	 * Writes current time to date created of the header, the value is padded to the length of the original varint
+	 */
+	private void updateDateCreated(FileChannel out) throws IOException {
+		codedIS.seek(0);
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER) {
+				codedIS.readUInt32();
+			} else if (tag == OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER) {
+				long pointer = getPosition();
+				long original = codedIS.readInt64();
+				int length = (int) (getPosition() - pointer);
+				if (original == 0) {
+					// cache compares modification time of the file
+					return;
+				}
+				long date = Math.max(System.currentTimeMillis(), original + 1);
+				if (CodedOutputStream.computeRawVarint64Size(date) > length) {
+					throw new IOException("Date created doesn't fit into " + length + " bytes " + date);
+				}
+				ByteBuffer value = ByteBuffer.allocate(length);
+				for (int i = 1; i < length; i++) {
+					value.put((byte) ((date & 0x7F) | 0x80));
+					date >>>= 7;
+				}
+				value.put((byte) date);
+				value.flip();
+				out.write(value, pointer);
+				return;
+			} else {
+				// file without date created, cache compares modification time of the file
+				return;
+			}
+		}
+	}
+
+	private void reorderBlocks(List<Block> blocks, List<BlockPointer> pointers, FileChannel in, FileChannel out)
+			throws IOException {
+		if (blocks.isEmpty()) {
+			return;
+		}
+		sections++;
+		Map<Long, Block> byTarget = new HashMap<Long, Block>();
+		for (Block b : blocks) {
+			byTarget.put(b.start + b.tagSize, b);
+		}
+		// block is placed by the center of the first box pointing to it
+		for (BlockPointer p : pointers) {
+			Block b = byTarget.get(p.target);
+			if (b == null) {
+				throw new IllegalStateException("Box points outside of the data blocks " + p.target);
+			}
+			if (!b.referenced) {
+				b.referenced = true;
+				b.key = hilbertIndex((int) (((long) p.left + p.right) >>> 1), (int) (((long) p.top + p.bottom) >>> 1));
+			}
+		}
+		List<Block> sorted = new ArrayList<Block>(blocks);
+		// sort is stable, blocks without boxes stay at the end in original order
+		Collections.sort(sorted, new Comparator<Block>() {
+			@Override
+			public int compare(Block o1, Block o2) {
+				if (o1.referenced != o2.referenced) {
+					return o1.referenced ? -1 : 1;
+				}
+				return o1.key < o2.key ? -1 : (o1.key == o2.key ? 0 : 1);
+			}
+		});
+		long position = blocks.get(0).start;
+		for (Block b : sorted) {
+			b.newStart = position;
+			if (b.newStart != b.start) {
+				movedBlocks++;
+			}
+			transfer(in, b.start, b.end - b.start, out, b.newStart);
+			position += b.end - b.start;
+		}
+		ByteBuffer value = ByteBuffer.allocate(4);
+		for (BlockPointer p : pointers) {
+			Block b = byTarget.get(p.target);
+			long shift = b.newStart + b.tagSize - p.base;
+			if (shift > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Shift to the block is too large " + shift);
+			}
+			value.clear();
+			value.putInt((int) shift);
+			value.flip();
+			out.write(value, p.pointer);
+		}
+	}
+
+	/**
+	 * @return position of the point on the Hilbert curve of {@link #HILBERT_ORDER} order
+	 */
+	static long hilbertIndex(int x, int y) {
+		final int max = (1 << HILBERT_ORDER) - 1;
+		long d = 0;
+		for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1) {
+			int rx = (x & s) != 0 ? 1 : 0;
+			int ry = (y & s) != 0 ? 1 : 0;
+			d += ((long) s) * s * ((3 * rx) ^ ry);
+			if (ry == 0) {
+				if (rx == 1) {
+					x = max - x;
+					y = max - y;
+				}
+				int tx = x;
+				x = y;
+				y = tx;
+			}
+		}
+		return d;
+	}
+
+	private long getPosition() {
+		return codedIS.getTotalBytesRead();
+	}
+
+	private int readInt() throws IOException {
+		int ch1 = codedIS.readRawByte() & 0xff;
+		int ch2 = codedIS.readRawByte() & 0xff;
+		int ch3 = codedIS.readRawByte() & 0xff;
+		int ch4 = codedIS.readRawByte() & 0xff;
+		return ((ch1 << 24) + (ch2 << 16) + (ch3 << 8) + ch4);
+	}
+
+	private static void transfer(FileChannel in, long position, long count, FileChannel out, long outPosition)
+			throws IOException {
+		while (count > 0) {
+			long t = in.transferTo(position, count, out.position(outPosition));
+			if (t <= 0) {
+				throw new IOException("Unexpected end of file");
+			}
+			position += t;
+			outPosition += t;
+			count -= t;
+		}
+	}
+
+	/**
+	 * Compares results of random map and routing queries of both files
+	 * @return false if any query returns different objects
+	 */
+	public static boolean verify(File original, File rewritten, int queries) throws IOException {
+		RandomAccessFile r1 = new RandomAccessFile(original, "r");
+		RandomAccessFile r2 = new RandomAccessFile(rewritten, "r");
+		try {
+			BinaryMapIndexReader i1 = new BinaryMapIndexReader(r1);
+			BinaryMapIndexReader i2 = new BinaryMapIndexReader(r2);
+			Random rnd = new Random(queries);
+			boolean equal = true;
+			for (MapIndex mapIndex : i1.getMapIndexes()) {
+				for (MapRoot level : mapIndex.getRoots()) {
+					for (int q = 0; q <= queries && equal; q++) {
+						int[] bbox = randomBox(rnd, q, level.left, level.right, level.top, level.bottom);
+						int zoom = level.minZoom + rnd.nextInt(level.maxZoom - level.minZoom + 1);
+						TLongArrayList s1 = searchMap(i1, bbox, zoom);
+						TLongArrayList s2 = searchMap(i2, bbox, zoom);
+						equal = compare("Map zoom " + zoom, bbox, s1, s2);
+					}
+				}
+			}
+			for (int k = 0; k < i1.getRoutingIndexes().size() && equal; k++) {
+				RouteRegion rr1 = i1.getRoutingIndexes().get(k);
+				RouteRegion rr2 = i2.getRoutingIndexes().get(k);
+				int left = MapUtils.get31TileNumberX(rr1.getLeftLongitude());
+				int right = MapUtils.get31TileNumberX(rr1.getRightLongitude());
+				int top = MapUtils.get31TileNumberY(rr1.getTopLatitude());
+				int bottom = MapUtils.get31TileNumberY(rr1.getBottomLatitude());
+				for (int q = 0; q <= queries && equal; q++) {
+					int[] bbox = randomBox(rnd, q, left, right, top, bottom);
+					boolean base = rnd.nextBoolean();
+					TLongArrayList s1 = searchRoute(i1, base ? rr1.getBaseSubregions() : rr1.getSubregions(), bbox);
+					TLongArrayList s2 = searchRoute(i2, base ? rr2.getBaseSubregions() : rr2.getSubregions(), bbox);
+					equal = compare("Routing" + (base ? " basemap" : ""), bbox, s1, s2);
+				}
+			}
+			return equal;
+		} finally {
+			r1.close();
+			r2.close();
+		}
+	}
+
+	/**
+	 * @return the whole area for the first query and random boxes inside of it for others
+	 */
+	private static int[] randomBox(Random rnd, int q, int left, int right, int top, int bottom) {
+		if (q == 0 || right <= left || bottom <= top) {
+			return new int[] { left, right, top, bottom };
+		}
+		int w = (int) (((long) right - left) >> (1 + rnd.nextInt(6)));
+		int h = (int) (((long) bottom - top) >> (1 + rnd.nextInt(6)));
+		int x = left + (int) (rnd.nextDouble() * (((long) right - left) - w));
+		int y = top + (int) (rnd.nextDouble() * (((long) bottom - top) - h));
+		return new int[] { x, x + w, y, y + h };
+	}
+
+	private static boolean compare(String name, int[] bbox, TLongArrayList s1, TLongArrayList s2) {
+		if (!s1.equals(s2)) {
+			log.error(name + " query " + Arrays.toString(bbox) + " returns " + s1.size() + " objects in original file and "
+					+ s2.size() + " in rewritten file");
+			return false;
+		}
+		return true;
+	}
+
+	private static TLongArrayList searchMap(BinaryMapIndexReader index, int[] bbox, int zoom) throws IOException {
+		final TLongArrayList result = new TLongArrayList();
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(bbox[0], bbox[1], bbox[2],
+				bbox[3], zoom, null, new ResultMatcher<BinaryMapDataObject>() {
+					@Override
+					public boolean publish(BinaryMapDataObject obj) {
+						long h = obj.getId();
+						for (int i = 0; i < obj.getPointsLength(); i++) {
+							h = h * 31 + obj.getPoint31XTile(i);
+							h = h * 31 + obj.getPoint31YTile(i);
+						}
+						h = h * 31 + Arrays.hashCode(obj.getTypes());
+						h = h * 31 + (obj.getName() == null ? 0 : obj.getName().hashCode());
+						result.add(h);
+						return false;
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return false;
+					}
+				});
+		index.searchMapIndex(req);
+		result.sort();
+		return result;
+	}
+
+	private static TLongArrayList searchRoute(BinaryMapIndexReader index, List<RouteSubregion> roots, int[] bbox)
+			throws IOException {
+		final TLongArrayList result = new TLongArrayList();
+		SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(bbox[0], bbox[1], bbox[2],
+				bbox[3], null);
+		List<RouteSubregion> subregions = index.searchRouteIndexTree(req, roots);
+		index.loadRouteIndexData(subregions, new ResultMatcher<RouteDataObject>() {
+			@Override
+			public boolean publish(RouteDataObject obj) {
+				long h = obj.getId();
+				for (int i = 0; i < obj.getPointsLength(); i++) {
+					h = h * 31 + obj.getPoint31XTile(i);
+					h = h * 31 + obj.getPoint31YTile(i);
+				}
+				h = h * 31 + Arrays.hashCode(obj.types);
+				h = h * 31 + (obj.getName() == null ? 0 : obj.getName().hashCode());
+				result.add(h);
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		result.sort();
+		return result;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: <input.obf> <output.obf> [-noverify]\n"
+					+ "Rewrites map and routing data blocks in order of the Hilbert curve and compares queries of both files.");
+			return;
+		}
+		File input = new File(args[0]);
+		File output = new File(args[1]);
+		long time = System.currentTimeMillis();
+		int moved = new ObfHilbertRewriter().rewrite(input, output);
+		System.out.println(moved + " blocks are moved in " + (System.currentTimeMillis() - time) + " ms");
+		if (args.length < 3 || !args[2].equals("-noverify")) {
+			if (verify(input, output, VERIFY_QUERIES)) {
+				System.out.println("Queries of " + output.getName() + " return the same objects");
+			} else {
+				System.out.println("Queries of " + output.getName() + " return different objects");
+				System.exit(1);
+			}
+		}
+	}
+}
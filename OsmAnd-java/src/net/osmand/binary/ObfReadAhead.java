@@ -0,0 +1,306 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import net.osmand.PlatformUtil;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Reads map data blocks ahead of the search in background threads.
+ *
+ * Search sorts leaf boxes by position of their data blocks and then decodes blocks one by one, so the blocks which
+ * will be read next are known in advance. Read ahead task goes through the same sorted positions, joins blocks lying close
+ * to each other into one large sequential read and loads them into the page cache (touches the pages of the memory
+ * mapping), while the search thread decodes the current block. Search itself still reads the file as before and finds
+ * the data already in memory, so decoding doesn't depend on read ahead at all and read ahead failures are ignored.
+ *
+ * Task stays at most {@link #getWindow()} bytes ahead of the search, so the blocks are not pushed out of memory
+ * before they are decoded. Task waiting for the search which doesn't reach the next block during
+ * {@link #getIdleTimeout()} (cursor is abandoned without closing) stops, so it doesn't hold the thread of the executor.
+ */
+public class ObfReadAhead {
+	private final static Log log = PlatformUtil.getLog(ObfReadAhead.class);
+
+	public static final int DEFAULT_MAX_GAP = 32 * 1024;
+	public static final int DEFAULT_MAX_READ = 512 * 1024;
+	public static final int DEFAULT_WINDOW = 4 * 1024 * 1024;
+	public static final long DEFAULT_IDLE_TIMEOUT = 5000;
+	private static final int PAGE_SIZE = 4096;
+	// varint length of the block
+	private static final int MAX_LENGTH_SIZE = 5;
+
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+	private int maxGap = DEFAULT_MAX_GAP;
+	private int maxRead = DEFAULT_MAX_READ;
+	private int window = DEFAULT_WINDOW;
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>();
+
+	public ObfReadAhead() {
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Obf read ahead");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.ownExecutor = true;
+	}
+
+	public ObfReadAhead(ExecutorService executor) {
+		this.executor = executor;
+		this.ownExecutor = false;
+	}
+
+	/**
+	 * @param maxGap blocks with smaller distance between them are read together (the gap is read too)
+	 */
+	public void setMaxGap(int maxGap) {
+		this.maxGap = maxGap;
+	}
+
+	public int getMaxGap() {
+		return maxGap;
+	}
+
+	/**
+	 * @param maxRead maximum size of one joined read
+	 */
+	public void setMaxRead(int maxRead) {
+		this.maxRead = maxRead;
+	}
+
+	public int getMaxRead() {
+		return maxRead;
+	}
+
+	/**
+	 * @param window how many bytes read ahead could go before the search
+	 */
+	public void setWindow(int window) {
+		this.window = window;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 * @param idleTimeout how long in ms read ahead waits for the search to reach the next block
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Starts reading blocks of the file at given positions.
+	 * @param blockPointers sorted positions of the data blocks (the length of the block is stored at the position)
+	 * @param mapping memory mapping of the whole file or null when the file is read through RandomAccessFile
+	 */
+	public ReadAheadTask schedule(RandomAccessFile raf, ByteBuffer mapping, long[] blockPointers) {
+		ReadAheadTask task = new ReadAheadTask(raf.getChannel(), mapping, blockPointers);
+		executor.execute(task);
+		return task;
+	}
+
+	public void shutdown() {
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	public class ReadAheadTask implements Runnable {
+		private final FileChannel channel;
+		private final ByteBuffer mapping;
+		private final long[] blockPointers;
+		private final int window;
+		private final int maxGap;
+		private final int maxRead;
+		private final long idleTimeout;
+		private long consumed;
+		private long consumedTime;
+		private boolean cancelled;
+		private volatile long readBytes;
+		private volatile int reads;
+		// keeps touched pages from being optimized out
+		private volatile int checksum;
+
+		ReadAheadTask(FileChannel channel, ByteBuffer mapping, long[] blockPointers) {
+			this.channel = channel;
+			this.mapping = mapping;
+			this.blockPointers = blockPointers;
+			this.window = ObfReadAhead.this.window;
+			this.maxGap = ObfReadAhead.this.maxGap;
+			this.maxRead = ObfReadAhead.this.maxRead;
+			this.idleTimeout = ObfReadAhead.this.idleTimeout;
+			this.consumed = blockPointers.length == 0 ? 0 : blockPointers[0];
+			this.consumedTime = System.currentTimeMillis();
+		}
+
+		/**
+		 * Search reached the block at the position, read ahead could continue
+		 */
+		public synchronized void consumed(long blockPointer) {
+			if (blockPointer > consumed) {
+				consumed = blockPointer;
+				consumedTime = System.currentTimeMillis();
+				notifyAll();
+			}
+		}
+
+		/**
+		 * Stops reading. Channel is not interrupted (it would close the file).
+		 */
+		public synchronized void cancel() {
+			cancelled = true;
+			notifyAll();
+		}
+
+		public synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		public long getReadBytes() {
+			return readBytes;
+		}
+
+		public int getReads() {
+			return reads;
+		}
+
+		@Override
+		public void run() {
+			try {
+				int i = 0;
+				// end of the block which didn't fit into the previous read
+				long nextEnd = -1;
+				while (i < blockPointers.length) {
+					if (!waitForSearch(blockPointers[i])) {
+						return;
+					}
+					long start = blockPointers[i];
+					long end = nextEnd != -1 ? nextEnd : getBlockEnd(start);
+					nextEnd = -1;
+					i++;
+					// block is joined only if the read stays within max read (larger single block is read by parts)
+					while (i < blockPointers.length && blockPointers[i] - end <= maxGap) {
+						long blockEnd = getBlockEnd(blockPointers[i]);
+						if (Math.max(end, blockEnd) - start > maxRead) {
+							nextEnd = blockEnd;
+							break;
+						}
+						end = Math.max(end, blockEnd);
+						i++;
+					}
+					load(start, end);
+				}
+			} catch (IOException e) {
+				// file is closed or could not be read, search will read it itself
+				if (log.isDebugEnabled()) {
+					log.debug("Read ahead is stopped: " + e.getMessage());
+				}
+			}
+		}
+
+		private synchronized boolean waitForSearch(long blockPointer) {
+			while (!cancelled && blockPointer - consumed > window) {
+				long timeout = consumedTime + idleTimeout - System.currentTimeMillis();
+				if (timeout <= 0) {
+					if (log.isDebugEnabled()) {
+						log.debug("Read ahead is stopped: search didn't read next block in " + idleTimeout + " ms");
+					}
+					cancelled = true;
+					break;
+				}
+				try {
+					wait(timeout);
+				} catch (InterruptedException e) {
+					return false;
+				}
+			}
+			return !cancelled;
+		}
+
+		private long getBlockEnd(long blockPointer) throws IOException {
+			int length = 0;
+			int shift = 0;
+			ByteBuffer bf = null;
+			if (mapping == null) {
+				bf = getBuffer(MAX_LENGTH_SIZE);
+				channel.read(bf, blockPointer);
+				bf.flip();
+			}
+			for (int k = 0; k < MAX_LENGTH_SIZE; k++) {
+				int b;
+				if (mapping != null) {
+					if (blockPointer + k >= mapping.limit()) {
+						break;
+					}
+					b = mapping.get((int) blockPointer + k);
+				} else {
+					if (!bf.hasRemaining()) {
+						break;
+					}
+					b = bf.get();
+				}
+				length |= (b & 0x7f) << shift;
+				shift += 7;
+				if (b >= 0) {
+					return blockPointer + k + 1 + length;
+				}
+			}
+			return blockPointer + MAX_LENGTH_SIZE;
+		}
+
+		private void load(long start, long end) throws IOException {
+			reads++;
+			if (mapping != null) {
+				int sum = 0;
+				int limit = (int) Math.min(end, mapping.limit());
+				for (int p = (int) start; p < limit; p += PAGE_SIZE) {
+					sum += mapping.get(p);
+				}
+				checksum += sum;
+				readBytes += limit - start;
+				return;
+			}
+			long pos = start;
+			while (pos < end) {
+				if (isCancelled()) {
+					return;
+				}
+				ByteBuffer bf = getBuffer((int) Math.min(end - pos, maxRead));
+				int r = channel.read(bf, pos);
+				if (r <= 0) {
+					return;
+				}
+				pos += r;
+				readBytes += r;
+			}
+		}
+
+		private ByteBuffer getBuffer(int size) {
+			ByteBuffer bf = buffers.get();
+			if (bf == null || bf.capacity() < size) {
+				bf = ByteBuffer.allocateDirect(Math.max(size, maxRead));
+				buffers.set(bf);
+			}
+			bf.clear();
+			bf.limit(size);
+			return bf;
+		}
+	}
+}
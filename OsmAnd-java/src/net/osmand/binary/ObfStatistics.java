@@ -0,0 +1,431 @@
+package net.osmand.binary;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.CitiesBlock;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+import net.osmand.data.Amenity;
+import net.osmand.data.AmenityType;
+import net.osmand.data.Building;
+import net.osmand.data.City;
+import net.osmand.data.MapObject;
+import net.osmand.data.Street;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+
+/**
+ * Decodes all sections of the obf file and collects their statistics (sizes, number of objects and points,
+ * names of the objects and decoding time).
+ *
+ * Names are counted the same way in every section: every non empty name (all name types of map and route objects,
+ * name and english name of other objects) is one string and its length in UTF-8 is added to string bytes.
+ *
+ * Sections (and every level of map sections) don't depend on each other, so they are decoded concurrently:
+ * every task has its own reader of the file which shares the structure read by the main reader.
+ * Lazy parts of the shared structure (map encoding rules, poi categories, route types) are initialized before the
+ * tasks are started.
+ */
+public class ObfStatistics {
+
+	private static final double MB = 1 << 20;
+
+	private final int threads;
+
+	public ObfStatistics(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public static class SectionStatistics {
+		final String name;
+		final long bytes;
+		long objects;
+		long points;
+		long strings;
+		long stringBytes;
+		long timeNanos;
+		String details = "";
+
+		SectionStatistics(String name, long bytes) {
+			this.name = name;
+			this.bytes = bytes;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getObjects() {
+			return objects;
+		}
+
+		public long getPoints() {
+			return points;
+		}
+
+		/**
+		 * @return number of names of the decoded objects
+		 */
+		public long getStrings() {
+			return strings;
+		}
+
+		/**
+		 * @return size of the names of the decoded objects in UTF-8
+		 */
+		public long getStringBytes() {
+			return stringBytes;
+		}
+
+		public long getTimeNanos() {
+			return timeNanos;
+		}
+
+		public double getPointsPerObject() {
+			return objects == 0 ? 0 : ((double) points) / objects;
+		}
+
+		/**
+		 * @return decoding time in ms per MB of the section
+		 */
+		public double getMsPerMB() {
+			return bytes == 0 ? 0 : (timeNanos / 1e6) / (bytes / MB);
+		}
+
+		public String getDetails() {
+			return details;
+		}
+	}
+
+	private abstract class SectionTask implements Callable<SectionStatistics> {
+		final File file;
+		final BinaryMapIndexReader structure;
+		final SectionStatistics stats;
+
+		SectionTask(File file, BinaryMapIndexReader structure, SectionStatistics stats) {
+			this.file = file;
+			this.structure = structure;
+			this.stats = stats;
+		}
+
+		@Override
+		public SectionStatistics call() throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, structure);
+				long time = System.nanoTime();
+				collect(reader);
+				stats.timeNanos = System.nanoTime() - time;
+			} finally {
+				raf.close();
+			}
+			return stats;
+		}
+
+		abstract void collect(BinaryMapIndexReader reader) throws IOException;
+
+		void addName(String name) {
+			if (name != null && name.length() > 0) {
+				stats.strings++;
+				stats.stringBytes += utf8Length(name);
+			}
+		}
+
+		void addNames(MapObject object) {
+			addName(object.getName());
+			addName(object.getEnName());
+		}
+	}
+
+	static int utf8Length(String s) {
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * @return statistics of the sections in order of the file
+	 */
+	public List<SectionStatistics> collect(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Obf statistics");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			BinaryMapIndexReader index = new BinaryMapIndexReader(raf);
+			List<SectionTask> tasks = createTasks(file, index);
+			// large sections are started first, so they don't finish last
+			List<SectionTask> sorted = new ArrayList<SectionTask>(tasks);
+			Collections.sort(sorted, new Comparator<SectionTask>() {
+				@Override
+				public int compare(SectionTask o1, SectionTask o2) {
+					return o1.stats.bytes > o2.stats.bytes ? -1 : (o1.stats.bytes == o2.stats.bytes ? 0 : 1);
+				}
+			});
+			List<Future<SectionStatistics>> futures = new ArrayList<Future<SectionStatistics>>();
+			for (SectionTask task : sorted) {
+				futures.add(executor.submit(task));
+			}
+			for (Future<SectionStatistics> f : futures) {
+				try {
+					f.get();
+				} catch (InterruptedException e) {
+					throw new IOException("Statistics are interrupted", e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			List<SectionStatistics> result = new ArrayList<SectionStatistics>();
+			for (SectionTask task : tasks) {
+				result.add(task.stats);
+			}
+			return result;
+		} finally {
+			executor.shutdownNow();
+			raf.close();
+		}
+	}
+
+	private List<SectionTask> createTasks(File file, BinaryMapIndexReader index) throws IOException {
+		List<SectionTask> tasks = new ArrayList<SectionTask>();
+		int i = 1;
+		for (BinaryIndexPart p : index.getIndexes()) {
+			String prefix = i + " ";
+			String name = p.getName() == null ? "" : " " + p.getName();
+			if (p instanceof MapIndex) {
+				MapIndex m = (MapIndex) p;
+				index.initMapEncodingRules(m);
+				int j = 1;
+				for (MapRoot level : m.getRoots()) {
+					tasks.add(createMapLevelTask(file, index, level, new SectionStatistics(i + "." + (j++)
+							+ " Map" + name + " zoom " + level.getMinZoom() + "-" + level.getMaxZoom(), level.getLength())));
+				}
+			} else if (p instanceof PoiRegion) {
+				index.initCategories((PoiRegion) p);
+				tasks.add(createPoiTask(file, index, (PoiRegion) p, new SectionStatistics(prefix + "Poi" + name,
+						p.getLength())));
+			} else if (p instanceof AddressRegion) {
+				int j = 1;
+				for (CitiesBlock c : ((AddressRegion) p).cities) {
+					tasks.add(createAddressTask(file, index, (AddressRegion) p, c, new SectionStatistics(i + "."
+							+ (j++) + " Address" + name + " type " + c.type, c.getLength())));
+				}
+			} else if (p instanceof TransportIndex) {
+				tasks.add(createTransportTask(file, index, (TransportIndex) p, new SectionStatistics(prefix
+						+ "Transport" + name, p.getLength())));
+			} else if (p instanceof RouteRegion) {
+				index.initRouteRegion((RouteRegion) p);
+				tasks.add(createRouteTask(file, index, (RouteRegion) p, new SectionStatistics(prefix + "Routing" + name,
+						p.getLength())));
+			}
+			i++;
+		}
+		return tasks;
+	}
+
+	private SectionTask createMapLevelTask(File file, BinaryMapIndexReader index, final MapRoot level,
+			SectionStatistics stats) {
+		return new SectionTask(file, index, stats) {
+			@Override
+			void collect(BinaryMapIndexReader reader) throws IOException {
+				SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(0, Integer.MAX_VALUE,
+						0, Integer.MAX_VALUE, level.getMinZoom(), null);
+				ObfCursor<BinaryMapDataBlock> cursor = reader.searchMapBlocksCursor(req, level);
+				long blocks = 0;
+				try {
+					while (cursor.hasNext()) {
+						BinaryMapDataBlock block = cursor.next();
+						blocks++;
+						stats.objects += block.size();
+						for (int k = 0; k < block.size(); k++) {
+							stats.points += block.getPointsLength(k);
+							for (int n = 0; n < block.getNamesCount(k); n++) {
+								addName(block.getNameAt(k, n));
+							}
+						}
+					}
+				} finally {
+					cursor.close();
+				}
+				stats.details = blocks + " blocks";
+			}
+		};
+	}
+
+	private SectionTask createPoiTask(File file, BinaryMapIndexReader index, final PoiRegion region,
+			SectionStatistics stats) {
+		return new SectionTask(file, index, stats) {
+			@Override
+			void collect(BinaryMapIndexReader reader) throws IOException {
+				final long[] named = new long[1];
+				SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(0, Integer.MAX_VALUE, 0,
+						Integer.MAX_VALUE, -1, new SearchPoiTypeFilter() {
+							@Override
+							public boolean accept(AmenityType type, String subcategory) {
+								return true;
+							}
+						}, new ResultMatcher<Amenity>() {
+							@Override
+							public boolean publish(Amenity object) {
+								stats.objects++;
+								stats.points++;
+								if (object.getName() != null && object.getName().length() > 0) {
+									named[0]++;
+								}
+								addNames(object);
+								return false;
+							}
+
+							@Override
+							public boolean isCancelled() {
+								return false;
+							}
+						});
+				reader.searchPoi(region, req);
+				stats.details = named[0] + " named, " + region.categories.size() + " categories";
+			}
+		};
+	}
+
+	private SectionTask createAddressTask(File file, BinaryMapIndexReader index, final AddressRegion region,
+			final CitiesBlock block, SectionStatistics stats) {
+		return new SectionTask(file, index, stats) {
+			@Override
+			void collect(BinaryMapIndexReader reader) throws IOException {
+				List<City> cities = reader.getCities(region, null, block.type);
+				long streets = 0;
+				long buildings = 0;
+				for (City c : cities) {
+					addNames(c);
+					reader.preloadStreets(c, null);
+					for (Street s : c.getStreets()) {
+						streets++;
+						addNames(s);
+						reader.preloadBuildings(s, null);
+						buildings += s.getBuildings().size();
+						for (Building b : s.getBuildings()) {
+							addNames(b);
+						}
+					}
+				}
+				stats.objects = cities.size() + streets + buildings;
+				stats.points = stats.objects;
+				stats.details = cities.size() + " cities, " + streets + " streets, " + buildings + " buildings";
+			}
+		};
+	}
+
+	private SectionTask createTransportTask(File file, BinaryMapIndexReader index, final TransportIndex ti,
+			SectionStatistics stats) {
+		return new SectionTask(file, index, stats) {
+			@Override
+			void collect(BinaryMapIndexReader reader) throws IOException {
+				int sh = 31 - BinaryMapIndexReader.TRANSPORT_STOP_ZOOM;
+				SearchRequest<TransportStop> req = BinaryMapIndexReader.buildSearchTransportRequest(ti.getLeft() << sh,
+						ti.getRight() << sh, ti.getTop() << sh, ti.getBottom() << sh, -1, null);
+				List<TransportStop> stops = reader.searchTransportIndex(req);
+				TIntHashSet routes = new TIntHashSet();
+				for (TransportStop s : stops) {
+					addNames(s);
+					if (s.getReferencesToRoutes() != null) {
+						routes.addAll(s.getReferencesToRoutes());
+					}
+				}
+				TIntObjectHashMap<TransportRoute> loaded = reader.getTransportRoutes(routes.toArray());
+				long routeStops = 0;
+				for (TransportRoute r : loaded.valueCollection()) {
+					addNames(r);
+					routeStops += r.getForwardStops().size() + r.getBackwardStops().size();
+				}
+				stats.objects = stops.size() + loaded.size();
+				stats.points = stops.size() + routeStops;
+				stats.details = stops.size() + " stops, " + loaded.size() + " routes";
+			}
+		};
+	}
+
+	private SectionTask createRouteTask(File file, BinaryMapIndexReader index, final RouteRegion region,
+			SectionStatistics stats) {
+		return new SectionTask(file, index, stats) {
+			@Override
+			void collect(BinaryMapIndexReader reader) throws IOException {
+				long detailed = collect(reader, region.getSubregions());
+				long base = collect(reader, region.getBaseSubregions());
+				stats.details = detailed + " detailed, " + base + " basemap";
+			}
+
+			private long collect(BinaryMapIndexReader reader, List<RouteSubregion> roots) throws IOException {
+				final long objects = stats.objects;
+				SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(0, Integer.MAX_VALUE,
+						0, Integer.MAX_VALUE, null);
+				List<RouteSubregion> subregions = reader.searchRouteIndexTree(req, roots);
+				reader.loadRouteIndexData(subregions, new ResultMatcher<RouteDataObject>() {
+					@Override
+					public boolean publish(RouteDataObject object) {
+						stats.objects++;
+						stats.points += object.getPointsLength();
+						if (object.getNames() != null) {
+							for (String name : object.getNames().valueCollection()) {
+								addName(name);
+							}
+						}
+						return false;
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return false;
+					}
+				});
+				return stats.objects - objects;
+			}
+		};
+	}
+}
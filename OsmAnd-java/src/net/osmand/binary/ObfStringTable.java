@@ -0,0 +1,96 @@
+package net.osmand.binary;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.AbstractList;
+import java.util.List;
+
+import net.osmand.binary.OsmandOdb.StringTable;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+/**
+ * String table of a map or route data block kept as raw utf-8 bytes.
+ * Strings are decoded on first access and then remembered, so names of objects which are never
+ * shown (most of them during routing and rendering of low zooms) are never converted to String.
+ * Table is immutable after it is read and could be shared by objects of different threads.
+ */
+public class ObfStringTable extends AbstractList<String> {
+
+	private final byte[] data;
+	// offset and length of each string in data
+	private final int[] offsets;
+	private final int[] lengths;
+	private final String[] decoded;
+
+	private ObfStringTable(byte[] data, int[] offsets, int[] lengths) {
+		this.data = data;
+		this.offsets = offsets;
+		this.lengths = lengths;
+		this.decoded = new String[offsets.length];
+	}
+
+	/**
+	 * Reads StringTable message till the current limit of the stream
+	 */
+	public static ObfStringTable read(CodedInputStream codedIS) throws IOException {
+		byte[] data = codedIS.readRawBytes(codedIS.getBytesUntilLimit());
+		CodedInputStream is = CodedInputStream.newInstance(data);
+		TIntArrayList offsets = new TIntArrayList();
+		TIntArrayList lengths = new TIntArrayList();
+		while (true) {
+			int t = is.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				break;
+			} else if (tag == StringTable.S_FIELD_NUMBER) {
+				int length = is.readRawVarint32();
+				offsets.add(is.getTotalBytesRead());
+				lengths.add(length);
+				is.skipRawBytes(length);
+			} else {
+				is.skipField(t);
+			}
+		}
+		return new ObfStringTable(data, offsets.toArray(), lengths.toArray());
+	}
+
+	/**
+	 * @return string of the table or the same placeholder which is kept by objects till the table is read
+	 * (table is stored after objects in the block)
+	 */
+	public static String getString(List<String> table, int ind) {
+		if (table == null) {
+			return ((char) ind) + "";
+		}
+		return table.get(ind);
+	}
+
+	@Override
+	public String get(int index) {
+		String s = decoded[index];
+		if (s == null) {
+			try {
+				s = new String(data, offsets[index], lengths[index], "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+			// String is immutable, concurrent decoding of the same string is harmless
+			decoded[index] = s;
+		}
+		return s;
+	}
+
+	@Override
+	public int size() {
+		return offsets.length;
+	}
+
+	public int getRawSize() {
+		return data.length;
+	}
+
+}
@@ -1,5 +1,5 @@
 // Generated by the protocol buffer compiler.  DO NOT EDIT!
-// source: DataExtractionOSM/src/osmand_index.proto
+// source: protos/osmand_index.proto
 
 package net.osmand.binary;
 
@@ -2693,6 +2693,653 @@ public final class OsmandIndex {
     public boolean hasMaxzoom() { return hasMaxzoom; }
     public int getMaxzoom() { return maxzoom_; }
     
+    // repeated .MapTreeBox boxes = 10;
+    public static final int BOXES_FIELD_NUMBER = 10;
+    private java.util.List<net.osmand.binary.OsmandIndex.MapTreeBox> boxes_ =
+      java.util.Collections.emptyList();
+    public java.util.List<net.osmand.binary.OsmandIndex.MapTreeBox> getBoxesList() {
+      return boxes_;
+    }
+    public int getBoxesCount() { return boxes_.size(); }
+    public net.osmand.binary.OsmandIndex.MapTreeBox getBoxes(int index) {
+      return boxes_.get(index);
+    }
+    
+    private void initFields() {
+    }
+    @Override
+	public final boolean isInitialized() {
+      if (!hasSize) return false;
+      if (!hasOffset) return false;
+      if (!hasLeft) return false;
+      if (!hasRight) return false;
+      if (!hasTop) return false;
+      if (!hasBottom) return false;
+      for (net.osmand.binary.OsmandIndex.MapTreeBox element : getBoxesList()) {
+        if (!element.isInitialized()) return false;
+      }
+      return true;
+    }
+    
+    @Override
+	public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (hasSize()) {
+        output.writeInt64(1, getSize());
+      }
+      if (hasOffset()) {
+        output.writeInt64(2, getOffset());
+      }
+      if (hasLeft()) {
+        output.writeInt32(4, getLeft());
+      }
+      if (hasRight()) {
+        output.writeInt32(5, getRight());
+      }
+      if (hasTop()) {
+        output.writeInt32(6, getTop());
+      }
+      if (hasBottom()) {
+        output.writeInt32(7, getBottom());
+      }
+      if (hasMinzoom()) {
+        output.writeInt32(8, getMinzoom());
+      }
+      if (hasMaxzoom()) {
+        output.writeInt32(9, getMaxzoom());
+      }
+      for (net.osmand.binary.OsmandIndex.MapTreeBox element : getBoxesList()) {
+        output.writeMessage(10, element);
+      }
+    }
+    
+    private int memoizedSerializedSize = -1;
+    @Override
+	public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (hasSize()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(1, getSize());
+      }
+      if (hasOffset()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(2, getOffset());
+      }
+      if (hasLeft()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(4, getLeft());
+      }
+      if (hasRight()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(5, getRight());
+      }
+      if (hasTop()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(6, getTop());
+      }
+      if (hasBottom()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(7, getBottom());
+      }
+      if (hasMinzoom()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(8, getMinzoom());
+      }
+      if (hasMaxzoom()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(9, getMaxzoom());
+      }
+      for (net.osmand.binary.OsmandIndex.MapTreeBox element : getBoxesList()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(10, element);
+      }
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    @Override
+	public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(net.osmand.binary.OsmandIndex.MapLevel prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    @Override
+	public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageLite.Builder<
+          net.osmand.binary.OsmandIndex.MapLevel, Builder> {
+      private net.osmand.binary.OsmandIndex.MapLevel result;
+      
+      // Construct using net.osmand.binary.OsmandIndex.MapLevel.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new net.osmand.binary.OsmandIndex.MapLevel();
+        return builder;
+      }
+      
+      @Override
+	protected net.osmand.binary.OsmandIndex.MapLevel internalGetResult() {
+        return result;
+      }
+      
+      @Override
+	public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new net.osmand.binary.OsmandIndex.MapLevel();
+        return this;
+      }
+      
+      @Override
+	public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      @Override
+	public net.osmand.binary.OsmandIndex.MapLevel getDefaultInstanceForType() {
+        return net.osmand.binary.OsmandIndex.MapLevel.getDefaultInstance();
+      }
+      
+      @Override
+	public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      @Override
+	public net.osmand.binary.OsmandIndex.MapLevel build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private net.osmand.binary.OsmandIndex.MapLevel buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      @Override
+	public net.osmand.binary.OsmandIndex.MapLevel buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        if (result.boxes_ != java.util.Collections.EMPTY_LIST) {
+          result.boxes_ =
+            java.util.Collections.unmodifiableList(result.boxes_);
+        }
+        net.osmand.binary.OsmandIndex.MapLevel returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      @Override
+	public Builder mergeFrom(net.osmand.binary.OsmandIndex.MapLevel other) {
+        if (other == net.osmand.binary.OsmandIndex.MapLevel.getDefaultInstance()) return this;
+        if (other.hasSize()) {
+          setSize(other.getSize());
+        }
+        if (other.hasOffset()) {
+          setOffset(other.getOffset());
+        }
+        if (other.hasLeft()) {
+          setLeft(other.getLeft());
+        }
+        if (other.hasRight()) {
+          setRight(other.getRight());
+        }
+        if (other.hasTop()) {
+          setTop(other.getTop());
+        }
+        if (other.hasBottom()) {
+          setBottom(other.getBottom());
+        }
+        if (other.hasMinzoom()) {
+          setMinzoom(other.getMinzoom());
+        }
+        if (other.hasMaxzoom()) {
+          setMaxzoom(other.getMaxzoom());
+        }
+        if (!other.boxes_.isEmpty()) {
+          if (result.boxes_.isEmpty()) {
+            result.boxes_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.MapTreeBox>();
+          }
+          result.boxes_.addAll(other.boxes_);
+        }
+        return this;
+      }
+      
+      @Override
+	public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              return this;
+            default: {
+              if (!parseUnknownField(input, extensionRegistry, tag)) {
+                return this;
+              }
+              break;
+            }
+            case 8: {
+              setSize(input.readInt64());
+              break;
+            }
+            case 16: {
+              setOffset(input.readInt64());
+              break;
+            }
+            case 32: {
+              setLeft(input.readInt32());
+              break;
+            }
+            case 40: {
+              setRight(input.readInt32());
+              break;
+            }
+            case 48: {
+              setTop(input.readInt32());
+              break;
+            }
+            case 56: {
+              setBottom(input.readInt32());
+              break;
+            }
+            case 64: {
+              setMinzoom(input.readInt32());
+              break;
+            }
+            case 72: {
+              setMaxzoom(input.readInt32());
+              break;
+            }
+            case 82: {
+              net.osmand.binary.OsmandIndex.MapTreeBox.Builder subBuilder = net.osmand.binary.OsmandIndex.MapTreeBox.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addBoxes(subBuilder.buildPartial());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // required int64 size = 1;
+      public boolean hasSize() {
+        return result.hasSize();
+      }
+      public long getSize() {
+        return result.getSize();
+      }
+      public Builder setSize(long value) {
+        result.hasSize = true;
+        result.size_ = value;
+        return this;
+      }
+      public Builder clearSize() {
+        result.hasSize = false;
+        result.size_ = 0L;
+        return this;
+      }
+      
+      // required int64 offset = 2;
+      public boolean hasOffset() {
+        return result.hasOffset();
+      }
+      public long getOffset() {
+        return result.getOffset();
+      }
+      public Builder setOffset(long value) {
+        result.hasOffset = true;
+        result.offset_ = value;
+        return this;
+      }
+      public Builder clearOffset() {
+        result.hasOffset = false;
+        result.offset_ = 0L;
+        return this;
+      }
+      
+      // required int32 left = 4;
+      public boolean hasLeft() {
+        return result.hasLeft();
+      }
+      public int getLeft() {
+        return result.getLeft();
+      }
+      public Builder setLeft(int value) {
+        result.hasLeft = true;
+        result.left_ = value;
+        return this;
+      }
+      public Builder clearLeft() {
+        result.hasLeft = false;
+        result.left_ = 0;
+        return this;
+      }
+      
+      // required int32 right = 5;
+      public boolean hasRight() {
+        return result.hasRight();
+      }
+      public int getRight() {
+        return result.getRight();
+      }
+      public Builder setRight(int value) {
+        result.hasRight = true;
+        result.right_ = value;
+        return this;
+      }
+      public Builder clearRight() {
+        result.hasRight = false;
+        result.right_ = 0;
+        return this;
+      }
+      
+      // required int32 top = 6;
+      public boolean hasTop() {
+        return result.hasTop();
+      }
+      public int getTop() {
+        return result.getTop();
+      }
+      public Builder setTop(int value) {
+        result.hasTop = true;
+        result.top_ = value;
+        return this;
+      }
+      public Builder clearTop() {
+        result.hasTop = false;
+        result.top_ = 0;
+        return this;
+      }
+      
+      // required int32 bottom = 7;
+      public boolean hasBottom() {
+        return result.hasBottom();
+      }
+      public int getBottom() {
+        return result.getBottom();
+      }
+      public Builder setBottom(int value) {
+        result.hasBottom = true;
+        result.bottom_ = value;
+        return this;
+      }
+      public Builder clearBottom() {
+        result.hasBottom = false;
+        result.bottom_ = 0;
+        return this;
+      }
+      
+      // optional int32 minzoom = 8;
+      public boolean hasMinzoom() {
+        return result.hasMinzoom();
+      }
+      public int getMinzoom() {
+        return result.getMinzoom();
+      }
+      public Builder setMinzoom(int value) {
+        result.hasMinzoom = true;
+        result.minzoom_ = value;
+        return this;
+      }
+      public Builder clearMinzoom() {
+        result.hasMinzoom = false;
+        result.minzoom_ = 0;
+        return this;
+      }
+      
+      // optional int32 maxzoom = 9;
+      public boolean hasMaxzoom() {
+        return result.hasMaxzoom();
+      }
+      public int getMaxzoom() {
+        return result.getMaxzoom();
+      }
+      public Builder setMaxzoom(int value) {
+        result.hasMaxzoom = true;
+        result.maxzoom_ = value;
+        return this;
+      }
+      public Builder clearMaxzoom() {
+        result.hasMaxzoom = false;
+        result.maxzoom_ = 0;
+        return this;
+      }
+      
+      // repeated .MapTreeBox boxes = 10;
+      public java.util.List<net.osmand.binary.OsmandIndex.MapTreeBox> getBoxesList() {
+        return java.util.Collections.unmodifiableList(result.boxes_);
+      }
+      public int getBoxesCount() {
+        return result.getBoxesCount();
+      }
+      public net.osmand.binary.OsmandIndex.MapTreeBox getBoxes(int index) {
+        return result.getBoxes(index);
+      }
+      public Builder setBoxes(int index, net.osmand.binary.OsmandIndex.MapTreeBox value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        result.boxes_.set(index, value);
+        return this;
+      }
+      public Builder setBoxes(int index, net.osmand.binary.OsmandIndex.MapTreeBox.Builder builderForValue) {
+        result.boxes_.set(index, builderForValue.build());
+        return this;
+      }
+      public Builder addBoxes(net.osmand.binary.OsmandIndex.MapTreeBox value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        if (result.boxes_.isEmpty()) {
+          result.boxes_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.MapTreeBox>();
+        }
+        result.boxes_.add(value);
+        return this;
+      }
+      public Builder addBoxes(net.osmand.binary.OsmandIndex.MapTreeBox.Builder builderForValue) {
+        if (result.boxes_.isEmpty()) {
+          result.boxes_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.MapTreeBox>();
+        }
+        result.boxes_.add(builderForValue.build());
+        return this;
+      }
+      public Builder addAllBoxes(
+          java.lang.Iterable<? extends net.osmand.binary.OsmandIndex.MapTreeBox> values) {
+        if (result.boxes_.isEmpty()) {
+          result.boxes_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.MapTreeBox>();
+        }
+        super.addAll(values, result.boxes_);
+        return this;
+      }
+      public Builder clearBoxes() {
+        result.boxes_ = java.util.Collections.emptyList();
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:MapLevel)
+    }
+    
+    static {
+      defaultInstance = new MapLevel(true);
+      net.osmand.binary.OsmandIndex.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:MapLevel)
+  }
+  
+  public static final class MapTreeBox extends
+      com.google.protobuf.GeneratedMessageLite {
+    // Use MapTreeBox.newBuilder() to construct.
+    private MapTreeBox() {
+      initFields();
+    }
+    private MapTreeBox(boolean noInit) {}
+    
+    private static final MapTreeBox defaultInstance;
+    public static MapTreeBox getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    @Override
+	public MapTreeBox getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    // required int64 size = 1;
+    public static final int SIZE_FIELD_NUMBER = 1;
+    private boolean hasSize;
+    private long size_ = 0L;
+    public boolean hasSize() { return hasSize; }
+    public long getSize() { return size_; }
+    
+    // required int64 offset = 2;
+    public static final int OFFSET_FIELD_NUMBER = 2;
+    private boolean hasOffset;
+    private long offset_ = 0L;
+    public boolean hasOffset() { return hasOffset; }
+    public long getOffset() { return offset_; }
+    
+    // required int32 left = 4;
+    public static final int LEFT_FIELD_NUMBER = 4;
+    private boolean hasLeft;
+    private int left_ = 0;
+    public boolean hasLeft() { return hasLeft; }
+    public int getLeft() { return left_; }
+    
+    // required int32 right = 5;
+    public static final int RIGHT_FIELD_NUMBER = 5;
+    private boolean hasRight;
+    private int right_ = 0;
+    public boolean hasRight() { return hasRight; }
+    public int getRight() { return right_; }
+    
+    // required int32 top = 6;
+    public static final int TOP_FIELD_NUMBER = 6;
+    private boolean hasTop;
+    private int top_ = 0;
+    public boolean hasTop() { return hasTop; }
+    public int getTop() { return top_; }
+    
+    // required int32 bottom = 7;
+    public static final int BOTTOM_FIELD_NUMBER = 7;
+    private boolean hasBottom;
+    private int bottom_ = 0;
+    public boolean hasBottom() { return hasBottom; }
+    public int getBottom() { return bottom_; }
+    
+    // optional bool ocean = 8;
+    public static final int OCEAN_FIELD_NUMBER = 8;
+    private boolean hasOcean;
+    private boolean ocean_ = false;
+    public boolean hasOcean() { return hasOcean; }
+    public boolean getOcean() { return ocean_; }
+    
+    // optional int32 shiftToData = 9;
+    public static final int SHIFTTODATA_FIELD_NUMBER = 9;
+    private boolean hasShiftToData;
+    private int shiftToData_ = 0;
+    public boolean hasShiftToData() { return hasShiftToData; }
+    public int getShiftToData() { return shiftToData_; }
+    
+    // repeated .MapTreeBox boxes = 10;
+    public static final int BOXES_FIELD_NUMBER = 10;
+    private java.util.List<net.osmand.binary.OsmandIndex.MapTreeBox> boxes_ =
+      java.util.Collections.emptyList();
+    public java.util.List<net.osmand.binary.OsmandIndex.MapTreeBox> getBoxesList() {
+      return boxes_;
+    }
+    public int getBoxesCount() { return boxes_.size(); }
+    public net.osmand.binary.OsmandIndex.MapTreeBox getBoxes(int index) {
+      return boxes_.get(index);
+    }
+    
     private void initFields() {
     }
     @Override
@@ -2703,6 +3350,9 @@ public final class OsmandIndex {
       if (!hasRight) return false;
       if (!hasTop) return false;
       if (!hasBottom) return false;
+      for (net.osmand.binary.OsmandIndex.MapTreeBox element : getBoxesList()) {
+        if (!element.isInitialized()) return false;
+      }
       return true;
     }
     
@@ -2728,11 +3378,14 @@ public final class OsmandIndex {
       if (hasBottom()) {
         output.writeInt32(7, getBottom());
       }
-      if (hasMinzoom()) {
-        output.writeInt32(8, getMinzoom());
+      if (hasOcean()) {
+        output.writeBool(8, getOcean());
       }
-      if (hasMaxzoom()) {
-        output.writeInt32(9, getMaxzoom());
+      if (hasShiftToData()) {
+        output.writeInt32(9, getShiftToData());
+      }
+      for (net.osmand.binary.OsmandIndex.MapTreeBox element : getBoxesList()) {
+        output.writeMessage(10, element);
       }
     }
     
@@ -2767,53 +3420,57 @@ public final class OsmandIndex {
         size += com.google.protobuf.CodedOutputStream
           .computeInt32Size(7, getBottom());
       }
-      if (hasMinzoom()) {
+      if (hasOcean()) {
         size += com.google.protobuf.CodedOutputStream
-          .computeInt32Size(8, getMinzoom());
+          .computeBoolSize(8, getOcean());
       }
-      if (hasMaxzoom()) {
+      if (hasShiftToData()) {
         size += com.google.protobuf.CodedOutputStream
-          .computeInt32Size(9, getMaxzoom());
+          .computeInt32Size(9, getShiftToData());
+      }
+      for (net.osmand.binary.OsmandIndex.MapTreeBox element : getBoxesList()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(10, element);
       }
       memoizedSerializedSize = size;
       return size;
     }
     
-    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data).buildParsed();
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data, extensionRegistry)
                .buildParsed();
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(byte[] data)
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data).buildParsed();
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return newBuilder().mergeFrom(data, extensionRegistry)
                .buildParsed();
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(java.io.InputStream input)
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input).buildParsed();
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input, extensionRegistry)
                .buildParsed();
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseDelimitedFrom(java.io.InputStream input)
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       Builder builder = newBuilder();
       if (builder.mergeDelimitedFrom(input)) {
@@ -2822,7 +3479,7 @@ public final class OsmandIndex {
         return null;
       }
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseDelimitedFrom(
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -2833,12 +3490,12 @@ public final class OsmandIndex {
         return null;
       }
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseFrom(
         com.google.protobuf.CodedInputStream input)
         throws java.io.IOException {
       return newBuilder().mergeFrom(input).buildParsed();
     }
-    public static net.osmand.binary.OsmandIndex.MapLevel parseFrom(
+    public static net.osmand.binary.OsmandIndex.MapTreeBox parseFrom(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -2849,7 +3506,7 @@ public final class OsmandIndex {
     public static Builder newBuilder() { return Builder.create(); }
     @Override
 	public Builder newBuilderForType() { return newBuilder(); }
-    public static Builder newBuilder(net.osmand.binary.OsmandIndex.MapLevel prototype) {
+    public static Builder newBuilder(net.osmand.binary.OsmandIndex.MapTreeBox prototype) {
       return newBuilder().mergeFrom(prototype);
     }
     @Override
@@ -2857,20 +3514,20 @@ public final class OsmandIndex {
     
     public static final class Builder extends
         com.google.protobuf.GeneratedMessageLite.Builder<
-          net.osmand.binary.OsmandIndex.MapLevel, Builder> {
-      private net.osmand.binary.OsmandIndex.MapLevel result;
+          net.osmand.binary.OsmandIndex.MapTreeBox, Builder> {
+      private net.osmand.binary.OsmandIndex.MapTreeBox result;
       
-      // Construct using net.osmand.binary.OsmandIndex.MapLevel.newBuilder()
+      // Construct using net.osmand.binary.OsmandIndex.MapTreeBox.newBuilder()
       private Builder() {}
       
       private static Builder create() {
         Builder builder = new Builder();
-        builder.result = new net.osmand.binary.OsmandIndex.MapLevel();
+        builder.result = new net.osmand.binary.OsmandIndex.MapTreeBox();
         return builder;
       }
       
       @Override
-	protected net.osmand.binary.OsmandIndex.MapLevel internalGetResult() {
+	protected net.osmand.binary.OsmandIndex.MapTreeBox internalGetResult() {
         return result;
       }
       
@@ -2880,7 +3537,7 @@ public final class OsmandIndex {
           throw new IllegalStateException(
             "Cannot call clear() after build().");
         }
-        result = new net.osmand.binary.OsmandIndex.MapLevel();
+        result = new net.osmand.binary.OsmandIndex.MapTreeBox();
         return this;
       }
       
@@ -2890,8 +3547,8 @@ public final class OsmandIndex {
       }
       
       @Override
-	public net.osmand.binary.OsmandIndex.MapLevel getDefaultInstanceForType() {
-        return net.osmand.binary.OsmandIndex.MapLevel.getDefaultInstance();
+	public net.osmand.binary.OsmandIndex.MapTreeBox getDefaultInstanceForType() {
+        return net.osmand.binary.OsmandIndex.MapTreeBox.getDefaultInstance();
       }
       
       @Override
@@ -2899,14 +3556,14 @@ public final class OsmandIndex {
         return result.isInitialized();
       }
       @Override
-	public net.osmand.binary.OsmandIndex.MapLevel build() {
+	public net.osmand.binary.OsmandIndex.MapTreeBox build() {
         if (result != null && !isInitialized()) {
           throw newUninitializedMessageException(result);
         }
         return buildPartial();
       }
       
-      private net.osmand.binary.OsmandIndex.MapLevel buildParsed()
+      private net.osmand.binary.OsmandIndex.MapTreeBox buildParsed()
           throws com.google.protobuf.InvalidProtocolBufferException {
         if (!isInitialized()) {
           throw newUninitializedMessageException(
@@ -2916,19 +3573,23 @@ public final class OsmandIndex {
       }
       
       @Override
-	public net.osmand.binary.OsmandIndex.MapLevel buildPartial() {
+	public net.osmand.binary.OsmandIndex.MapTreeBox buildPartial() {
         if (result == null) {
           throw new IllegalStateException(
             "build() has already been called on this Builder.");
         }
-        net.osmand.binary.OsmandIndex.MapLevel returnMe = result;
+        if (result.boxes_ != java.util.Collections.EMPTY_LIST) {
+          result.boxes_ =
+            java.util.Collections.unmodifiableList(result.boxes_);
+        }
+        net.osmand.binary.OsmandIndex.MapTreeBox returnMe = result;
         result = null;
         return returnMe;
       }
       
       @Override
-	public Builder mergeFrom(net.osmand.binary.OsmandIndex.MapLevel other) {
-        if (other == net.osmand.binary.OsmandIndex.MapLevel.getDefaultInstance()) return this;
+	public Builder mergeFrom(net.osmand.binary.OsmandIndex.MapTreeBox other) {
+        if (other == net.osmand.binary.OsmandIndex.MapTreeBox.getDefaultInstance()) return this;
         if (other.hasSize()) {
           setSize(other.getSize());
         }
@@ -2947,11 +3608,17 @@ public final class OsmandIndex {
         if (other.hasBottom()) {
           setBottom(other.getBottom());
         }
-        if (other.hasMinzoom()) {
-          setMinzoom(other.getMinzoom());
+        if (other.hasOcean()) {
+          setOcean(other.getOcean());
         }
-        if (other.hasMaxzoom()) {
-          setMaxzoom(other.getMaxzoom());
+        if (other.hasShiftToData()) {
+          setShiftToData(other.getShiftToData());
+        }
+        if (!other.boxes_.isEmpty()) {
+          if (result.boxes_.isEmpty()) {
+            result.boxes_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.MapTreeBox>();
+          }
+          result.boxes_.addAll(other.boxes_);
         }
         return this;
       }
@@ -2997,11 +3664,17 @@ public final class OsmandIndex {
               break;
             }
             case 64: {
-              setMinzoom(input.readInt32());
+              setOcean(input.readBool());
               break;
             }
             case 72: {
-              setMaxzoom(input.readInt32());
+              setShiftToData(input.readInt32());
+              break;
+            }
+            case 82: {
+              net.osmand.binary.OsmandIndex.MapTreeBox.Builder subBuilder = net.osmand.binary.OsmandIndex.MapTreeBox.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addBoxes(subBuilder.buildPartial());
               break;
             }
           }
@@ -3117,52 +3790,103 @@ public final class OsmandIndex {
         return this;
       }
       
-      // optional int32 minzoom = 8;
-      public boolean hasMinzoom() {
-        return result.hasMinzoom();
+      // optional bool ocean = 8;
+      public boolean hasOcean() {
+        return result.hasOcean();
       }
-      public int getMinzoom() {
-        return result.getMinzoom();
+      public boolean getOcean() {
+        return result.getOcean();
       }
-      public Builder setMinzoom(int value) {
-        result.hasMinzoom = true;
-        result.minzoom_ = value;
+      public Builder setOcean(boolean value) {
+        result.hasOcean = true;
+        result.ocean_ = value;
         return this;
       }
-      public Builder clearMinzoom() {
-        result.hasMinzoom = false;
-        result.minzoom_ = 0;
+      public Builder clearOcean() {
+        result.hasOcean = false;
+        result.ocean_ = false;
         return this;
       }
       
-      // optional int32 maxzoom = 9;
-      public boolean hasMaxzoom() {
-        return result.hasMaxzoom();
+      // optional int32 shiftToData = 9;
+      public boolean hasShiftToData() {
+        return result.hasShiftToData();
       }
-      public int getMaxzoom() {
-        return result.getMaxzoom();
+      public int getShiftToData() {
+        return result.getShiftToData();
       }
-      public Builder setMaxzoom(int value) {
-        result.hasMaxzoom = true;
-        result.maxzoom_ = value;
+      public Builder setShiftToData(int value) {
+        result.hasShiftToData = true;
+        result.shiftToData_ = value;
         return this;
       }
-      public Builder clearMaxzoom() {
-        result.hasMaxzoom = false;
-        result.maxzoom_ = 0;
+      public Builder clearShiftToData() {
+        result.hasShiftToData = false;
+        result.shiftToData_ = 0;
         return this;
       }
       
-      // @@protoc_insertion_point(builder_scope:MapLevel)
+      // repeated .MapTreeBox boxes = 10;
+      public java.util.List<net.osmand.binary.OsmandIndex.MapTreeBox> getBoxesList() {
+        return java.util.Collections.unmodifiableList(result.boxes_);
+      }
+      public int getBoxesCount() {
+        return result.getBoxesCount();
+      }
+      public net.osmand.binary.OsmandIndex.MapTreeBox getBoxes(int index) {
+        return result.getBoxes(index);
+      }
+      public Builder setBoxes(int index, net.osmand.binary.OsmandIndex.MapTreeBox value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        result.boxes_.set(index, value);
+        return this;
+      }
+      public Builder setBoxes(int index, net.osmand.binary.OsmandIndex.MapTreeBox.Builder builderForValue) {
+        result.boxes_.set(index, builderForValue.build());
+        return this;
+      }
+      public Builder addBoxes(net.osmand.binary.OsmandIndex.MapTreeBox value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        if (result.boxes_.isEmpty()) {
+          result.boxes_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.MapTreeBox>();
+        }
+        result.boxes_.add(value);
+        return this;
+      }
+      public Builder addBoxes(net.osmand.binary.OsmandIndex.MapTreeBox.Builder builderForValue) {
+        if (result.boxes_.isEmpty()) {
+          result.boxes_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.MapTreeBox>();
+        }
+        result.boxes_.add(builderForValue.build());
+        return this;
+      }
+      public Builder addAllBoxes(
+          java.lang.Iterable<? extends net.osmand.binary.OsmandIndex.MapTreeBox> values) {
+        if (result.boxes_.isEmpty()) {
+          result.boxes_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.MapTreeBox>();
+        }
+        super.addAll(values, result.boxes_);
+        return this;
+      }
+      public Builder clearBoxes() {
+        result.boxes_ = java.util.Collections.emptyList();
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:MapTreeBox)
     }
     
     static {
-      defaultInstance = new MapLevel(true);
+      defaultInstance = new MapTreeBox(true);
       net.osmand.binary.OsmandIndex.internalForceInit();
       defaultInstance.initFields();
     }
     
-    // @@protoc_insertion_point(class_scope:MapLevel)
+    // @@protoc_insertion_point(class_scope:MapTreeBox)
   }
   
   public static final class MapPart extends
@@ -3678,6 +4402,18 @@ public final class OsmandIndex {
     public boolean hasShifToData() { return hasShifToData; }
     public int getShifToData() { return shifToData_; }
     
+    // repeated .RoutingSubregion subregions = 9;
+    public static final int SUBREGIONS_FIELD_NUMBER = 9;
+    private java.util.List<net.osmand.binary.OsmandIndex.RoutingSubregion> subregions_ =
+      java.util.Collections.emptyList();
+    public java.util.List<net.osmand.binary.OsmandIndex.RoutingSubregion> getSubregionsList() {
+      return subregions_;
+    }
+    public int getSubregionsCount() { return subregions_.size(); }
+    public net.osmand.binary.OsmandIndex.RoutingSubregion getSubregions(int index) {
+      return subregions_.get(index);
+    }
+    
     private void initFields() {
     }
     @Override
@@ -3689,6 +4425,9 @@ public final class OsmandIndex {
       if (!hasTop) return false;
       if (!hasBottom) return false;
       if (!hasShifToData) return false;
+      for (net.osmand.binary.OsmandIndex.RoutingSubregion element : getSubregionsList()) {
+        if (!element.isInitialized()) return false;
+      }
       return true;
     }
     
@@ -3720,6 +4459,9 @@ public final class OsmandIndex {
       if (hasShifToData()) {
         output.writeUInt32(8, getShifToData());
       }
+      for (net.osmand.binary.OsmandIndex.RoutingSubregion element : getSubregionsList()) {
+        output.writeMessage(9, element);
+      }
     }
     
     private int memoizedSerializedSize = -1;
@@ -3761,6 +4503,10 @@ public final class OsmandIndex {
         size += com.google.protobuf.CodedOutputStream
           .computeUInt32Size(8, getShifToData());
       }
+      for (net.osmand.binary.OsmandIndex.RoutingSubregion element : getSubregionsList()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(9, element);
+      }
       memoizedSerializedSize = size;
       return size;
     }
@@ -3907,6 +4653,10 @@ public final class OsmandIndex {
           throw new IllegalStateException(
             "build() has already been called on this Builder.");
         }
+        if (result.subregions_ != java.util.Collections.EMPTY_LIST) {
+          result.subregions_ =
+            java.util.Collections.unmodifiableList(result.subregions_);
+        }
         net.osmand.binary.OsmandIndex.RoutingSubregion returnMe = result;
         result = null;
         return returnMe;
@@ -3939,6 +4689,12 @@ public final class OsmandIndex {
         if (other.hasShifToData()) {
           setShifToData(other.getShifToData());
         }
+        if (!other.subregions_.isEmpty()) {
+          if (result.subregions_.isEmpty()) {
+            result.subregions_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.RoutingSubregion>();
+          }
+          result.subregions_.addAll(other.subregions_);
+        }
         return this;
       }
       
@@ -3990,6 +4746,12 @@ public final class OsmandIndex {
               setShifToData(input.readUInt32());
               break;
             }
+            case 74: {
+              net.osmand.binary.OsmandIndex.RoutingSubregion.Builder subBuilder = net.osmand.binary.OsmandIndex.RoutingSubregion.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addSubregions(subBuilder.buildPartial());
+              break;
+            }
           }
         }
       }
@@ -4139,6 +4901,57 @@ public final class OsmandIndex {
         return this;
       }
       
+      // repeated .RoutingSubregion subregions = 9;
+      public java.util.List<net.osmand.binary.OsmandIndex.RoutingSubregion> getSubregionsList() {
+        return java.util.Collections.unmodifiableList(result.subregions_);
+      }
+      public int getSubregionsCount() {
+        return result.getSubregionsCount();
+      }
+      public net.osmand.binary.OsmandIndex.RoutingSubregion getSubregions(int index) {
+        return result.getSubregions(index);
+      }
+      public Builder setSubregions(int index, net.osmand.binary.OsmandIndex.RoutingSubregion value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        result.subregions_.set(index, value);
+        return this;
+      }
+      public Builder setSubregions(int index, net.osmand.binary.OsmandIndex.RoutingSubregion.Builder builderForValue) {
+        result.subregions_.set(index, builderForValue.build());
+        return this;
+      }
+      public Builder addSubregions(net.osmand.binary.OsmandIndex.RoutingSubregion value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        if (result.subregions_.isEmpty()) {
+          result.subregions_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.RoutingSubregion>();
+        }
+        result.subregions_.add(value);
+        return this;
+      }
+      public Builder addSubregions(net.osmand.binary.OsmandIndex.RoutingSubregion.Builder builderForValue) {
+        if (result.subregions_.isEmpty()) {
+          result.subregions_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.RoutingSubregion>();
+        }
+        result.subregions_.add(builderForValue.build());
+        return this;
+      }
+      public Builder addAllSubregions(
+          java.lang.Iterable<? extends net.osmand.binary.OsmandIndex.RoutingSubregion> values) {
+        if (result.subregions_.isEmpty()) {
+          result.subregions_ = new java.util.ArrayList<net.osmand.binary.OsmandIndex.RoutingSubregion>();
+        }
+        super.addAll(values, result.subregions_);
+        return this;
+      }
+      public Builder clearSubregions() {
+        result.subregions_ = java.util.Collections.emptyList();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:RoutingSubregion)
     }
     
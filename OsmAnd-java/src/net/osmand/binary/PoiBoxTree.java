@@ -0,0 +1,218 @@
+package net.osmand.binary;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.data.AmenityType;
+
+/**
+ * Boxes of a poi region kept in memory with the categories of their subtrees.
+ *
+ * Search with a category filter evaluates the filter once for every category of the region and then skips whole subtrees
+ * which categories don't intersect the accepted ones, without reading the boxes from the file and without calling the filter
+ * for the categories of every box. Categories of a subtree are the categories stored in the box or the union of the categories
+ * of its children, when the box has neither categories nor own data.
+ *
+ * Tree is immutable and could be used by several threads.
+ */
+class PoiBoxTree {
+
+	private static final int CATEGORY_MASK = (1 << BinaryMapPoiReaderAdapter.SHIFT_BITS_CATEGORY) - 1;
+
+	// boxes in file order (parent before its children), children of box i are boxes i + 1 ... subtreeEnd[i] - 1
+	private final int[] x;
+	private final int[] y;
+	private final int[] zoom;
+	private final int[] subtreeEnd;
+	// offset of the poi data relative to the region start or -1
+	private final int[] dataOffset;
+	// categories of the subtree or null if they are unknown (subtree could have any poi)
+	private final BitSet[] categories;
+	// box has categories in the file
+	private final boolean[] ownCategories;
+	// first bit of the subcategories of each category, the last bit of the category is for unknown subcategory
+	private final int[] categoryStart;
+
+	private PoiBoxTree(Builder b) {
+		x = b.x.toArray();
+		y = b.y.toArray();
+		zoom = b.zoom.toArray();
+		subtreeEnd = b.subtreeEnd.toArray();
+		dataOffset = b.dataOffset.toArray();
+		categories = b.categories.toArray(new BitSet[b.categories.size()]);
+		ownCategories = new boolean[b.ownCategories.size()];
+		for (int i = 0; i < ownCategories.length; i++) {
+			ownCategories[i] = b.ownCategories.get(i);
+		}
+		categoryStart = b.categoryStart;
+	}
+
+	/**
+	 * @return bit of the category value stored in the file (category id and subcategory id)
+	 */
+	private static int getCategoryBit(int[] categoryStart, int value) {
+		int catId = value & CATEGORY_MASK;
+		int subcatId = value >> BinaryMapPoiReaderAdapter.SHIFT_BITS_CATEGORY;
+		if (catId >= categoryStart.length - 1) {
+			// unknown category is read as other
+			return categoryStart[categoryStart.length - 1];
+		}
+		int unknownSubcategory = categoryStart[catId + 1] - 1;
+		return Math.min(categoryStart[catId] + subcatId, unknownSubcategory);
+	}
+
+	/**
+	 * @return categories accepted by the filter (filter is called once for each category of the region)
+	 */
+	BitSet getAcceptedCategories(SearchPoiTypeFilter filter, PoiRegion region) {
+		BitSet accepted = new BitSet();
+		for (int catId = 0; catId < region.categoriesType.size(); catId++) {
+			AmenityType type = region.categoriesType.get(catId);
+			List<String> subcats = region.subcategories.get(catId);
+			for (int j = 0; j < subcats.size(); j++) {
+				if (filter.accept(type, subcats.get(j))) {
+					accepted.set(categoryStart[catId] + j);
+				}
+			}
+			if (filter.accept(type, "")) {
+				accepted.set(categoryStart[catId + 1] - 1);
+			}
+		}
+		if (filter.accept(AmenityType.OTHER, "")) {
+			accepted.set(categoryStart[categoryStart.length - 1]);
+		}
+		return accepted;
+	}
+
+	int size() {
+		return x.length;
+	}
+
+	int getX(int box) {
+		return x[box];
+	}
+
+	int getY(int box) {
+		return y[box];
+	}
+
+	int getZoom(int box) {
+		return zoom[box];
+	}
+
+	int getSubtreeEnd(int box) {
+		return subtreeEnd[box];
+	}
+
+	boolean hasChildren(int box) {
+		return subtreeEnd[box] > box + 1;
+	}
+
+	int getDataOffset(int box) {
+		return dataOffset[box];
+	}
+
+	boolean hasOwnCategories(int box) {
+		return ownCategories[box];
+	}
+
+	/**
+	 * @param accepted categories accepted by the filter
+	 * @return false if the subtree has no pois with accepted categories
+	 */
+	boolean intersects(int box, BitSet accepted) {
+		return categories[box] == null || categories[box].intersects(accepted);
+	}
+
+	static class Builder {
+		private final TIntArrayList x = new TIntArrayList();
+		private final TIntArrayList y = new TIntArrayList();
+		private final TIntArrayList zoom = new TIntArrayList();
+		private final TIntArrayList subtreeEnd = new TIntArrayList();
+		private final TIntArrayList dataOffset = new TIntArrayList();
+		private final List<BitSet> categories = new ArrayList<BitSet>();
+		private final List<Boolean> ownCategories = new ArrayList<Boolean>();
+		private final int[] categoryStart;
+		// the same category sets of different boxes are kept once
+		private final Map<BitSet, BitSet> sets = new HashMap<BitSet, BitSet>();
+
+		Builder(PoiRegion region) {
+			categoryStart = new int[region.subcategories.size() + 1];
+			int bit = 0;
+			for (int i = 0; i < region.subcategories.size(); i++) {
+				categoryStart[i] = bit;
+				bit += region.subcategories.get(i).size() + 1;
+			}
+			categoryStart[region.subcategories.size()] = bit;
+		}
+
+		/**
+		 * Starts the box, its children are added before {@link #endBox(int)}
+		 * @param categoryValues categories stored in the box or null if the box doesn't have them
+		 * @return index of the box
+		 */
+		int startBox(int bx, int by, int bzoom, TIntArrayList categoryValues) {
+			int box = x.size();
+			x.add(bx);
+			y.add(by);
+			zoom.add(bzoom);
+			subtreeEnd.add(-1);
+			dataOffset.add(-1);
+			BitSet set = null;
+			if (categoryValues != null) {
+				set = new BitSet();
+				for (int i = 0; i < categoryValues.size(); i++) {
+					set.set(getCategoryBit(categoryStart, categoryValues.get(i)));
+				}
+			}
+			categories.add(set);
+			ownCategories.add(categoryValues != null);
+			return box;
+		}
+
+		void setDataOffset(int box, int offset) {
+			dataOffset.set(box, offset);
+		}
+
+		void endBox(int box) {
+			int end = x.size();
+			subtreeEnd.set(box, end);
+			// box with own data and without own categories stays unknown (children don't describe its data)
+			if (!ownCategories.get(box) && dataOffset.get(box) == -1) {
+				// union of the children, unknown if the box is a leaf or any child is unknown
+				BitSet union = null;
+				if (end > box + 1) {
+					union = new BitSet();
+					for (int child = box + 1; child < end; child = subtreeEnd.get(child)) {
+						if (categories.get(child) == null) {
+							union = null;
+							break;
+						}
+						union.or(categories.get(child));
+					}
+				}
+				categories.set(box, union);
+			}
+			BitSet set = categories.get(box);
+			if (set != null) {
+				BitSet existing = sets.get(set);
+				if (existing == null) {
+					sets.put(set, set);
+				} else {
+					categories.set(box, existing);
+				}
+			}
+		}
+
+		PoiBoxTree build() {
+			return new PoiBoxTree(this);
+		}
+	}
+}
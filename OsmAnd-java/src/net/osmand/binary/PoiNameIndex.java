@@ -0,0 +1,188 @@
+package net.osmand.binary;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.osmand.NameKeyIndex;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+/**
+ * In-memory index of poi names of one poi region.
+ *
+ * Every word of the poi names is folded by {@link NameKeyIndex#getWordKeys(String)} and kept in a sorted array together
+ * with the file pointers of all pois having it. Words starting with a query are one range of the array, so the search by
+ * name doesn't read the name index from disk and reads only the pois which could match the query.
+ * Index is a candidate filter: the pois are still read and checked by the collator matcher, so the results are the same
+ * as of the search on disk.
+ *
+ * Index is immutable after it is built and could be used by several threads.
+ */
+public class PoiNameIndex {
+
+	// poi data blocks: file pointer (position of the block length) and tile
+	private final int[] blockPointers;
+	private final int[] blockX;
+	private final int[] blockY;
+	private final int[] blockZoom;
+	// pois in file order: file pointer (position of the poi length) and index of its block
+	private final int[] poiPointers;
+	private final int[] poiBlocks;
+	// sorted distinct words, pois of the word i are postings[wordStart[i]] ... postings[wordStart[i + 1] - 1]
+	private final String[] words;
+	private final int[] wordStart;
+	private final int[] postings;
+
+	private PoiNameIndex(Builder b) {
+		blockPointers = b.blockPointers.toArray();
+		blockX = b.blockX.toArray();
+		blockY = b.blockY.toArray();
+		blockZoom = b.blockZoom.toArray();
+		poiPointers = b.poiPointers.toArray();
+		poiBlocks = b.poiBlocks.toArray();
+		words = b.words.keySet().toArray(new String[b.words.size()]);
+		Arrays.sort(words);
+		wordStart = new int[words.length + 1];
+		TIntArrayList all = new TIntArrayList();
+		for (int i = 0; i < words.length; i++) {
+			wordStart[i] = all.size();
+			all.addAll(b.words.get(words[i]));
+		}
+		wordStart[words.length] = all.size();
+		postings = all.toArray();
+	}
+
+	/**
+	 * @return pois (in file order) having a word starting with the folded prefix (see {@link NameKeyIndex#getQueryPrefix(String)})
+	 * which data block tile is inside of the request area
+	 */
+	public TIntArrayList findPois(String prefix, SearchRequest<?> req) {
+		int i = Arrays.binarySearch(words, prefix);
+		if (i < 0) {
+			i = -i - 1;
+		}
+		TIntArrayList pois = new TIntArrayList();
+		for (; i < words.length && words[i].startsWith(prefix); i++) {
+			for (int k = wordStart[i]; k < wordStart[i + 1]; k++) {
+				int block = poiBlocks[postings[k]];
+				int x31 = blockX[block] << (31 - blockZoom[block]);
+				int y31 = blockY[block] << (31 - blockZoom[block]);
+				if (req.contains(x31, y31, x31, y31)) {
+					pois.add(postings[k]);
+				}
+			}
+		}
+		// poi with several matching words is found several times
+		pois.sort();
+		int size = 0;
+		for (int k = 0; k < pois.size(); k++) {
+			if (size == 0 || pois.get(size - 1) != pois.get(k)) {
+				pois.set(size++, pois.get(k));
+			}
+		}
+		if (size < pois.size()) {
+			pois.remove(size, pois.size() - size);
+		}
+		return pois;
+	}
+
+	public int getPoiPointer(int poi) {
+		return poiPointers[poi];
+	}
+
+	public int getBlock(int poi) {
+		return poiBlocks[poi];
+	}
+
+	public int getBlockPointer(int block) {
+		return blockPointers[block];
+	}
+
+	public int getBlockX(int block) {
+		return blockX[block];
+	}
+
+	public int getBlockY(int block) {
+		return blockY[block];
+	}
+
+	public int getBlockZoom(int block) {
+		return blockZoom[block];
+	}
+
+	public int getPoisCount() {
+		return poiPointers.length;
+	}
+
+	public int getWordsCount() {
+		return words.length;
+	}
+
+	/**
+	 * @return rough estimation of the memory used by the index in bytes
+	 */
+	public long getEstimatedSize() {
+		long size = 4 * (blockPointers.length * 4 + poiPointers.length * 2 + wordStart.length + postings.length);
+		for (String w : words) {
+			// header, array and reference
+			size += 48 + 2 * w.length();
+		}
+		return size;
+	}
+
+	public static class Builder {
+		private final TIntArrayList blockPointers = new TIntArrayList();
+		private final TIntArrayList blockX = new TIntArrayList();
+		private final TIntArrayList blockY = new TIntArrayList();
+		private final TIntArrayList blockZoom = new TIntArrayList();
+		private final TIntArrayList poiPointers = new TIntArrayList();
+		private final TIntArrayList poiBlocks = new TIntArrayList();
+		private final Map<String, TIntArrayList> words = new HashMap<String, TIntArrayList>();
+
+		/**
+		 * @return index of the block, blocks should be added in file order
+		 */
+		public int addBlock(int pointer, int x, int y, int zoom) {
+			blockPointers.add(pointer);
+			blockX.add(x);
+			blockY.add(y);
+			blockZoom.add(zoom);
+			return blockPointers.size() - 1;
+		}
+
+		/**
+		 * Adds poi of the last added block, pois should be added in file order
+		 */
+		public void addPoi(int pointer, String... names) {
+			int poi = poiPointers.size();
+			poiPointers.add(pointer);
+			poiBlocks.add(blockPointers.size() - 1);
+			for (String name : names) {
+				if (name == null) {
+					continue;
+				}
+				for (String word : NameKeyIndex.getWordKeys(name)) {
+					addWord(word, poi);
+				}
+			}
+		}
+
+		private void addWord(String word, int poi) {
+			TIntArrayList list = words.get(word);
+			if (list == null) {
+				list = new TIntArrayList(2);
+				words.put(word, list);
+			}
+			// the same word in name and english name
+			if (list.isEmpty() || list.get(list.size() - 1) != poi) {
+				list.add(poi);
+			}
+		}
+
+		public PoiNameIndex build() {
+			return new PoiNameIndex(this);
+		}
+	}
+}
@@ -4,6 +4,7 @@ package net.osmand.binary;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.text.MessageFormat;
+import java.util.List;
 
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
@@ -21,7 +22,11 @@ public class RouteDataObject {
 	public long[] restrictions;
 	public int[][] pointTypes;
 	public long id;
+	// decoded lazily from encoded names, use getNames()
 	public TIntObjectHashMap<String> names;
+	// names not decoded yet: pairs of name type and index in the string table of the block
+	private volatile int[] encodedNames;
+	private List<String> stringTable;
 	public final static float NONE_MAX_SPEED = 40f;
 	
 	public RouteDataObject(RouteRegion region) {
@@ -43,7 +48,13 @@ public class RouteDataObject {
 		this.pointsX = copy.pointsX;
 		this.pointsY = copy.pointsY;
 		this.types = copy.types;
-		this.names = copy.names;
+		int[] en = copy.encodedNames;
+		if (en != null) {
+			this.stringTable = copy.stringTable;
+			this.encodedNames = en;
+		} else {
+			this.names = copy.names;
+		}
 		this.restrictions = copy.restrictions;
 		this.pointTypes = copy.pointTypes;
 		this.id = copy.id;
@@ -53,25 +64,66 @@ public class RouteDataObject {
 		return id;
 	}
 	
-	public String getName(){
-		if(names != null ) {
-			return names.get(region.nameTypeRule);
+	/**
+	 * String table is written before the names, so it is visible to any thread which reads the names
+	 */
+	void setEncodedNames(int[] encodedNames, List<String> stringTable) {
+		this.stringTable = stringTable;
+		this.encodedNames = encodedNames;
+	}
+	
+	public int getEncodedNamesLength() {
+		int[] en = encodedNames;
+		return en == null ? 0 : en.length;
+	}
+	
+	private synchronized void decodeNames() {
+		int[] en = encodedNames;
+		if (en == null) {
+			return;
 		}
-		return null;
+		TIntObjectHashMap<String> nms = new TIntObjectHashMap<String>();
+		for (int i = 0; i < en.length; i += 2) {
+			nms.put(en[i], ObfStringTable.getString(stringTable, en[i + 1]));
+		}
+		names = nms;
+		encodedNames = null;
 	}
 	
-	public String getRef(){
+	public TIntObjectHashMap<String> getNames() {
+		if (encodedNames != null) {
+			decodeNames();
+		}
+		return names;
+	}
+	
+	public String getNameByType(int type) {
+		int[] en = encodedNames;
+		if (en != null) {
+			// decode only the requested name
+			for (int i = 0; i < en.length; i += 2) {
+				if (en[i] == type) {
+					return ObfStringTable.getString(stringTable, en[i + 1]);
+				}
+			}
+			return null;
+		}
 		if(names != null ) {
-			return names.get(region.refTypeRule);
+			return names.get(type);
 		}
 		return null;
 	}
+	
+	public String getName(){
+		return getNameByType(region.nameTypeRule);
+	}
+	
+	public String getRef(){
+		return getNameByType(region.refTypeRule);
+	}
 
 	public String getDestinationName(){
-		if(names != null ) {
-			return names.get(region.destinationTypeRule);
-		}
-		return null;
+		return getNameByType(region.destinationTypeRule);
 	}
 	
 	public int getPoint31XTile(int i) {
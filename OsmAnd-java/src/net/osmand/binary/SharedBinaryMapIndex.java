@@ -0,0 +1,105 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.osmand.PlatformUtil;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Opened obf file that could be searched from several threads at once.
+ * The index tree is parsed only once (by the reference reader) and every thread gets
+ * its own cheap {@link BinaryMapIndexReader} with a separate input cursor over the same parsed structures.
+ * When the file is memory mapped all thread readers share one mapping, otherwise each one opens its own file handle.
+ *
+ * Readers returned by {@link #getReader()} belong to this object and should not be closed directly,
+ * use {@link #close()} instead.
+ */
+public class SharedBinaryMapIndex {
+	private final static Log log = PlatformUtil.getLog(SharedBinaryMapIndex.class);
+
+	private final File file;
+	private final BinaryMapIndexReader reference;
+	private final List<BinaryMapIndexReader> threadReaders = new ArrayList<BinaryMapIndexReader>();
+	private final ThreadLocal<BinaryMapIndexReader> readers = new ThreadLocal<BinaryMapIndexReader>();
+	private volatile boolean closed = false;
+
+	public SharedBinaryMapIndex(File file, boolean memoryMapped) throws IOException {
+		this(file, new BinaryMapIndexReader(new RandomAccessFile(file.getPath(), "r"), memoryMapped));
+	}
+
+	/**
+	 * @param reference already opened reader (for example from {@link CachedOsmandIndexes}), it is owned by this object after the call
+	 */
+	public SharedBinaryMapIndex(File file, BinaryMapIndexReader reference) throws IOException {
+		this.file = file;
+		this.reference = reference;
+		// after that point parsed structures are only read
+		reference.initializeLazyParts();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Parsed index, could be used to check contained data (containsMapData, getIndexes, ...) but not to search.
+	 */
+	public BinaryMapIndexReader getIndex() {
+		return reference;
+	}
+
+	/**
+	 * @return reader owned by the current thread
+	 * @throws IOException if the index is closed (readers created before are closed too)
+	 */
+	public BinaryMapIndexReader getReader() throws IOException {
+		if (closed) {
+			throw new IOException("File is already closed " + file.getName());
+		}
+		BinaryMapIndexReader reader = readers.get();
+		if (reader == null) {
+			reader = createReader();
+			readers.set(reader);
+		}
+		return reader;
+	}
+
+	private BinaryMapIndexReader createReader() throws IOException {
+		BinaryMapIndexReader reader;
+		synchronized (threadReaders) {
+			if (closed) {
+				throw new IOException("File is already closed " + file.getName());
+			}
+			ByteBuffer mapping = reference.getMapping();
+			if (mapping != null) {
+				// the same file handle is kept only to close it once
+				reader = new BinaryMapIndexReader(reference.getRaf(), mapping, reference);
+			} else {
+				reader = new BinaryMapIndexReader(new RandomAccessFile(file.getPath(), "r"), null, reference);
+				threadReaders.add(reader);
+			}
+		}
+		return reader;
+	}
+
+	public void close() throws IOException {
+		synchronized (threadReaders) {
+			closed = true;
+			for (BinaryMapIndexReader r : threadReaders) {
+				try {
+					r.getRaf().close();
+				} catch (IOException e) {
+					log.warn("Error closing " + file.getName(), e);
+				}
+			}
+			threadReaders.clear();
+			reference.close();
+		}
+	}
+}
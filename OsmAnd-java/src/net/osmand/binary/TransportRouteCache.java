@@ -0,0 +1,170 @@
+package net.osmand.binary;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import net.osmand.data.TransportRoute;
+
+/**
+ * Least recently used cache of decoded routes of one transport index keyed by file pointer of the route, together with
+ * the strings of the string table of the index already read (names of routes and stops, types and operators), so the
+ * string table is read only for new strings.
+ *
+ * Route could be cached only with its description (without stops) or completely. Cache is shared by the readers of the
+ * same file and could be used by several threads, cached routes should not be modified (copy them with
+ * {@link TransportRoute#TransportRoute(TransportRoute)} before changing the lists of stops).
+ */
+public class TransportRouteCache {
+
+	public static final int DEFAULT_MAX_ROUTES = 256;
+	// strings are dropped all together when there are too many of them
+	public static final int DEFAULT_MAX_STRINGS = 8192;
+
+	private int maxRoutes;
+	private int maxStrings;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private final LinkedHashMap<Integer, CachedRoute> routes = new LinkedHashMap<Integer, CachedRoute>(64, 0.75f, true);
+	private final TIntObjectHashMap<String> strings = new TIntObjectHashMap<String>();
+
+	public TransportRouteCache() {
+		this(DEFAULT_MAX_ROUTES, DEFAULT_MAX_STRINGS);
+	}
+
+	/**
+	 * @param maxRoutes max number of cached routes, 0 disables the cache
+	 * @param maxStrings max number of cached strings, 0 to read string table for every request
+	 */
+	public TransportRouteCache(int maxRoutes, int maxStrings) {
+		this.maxRoutes = maxRoutes;
+		this.maxStrings = maxStrings;
+	}
+
+	/**
+	 * @param onlyDescription route without stops is enough
+	 * @return cached route or null
+	 */
+	public synchronized TransportRoute get(int filePointer, boolean onlyDescription) {
+		CachedRoute r = routes.get(filePointer);
+		if (r == null || (!onlyDescription && r.onlyDescription)) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return r.route;
+	}
+
+	/**
+	 * @param route route with initialized names
+	 * @param onlyDescription route is read without stops
+	 */
+	public synchronized void put(int filePointer, TransportRoute route, boolean onlyDescription) {
+		if (maxRoutes <= 0) {
+			return;
+		}
+		CachedRoute old = routes.get(filePointer);
+		if (old != null && !old.onlyDescription && onlyDescription) {
+			// don't replace complete route by description
+			return;
+		}
+		routes.put(filePointer, new CachedRoute(route, onlyDescription));
+		evict();
+	}
+
+	/**
+	 * Puts cached strings into the table of the request
+	 * @param stringTable string ids used by the objects of the request
+	 * @return sorted ids which are not cached and should be read from the string table
+	 */
+	synchronized int[] fillStrings(TIntObjectHashMap<String> stringTable) {
+		TIntArrayList missing = new TIntArrayList();
+		for (int id : stringTable.keys()) {
+			String s = strings.get(id);
+			if (s == null) {
+				missing.add(id);
+			} else {
+				stringTable.put(id, s);
+			}
+		}
+		missing.sort();
+		return missing.toArray();
+	}
+
+	synchronized void putStrings(int[] ids, TIntObjectHashMap<String> stringTable) {
+		if (maxStrings <= 0) {
+			return;
+		}
+		if (strings.size() + ids.length > maxStrings) {
+			strings.clear();
+		}
+		for (int i = 0; i < ids.length && strings.size() < maxStrings; i++) {
+			String s = stringTable.get(ids[i]);
+			if (s != null) {
+				strings.put(ids[i], s);
+			}
+		}
+	}
+
+	public synchronized void setMaxSize(int maxRoutes, int maxStrings) {
+		this.maxRoutes = maxRoutes;
+		this.maxStrings = maxStrings;
+		evict();
+		if (strings.size() > maxStrings) {
+			strings.clear();
+		}
+	}
+
+	private void evict() {
+		Iterator<CachedRoute> it = routes.values().iterator();
+		while (routes.size() > Math.max(maxRoutes, 0) && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized void clear() {
+		routes.clear();
+		strings.clear();
+	}
+
+	public synchronized int getRoutesCount() {
+		return routes.size();
+	}
+
+	public synchronized int getStringsCount() {
+		return strings.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Transport route cache " + routes.size() + " / " + maxRoutes + " routes, " + strings.size() + " strings, hits "
+				+ hits + ", misses " + misses + ", evictions " + evictions;
+	}
+
+	private static class CachedRoute {
+		final TransportRoute route;
+		final boolean onlyDescription;
+
+		CachedRoute(TransportRoute route, boolean onlyDescription) {
+			this.route = route;
+			this.onlyDescription = onlyDescription;
+		}
+	}
+}
@@ -16,6 +16,23 @@ public class TransportRoute extends MapObject {
 	public TransportRoute(){
 	}
 	
+	/**
+	 * Copy of the route with its own lists of stops (stops are the same objects)
+	 */
+	public TransportRoute(TransportRoute r) {
+		id = r.id;
+		name = r.name;
+		enName = r.enName;
+		location = r.location;
+		fileOffset = r.fileOffset;
+		forwardStops.addAll(r.forwardStops);
+		backwardStops.addAll(r.backwardStops);
+		ref = r.ref;
+		operator = r.operator;
+		type = r.type;
+		dist = r.dist;
+	}
+	
 	public List<TransportStop> getForwardStops() {
 		return forwardStops;
 	}
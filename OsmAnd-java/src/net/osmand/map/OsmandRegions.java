@@ -3,6 +3,7 @@ package net.osmand.map;
 
 import gnu.trove.list.array.TIntArrayList;
 import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapDataBlock.ObjectView;
 import net.osmand.binary.BinaryMapDataObject;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.data.QuadRect;
@@ -75,6 +76,20 @@ public class OsmandRegions {
 		return t % 2 == 1;
 	}
 
+	private static boolean contain(ObjectView view, int tx, int ty) {
+		int t = 0;
+		for (int i = 1; i < view.getPointsLength(); i++) {
+			int fx = MapAlgorithms.ray_intersect_x(view.getPoint31XTile(i - 1),
+					view.getPoint31YTile(i - 1),
+					view.getPoint31XTile(i),
+					view.getPoint31YTile(i), ty);
+			if (Integer.MIN_VALUE != fx && tx >= fx) {
+				t++;
+			}
+		}
+		return t % 2 == 1;
+	}
+
 	private List<BinaryMapDataObject> getCountries(int tile31x, int tile31y) {
 		HashSet<String> set = new HashSet<String>(quadTree.queryInBox(new QuadRect(tile31x, tile31y, tile31x, tile31y),
 				new ArrayList<String>()));
@@ -120,13 +135,8 @@ public class OsmandRegions {
 
 					@Override
 					public boolean publish(BinaryMapDataObject object) {
-						if (object.getPointsLength() < 1) {
-							return false;
-						}
 						initTypes(object);
-						if (contain(object, tile31x, tile31y)) {
-							result.add(object);
-						}
+						result.add(object);
 						return false;
 					}
 
@@ -136,6 +146,13 @@ public class OsmandRegions {
 					}
 				}
 		);
+		// only regions containing the point are copied out of the read blocks
+		sr.setObjectViewFilter(new BinaryMapIndexReader.ObjectViewFilter() {
+			@Override
+			public boolean accept(ObjectView view) {
+				return view.getPointsLength() > 0 && contain(view, tile31x, tile31y);
+			}
+		});
 		reader.searchMapIndex(sr);
 		return result;
 	}
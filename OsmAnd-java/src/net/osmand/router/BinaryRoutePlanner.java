@@ -8,7 +8,12 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import net.osmand.PlatformUtil;
 import net.osmand.binary.RouteDataBorderLinePoint;
@@ -21,13 +26,27 @@ import org.apache.commons.logging.Log;
 public class BinaryRoutePlanner {
 	
 	private static final int REVERSE_WAY_RESTRICTION_ONLY = 1024;
-	/*private*/ static final int STANDARD_ROAD_IN_QUEUE_OVERHEAD = 220;
-	/*private*/ static final int STANDARD_ROAD_VISITED_OVERHEAD = 150;
 	
 	protected static final Log log = PlatformUtil.getLog(BinaryRoutePlanner.class);
 	
 	private static final int ROUTE_POINTS = 11;
 	private static final boolean TRACE_ROUTING = false;
+	// reverse search not started by the executor in this time is run by a new thread
+	private static final long REVERSE_SEARCH_START_TIMEOUT = 100;
+	
+	// search directions run in 2 threads (context is locked to load tiles)
+	private final boolean concurrent;
+	// restrictions of the current intersection (own for every thread)
+	private final ArrayList<RouteSegment> segmentsToVisitPrescripted = new ArrayList<RouteSegment>(5);
+	private final ArrayList<RouteSegment> segmentsToVisitNotForbidden = new ArrayList<RouteSegment>(5);
+	
+	public BinaryRoutePlanner() {
+		this(false);
+	}
+	
+	private BinaryRoutePlanner(boolean concurrent) {
+		this.concurrent = concurrent;
+	}
 	
 	
 	public static double squareRootDist(int x1, int y1, int x2, int y2) {
@@ -39,17 +58,6 @@ public class BinaryRoutePlanner {
 	}
 	
 	
-	private static class SegmentsComparator implements Comparator<RouteSegment> {
-		final RoutingContext ctx;
-		public SegmentsComparator(RoutingContext ctx) {
-			this.ctx = ctx;
-		}
-		@Override
-		public int compare(RouteSegment o1, RouteSegment o2) {
-			return ctx.roadPriorityComparator(o1.distanceFromStart, o1.distanceToEnd, o2.distanceFromStart, o2.distanceToEnd);
-		}
-	}
-	
 	private static class NonHeuristicSegmentsComparator implements Comparator<RouteSegment> {
 		public NonHeuristicSegmentsComparator() {
 		}
@@ -84,12 +92,12 @@ public class BinaryRoutePlanner {
 
 		// Initializing priority queue to visit way segments 
 		Comparator<RouteSegment> nonHeuristicSegmentsComparator = new NonHeuristicSegmentsComparator();
-		PriorityQueue<RouteSegment> graphDirectSegments = new PriorityQueue<RouteSegment>(50, new SegmentsComparator(ctx));
-		PriorityQueue<RouteSegment> graphReverseSegments = new PriorityQueue<RouteSegment>(50, new SegmentsComparator(ctx));
+		RouteSegmentQueue graphDirectSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient);
+		RouteSegmentQueue graphReverseSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient);
 		
 		// Set to not visit one segment twice (stores road.id << X + segmentStart)
-		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
-		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
+		VisitedSegments visitedDirectSegments = new LocalVisitedSegments();
+		VisitedSegments visitedOppositeSegments = new LocalVisitedSegments();
 		
 		RouteSegment recalcEndSegment = smartRecalculationEnabled(ctx, visitedOppositeSegments);
 		boolean runRecalculation = false;
@@ -101,6 +109,16 @@ public class BinaryRoutePlanner {
 		// for start : f(start) = g(start) + h(start) = 0 + h(start) = h(start)
 		float estimatedDistance = (float) estimatedDistance(ctx, ctx.targetX, ctx.targetY, ctx.startX, ctx.startY);
 		end.distanceToEnd = start.distanceToEnd	= estimatedDistance;
+		if (!runRecalculation && isParallelSearchAllowed(ctx)) {
+			return searchRouteInParallel(ctx, start, end);
+		}
+		if (!runRecalculation && ctx.config.compactVisitedSegments) {
+			// previous route is put into visited segments with parents set after (not supported by compact store)
+			visitedDirectSegments = new CompactVisitedSegments();
+			visitedOppositeSegments = new CompactVisitedSegments();
+			start.visitedIndex = -1;
+			end.visitedIndex = -1;
+		}
 		
 		graphDirectSegments.add(start);
 		graphReverseSegments.add(end);
@@ -109,7 +127,7 @@ public class BinaryRoutePlanner {
 		boolean inverse = false;
 		boolean init = false;
 		
-		PriorityQueue<RouteSegment>  graphSegments;
+		RouteSegmentQueue graphSegments;
 		if(inverse) {
 			graphSegments = graphReverseSegments;
 		} else {
@@ -121,9 +139,8 @@ public class BinaryRoutePlanner {
 		while (!graphSegments.isEmpty()) {
 			RouteSegment segment = graphSegments.poll();
 			// use accumulative approach
-			ctx.memoryOverhead = (visitedDirectSegments.size() + visitedOppositeSegments.size()) * STANDARD_ROAD_VISITED_OVERHEAD + 
-					(graphDirectSegments.size() +
-					graphReverseSegments.size()) * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+			ctx.memoryOverhead = visitedDirectSegments.getEstimatedSize() + visitedOppositeSegments.getEstimatedSize() + 
+					graphDirectSegments.getEstimatedSize() + graphReverseSegments.getEstimatedSize();
 			
 			if(TRACE_ROUTING){
 				printRoad(">", segment);
@@ -201,8 +218,8 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegment> graphDirectSegments,
-			PriorityQueue<RouteSegment> graphReverseSegments) {
+	private void updateCalculationProgress(final RoutingContext ctx, RouteSegmentQueue graphDirectSegments,
+			RouteSegmentQueue graphReverseSegments) {
 		if(ctx.calculationProgress != null) {
 			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
 			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
@@ -210,15 +227,288 @@ public class BinaryRoutePlanner {
 				ctx.calculationProgress.distanceFromBegin =
 						Math.max(graphDirectSegments.peek().distanceFromStart, ctx.calculationProgress.distanceFromBegin);
 			}
-			if(graphDirectSegments.size() > 0) {
+			if(graphReverseSegments.size() > 0) {
 				ctx.calculationProgress.distanceFromEnd = 
 						Math.max(graphReverseSegments.peek().distanceFromStart, ctx.calculationProgress.distanceFromBegin);
 			}
 		}
 	}
+	
+	private boolean isParallelSearchAllowed(final RoutingContext ctx) {
+		// border lines are modified by the search
+		return ctx.config.parallelSearch && ctx.planRouteIn2Directions() && !RoutingContext.USE_BORDER_LINES;
+	}
+	
+	/**
+	 * Searches in direct and reverse direction at the same time, reverse search is run by the executor of the context
+	 * (or by a new thread). Every direction has its own queue and visited segments, visited segments of the opposite
+	 * direction are only read to find meeting point. Polled final segments are kept as the best meeting point and the
+	 * directions go on until the queue minimums of both reach its cost (route through the frontier of a direction can't
+	 * be cheaper than its queue minimum), so the cheapest meeting point is returned whichever direction finds it first.
+	 * Direct search can't finish without reverse one, so reverse search is run by a new thread when the executor rejects
+	 * it or doesn't start it in {@link #REVERSE_SEARCH_START_TIMEOUT} ms.
+	 */
+	private FinalRouteSegment searchRouteInParallel(final RoutingContext ctx, RouteSegment start, RouteSegment end)
+			throws InterruptedException, IOException {
+		ParallelSearch search = new ParallelSearch();
+		VisitedSegments visitedDirectSegments = new ConcurrentVisitedSegments();
+		VisitedSegments visitedOppositeSegments = new ConcurrentVisitedSegments();
+		final DirectionSearch direct = new DirectionSearch(ctx, search, false, start, visitedDirectSegments,
+				visitedOppositeSegments);
+		final DirectionSearch reverse = new DirectionSearch(ctx, search, true, end, visitedOppositeSegments,
+				visitedDirectSegments);
+		direct.opposite = reverse;
+		reverse.opposite = direct;
+		
+		ReverseSearchTask reverseTask = new ReverseSearchTask(reverse);
+		Executor executor = ctx.getParallelSearchExecutor();
+		boolean scheduled = false;
+		if (executor != null) {
+			try {
+				executor.execute(reverseTask);
+				scheduled = true;
+			} catch (RejectedExecutionException e) {
+				log.warn("Reverse route search is rejected by the executor, new thread is started");
+			}
+		}
+		if (!scheduled) {
+			reverseTask.startThread();
+		} else {
+			direct.pendingReverse = reverseTask;
+		}
+		direct.run();
+		// search is finished, reverse search which didn't start doesn't need to run
+		reverseTask.cancelIfNotStarted();
+		// reverse search checks the stop flag after every segment
+		boolean interrupted = false;
+		while (true) {
+			try {
+				reverseTask.finished.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		
+		ctx.visitedSegments = direct.visitedSegmentsCount + reverse.visitedSegmentsCount;
+		if (search.error.get() != null) {
+			Throwable e = search.error.get();
+			if (e instanceof InterruptedException) {
+				throw (InterruptedException) e;
+			} else if (e instanceof IOException) {
+				throw (IOException) e;
+			} else if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			} else if (e instanceof Error) {
+				throw (Error) e;
+			}
+			throw new IllegalStateException(e);
+		}
+		FinalRouteSegment finalSegment = search.getResult();
+		if (RoutingContext.SHOW_GC_SIZE) {
+			log.warn("Estimated overhead " + (ctx.memoryOverhead / (1 << 20)) + " mb");
+			printMemoryConsumption("Memory occupied after calculation : ");
+		}
+		printDebugMemoryInformation(ctx, direct.graphSegments, reverse.graphSegments, visitedDirectSegments,
+				visitedOppositeSegments);
+		return finalSegment;
+	}
+	
+	private static class ParallelSearch {
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		// cheapest meeting point polled by any direction
+		private FinalRouteSegment result;
+		private volatile boolean finished;
+		
+		synchronized void addMeeting(FinalRouteSegment segment) {
+			if (result == null || segment.distanceFromStart < result.distanceFromStart) {
+				result = segment;
+			}
+		}
+		
+		synchronized FinalRouteSegment getResult() {
+			return result;
+		}
+		
+		/**
+		 * Finishes the search when both directions can't find cheaper meeting point
+		 */
+		synchronized void checkFinished(DirectionSearch direction) {
+			if (result != null && result.distanceFromStart <= direction.minimumKey
+					&& result.distanceFromStart <= direction.opposite.minimumKey) {
+				finished = true;
+			}
+		}
+		
+		boolean isFinished() {
+			return finished || error.get() != null;
+		}
+	}
+	
+	/**
+	 * Reverse search which is run once by the executor or by a new thread, whichever starts it first.
+	 */
+	private static class ReverseSearchTask implements Runnable {
+		final DirectionSearch reverse;
+		final AtomicBoolean started = new AtomicBoolean();
+		final CountDownLatch finished = new CountDownLatch(1);
+		final long scheduledTime = System.currentTimeMillis();
+		
+		ReverseSearchTask(DirectionSearch reverse) {
+			this.reverse = reverse;
+		}
+		
+		@Override
+		public void run() {
+			if (!started.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				reverse.run();
+			} finally {
+				finished.countDown();
+			}
+		}
+		
+		boolean isStarted() {
+			return started.get();
+		}
+		
+		void startThread() {
+			Thread thread = new Thread(this, "Reverse route search");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		/**
+		 * Starts new thread if the executor didn't start the search in time
+		 * @return true if the search is started by any thread
+		 */
+		boolean startIfWaiting() {
+			if (isStarted()) {
+				return true;
+			}
+			if (System.currentTimeMillis() - scheduledTime < REVERSE_SEARCH_START_TIMEOUT) {
+				return false;
+			}
+			log.warn("Reverse route search is not started by the executor, new thread is started");
+			startThread();
+			return true;
+		}
+		
+		void cancelIfNotStarted() {
+			if (started.compareAndSet(false, true)) {
+				finished.countDown();
+			}
+		}
+	}
+	
+	/**
+	 * One direction of the parallel search
+	 */
+	private static class DirectionSearch {
+		final RoutingContext ctx;
+		final ParallelSearch search;
+		final boolean reverseWaySearch;
+		final RouteSegmentQueue graphSegments;
+		final VisitedSegments visitedSegments;
+		final VisitedSegments oppositeSegments;
+		final BinaryRoutePlanner planner = new BinaryRoutePlanner(true);
+		DirectionSearch opposite;
+		// reverse search which is not started yet (checked by direct search)
+		ReverseSearchTask pendingReverse;
+		// published for memory estimation of the other direction
+		volatile int queueEstimatedSize;
+		// f(x) of the first queued segment, published to check the meeting point of the other direction
+		volatile double minimumKey;
+		int visitedSegmentsCount;
+		
+		DirectionSearch(RoutingContext ctx, ParallelSearch search, boolean reverseWaySearch, RouteSegment initial,
+				VisitedSegments visitedSegments, VisitedSegments oppositeSegments) {
+			this.ctx = ctx;
+			this.search = search;
+			this.reverseWaySearch = reverseWaySearch;
+			this.visitedSegments = visitedSegments;
+			this.oppositeSegments = oppositeSegments;
+			graphSegments = new RouteSegmentQueue(ctx.config.heuristicCoefficient);
+			graphSegments.add(initial);
+			queueEstimatedSize = graphSegments.getEstimatedSize();
+			minimumKey = graphSegments.peekKey();
+		}
+		
+		void run() {
+			try {
+				search();
+			} catch (Throwable e) {
+				search.error.compareAndSet(null, e);
+			}
+		}
+		
+		private void search() throws IOException, InterruptedException {
+			while (!search.isFinished()) {
+				RouteSegment segment = graphSegments.poll();
+				if (segment == null) {
+					if (search.getResult() != null) {
+						// the other direction finishes the search
+						minimumKey = Double.POSITIVE_INFINITY;
+						search.checkFinished(this);
+						return;
+					}
+					throw new IllegalArgumentException(reverseWaySearch ? "Route is not found to selected target point."
+							: "Route is not found from selected start point.");
+				}
+				int memoryOverhead = visitedSegments.getEstimatedSize() + oppositeSegments.getEstimatedSize()
+						+ graphSegments.getEstimatedSize() + opposite.queueEstimatedSize;
+				ctx.memoryOverhead = memoryOverhead;
+				if (segment instanceof FinalRouteSegment) {
+					search.addMeeting((FinalRouteSegment) segment);
+					minimumKey = graphSegments.peekKey();
+					search.checkFinished(this);
+					continue;
+				}
+				if (memoryOverhead > ctx.config.memoryLimitation * 0.95) {
+					throw new IllegalStateException("There is no enough memory " + ctx.config.memoryLimitation / (1 << 20) + " Mb");
+				}
+				visitedSegmentsCount++;
+				planner.processRouteSegment(ctx, reverseWaySearch, graphSegments, visitedSegments, segment, oppositeSegments, true);
+				planner.processRouteSegment(ctx, reverseWaySearch, graphSegments, visitedSegments, segment, oppositeSegments, false);
+				queueEstimatedSize = graphSegments.getEstimatedSize();
+				minimumKey = graphSegments.peekKey();
+				search.checkFinished(this);
+				if (pendingReverse != null && pendingReverse.startIfWaiting()) {
+					pendingReverse = null;
+				}
+				updateCalculationProgress();
+				if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+					throw new InterruptedException("Route calculation interrupted");
+				}
+			}
+		}
+		
+		private void updateCalculationProgress() {
+			RouteCalculationProgress progress = ctx.calculationProgress;
+			if (progress != null) {
+				RouteSegment first = graphSegments.peek();
+				if (reverseWaySearch) {
+					progress.reverseSegmentQueueSize = graphSegments.size();
+					if (first != null) {
+						progress.distanceFromEnd = Math.max(first.distanceFromStart, progress.distanceFromEnd);
+					}
+				} else {
+					progress.directSegmentQueueSize = graphSegments.size();
+					if (first != null) {
+						progress.distanceFromBegin = Math.max(first.distanceFromStart, progress.distanceFromBegin);
+					}
+				}
+			}
+		}
+	}
 
 
-	private RouteSegment smartRecalculationEnabled(final RoutingContext ctx, TLongObjectHashMap<RouteSegment> visitedOppositeSegments) {
+	private RouteSegment smartRecalculationEnabled(final RoutingContext ctx, VisitedSegments visitedOppositeSegments) {
 		boolean runRecalculation = ctx.previouslyCalculatedRoute != null && ctx.previouslyCalculatedRoute.size() > 0
 				&& ctx.config.recalculateDistance != 0;
 		if (runRecalculation) {
@@ -340,8 +630,8 @@ public class BinaryRoutePlanner {
 		log.warn(logMsg);
 	}
 	
-	public void printDebugMemoryInformation(RoutingContext ctx, PriorityQueue<RouteSegment> graphDirectSegments, PriorityQueue<RouteSegment> graphReverseSegments, 
-			TLongObjectHashMap<RouteSegment> visitedDirectSegments,TLongObjectHashMap<RouteSegment> visitedOppositeSegments) {
+	void printDebugMemoryInformation(RoutingContext ctx, RouteSegmentQueue graphDirectSegments, RouteSegmentQueue graphReverseSegments, 
+			VisitedSegments visitedDirectSegments, VisitedSegments visitedOppositeSegments) {
 		printInfo("Time to calculate : " + (System.nanoTime() - ctx.timeToCalculate) / 1e6 + ", time to load : " + ctx.timeToLoad / 1e6 + ", time to load headers : " + ctx.timeToLoadHeaders / 1e6);
 		int maxLoadedTiles = Math.max(ctx.maxLoadedTiles, ctx.getCurrentlyLoadedTiles());
 		printInfo("Current loaded tiles : " + ctx.getCurrentlyLoadedTiles() + ", maximum loaded tiles " + maxLoadedTiles);
@@ -349,6 +639,8 @@ public class BinaryRoutePlanner {
 				", loaded more than once same tiles "
 				+ ctx.loadedPrevUnloadedTiles );
 		printInfo("Visited roads " + ctx.visitedSegments + ", relaxed roads " + ctx.relaxedSegments);
+		printInfo("Estimated memory of loaded tiles " + ctx.getCurrentEstimatedSize() / (1 << 20) + " MB, of search "
+				+ ctx.getSearchEstimatedSize() / (1 << 20) + " MB");
 		if (graphDirectSegments != null && graphReverseSegments != null) {
 			printInfo("Priority queues sizes : " + graphDirectSegments.size() + "/" + graphReverseSegments.size());
 		}
@@ -364,8 +656,8 @@ public class BinaryRoutePlanner {
 	
 	
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegment> graphSegments, TLongObjectHashMap<RouteSegment> visitedSegments, 
-            RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments, boolean direction) throws IOException {
+			RouteSegmentQueue graphSegments, VisitedSegments visitedSegments, 
+            RouteSegment segment, VisitedSegments oppositeSegments, boolean direction) throws IOException {
 		final RouteDataObject road = segment.road;
 		boolean initDirectionAllowed = checkIfInitialMovementAllowedOnSegment(ctx, reverseWaySearch, visitedSegments, segment, direction, road);
 		boolean directionAllowed = initDirectionAllowed; 
@@ -449,7 +741,7 @@ public class BinaryRoutePlanner {
 			
 			// could be expensive calculation
 			// 3. get intersected ways
-			final RouteSegment roadNext = ctx.loadRouteSegment(x, y, ctx.config.memoryLimitation - ctx.memoryOverhead);
+			final RouteSegment roadNext = loadRouteSegment(ctx, x, y);
 			if(roadNext != null && 
 					!((roadNext == segment || roadNext.road.id == road.id) && roadNext.next == null)) {
 				// check if there are outgoing connections in that case we need to stop processing
@@ -472,12 +764,28 @@ public class BinaryRoutePlanner {
 			}
 		}
 		if(initDirectionAllowed && ctx.visitor != null){
-			ctx.visitor.visitSegment(segment, segmentEnd, true);
+			if (concurrent) {
+				synchronized (ctx) {
+					ctx.visitor.visitSegment(segment, segmentEnd, true);
+				}
+			} else {
+				ctx.visitor.visitSegment(segment, segmentEnd, true);
+			}
 		}
 	}
+	
+	private RouteSegment loadRouteSegment(final RoutingContext ctx, int x31, int y31) {
+		if (concurrent) {
+			// tiles are loaded and unloaded by both directions
+			synchronized (ctx) {
+				return ctx.loadRouteSegment(x31, y31, ctx.config.memoryLimitation - ctx.memoryOverhead);
+			}
+		}
+		return ctx.loadRouteSegment(x31, y31, ctx.config.memoryLimitation - ctx.memoryOverhead);
+	}
 
 	private boolean checkIfInitialMovementAllowedOnSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			TLongObjectHashMap<RouteSegment> visitedSegments, RouteSegment segment, boolean direction, final RouteDataObject road
+			VisitedSegments visitedSegments, RouteSegment segment, boolean direction, final RouteDataObject road
 			) {
 		boolean directionAllowed;
 		final int middle = segment.getSegmentStart();
@@ -512,11 +820,12 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfOppositieSegmentWasVisited(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegment> graphSegments, RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments,
+			RouteSegmentQueue graphSegments, RouteSegment segment, VisitedSegments oppositeSegments,
 			final RouteDataObject road, int segmentEnd, boolean positive, int intervalId, float segmentDist, float obstaclesTime) {
 		long opp = calculateRoutePointId(road, intervalId, !positive);
-		if (oppositeSegments.containsKey(opp)) {
-			RouteSegment opposite = oppositeSegments.get(opp);
+		// single lookup, opposite segments could be modified by the other thread
+		RouteSegment opposite = oppositeSegments.get(opp);
+		if (opposite != null) {
 			if (opposite.getSegmentStart() == segmentEnd) {
 				FinalRouteSegment frs = new FinalRouteSegment(road, segment.getSegmentStart());
 				float distStartObstacles = segment.distanceFromStart + calculateTimeWithObstacles(ctx, road, segmentDist , obstaclesTime);
@@ -553,8 +862,8 @@ public class BinaryRoutePlanner {
 
 
 	private boolean proccessRestrictions(RoutingContext ctx, RouteDataObject road, RouteSegment inputNext, boolean reverseWay) {
-		ctx.segmentsToVisitPrescripted.clear();
-		ctx.segmentsToVisitNotForbidden.clear();
+		segmentsToVisitPrescripted.clear();
+		segmentsToVisitNotForbidden.clear();
 		boolean exclusiveRestriction = false;
 		RouteSegment next = inputNext;
 		if (!reverseWay && road.getRestrictionLength() == 0) {
@@ -607,7 +916,7 @@ public class BinaryRoutePlanner {
 				// next = next.next; continue;
 			} else if (type == -1) {
 				// case no restriction
-				ctx.segmentsToVisitNotForbidden.add(next);
+				segmentsToVisitNotForbidden.add(next);
 			} else {
 				// case exclusive restriction (only_right, only_straight, ...)
 				// 1. in case we are going backward we should not consider only_restriction
@@ -615,23 +924,23 @@ public class BinaryRoutePlanner {
 				// 2. in case we are going forward we have one "in" and many "out"
 				if (!reverseWay) {
 					exclusiveRestriction = true;
-					ctx.segmentsToVisitNotForbidden.clear();
-					ctx.segmentsToVisitPrescripted.add(next);
+					segmentsToVisitNotForbidden.clear();
+					segmentsToVisitPrescripted.add(next);
 				} else {
-					ctx.segmentsToVisitNotForbidden.add(next);
+					segmentsToVisitNotForbidden.add(next);
 				}
 			}
 			next = next.next;
 		}
-		ctx.segmentsToVisitPrescripted.addAll(ctx.segmentsToVisitNotForbidden);
+		segmentsToVisitPrescripted.addAll(segmentsToVisitNotForbidden);
 		return true;
 	}
 	
 	
 
 
-	private void processIntersections(RoutingContext ctx, PriorityQueue<RouteSegment> graphSegments,
-			TLongObjectHashMap<RouteSegment> visitedSegments,  float  distFromStart,  
+	private void processIntersections(RoutingContext ctx, RouteSegmentQueue graphSegments,
+			VisitedSegments visitedSegments,  float  distFromStart,  
 			RouteSegment segment, int segmentEnd,  
 			RouteSegment inputNext, boolean reverseWaySearch, 
 			boolean addSameRoadFutureDirection) {
@@ -639,7 +948,7 @@ public class BinaryRoutePlanner {
 		boolean thereAreRestrictions = proccessRestrictions(ctx, segment.road, inputNext, reverseWaySearch);
 		Iterator<RouteSegment> nextIterator = null;
 		if (thereAreRestrictions) {
-			nextIterator = ctx.segmentsToVisitPrescripted.iterator();
+			nextIterator = segmentsToVisitPrescripted.iterator();
 			if(TRACE_ROUTING){
 				println("  >> There are restrictions");
 			}
@@ -672,7 +981,8 @@ public class BinaryRoutePlanner {
 				if (next.getParentRoute() == null
 						|| ctx.roadPriorityComparator(next.distanceFromStart, next.distanceToEnd, distFromStart, distanceToEnd) > 0) {
 					if (next.getParentRoute() != null) {
-						if (!graphSegments.remove(next)) {
+						// segment is moved in the queue when it is added with new distance (decrease key)
+						if (!graphSegments.contains(next)) {
 							throw new IllegalStateException("Should be handled by direction flag");
 						} 
 					} 
@@ -733,6 +1043,160 @@ public class BinaryRoutePlanner {
 	}
 
 	
+	/**
+	 * Visited segments of one direction of the search (key is road.id << X + segmentStart)
+	 */
+	public interface VisitedSegments {
+		
+		public boolean containsKey(long id);
+		
+		public RouteSegment get(long id);
+		
+		public void put(long id, RouteSegment segment);
+		
+		public int size();
+		
+		/**
+		 * @return estimated memory occupied by visited segments in bytes
+		 */
+		public int getEstimatedSize();
+	}
+	
+	private static class LocalVisitedSegments implements VisitedSegments {
+		private final TLongObjectHashMap<RouteSegment> map = new TLongObjectHashMap<RouteSegment>();
+		// intervals of the segment are put one after another
+		private RouteSegment lastSegment;
+		private int segments = 0;
+		
+		@Override
+		public boolean containsKey(long id) {
+			return map.containsKey(id);
+		}
+		
+		@Override
+		public RouteSegment get(long id) {
+			return map.get(id);
+		}
+		
+		@Override
+		public void put(long id, RouteSegment segment) {
+			map.put(id, segment);
+			if (segment != lastSegment) {
+				lastSegment = segment;
+				segments++;
+			}
+		}
+		
+		@Override
+		public int size() {
+			return map.size();
+		}
+		
+		@Override
+		public int getEstimatedSize() {
+			// visited segments are kept with their parents
+			return MemoryEstimation.hashMap(map, 8) + segments * MemoryEstimation.ROUTE_SEGMENT;
+		}
+	}
+	
+	/**
+	 * Open addressing table written only by the thread of its direction and read without locks by the thread of the
+	 * opposite direction: entry is published by volatile write of the value after the key, resized table is published
+	 * by volatile write of the table (reader could miss the latest entries, it finds them on the next check).
+	 */
+	private static class ConcurrentVisitedSegments implements VisitedSegments {
+		private volatile Table table = new Table(1024);
+		private volatile int size = 0;
+		private RouteSegment lastSegment;
+		private volatile int segments = 0;
+		
+		private static class Table {
+			final long[] keys;
+			final AtomicReferenceArray<RouteSegment> values;
+			final int mask;
+			
+			Table(int capacity) {
+				keys = new long[capacity];
+				values = new AtomicReferenceArray<RouteSegment>(capacity);
+				mask = capacity - 1;
+			}
+			
+			int index(long id) {
+				long h = id * 0x9E3779B97F4A7C15L;
+				return (int) (h ^ (h >>> 32)) & mask;
+			}
+			
+			RouteSegment get(long id) {
+				for (int i = index(id);; i = (i + 1) & mask) {
+					RouteSegment v = values.get(i);
+					if (v == null || keys[i] == id) {
+						return v;
+					}
+				}
+			}
+			
+			/**
+			 * @return true if new key is inserted
+			 */
+			boolean put(long id, RouteSegment segment) {
+				for (int i = index(id);; i = (i + 1) & mask) {
+					if (values.get(i) == null) {
+						keys[i] = id;
+						values.set(i, segment);
+						return true;
+					} else if (keys[i] == id) {
+						values.set(i, segment);
+						return false;
+					}
+				}
+			}
+		}
+		
+		@Override
+		public boolean containsKey(long id) {
+			return table.get(id) != null;
+		}
+		
+		@Override
+		public RouteSegment get(long id) {
+			return table.get(id);
+		}
+		
+		@Override
+		public void put(long id, RouteSegment segment) {
+			Table t = table;
+			if (segment != lastSegment) {
+				lastSegment = segment;
+				segments++;
+			}
+			if (t.put(id, segment)) {
+				size++;
+				if (size * 2 > t.keys.length) {
+					Table n = new Table(t.keys.length * 2);
+					for (int i = 0; i < t.keys.length; i++) {
+						RouteSegment v = t.values.get(i);
+						if (v != null) {
+							n.put(t.keys[i], v);
+						}
+					}
+					table = n;
+				}
+			}
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public int getEstimatedSize() {
+			int capacity = table.keys.length;
+			return MemoryEstimation.array(capacity, 8) + MemoryEstimation.object(MemoryEstimation.REFERENCE)
+					+ MemoryEstimation.array(capacity, MemoryEstimation.REFERENCE) + segments * MemoryEstimation.ROUTE_SEGMENT;
+		}
+	}
+	
 	public interface RouteSegmentVisitor {
 		
 		public void visitSegment(RouteSegment segment, int segmentEnd, boolean poll);
@@ -752,6 +1216,10 @@ public class BinaryRoutePlanner {
 		byte directionAssgn = 0;
 		// 1 - only positive allowed, -1 - only negative allowed
 		byte allowedDirection = 0;
+		// position in the route segment queue
+		int queueIndex = -1;
+		// record of the compact visited segments
+		int visitedIndex = -1;
 		
 		// distance measured in time (seconds)
 		float distanceFromStart = 0;
@@ -0,0 +1,191 @@
+package net.osmand.router;
+
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.VisitedSegments;
+
+/**
+ * Visited segments of one direction of the search kept in primitive arrays instead of map of segments with parent
+ * pointers. Every visited segment is stored once as a record (road, segment start, index of the parent record, parent
+ * segment end, distance from start), map of visited intervals keeps only the index of the record.
+ *
+ * Segment put into the store keeps only the copy of its parent without further parents, so the processed segments
+ * are released as soon as there are no segments in the queue referring them. Segments returned by the store are
+ * rebuilt from the records and restore their parents on demand (only for the final route).
+ *
+ * Store is used by one thread.
+ */
+class CompactVisitedSegments implements VisitedSegments {
+
+	private RouteDataObject[] roads;
+	private short[] segmentStarts;
+	private int[] parents;
+	private short[] parentSegmentEnds;
+	private float[] distances;
+	private int records = 0;
+
+	// open addressing table : key -> record index + 1 (0 is empty slot)
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size = 0;
+
+	CompactVisitedSegments() {
+		this(1024);
+	}
+
+	CompactVisitedSegments(int capacity) {
+		int c = 16;
+		while (c < capacity) {
+			c <<= 1;
+		}
+		keys = new long[c];
+		values = new int[c];
+		mask = c - 1;
+		roads = new RouteDataObject[c / 2];
+		segmentStarts = new short[roads.length];
+		parents = new int[roads.length];
+		parentSegmentEnds = new short[roads.length];
+		distances = new float[roads.length];
+	}
+
+	@Override
+	public boolean containsKey(long id) {
+		return values[indexOf(id)] != 0;
+	}
+
+	@Override
+	public RouteSegment get(long id) {
+		int v = values[indexOf(id)];
+		return v == 0 ? null : getSegment(v - 1);
+	}
+
+	@Override
+	public void put(long id, RouteSegment segment) {
+		int record = record(segment);
+		RouteSegment parent = segment.parentRoute;
+		if (parent != null && !(parent instanceof VisitedRouteSegment)) {
+			// parent is needed only to calculate turn of the segment
+			segment.parentRoute = getSegment(parents[record]);
+		}
+		int i = indexOf(id);
+		if (values[i] == 0) {
+			keys[i] = id;
+			size++;
+		}
+		values[i] = record + 1;
+		if (size * 4 > keys.length * 3) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int getEstimatedSize() {
+		int capacity = roads.length;
+		return MemoryEstimation.array(keys.length, 8) + MemoryEstimation.array(values.length, 4)
+				+ MemoryEstimation.array(capacity, MemoryEstimation.REFERENCE) + MemoryEstimation.array(capacity, 2) * 2
+				+ MemoryEstimation.array(capacity, 4) * 2;
+	}
+
+	/**
+	 * @return number of stored segments
+	 */
+	int getRecordsCount() {
+		return records;
+	}
+
+	/**
+	 * @return segment rebuilt from the record, its parents are restored by {@link RouteSegment#getParentRoute()}
+	 */
+	RouteSegment getSegment(int record) {
+		VisitedRouteSegment s = new VisitedRouteSegment(this, record);
+		s.parentSegmentEnd = parentSegmentEnds[record];
+		s.distanceFromStart = distances[record];
+		return s;
+	}
+
+	private int record(RouteSegment segment) {
+		if (segment.visitedIndex >= 0) {
+			return segment.visitedIndex;
+		}
+		// parent is put before its children, otherwise it is stored with the segment
+		int parent = segment.parentRoute == null ? -1 : record(segment.parentRoute);
+		if (records == roads.length) {
+			// Arrays.copyOf is not available before android API 9
+			int capacity = records + (records >> 1);
+			RouteDataObject[] nroads = new RouteDataObject[capacity];
+			System.arraycopy(roads, 0, nroads, 0, records);
+			roads = nroads;
+			short[] nsegmentStarts = new short[capacity];
+			System.arraycopy(segmentStarts, 0, nsegmentStarts, 0, records);
+			segmentStarts = nsegmentStarts;
+			int[] nparents = new int[capacity];
+			System.arraycopy(parents, 0, nparents, 0, records);
+			parents = nparents;
+			short[] nparentSegmentEnds = new short[capacity];
+			System.arraycopy(parentSegmentEnds, 0, nparentSegmentEnds, 0, records);
+			parentSegmentEnds = nparentSegmentEnds;
+			float[] ndistances = new float[capacity];
+			System.arraycopy(distances, 0, ndistances, 0, records);
+			distances = ndistances;
+		}
+		int r = records++;
+		roads[r] = segment.road;
+		segmentStarts[r] = segment.segStart;
+		parents[r] = parent;
+		parentSegmentEnds[r] = segment.parentSegmentEnd;
+		distances[r] = segment.distanceFromStart;
+		segment.visitedIndex = r;
+		return r;
+	}
+
+	private int indexOf(long id) {
+		long h = id * 0x9E3779B97F4A7C15L;
+		int i = (int) (h ^ (h >>> 32)) & mask;
+		while (values[i] != 0 && keys[i] != id) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldValues[j] != 0) {
+				int i = indexOf(oldKeys[j]);
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Segment of the record, parent is rebuilt from the parent record when it is requested
+	 */
+	static class VisitedRouteSegment extends RouteSegment {
+		private final CompactVisitedSegments store;
+
+		VisitedRouteSegment(CompactVisitedSegments store, int record) {
+			super(store.roads[record], store.segmentStarts[record]);
+			this.store = store;
+			this.visitedIndex = record;
+		}
+
+		@Override
+		public RouteSegment getParentRoute() {
+			if (parentRoute == null && store.parents[visitedIndex] >= 0) {
+				parentRoute = store.getSegment(store.parents[visitedIndex]);
+			}
+			return parentRoute;
+		}
+	}
+}
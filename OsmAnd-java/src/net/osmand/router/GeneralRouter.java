@@ -1,6 +1,9 @@
 package net.osmand.router;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -334,6 +337,19 @@ public class GeneralRouter extends VehicleRouter {
 		return gr;
 	}
 	
+	/**
+	 * @return profile, attributes and the rules of {@link #acceptLine(int[], RouteRegion)} (speeds are not compared)
+	 */
+	@Override
+	public Object getAcceptedRoadsKey() {
+		Map<String, Boolean> speeds = new HashMap<String, Boolean>();
+		for (Entry<String, Float> e : highwaySpeed.entrySet()) {
+			speeds.put(e.getKey(), e.getValue() != null && e.getValue() > 0);
+		}
+		return Arrays.asList(profile, new HashMap<String, String>(attributes), speeds,
+				new HashSet<String>(avoid.keySet()));
+	}
+	
 	@Override
 	public boolean containsAttribute(String attribute) {
 		return attributes.containsKey(attribute);
@@ -0,0 +1,85 @@
+package net.osmand.router;
+
+import gnu.trove.impl.hash.THash;
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Sizes of the routing objects in bytes calculated from the lengths of their arrays (layout of 64-bit JVM with
+ * compressed references: 12 bytes of object header, 16 bytes of array header, 4 bytes of reference, objects aligned
+ * to 8 bytes).
+ */
+final class MemoryEstimation {
+
+	static final int OBJECT_HEADER = 12;
+	static final int ARRAY_HEADER = 16;
+	static final int REFERENCE = 4;
+
+	// segStart, road, next, parentRoute, parentSegmentEnd, directions, queueIndex, visitedIndex, distances
+	static final int ROUTE_SEGMENT = object(2 + REFERENCE * 3 + 2 + 2 + 4 + 4 + 4 * 2);
+	// region, arrays, names, encoded names, string table, id
+	private static final int ROUTE_DATA_OBJECT = object(REFERENCE * 9 + 8);
+	// fields of hash map without arrays
+	private static final int HASH_MAP = object(REFERENCE * 3 + 4 * 6 + 8);
+	private static final int STRING = object(REFERENCE + 4 * 2);
+
+	private MemoryEstimation() {
+	}
+
+	static int align(int size) {
+		return (size + 7) & ~7;
+	}
+
+	static int object(int fields) {
+		return align(OBJECT_HEADER + fields);
+	}
+
+	static int array(int length, int elementSize) {
+		return align(ARRAY_HEADER + length * elementSize);
+	}
+
+	/**
+	 * @param keySize size of the primitive key
+	 * @return size of trove hash map with primitive keys and object values (without values)
+	 */
+	static int hashMap(THash map, int keySize) {
+		int capacity = map.capacity();
+		return HASH_MAP + array(capacity, keySize) + array(capacity, REFERENCE) + array(capacity, 1);
+	}
+
+	static int string(String s) {
+		return STRING + array(s.length(), 2);
+	}
+
+	/**
+	 * @return size of the road with its coordinates, types and names (string table of the block is not included)
+	 */
+	static int routeDataObject(RouteDataObject o) {
+		int sz = ROUTE_DATA_OBJECT;
+		sz += o.pointsX == null ? 0 : array(o.pointsX.length, 4);
+		sz += o.pointsY == null ? 0 : array(o.pointsY.length, 4);
+		sz += o.types == null ? 0 : array(o.types.length, 4);
+		sz += o.restrictions == null ? 0 : array(o.restrictions.length, 8);
+		if (o.pointTypes != null) {
+			sz += array(o.pointTypes.length, REFERENCE);
+			for (int i = 0; i < o.pointTypes.length; i++) {
+				if (o.pointTypes[i] != null) {
+					sz += array(o.pointTypes[i].length, 4);
+				}
+			}
+		}
+		TIntObjectHashMap<String> names = o.names;
+		if (names != null) {
+			sz += hashMap(names, 4);
+			TIntObjectIterator<String> it = names.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				sz += string(it.value());
+			}
+		} else if (o.getEncodedNamesLength() > 0) {
+			sz += array(o.getEncodedNamesLength(), 4);
+		}
+		return sz;
+	}
+}
@@ -0,0 +1,150 @@
+package net.osmand.router;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+/**
+ * Priority queue of the route planner: indexed binary heap of segments ordered by
+ * f(x) = distanceFromStart + heuristicCoefficient * distanceToEnd.
+ *
+ * The key is calculated once when the segment is added (instead of comparator call on every sift) and kept in a
+ * primitive array next to the segment. Segment keeps its position in the heap, so the segment which is already in the
+ * queue is moved to its new position when it is added again with another distance (decrease key).
+ *
+ * Segment could be only in one queue at a time.
+ */
+class RouteSegmentQueue {
+
+	private final double heuristicCoefficient;
+	private RouteSegment[] segments;
+	// keys are in double as they were compared by comparator (same order of segments with equal float distances)
+	private double[] keys;
+	private int size = 0;
+
+	RouteSegmentQueue(double heuristicCoefficient) {
+		this(heuristicCoefficient, 64);
+	}
+
+	RouteSegmentQueue(double heuristicCoefficient, int capacity) {
+		this.heuristicCoefficient = heuristicCoefficient;
+		segments = new RouteSegment[Math.max(capacity, 1)];
+		keys = new double[segments.length];
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return estimated size of the queue with queued segments in bytes
+	 */
+	int getEstimatedSize() {
+		return MemoryEstimation.array(segments.length, MemoryEstimation.REFERENCE)
+				+ MemoryEstimation.array(keys.length, 8) + size * MemoryEstimation.ROUTE_SEGMENT;
+	}
+
+	boolean contains(RouteSegment s) {
+		int i = s.queueIndex;
+		return i >= 0 && i < size && segments[i] == s;
+	}
+
+	RouteSegment peek() {
+		return size == 0 ? null : segments[0];
+	}
+
+	/**
+	 * @return f(x) of the first segment or positive infinity if the queue is empty
+	 */
+	double peekKey() {
+		return size == 0 ? Double.POSITIVE_INFINITY : keys[0];
+	}
+
+	/**
+	 * Adds the segment or moves it according to its changed distance if it is in the queue
+	 */
+	void add(RouteSegment s) {
+		double key = s.distanceFromStart + heuristicCoefficient * s.distanceToEnd;
+		if (contains(s)) {
+			int i = s.queueIndex;
+			if (key < keys[i]) {
+				siftUp(i, s, key);
+			} else if (key > keys[i]) {
+				siftDown(i, s, key);
+			}
+			return;
+		}
+		if (size == segments.length) {
+			int capacity = size < 64 ? size * 2 + 2 : size + (size >> 1);
+			// Arrays.copyOf is not available before android API 9
+			RouteSegment[] ns = new RouteSegment[capacity];
+			System.arraycopy(segments, 0, ns, 0, size);
+			segments = ns;
+			double[] nk = new double[capacity];
+			System.arraycopy(keys, 0, nk, 0, size);
+			keys = nk;
+		}
+		siftUp(size++, s, key);
+	}
+
+	RouteSegment poll() {
+		if (size == 0) {
+			return null;
+		}
+		RouteSegment result = segments[0];
+		removeAt(0);
+		return result;
+	}
+
+	private void removeAt(int i) {
+		RouteSegment s = segments[i];
+		int last = --size;
+		RouteSegment moved = segments[last];
+		double key = keys[last];
+		segments[last] = null;
+		if (last != i) {
+			siftDown(i, moved, key);
+			if (segments[i] == moved) {
+				siftUp(i, moved, key);
+			}
+		}
+		s.queueIndex = -1;
+	}
+
+	private void siftUp(int k, RouteSegment x, double key) {
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			if (key >= keys[parent]) {
+				break;
+			}
+			set(k, segments[parent], keys[parent]);
+			k = parent;
+		}
+		set(k, x, key);
+	}
+
+	private void siftDown(int k, RouteSegment x, double key) {
+		int half = size >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int right = child + 1;
+			if (right < size && keys[child] > keys[right]) {
+				child = right;
+			}
+			if (key <= keys[child]) {
+				break;
+			}
+			set(k, segments[child], keys[child]);
+			k = child;
+		}
+		set(k, x, key);
+	}
+
+	private void set(int i, RouteSegment s, double key) {
+		segments[i] = s;
+		keys[i] = key;
+		s.queueIndex = i;
+	}
+}
@@ -39,6 +39,14 @@ public class RoutingConfiguration {
 	// 1.5 Recalculate distance help
 	public float recalculateDistance = 10000f;
 	
+	// 1.6 Run direct and reverse search of 2 ways planning in 2 threads (approximation of serial search: meeting point
+	// depends on the threads and could be cheaper than the serial one, but more segments are visited)
+	public boolean parallelSearch = false;
+	
+	// 1.7 Keep visited segments in primitive arrays and rebuild only the found route from them (less memory for long 
+	// routes, not used by parallel search and recalculation)
+	public boolean compactVisitedSegments = false;
+	
 
 
 	public static class Builder {
@@ -84,6 +92,9 @@ public class RoutingConfiguration {
 				i.memoryLimitation = memoryLimitMB * (1 << 20);
 			}
 			i.planRoadDirection = parseSilentInt(getAttribute(i.router, "planRoadDirection"), i.planRoadDirection);
+			i.parallelSearch = parseSilentBoolean(getAttribute(i.router, "parallelSearch"), i.parallelSearch);
+			i.compactVisitedSegments = parseSilentBoolean(getAttribute(i.router, "compactVisitedSegments"),
+					i.compactVisitedSegments);
 			
 			return i;
 		}
@@ -113,6 +124,13 @@ public class RoutingConfiguration {
 		return Float.parseFloat(t);
 	}
 
+	private static boolean parseSilentBoolean(String t, boolean v) {
+		if (t == null || t.length() == 0) {
+			return v;
+		}
+		return Boolean.parseBoolean(t);
+	}
+
 	
 	private static RoutingConfiguration.Builder DEFAULT;
 
@@ -1,7 +1,7 @@
 package net.osmand.router;
 
 
-import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.impl.hash.THash;
 import gnu.trove.iterator.TLongIterator;
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
@@ -18,6 +18,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 
 import net.osmand.PlatformUtil;
 import net.osmand.NativeLibrary;
@@ -32,6 +33,7 @@ import net.osmand.binary.RouteDataObject;
 import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentVisitor;
+import net.osmand.router.RoutingTileCache.CachedTile;
 import net.osmand.util.MapUtils;
 
 import org.apache.commons.logging.Log;
@@ -105,6 +107,13 @@ public class RoutingContext {
 	public int relaxedSegments = 0;
 	// callback of processing segments
 	RouteSegmentVisitor visitor = null;
+	// runs reverse search when parallel search is enabled (new thread is started if it is not set)
+	Executor parallelSearchExecutor = null;
+	// decoded tiles shared with other contexts (not used by native library)
+	RoutingTileCache tileCache = null;
+	// key of the tiles in the cache, calculated once for the router (key is written before the router)
+	private volatile Object acceptedRoadsKey = null;
+	private volatile VehicleRouter acceptedRoadsRouter = null;
 
 
 	// old planner
@@ -119,6 +128,8 @@ public class RoutingContext {
 		this.useBaseMap = cp.useBaseMap;
 		this.reverseMap.putAll(cp.reverseMap);
 		this.nativeLib = cp.nativeLib;
+		this.parallelSearchExecutor = cp.parallelSearchExecutor;
+		this.tileCache = cp.tileCache;
 		// copy local data and clear caches
 		for(RoutingSubregionTile tl : subregionTiles) {
 			if(tl.isLoaded()) {
@@ -175,19 +186,60 @@ public class RoutingContext {
 		return cnt;
 	}
 	
+	/**
+	 * @return estimated size of loaded tiles in bytes
+	 */
 	public int getCurrentEstimatedSize(){
 		return global.size;
 	}
 	
+	/**
+	 * @return estimated size of queues and visited segments of the running route search in bytes
+	 */
+	public int getSearchEstimatedSize() {
+		return memoryOverhead;
+	}
+	
 	
 	public void setVisitor(RouteSegmentVisitor visitor) {
 		this.visitor = visitor;
 	}
+	
+	public Executor getParallelSearchExecutor() {
+		return parallelSearchExecutor;
+	}
+	
+	/**
+	 * @param executor runs reverse search of {@link RoutingConfiguration#parallelSearch}, null to start new thread
+	 */
+	public void setParallelSearchExecutor(Executor executor) {
+		this.parallelSearchExecutor = executor;
+	}
+
+	public RoutingTileCache getTileCache() {
+		return tileCache;
+	}
+	
+	/**
+	 * @param tileCache cache of decoded tiles shared by contexts, tiles are released by {@link #unloadAllData()}
+	 */
+	public void setTileCache(RoutingTileCache tileCache) {
+		this.tileCache = tileCache;
+	}
 
 	public void setRouter(VehicleRouter router) {
 		config.router = router;
 	}
 	
+	private Object getAcceptedRoadsKey() {
+		VehicleRouter router = config.router;
+		if (acceptedRoadsRouter != router) {
+			acceptedRoadsKey = router.getAcceptedRoadsKey();
+			acceptedRoadsRouter = router;
+		}
+		return acceptedRoadsKey;
+	}
+	
 	public void setHeuristicCoefficient(float heuristicCoefficient) {
 		config.heuristicCoefficient = heuristicCoefficient;
 	}
@@ -239,7 +291,9 @@ public class RoutingContext {
 	public void unloadAllData(RoutingContext except) {
 		for (RoutingSubregionTile tl : subregionTiles) {
 			if (tl.isLoaded()) {
-				if(except == null || except.searchSubregionTile(tl.subregion) < 0){
+				// tile of the same subregion loaded by other context is another tile (shared tile is released)
+				int ind = except == null ? -1 : except.searchSubregionTile(tl.subregion);
+				if(ind < 0 || except.subregionTiles.get(ind) != tl){
 					tl.unload();
 					unloadedTiles ++;
 					global.size -= tl.tileStatistics.size;
@@ -415,13 +469,23 @@ public class RoutingContext {
 		if (nativeLib == null) {
 			long now = System.nanoTime();
 			try {
-				BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
-				ts.setLoadedNonNative();
-				List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
-//				System.out.println(ts.subregion.shiftToData + " " + res);
-				for(RouteDataObject ro : res){
-					if(ro != null && config.router.acceptLine(ro)) {
-						ts.add(ro);
+				Object routerKey = tileCache == null ? null : getAcceptedRoadsKey();
+				CachedTile cached = tileCache == null ? null : tileCache.acquire(ts.subregion, routerKey);
+				if (cached != null) {
+					ts.setLoadedShared(tileCache, cached);
+				} else {
+					BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
+					ts.setLoadedNonNative();
+					List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+//					System.out.println(ts.subregion.shiftToData + " " + res);
+					for(RouteDataObject ro : res){
+						if(ro != null && config.router.acceptLine(ro)) {
+							ts.add(ro);
+						}
+					}
+					ts.addRoutesSize();
+					if (tileCache != null) {
+						ts.setLoadedShared(tileCache, tileCache.put(ts.subregion, routerKey, ts.routes, ts.tileStatistics));
 					}
 				}
 			} catch (IOException e) {
@@ -568,9 +632,13 @@ public class RoutingContext {
 	}
 
 	private long maxMemory() {
-		// AVIAN FIXME
-//		return Runtime.getRuntime().maxMemory();
-		return 0;
+		try {
+			long max = Runtime.getRuntime().maxMemory();
+			return max == Long.MAX_VALUE ? 0 : max;
+		} catch (LinkageError e) {
+			// AVIAN FIXME : not implemented by the runtime
+			return 0;
+		}
 	}
 
 	
@@ -678,6 +746,9 @@ public class RoutingContext {
 		private NativeRouteSearchResult searchResult = null;
 		private int isLoaded = 0;
 		private TLongObjectMap<RouteSegment> routes = null;
+		// loaded tile is referenced in the shared cache 
+		private RoutingTileCache tileCache = null;
+		private CachedTile cachedTile = null;
 
 		public RoutingSubregionTile(RouteSubregion subregion) {
 			this.subregion = subregion;
@@ -784,6 +855,11 @@ public class RoutingContext {
 			}
 			searchResult = null;
 			routes = null;
+			if (cachedTile != null) {
+				tileCache.release(cachedTile);
+				cachedTile = null;
+				tileCache = null;
+			}
 		}
 		
 		public void setLoadedNonNative(){
@@ -792,6 +868,22 @@ public class RoutingContext {
 			tileStatistics = new TileStatistics();
 		}
 		
+		void setLoadedShared(RoutingTileCache tileCache, CachedTile cachedTile) {
+			if (routes == null) {
+				isLoaded = Math.abs(isLoaded) + 1;
+			}
+			this.tileCache = tileCache;
+			this.cachedTile = cachedTile;
+			routes = cachedTile.routes;
+			tileStatistics = cachedTile.tileStatistics;
+		}
+		
+		void addRoutesSize() {
+			if (routes instanceof THash) {
+				tileStatistics.size += MemoryEstimation.hashMap((THash) routes, 8);
+			}
+		}
+		
 		public void add(RouteDataObject ro) {
 			tileStatistics.addObject(ro);
 			for (int i = 0; i < ro.pointsX.length; i++) {
@@ -822,6 +914,7 @@ public class RoutingContext {
 						add(ro);
 					}
 				}
+				addRoutesSize();
 			} else {
 				searchResult = r;
 				tileStatistics.size += 100;
@@ -830,36 +923,7 @@ public class RoutingContext {
 	}
 	
 	static int getEstimatedSize(RouteDataObject o) {
-		// calculate size
-		int sz = 0;
-		sz += 8 + 4; // overhead
-		if (o.names != null) {
-			sz += 12;
-			TIntObjectIterator<String> it = o.names.iterator();
-			while(it.hasNext()) {
-				it.advance();
-				String vl = it.value();
-				sz += 12 + vl.length();
-			}
-			sz += 12 + o.names.size() * 25;
-		}
-		sz += 8; // id
-		// coordinates
-		sz += (8 + 4 + 4 * o.getPointsLength()) * 4;
-		sz += o.types == null ? 4 : (8 + 4 + 4 * o.types.length);
-		sz += o.restrictions == null ? 4 : (8 + 4 + 8 * o.restrictions.length);
-		sz += 4;
-		if (o.pointTypes != null) {
-			sz += 8 + 4 * o.pointTypes.length;
-			for (int i = 0; i < o.pointTypes.length; i++) {
-				sz += 4;
-				if (o.pointTypes[i] != null) {
-					sz += 8 + 8 * o.pointTypes[i].length;
-				}
-			}
-		}
-		// Standard overhead?
-		return  (int) (sz * 3.5);
+		return MemoryEstimation.routeDataObject(o);
 	}
 	
 	protected static class TileStatistics {
@@ -877,7 +941,8 @@ public class RoutingContext {
 		public void addObject(RouteDataObject o) {
 			allRoutes++;
 			coordinates += o.getPointsLength() * 2;
-			size += getEstimatedSize(o);
+			// segment of every point is kept in the tile
+			size += getEstimatedSize(o) + o.getPointsLength() * MemoryEstimation.ROUTE_SEGMENT;
 		}
 
 		
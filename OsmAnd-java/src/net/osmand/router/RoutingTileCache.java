@@ -0,0 +1,197 @@
+package net.osmand.router;
+
+import gnu.trove.map.TLongObjectMap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.RoutingContext.TileStatistics;
+
+/**
+ * Decoded routing tiles shared by routing contexts (set by {@link RoutingContext#setTileCache(RoutingTileCache)}), so
+ * the tile loaded by one request is not decoded again by the next requests and recalculations in the same area.
+ *
+ * Tile is identified by its region, file pointer of the subregion and {@link VehicleRouter#getAcceptedRoadsKey()} of the
+ * router which accepted the roads of the tile, so the routers built for every request with the same profile and
+ * parameters share the tiles.
+ * Context holds a reference to every tile it has loaded until the tile is unloaded by the context. Tiles without
+ * references are evicted in least recently used order when the size of all tiles exceeds the max size.
+ *
+ * Cached tiles are only read by contexts (segments of the tile are copied when they are loaded by the route planner),
+ * so the same tile could be used by several threads.
+ */
+public class RoutingTileCache {
+
+	public static final int DEFAULT_MAX_SIZE = 64 << 20;
+
+	private int maxSize;
+	private int size = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private final LinkedHashMap<TileKey, CachedTile> tiles = new LinkedHashMap<TileKey, CachedTile>(64, 0.75f, true);
+
+	public RoutingTileCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize estimated size of all tiles in bytes (referenced tiles are not evicted, so it could be exceeded)
+	 */
+	public RoutingTileCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param routerKey {@link VehicleRouter#getAcceptedRoadsKey()} of the router (calculated once by the context)
+	 * @return cached tile with a new reference or null if tile should be loaded
+	 */
+	synchronized CachedTile acquire(RouteSubregion subregion, Object routerKey) {
+		CachedTile t = tiles.get(new TileKey(subregion, routerKey));
+		if (t == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		t.references++;
+		return t;
+	}
+
+	/**
+	 * Puts loaded tile into the cache, the tile loaded by another context in the meantime is used instead of it
+	 * @return cached tile with a new reference
+	 */
+	synchronized CachedTile put(RouteSubregion subregion, Object routerKey, TLongObjectMap<RouteSegment> routes,
+			TileStatistics tileStatistics) {
+		TileKey key = new TileKey(subregion, routerKey);
+		CachedTile t = tiles.get(key);
+		if (t == null) {
+			t = new CachedTile(routes, tileStatistics);
+			tiles.put(key, t);
+			size += tileStatistics.size;
+		}
+		t.references++;
+		evict();
+		return t;
+	}
+
+	synchronized void release(CachedTile t) {
+		if (t.references > 0) {
+			t.references--;
+		}
+		if (t.references == 0) {
+			evict();
+		}
+	}
+
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<CachedTile> it = tiles.values().iterator();
+		while (size > maxSize && it.hasNext()) {
+			CachedTile t = it.next();
+			if (t.references == 0) {
+				it.remove();
+				size -= t.tileStatistics.size;
+				evictions++;
+			}
+		}
+	}
+
+	/**
+	 * Removes tiles without references
+	 */
+	public synchronized void clear() {
+		Iterator<CachedTile> it = tiles.values().iterator();
+		while (it.hasNext()) {
+			CachedTile t = it.next();
+			if (t.references == 0) {
+				it.remove();
+				size -= t.tileStatistics.size;
+			}
+		}
+	}
+
+	public synchronized int getTilesCount() {
+		return tiles.size();
+	}
+
+	public synchronized int getReferencedTilesCount() {
+		int cnt = 0;
+		for (CachedTile t : tiles.values()) {
+			if (t.references > 0) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * @return estimated size of cached tiles in bytes
+	 */
+	public synchronized int getSize() {
+		return size;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Routing tile cache " + tiles.size() + " tiles, " + size / (1 << 20) + " / " + maxSize / (1 << 20)
+				+ " MB, hits " + hits + ", misses " + misses + ", evictions " + evictions;
+	}
+
+	static class CachedTile {
+		final TLongObjectMap<RouteSegment> routes;
+		final TileStatistics tileStatistics;
+		int references = 0;
+
+		CachedTile(TLongObjectMap<RouteSegment> routes, TileStatistics tileStatistics) {
+			this.routes = routes;
+			this.tileStatistics = tileStatistics;
+		}
+	}
+
+	private static class TileKey {
+		final RouteRegion region;
+		final int filePointer;
+		final Object router;
+
+		TileKey(RouteSubregion subregion, Object router) {
+			// subregions are copied by every context, region is the same for the contexts of the same reader
+			this.region = subregion.routeReg;
+			this.filePointer = subregion.filePointer;
+			this.router = router;
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(region) * 31 + filePointer) * 31 + router.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey o = (TileKey) obj;
+			return region == o.region && filePointer == o.filePointer && router.equals(o.router);
+		}
+	}
+}
@@ -32,6 +32,7 @@ public class TestRouting {
 	public static int MEMORY_TEST_LIMIT = 800;
 	public static boolean TEST_WO_HEURISTIC = false; 
 	public static boolean TEST_BOTH_DIRECTION = false;
+	public static boolean TEST_PARALLEL_SEARCH = false;
 	public static NativeLibrary lib = null;
 	public static boolean oldRouting = false;
 	
@@ -59,6 +60,8 @@ public class TestRouting {
 					routingXmlFile = a.substring("-routingXmlPath=".length());
 				} else if (a.startsWith("-verbose")) {
 					RouteResultPreparation.PRINT_TO_CONSOLE_ROUTE_INFORMATION_TO_TEST = true;
+				} else if (a.startsWith("-parallel")) {
+					TEST_PARALLEL_SEARCH = true;
 				} else if (a.startsWith("-obfDir=")) {
 					obfDirectory = a.substring("-obfDir=".length());
 				} else if (a.startsWith("-start=")) {
@@ -143,7 +146,7 @@ public class TestRouting {
 
 	public static void info() {
 		println("Run router tests is console utility to test route calculation for osmand. It is also possible to calculate one route from -start to -end.");
-		println("\nUsage for run tests : runTestsSuite [-routingXmlPath=PATH] [-verbose] [-obfDir=PATH] [-start=lat;lon] [-end=lat;lon]  [-testDir=PATH] {individualTestPath}");
+		println("\nUsage for run tests : runTestsSuite [-routingXmlPath=PATH] [-verbose] [-parallel] [-obfDir=PATH] [-start=lat;lon] [-end=lat;lon]  [-testDir=PATH] {individualTestPath}");
     }
 	
 
@@ -250,6 +253,20 @@ public class TestRouting {
 					ctx.loadedTiles, testDescription));
 		}
 		
+		if (TEST_PARALLEL_SEARCH) {
+			// meeting point of parallel search depends on the threads, but it is never more expensive
+			rconfig.parallelSearch = true;
+			ctx = new RoutingContext(rconfig, lib, rs);
+			router.searchRoute(ctx, start, end, null, false);
+			FinalRouteSegment frs = ctx.finalRouteSegment;
+			if (frs == null || frs.distanceFromStart > calcRoutingTime * 1.005f) {
+				throw new IllegalArgumentException(MessageFormat.format(
+						"Calculated routing time {0} < {1} routing time of parallel search : {2}", calcRoutingTime + "",
+						frs == null ? "0" : frs.distanceFromStart + "", testDescription));
+			}
+			rconfig.parallelSearch = false;
+		}
+		
 		if(TEST_BOTH_DIRECTION){
 			rconfig.planRoadDirection = -1;
 			runTestSpecialTest(lib, rs, rconfig, router, start, end, calcRoutingTime, "Calculated routing time in both direction {0} != {1} time in -1 direction");
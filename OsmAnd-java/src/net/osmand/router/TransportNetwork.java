@@ -0,0 +1,443 @@
+package net.osmand.router;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.util.MapUtils;
+
+/**
+ * Compact adjacency of stops and routes of the transport index used by {@link TransportRoutePlanner}.
+ *
+ * Every direction of a route is a pattern: sequence of stops with the travel time from the first stop. Stops are
+ * numbered 0 ... getStopsCount() - 1 (stops of different routes with the same id are the same stop), for every stop
+ * the network keeps the patterns going through it and the walking transfers to the stops nearby.
+ *
+ * Transport index has no timetables, so the travel times are estimated by the distance between stops and the speed
+ * of the route type, and boarding a route costs the average waiting time of its type (half of the usual interval).
+ *
+ * Network is immutable and could be used by several planners at the same time.
+ */
+public class TransportNetwork {
+
+	// cells of the grid to find transfers, about 300 meters at equator
+	private static final int GRID_SHIFT = 14;
+
+	// stops: id, 31 tile coordinates and the object with names
+	private final long[] stopIds;
+	private final int[] stopX;
+	private final int[] stopY;
+	private final TransportStop[] stops;
+	// patterns: stops of the pattern p are patternStops[patternStart[p]] ... patternStops[patternStart[p + 1] - 1]
+	// patternTimes are seconds from the departure from the first stop of the pattern
+	private final int[] patternStart;
+	private final int[] patternStops;
+	private final int[] patternTimes;
+	private final int[] patternWaiting;
+	private final int[] patternRoute;
+	private final boolean[] patternForward;
+	private final TransportRoute[] routes;
+	// patterns of the stop s: stopPatterns[stopPatternStart[s]] ... with the index of the stop in patternStops
+	private final int[] stopPatternStart;
+	private final int[] stopPatterns;
+	private final int[] stopPatternIndexes;
+	// walking transfers of the stop s: transferStops[transferStart[s]] ... with walking time in seconds
+	private final int[] transferStart;
+	private final int[] transferStops;
+	private final int[] transferTimes;
+	private final float walkSpeed;
+
+	private TransportNetwork(Builder b) {
+		int stopsCount = b.stopIds.size();
+		stopIds = new long[stopsCount];
+		stopX = b.stopX.toArray();
+		stopY = b.stopY.toArray();
+		stops = b.stops.toArray(new TransportStop[stopsCount]);
+		for (int i = 0; i < stopsCount; i++) {
+			stopIds[i] = b.stopIds.get(i);
+		}
+		patternStart = new int[b.patternStart.size() + 1];
+		for (int p = 0; p < b.patternStart.size(); p++) {
+			patternStart[p] = b.patternStart.get(p);
+		}
+		patternStart[b.patternStart.size()] = b.patternStops.size();
+		patternStops = b.patternStops.toArray();
+		patternTimes = b.patternTimes.toArray();
+		patternWaiting = b.patternWaiting.toArray();
+		patternRoute = b.patternRoute.toArray();
+		patternForward = new boolean[b.patternForward.size()];
+		for (int p = 0; p < patternForward.length; p++) {
+			patternForward[p] = b.patternForward.get(p);
+		}
+		routes = b.routes.toArray(new TransportRoute[b.routes.size()]);
+		walkSpeed = b.walkSpeed;
+
+		// stop -> patterns, counting sort by stop
+		stopPatternStart = new int[stopsCount + 1];
+		for (int i = 0; i < patternStops.length; i++) {
+			stopPatternStart[patternStops[i] + 1]++;
+		}
+		for (int s = 0; s < stopsCount; s++) {
+			stopPatternStart[s + 1] += stopPatternStart[s];
+		}
+		stopPatterns = new int[patternStops.length];
+		stopPatternIndexes = new int[patternStops.length];
+		int[] fill = new int[stopsCount];
+		for (int p = 0; p < getPatternsCount(); p++) {
+			for (int i = patternStart[p]; i < patternStart[p + 1]; i++) {
+				int s = patternStops[i];
+				int pos = stopPatternStart[s] + fill[s]++;
+				stopPatterns[pos] = p;
+				stopPatternIndexes[pos] = i;
+			}
+		}
+
+		// walking transfers between stops closer than max transfer distance
+		transferStart = new int[stopsCount + 1];
+		TIntArrayList tstops = new TIntArrayList();
+		TIntArrayList ttimes = new TIntArrayList();
+		if (b.maxTransferDistance > 0) {
+			TLongObjectHashMap<TIntArrayList> grid = new TLongObjectHashMap<TIntArrayList>();
+			for (int s = 0; s < stopsCount; s++) {
+				long cell = getCell(stopX[s] >> GRID_SHIFT, stopY[s] >> GRID_SHIFT);
+				TIntArrayList list = grid.get(cell);
+				if (list == null) {
+					list = new TIntArrayList();
+					grid.put(cell, list);
+				}
+				list.add(s);
+			}
+			for (int s = 0; s < stopsCount; s++) {
+				transferStart[s] = tstops.size();
+				int cx = stopX[s] >> GRID_SHIFT;
+				int cy = stopY[s] >> GRID_SHIFT;
+				// cells are smaller in meters far from equator
+				double cellSize = MapUtils.getDistance(getLatitude(s), MapUtils.get31LongitudeX(cx << GRID_SHIFT),
+						getLatitude(s), MapUtils.get31LongitudeX((cx + 1) << GRID_SHIFT));
+				int r = (int) Math.ceil(b.maxTransferDistance / Math.max(cellSize, 1));
+				for (int i = cx - r; i <= cx + r; i++) {
+					for (int j = cy - r; j <= cy + r; j++) {
+						TIntArrayList list = grid.get(getCell(i, j));
+						if (list == null) {
+							continue;
+						}
+						for (int k = 0; k < list.size(); k++) {
+							int t = list.get(k);
+							if (t == s) {
+								continue;
+							}
+							double d = getDistance(s, t);
+							if (d <= b.maxTransferDistance) {
+								tstops.add(t);
+								ttimes.add(getWalkingTime(d));
+							}
+						}
+					}
+				}
+			}
+		}
+		transferStart[stopsCount] = tstops.size();
+		transferStops = tstops.toArray();
+		transferTimes = ttimes.toArray();
+	}
+
+	private static long getCell(int cx, int cy) {
+		return (((long) cx) << 32) | (cy & 0xffffffffL);
+	}
+
+	public int getStopsCount() {
+		return stopIds.length;
+	}
+
+	public long getStopId(int stop) {
+		return stopIds[stop];
+	}
+
+	public TransportStop getStop(int stop) {
+		return stops[stop];
+	}
+
+	public int getStopX(int stop) {
+		return stopX[stop];
+	}
+
+	public int getStopY(int stop) {
+		return stopY[stop];
+	}
+
+	public double getLatitude(int stop) {
+		return MapUtils.get31LatitudeY(stopY[stop]);
+	}
+
+	public double getLongitude(int stop) {
+		return MapUtils.get31LongitudeX(stopX[stop]);
+	}
+
+	public double getDistance(int stop1, int stop2) {
+		return MapUtils.getDistance(getLatitude(stop1), getLongitude(stop1), getLatitude(stop2), getLongitude(stop2));
+	}
+
+	public int getPatternsCount() {
+		return patternRoute.length;
+	}
+
+	public int getPatternStart(int pattern) {
+		return patternStart[pattern];
+	}
+
+	public int getPatternEnd(int pattern) {
+		return patternStart[pattern + 1];
+	}
+
+	/**
+	 * @param index index in the stops of all patterns (getPatternStart(p) ... getPatternEnd(p) - 1)
+	 */
+	public int getPatternStop(int index) {
+		return patternStops[index];
+	}
+
+	/**
+	 * @return travel time in seconds from the first stop of the pattern
+	 */
+	public int getPatternTime(int index) {
+		return patternTimes[index];
+	}
+
+	/**
+	 * @return average waiting time in seconds to board the pattern
+	 */
+	public int getPatternWaitingTime(int pattern) {
+		return patternWaiting[pattern];
+	}
+
+	public TransportRoute getPatternRoute(int pattern) {
+		return routes[patternRoute[pattern]];
+	}
+
+	public boolean isPatternForward(int pattern) {
+		return patternForward[pattern];
+	}
+
+	public int getStopPatternStart(int stop) {
+		return stopPatternStart[stop];
+	}
+
+	public int getStopPatternEnd(int stop) {
+		return stopPatternStart[stop + 1];
+	}
+
+	public int getStopPattern(int ind) {
+		return stopPatterns[ind];
+	}
+
+	public int getStopPatternIndex(int ind) {
+		return stopPatternIndexes[ind];
+	}
+
+	public int getTransferStart(int stop) {
+		return transferStart[stop];
+	}
+
+	public int getTransferEnd(int stop) {
+		return transferStart[stop + 1];
+	}
+
+	public int getTransferStop(int ind) {
+		return transferStops[ind];
+	}
+
+	public int getTransferTime(int ind) {
+		return transferTimes[ind];
+	}
+
+	/**
+	 * @return walking speed in m/s
+	 */
+	public float getWalkSpeed() {
+		return walkSpeed;
+	}
+
+	public int getWalkingTime(double distance) {
+		return (int) Math.ceil(distance / walkSpeed);
+	}
+
+	public int getRoutesCount() {
+		return routes.length;
+	}
+
+	/**
+	 * @return rough estimation of the memory used by the arrays of the network in bytes (without stop and route objects)
+	 */
+	public long getEstimatedSize() {
+		return 16l * stopIds.length + 4l * (stopPatternStart.length + transferStart.length + patternStart.length)
+				+ 12l * patternStops.length + 9l * patternRoute.length + 8l * transferStops.length;
+	}
+
+	public static class Builder {
+		private final TLongObjectHashMap<Integer> stopsById = new TLongObjectHashMap<Integer>();
+		private final List<Long> stopIds = new ArrayList<Long>();
+		private final TIntArrayList stopX = new TIntArrayList();
+		private final TIntArrayList stopY = new TIntArrayList();
+		private final List<TransportStop> stops = new ArrayList<TransportStop>();
+		private final TIntArrayList patternStart = new TIntArrayList();
+		private final TIntArrayList patternStops = new TIntArrayList();
+		private final TIntArrayList patternTimes = new TIntArrayList();
+		private final TIntArrayList patternWaiting = new TIntArrayList();
+		private final TIntArrayList patternRoute = new TIntArrayList();
+		private final List<Boolean> patternForward = new ArrayList<Boolean>();
+		private final List<TransportRoute> routes = new ArrayList<TransportRoute>();
+
+		// speed in m/s and waiting time in seconds by route type
+		private final Map<String, Float> speeds = new HashMap<String, Float>();
+		private final Map<String, Integer> waitingTimes = new HashMap<String, Integer>();
+		private float defaultSpeed = 5.5f;
+		private int defaultWaitingTime = 300;
+		private int stopTime = 20;
+		private float walkSpeed = 1.3f;
+		private int maxTransferDistance = 300;
+
+		public Builder() {
+			setRouteType("bus", 5.5f, 300);
+			setRouteType("trolleybus", 5f, 300);
+			setRouteType("tram", 5f, 240);
+			setRouteType("share_taxi", 7f, 420);
+			setRouteType("subway", 10f, 150);
+			setRouteType("light_rail", 10f, 300);
+			setRouteType("train", 14f, 900);
+			setRouteType("ferry", 5f, 900);
+		}
+
+		/**
+		 * @param speed average speed in m/s between stops
+		 * @param waitingTime average waiting time in seconds (half of the interval)
+		 */
+		public Builder setRouteType(String type, float speed, int waitingTime) {
+			speeds.put(type, speed);
+			waitingTimes.put(type, waitingTime);
+			return this;
+		}
+
+		/**
+		 * Speed and waiting time of the routes of unknown type
+		 */
+		public Builder setDefaultRouteType(float speed, int waitingTime) {
+			defaultSpeed = speed;
+			defaultWaitingTime = waitingTime;
+			return this;
+		}
+
+		/**
+		 * @param stopTime time in seconds the vehicle stays at every stop
+		 */
+		public Builder setStopTime(int stopTime) {
+			this.stopTime = stopTime;
+			return this;
+		}
+
+		/**
+		 * @param walkSpeed walking speed in m/s for transfers, the way to the first stop and from the last stop
+		 */
+		public Builder setWalkSpeed(float walkSpeed) {
+			this.walkSpeed = walkSpeed;
+			return this;
+		}
+
+		/**
+		 * @param maxTransferDistance max distance in meters to walk between stops, 0 to change only at the same stop
+		 */
+		public Builder setMaxTransferDistance(int maxTransferDistance) {
+			this.maxTransferDistance = maxTransferDistance;
+			return this;
+		}
+
+		/**
+		 * Adds both directions of the route
+		 */
+		public Builder addRoute(TransportRoute route) {
+			int r = routes.size();
+			routes.add(route);
+			addPattern(r, route, route.getForwardStops(), true);
+			addPattern(r, route, route.getBackwardStops(), false);
+			return this;
+		}
+
+		/**
+		 * Adds routes going through the stops in the area (routes are added completely, also outside of the area)
+		 */
+		public Builder addRoutes(BinaryMapIndexReader reader, int left31, int top31, int right31, int bottom31)
+				throws IOException {
+			List<TransportStop> areaStops = reader.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(
+					left31, right31, top31, bottom31, -1, null));
+			TIntHashSet pointers = new TIntHashSet();
+			for (TransportStop s : areaStops) {
+				if (s.getReferencesToRoutes() != null) {
+					pointers.addAll(s.getReferencesToRoutes());
+				}
+			}
+			int[] sorted = pointers.toArray();
+			Arrays.sort(sorted);
+			TIntObjectHashMap<TransportRoute> loaded = reader.getTransportRoutes(sorted);
+			// file order to have the same network for the same file
+			for (int p : sorted) {
+				TransportRoute route = loaded.get(p);
+				if (route != null) {
+					addRoute(route);
+				}
+			}
+			return this;
+		}
+
+		private void addPattern(int r, TransportRoute route, List<TransportStop> rstops, boolean forward) {
+			if (rstops.size() < 2) {
+				return;
+			}
+			String type = route.getType();
+			Float speed = type == null ? null : speeds.get(type);
+			Integer waiting = type == null ? null : waitingTimes.get(type);
+			float sp = speed == null ? defaultSpeed : speed.floatValue();
+			patternStart.add(patternStops.size());
+			patternWaiting.add(waiting == null ? defaultWaitingTime : waiting.intValue());
+			patternRoute.add(r);
+			patternForward.add(forward);
+			int time = 0;
+			TransportStop prev = null;
+			for (TransportStop s : rstops) {
+				if (prev != null) {
+					double d = MapUtils.getDistance(prev.getLocation(), s.getLocation());
+					time += (int) Math.ceil(d / sp) + stopTime;
+				}
+				patternStops.add(getStopIndex(s));
+				patternTimes.add(time);
+				prev = s;
+			}
+		}
+
+		private int getStopIndex(TransportStop s) {
+			Integer ind = stopsById.get(s.getId());
+			if (ind == null) {
+				ind = stopIds.size();
+				stopsById.put(s.getId(), ind);
+				stopIds.add(s.getId());
+				stopX.add(MapUtils.get31TileNumberX(s.getLocation().getLongitude()));
+				stopY.add(MapUtils.get31TileNumberY(s.getLocation().getLatitude()));
+				stops.add(s);
+			}
+			return ind;
+		}
+
+		public TransportNetwork build() {
+			return new TransportNetwork(this);
+		}
+	}
+}
@@ -0,0 +1,442 @@
+package net.osmand.router;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.util.MapUtils;
+
+/**
+ * Round based (RAPTOR) public transport planner over {@link TransportNetwork}.
+ *
+ * Round k finds the earliest arrival at every stop using k rides: it scans once every pattern going through the stops
+ * improved in the previous round and then walks from the stops improved by a ride to the stops nearby. Arrival at the
+ * destination after every round gives the journeys which are not worse than the others both by arrival time and by
+ * number of rides: the first of them has the minimum number of transfers and the last one arrives first.
+ *
+ * Times are seconds from the departure. Planner keeps the labels of the last search and is not thread safe, several
+ * planners could share one network.
+ */
+public class TransportRoutePlanner {
+
+	private static final int INFINITY = Integer.MAX_VALUE;
+
+	private final TransportNetwork network;
+	private int maxWalkDistance = 800;
+	private int maxTransfers = 4;
+
+	// labels of the round k: arrival by ride with the pattern boarded and left at indexes in pattern stops
+	// (the stop could be several times in the looping pattern)
+	private int[][] arrival = new int[0][];
+	private int[][] boardIndex = new int[0][];
+	private int[][] alightIndex = new int[0][];
+	// arrival walking from the stop reached by ride in the same round (round 0 is the walk from the start)
+	private int[][] walkArrival = new int[0][];
+	private int[][] walkFrom = new int[0][];
+	// best arrival at the stop in any round
+	private final int[] best;
+	// the first index of the pattern to scan in the round
+	private final int[] patternFrom;
+	private final BitSet marked;
+	private final TIntArrayList patternsToScan = new TIntArrayList();
+	private final TIntArrayList improved = new TIntArrayList();
+	private final TIntArrayList egressStops = new TIntArrayList();
+	private final TIntArrayList egressTimes = new TIntArrayList();
+	private int visitedStops;
+
+	public TransportRoutePlanner(TransportNetwork network) {
+		this.network = network;
+		best = new int[network.getStopsCount()];
+		patternFrom = new int[network.getPatternsCount()];
+		Arrays.fill(patternFrom, -1);
+		marked = new BitSet(network.getStopsCount());
+	}
+
+	public TransportNetwork getNetwork() {
+		return network;
+	}
+
+	/**
+	 * @param maxWalkDistance max distance in meters to walk to the first stop and from the last stop
+	 */
+	public void setMaxWalkDistance(int maxWalkDistance) {
+		this.maxWalkDistance = maxWalkDistance;
+	}
+
+	public void setMaxTransfers(int maxTransfers) {
+		this.maxTransfers = maxTransfers;
+	}
+
+	/**
+	 * @return number of stops improved during the last search
+	 */
+	public int getVisitedStops() {
+		return visitedStops;
+	}
+
+	/**
+	 * @return journeys ordered by number of rides (ascending) and arrival time (descending), none of them is worse than
+	 * another one by both criteria; walking without rides is included if it is shorter than max walk distance
+	 */
+	public List<TransportRouteResult> searchJourneys(LatLon start, LatLon end) {
+		int rounds = maxTransfers + 2;
+		ensureRounds(rounds);
+		Arrays.fill(best, INFINITY);
+		marked.clear();
+		visitedStops = 0;
+		List<TransportRouteResult> results = new ArrayList<TransportRouteResult>();
+
+		int target = INFINITY;
+		double direct = MapUtils.getDistance(start, end);
+		if (direct <= maxWalkDistance) {
+			target = network.getWalkingTime(direct);
+			results.add(new TransportRouteResult(Collections.singletonList(new TransportRouteLeg(null, false, 0, null,
+					null, null, 0, target, direct)), target));
+		}
+		egressStops.clear();
+		egressTimes.clear();
+		for (int s = 0; s < network.getStopsCount(); s++) {
+			double d = MapUtils.getDistance(end, network.getLatitude(s), network.getLongitude(s));
+			if (d <= maxWalkDistance) {
+				egressStops.add(s);
+				egressTimes.add(network.getWalkingTime(d));
+			}
+		}
+		// round 0: walk to the stops near the start
+		for (int s = 0; s < network.getStopsCount(); s++) {
+			double d = MapUtils.getDistance(start, network.getLatitude(s), network.getLongitude(s));
+			if (d <= maxWalkDistance) {
+				int t = network.getWalkingTime(d);
+				walkArrival[0][s] = t;
+				walkFrom[0][s] = -1;
+				best[s] = t;
+				marked.set(s);
+				visitedStops++;
+			}
+		}
+		for (int k = 1; k < rounds && !marked.isEmpty(); k++) {
+			scanPatterns(k, target);
+			walkTransfers(k, target);
+			int targetStop = -1;
+			for (int i = 0; i < egressStops.size(); i++) {
+				int s = egressStops.get(i);
+				int t = getArrival(k, s);
+				if (t != INFINITY && t + egressTimes.get(i) < target) {
+					target = t + egressTimes.get(i);
+					targetStop = s;
+				}
+			}
+			if (targetStop != -1) {
+				results.add(buildResult(k, targetStop, start, end, target));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @return journey arriving first or null if the destination is not reachable
+	 */
+	public TransportRouteResult searchEarliestArrival(LatLon start, LatLon end) {
+		List<TransportRouteResult> res = searchJourneys(start, end);
+		return res.isEmpty() ? null : res.get(res.size() - 1);
+	}
+
+	/**
+	 * @return journey with minimum number of transfers (arriving first among them) or null if the destination is not reachable
+	 */
+	public TransportRouteResult searchMinimumTransfers(LatLon start, LatLon end) {
+		List<TransportRouteResult> res = searchJourneys(start, end);
+		return res.isEmpty() ? null : res.get(0);
+	}
+
+	private void ensureRounds(int rounds) {
+		int stops = network.getStopsCount();
+		if (arrival.length < rounds) {
+			arrival = new int[rounds][stops];
+			boardIndex = new int[rounds][stops];
+			alightIndex = new int[rounds][stops];
+			walkArrival = new int[rounds][stops];
+			walkFrom = new int[rounds][stops];
+		}
+		for (int k = 0; k < rounds; k++) {
+			Arrays.fill(arrival[k], INFINITY);
+			Arrays.fill(walkArrival[k], INFINITY);
+		}
+	}
+
+	private int getArrival(int round, int stop) {
+		return Math.min(arrival[round][stop], walkArrival[round][stop]);
+	}
+
+	private void scanPatterns(int k, int target) {
+		// patterns through the stops improved in the previous round starting from the first of them
+		patternsToScan.clear();
+		for (int s = marked.nextSetBit(0); s >= 0; s = marked.nextSetBit(s + 1)) {
+			for (int i = network.getStopPatternStart(s); i < network.getStopPatternEnd(s); i++) {
+				int p = network.getStopPattern(i);
+				int ind = network.getStopPatternIndex(i);
+				if (patternFrom[p] == -1) {
+					patternsToScan.add(p);
+					patternFrom[p] = ind;
+				} else if (ind < patternFrom[p]) {
+					patternFrom[p] = ind;
+				}
+			}
+		}
+		marked.clear();
+		improved.clear();
+		int[] prev = arrival[k - 1];
+		int[] prevWalk = walkArrival[k - 1];
+		for (int j = 0; j < patternsToScan.size(); j++) {
+			int p = patternsToScan.get(j);
+			int end = network.getPatternEnd(p);
+			int waiting = network.getPatternWaitingTime(p);
+			// departure of the vehicle from the first stop of the pattern
+			int departure = INFINITY;
+			int board = -1;
+			for (int i = patternFrom[p]; i < end; i++) {
+				int s = network.getPatternStop(i);
+				int time = network.getPatternTime(i);
+				if (board != -1) {
+					int t = departure + time;
+					if (t < best[s] && t < target) {
+						if (arrival[k][s] == INFINITY && walkArrival[k][s] == INFINITY) {
+							visitedStops++;
+						}
+						arrival[k][s] = t;
+						boardIndex[k][s] = board;
+						alightIndex[k][s] = i;
+						best[s] = t;
+						if (!marked.get(s)) {
+							marked.set(s);
+							improved.add(s);
+						}
+					}
+				}
+				// board here if it is the first stop reached in the previous round or it catches earlier vehicle
+				int t = Math.min(prev[s], prevWalk[s]);
+				if (t != INFINITY && (board == -1 || t + waiting - time < departure)) {
+					departure = t + waiting - time;
+					board = i;
+				}
+			}
+			patternFrom[p] = -1;
+		}
+	}
+
+	private void walkTransfers(int k, int target) {
+		// only from the stops reached by ride, walking is not continued by another walk
+		for (int j = 0; j < improved.size(); j++) {
+			int s = improved.get(j);
+			int from = arrival[k][s];
+			for (int i = network.getTransferStart(s); i < network.getTransferEnd(s); i++) {
+				int u = network.getTransferStop(i);
+				int t = from + network.getTransferTime(i);
+				if (t < best[u] && t < target) {
+					if (arrival[k][u] == INFINITY && walkArrival[k][u] == INFINITY) {
+						visitedStops++;
+					}
+					walkArrival[k][u] = t;
+					walkFrom[k][u] = s;
+					best[u] = t;
+					marked.set(u);
+				}
+			}
+		}
+	}
+
+	private TransportRouteResult buildResult(int rounds, int targetStop, LatLon start, LatLon end, int arrivalTime) {
+		List<TransportRouteLeg> legs = new ArrayList<TransportRouteLeg>();
+		int atEnd = getArrival(rounds, targetStop);
+		double d = MapUtils.getDistance(end, network.getLatitude(targetStop), network.getLongitude(targetStop));
+		legs.add(new TransportRouteLeg(null, false, 0, network.getStop(targetStop), null, null, atEnd, arrivalTime, d));
+		int s = targetStop;
+		for (int k = rounds; k > 0; k--) {
+			if (walkArrival[k][s] < arrival[k][s]) {
+				int from = walkFrom[k][s];
+				legs.add(new TransportRouteLeg(null, false, 0, network.getStop(from), network.getStop(s), null,
+						arrival[k][from], walkArrival[k][s], network.getDistance(from, s)));
+				s = from;
+			}
+			int board = boardIndex[k][s];
+			int alight = alightIndex[k][s];
+			int p = getPattern(board);
+			List<TransportStop> stops = new ArrayList<TransportStop>();
+			for (int i = board; i <= alight; i++) {
+				stops.add(network.getStop(network.getPatternStop(i)));
+			}
+			int arrivalTime1 = arrival[k][s];
+			int departure = arrivalTime1 - network.getPatternTime(alight) + network.getPatternTime(board);
+			s = network.getPatternStop(board);
+			legs.add(new TransportRouteLeg(network.getPatternRoute(p), network.isPatternForward(p), network.getPatternWaitingTime(p), stops.get(0),
+					stops.get(stops.size() - 1), stops, departure, arrivalTime1, 0));
+		}
+		d = MapUtils.getDistance(start, network.getLatitude(s), network.getLongitude(s));
+		legs.add(new TransportRouteLeg(null, false, 0, null, network.getStop(s), null, 0, walkArrival[0][s], d));
+		Collections.reverse(legs);
+		return new TransportRouteResult(legs, arrivalTime);
+	}
+
+	private int getPattern(int index) {
+		// patterns are sorted by start index
+		int lo = 0;
+		int hi = network.getPatternsCount() - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (network.getPatternStart(mid) <= index) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Part of the journey: ride from the first to the last stop or walking (route is null) between stops or start
+	 * and end points (stop is null for start and end point)
+	 */
+	public static class TransportRouteLeg {
+		private final TransportRoute route;
+		private final boolean forward;
+		private final int waitingTime;
+		private final TransportStop fromStop;
+		private final TransportStop toStop;
+		private final List<TransportStop> stops;
+		private final int departureTime;
+		private final int arrivalTime;
+		private final double walkDistance;
+
+		TransportRouteLeg(TransportRoute route, boolean forward, int waitingTime, TransportStop fromStop,
+				TransportStop toStop, List<TransportStop> stops, int departureTime, int arrivalTime, double walkDistance) {
+			this.route = route;
+			this.forward = forward;
+			this.waitingTime = waitingTime;
+			this.fromStop = fromStop;
+			this.toStop = toStop;
+			this.stops = stops;
+			this.departureTime = departureTime;
+			this.arrivalTime = arrivalTime;
+			this.walkDistance = walkDistance;
+		}
+
+		public boolean isWalk() {
+			return route == null;
+		}
+
+		public TransportRoute getRoute() {
+			return route;
+		}
+
+		/**
+		 * @return true if the ride goes by forward stops of the route
+		 */
+		public boolean isForward() {
+			return forward;
+		}
+
+		/**
+		 * @return average waiting time included in the departure time of the ride
+		 */
+		public int getWaitingTime() {
+			return waitingTime;
+		}
+
+		public TransportStop getFromStop() {
+			return fromStop;
+		}
+
+		public TransportStop getToStop() {
+			return toStop;
+		}
+
+		/**
+		 * @return stops of the ride including the first and the last one, null for walking
+		 */
+		public List<TransportStop> getStops() {
+			return stops;
+		}
+
+		public int getDepartureTime() {
+			return departureTime;
+		}
+
+		public int getArrivalTime() {
+			return arrivalTime;
+		}
+
+		public double getWalkDistance() {
+			return walkDistance;
+		}
+
+		@Override
+		public String toString() {
+			if (route == null) {
+				return "Walk " + (int) walkDistance + " m from " + (fromStop == null ? "start" : fromStop.getName())
+						+ " to " + (toStop == null ? "end" : toStop.getName()) + " " + departureTime + "-" + arrivalTime;
+			}
+			return route.getType() + " " + route.getRef() + " from " + fromStop.getName() + " to " + toStop.getName()
+					+ " (" + (stops.size() - 1) + " stops) " + departureTime + "-" + arrivalTime;
+		}
+	}
+
+	public static class TransportRouteResult {
+		private final List<TransportRouteLeg> legs;
+		private final int arrivalTime;
+
+		TransportRouteResult(List<TransportRouteLeg> legs, int arrivalTime) {
+			this.legs = legs;
+			this.arrivalTime = arrivalTime;
+		}
+
+		public List<TransportRouteLeg> getLegs() {
+			return legs;
+		}
+
+		/**
+		 * @return travel time in seconds
+		 */
+		public int getArrivalTime() {
+			return arrivalTime;
+		}
+
+		public int getRides() {
+			int rides = 0;
+			for (TransportRouteLeg l : legs) {
+				if (!l.isWalk()) {
+					rides++;
+				}
+			}
+			return rides;
+		}
+
+		public int getTransfers() {
+			return Math.max(getRides() - 1, 0);
+		}
+
+		public double getWalkDistance() {
+			double d = 0;
+			for (TransportRouteLeg l : legs) {
+				d += l.getWalkDistance();
+			}
+			return d;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder b = new StringBuilder();
+			b.append("Journey ").append(arrivalTime / 60).append(" min, transfers ").append(getTransfers());
+			for (TransportRouteLeg l : legs) {
+				b.append("\n\t").append(l);
+			}
+			return b.toString();
+		}
+	}
+}
@@ -60,6 +60,13 @@ public abstract class VehicleRouter {
 	public abstract float getMaxDefaultSpeed();
 	
 	public abstract VehicleRouter specifyParameter(String tag);
+	
+	/**
+	 * @return key which is equal for the routers accepting the same roads (decoded routing tiles are shared by them)
+	 */
+	public Object getAcceptedRoadsKey() {
+		return this;
+	}
 
 	/**
 	 * Calculate turn time 
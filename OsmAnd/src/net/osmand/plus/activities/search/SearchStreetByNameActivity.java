@@ -8,6 +8,7 @@ import java.util.List;
 
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.NameKeyIndex;
 import net.osmand.ResultMatcher;
 import net.osmand.data.City;
 import net.osmand.data.MapObject;
@@ -32,6 +33,10 @@ public class SearchStreetByNameActivity extends SearchByNameAbstractActivity<Str
 	private City city;
 	private Button searchAllStrets;
 	private int searchWithCity = -1; // -1 - default, 0 - filter city, 1 - deep search
+	// name keys of the streets to filter
+	private NameKeyIndex<Street> nameKeys;
+	private Collection<Street> nameKeysList;
+	private boolean nameKeysEn;
 	
 	@Override
 	protected Comparator<? super Street> createComparator() {
@@ -166,9 +171,26 @@ public class SearchStreetByNameActivity extends SearchByNameAbstractActivity<Str
 	}
 
 
+	private NameKeyIndex<Street> getNameKeys(Collection<Street> list) {
+		boolean en = region.useEnglishNames();
+		if (nameKeys == null || nameKeysList != list || nameKeys.size() != list.size() || nameKeysEn != en) {
+			NameKeyIndex.Builder<Street> builder = new NameKeyIndex.Builder<Street>();
+			for (Street obj : list) {
+				builder.add(obj, obj.getNameWithoutCityPart(en));
+			}
+			nameKeys = builder.build();
+			nameKeysList = list;
+			nameKeysEn = en;
+		}
+		return nameKeys;
+	}
+
 	private void filter(String query, Collection<Street> list) {
 		boolean emptyQuery = query == null || query.length() == 0;
-		for (Street obj : list) {
+		// only streets having a word starting with the query are checked by collator
+		NameKeyIndex<Street> keys = emptyQuery ? null : getNameKeys(list);
+		Collection<Street> candidates = emptyQuery ? null : keys.getCandidates(query, StringMatcherMode.CHECK_ONLY_STARTS_WITH);
+		for (Street obj : candidates == null ? list : candidates) {
 			if (namesFilter.isCancelled) {
 				break;
 			}
@@ -179,7 +201,8 @@ public class SearchStreetByNameActivity extends SearchByNameAbstractActivity<Str
 			}
 		}
 		if (!emptyQuery) {
-			for (Street obj : list) {
+			candidates = keys.getCandidates(query, StringMatcherMode.CHECK_STARTS_FROM_SPACE_NOT_BEGINNING);
+			for (Street obj : candidates == null ? list : candidates) {
 				if (namesFilter.isCancelled) {
 					break;
 				}
@@ -12,6 +12,7 @@ import java.util.TreeMap;
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.NameKeyIndex;
 import net.osmand.PlatformUtil;
 import net.osmand.ResultMatcher;
 import net.osmand.binary.BinaryMapAddressReaderAdapter;
@@ -36,6 +37,8 @@ public class RegionAddressRepositoryBinary implements RegionAddressRepository {
 	private final Map<String, City> postCodes;
 	private boolean useEnglishNames = false;
 	private final Collator collator;
+	// name keys of the loaded cities, rebuilt when cities are changed
+	private NameKeyIndex<City> citiesKeys;
 	
 	public RegionAddressRepositoryBinary(BinaryMapIndexReader file, String name) {
 		this.file = file;
@@ -59,6 +62,7 @@ public class RegionAddressRepositoryBinary implements RegionAddressRepository {
 				for (City c : cs) {
 					cities.put(c.getId(), c);
 				}
+				citiesKeys = null;
 			} catch (IOException e) {
 				log.error("Disk operation failed", e); //$NON-NLS-1$
 			}
@@ -80,6 +84,18 @@ public class RegionAddressRepositoryBinary implements RegionAddressRepository {
 	@Override
 	public synchronized void addCityToPreloadedList(City city) {
 		cities.put(city.getId(), city);
+		citiesKeys = null;
+	}
+	
+	private synchronized NameKeyIndex<City> getCitiesKeys() {
+		if (citiesKeys == null) {
+			NameKeyIndex.Builder<City> builder = new NameKeyIndex.Builder<City>();
+			for (City c : cities.values()) {
+				builder.add(c, c.getName(useEnglishNames));
+			}
+			citiesKeys = builder.build();
+		}
+		return citiesKeys;
 	}
 	
 	@Override
@@ -148,7 +164,9 @@ public class RegionAddressRepositoryBinary implements RegionAddressRepository {
 
 			}
 			name = name.toLowerCase();
-			for (City c : cities.values()) {
+			// only cities having a word starting with the name are checked by collator
+			List<City> candidates = getCitiesKeys().getCandidates(name, StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+			for (City c : candidates != null ? candidates : getLoadedCities()) {
 				String cName = c.getName(useEnglishNames); // lower case not needed, collator ensures that
 				if (CollatorStringMatcher.cmatches(collator, cName, name, StringMatcherMode.CHECK_STARTS_FROM_SPACE)) {
 					if (resultMatcher.publish(c)) {
@@ -273,13 +291,15 @@ public class RegionAddressRepositoryBinary implements RegionAddressRepository {
 
 
 	@Override
-	public void setUseEnglishNames(boolean useEnglishNames) {
+	public synchronized void setUseEnglishNames(boolean useEnglishNames) {
 		this.useEnglishNames = useEnglishNames;
+		citiesKeys = null;
 	}
 
 	@Override
-	public void clearCache() {
+	public synchronized void clearCache() {
 		cities.clear();
+		citiesKeys = null;
 		postCodes.clear();
 		
 	}
@@ -162,7 +162,8 @@ public class TransportIndexRepositoryBinary implements TransportIndexRepository
 			}
 			TIntObjectHashMap<TransportRoute> transportRoutes = file.getTransportRoutes(stopsToProcess.keys());
 			for (int ref : stopsToProcess.keys()) {
-				TransportRoute route = transportRoutes.get(ref);
+				// routes are cached by the reader, stops are removed from the copy
+				TransportRoute route = new TransportRoute(transportRoutes.get(ref));
 				TransportStop s = stopsToProcess.get(ref);
 				for (int i = 0; i < 2; i++) {
 					boolean direction = i == 0;
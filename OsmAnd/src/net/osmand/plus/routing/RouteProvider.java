@@ -39,6 +39,7 @@ import net.osmand.router.RoutePlannerFrontEnd;
 import net.osmand.router.RouteSegmentResult;
 import net.osmand.router.RoutingConfiguration;
 import net.osmand.router.RoutingContext;
+import net.osmand.router.RoutingTileCache;
 import net.osmand.router.TurnType;
 import net.osmand.util.Algorithms;
 import net.osmand.util.MapUtils;
@@ -56,6 +57,10 @@ import org.xmlpull.v1.XmlPullParserException;
 public class RouteProvider {
 	private static final org.apache.commons.logging.Log log = PlatformUtil.getLog(RouteProvider.class);
 	private static final String OSMAND_ROUTER = "OsmAndRouter";
+	private static final int ROUTING_TILE_CACHE_SIZE = 16 << 20;
+	
+	// decoded routing tiles shared by recalculations and next routes in the same area
+	private final RoutingTileCache tileCache = new RoutingTileCache(ROUTING_TILE_CACHE_SIZE);
 	
 	public enum RouteService {
 		OSMAND("OsmAnd (offline)"), YOURS("YOURS"),  ORS("OpenRouteService"), OSRM("OSRM (only car)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
@@ -385,6 +390,7 @@ public class RouteProvider {
 			cf.attributes.put("heuristicCoefficient", cf.heuristicCoefficient+"");
 		}
 		RoutingContext ctx = new RoutingContext(cf, params.ctx.getInternalAPI().getNativeLibrary(), files);
+		ctx.setTileCache(tileCache);
 		ctx.calculationProgress = params.calculationProgress;
 		if(params.previousToRecalculate != null) {
 			ctx.previouslyCalculatedRoute = params.previousToRecalculate.getOriginalRoute();
@@ -433,6 +439,9 @@ public class RouteProvider {
 			int avl = (int) (Runtime.getRuntime().freeMemory() / (1 << 20));
 			String s = " (" + avl + " MB available of " + max  + ") ";
 			return new RouteCalculationResult("Not enough process memory "+ s);
+		} finally {
+			// releases shared tiles, so they could be evicted from the cache
+			ctx.unloadAllData();
 		}
 	}
 	